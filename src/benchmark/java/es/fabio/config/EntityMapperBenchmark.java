@@ -0,0 +1,136 @@
+package es.fabio.config;
+
+import es.fabio.domain.OrderItem;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.elasticsearch.core.EntityMapper;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost per document of the {@link ElasticsearchConfiguration.CustomEntityMapper}, in nanoseconds.
+ * <p>
+ * The {@code stringRoundTrip} benchmarks map the order item of the {@link ElasticsearchEntityMapperIT} as the previous
+ * mapper did: the whole entity graph is printed as a JSON string, which is parsed back into a map, and a map is read
+ * back into an entity through a string again. The {@code tokenBuffer} benchmarks map the same order item to and from
+ * its slim document in a single pass through a token buffer. The {@code mapToString} benchmarks write the JSON sent to
+ * Elasticsearch by each mapper.
+ * <p>
+ * Run with {@code ./mvnw -Pbenchmark test-compile exec:exec -Dbenchmark=EntityMapperBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class EntityMapperBenchmark {
+
+    private final OrderItem orderItem = ElasticsearchEntityMapperIT.orderItem();
+
+    private StringRoundTripMapper stringRoundTripMapper;
+
+    private EntityMapper entityMapper;
+
+    private Map<String, Object> entityMap;
+
+    private Map<String, Object> document;
+
+    @Setup
+    public void setUp() {
+        // Built like the application ObjectMapper, see the JacksonConfiguration
+        JacksonConfiguration jacksonConfiguration = new JacksonConfiguration();
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .modules(jacksonConfiguration.javaTimeModule(), jacksonConfiguration.jdk8TimeModule(), jacksonConfiguration.hibernate5Module())
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+        stringRoundTripMapper = new StringRoundTripMapper(objectMapper.copy());
+        entityMapper = new ElasticsearchConfiguration(objectMapper).getEntityMapper();
+        entityMap = stringRoundTripMapper.mapObject(orderItem);
+        document = entityMapper.mapObject(orderItem);
+    }
+
+    @Benchmark
+    public String stringRoundTripMapToString() throws IOException {
+        return stringRoundTripMapper.mapToString(orderItem);
+    }
+
+    @Benchmark
+    public String tokenBufferMapToString() throws IOException {
+        return entityMapper.mapToString(orderItem);
+    }
+
+    @Benchmark
+    public Map<String, Object> stringRoundTripMapObject() {
+        return stringRoundTripMapper.mapObject(orderItem);
+    }
+
+    @Benchmark
+    public Map<String, Object> tokenBufferMapObject() {
+        return entityMapper.mapObject(orderItem);
+    }
+
+    @Benchmark
+    public OrderItem stringRoundTripReadObject() throws IOException {
+        return stringRoundTripMapper.readObject(entityMap, OrderItem.class);
+    }
+
+    @Benchmark
+    public OrderItem tokenBufferReadObject() {
+        return entityMapper.readObject(document, OrderItem.class);
+    }
+
+    /**
+     * The previous entity mapper, converting objects and maps through JSON strings.
+     */
+    private static class StringRoundTripMapper {
+
+        private final ObjectMapper objectMapper;
+
+        StringRoundTripMapper(ObjectMapper objectMapper) {
+            this.objectMapper = objectMapper;
+            objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+            objectMapper.configure(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY, true);
+            objectMapper.configure(SerializationFeature.WRITE_DATE_TIMESTAMPS_AS_NANOSECONDS, true);
+            objectMapper.configure(SerializationFeature.INDENT_OUTPUT, false);
+            objectMapper.configure(DeserializationFeature.READ_DATE_TIMESTAMPS_AS_NANOSECONDS, true);
+        }
+
+        String mapToString(Object object) throws IOException {
+            return objectMapper.writeValueAsString(object);
+        }
+
+        <T> T mapToObject(String source, Class<T> clazz) throws IOException {
+            return objectMapper.readValue(source, clazz);
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> mapObject(Object source) {
+            try {
+                return objectMapper.readValue(mapToString(source), HashMap.class);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        <T> T readObject(Map<String, Object> source, Class<T> targetType) throws IOException {
+            return mapToObject(mapToString(source), targetType);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package es.fabio.config;
+
+import es.fabio.Application;
+import es.fabio.domain.OrderItem;
+import es.fabio.domain.PersistentAuditEvent;
+import es.fabio.domain.ProductOrder;
+import es.fabio.domain.Producto;
+import es.fabio.domain.enumeration.OrderItemStatus;
+import es.fabio.web.rest.OrderItemResourceIT;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insert throughput of the entities for each setting of the {@link PooledSequenceGenerator}, in rows per second.
+ * <p>
+ * Compares one sequence call per row with the pooled optimizer reserving 50 ids and with the pooled-lo optimizer
+ * reserving 100, the default. Each setting runs in its own fork, against the H2 database of the tests created by
+ * Liquibase with the matching sequence increment. The rows are inserted in one transaction per invocation, in JDBC
+ * batches of {@code hibernate.jdbc.batch_size} as in production.
+ * <p>
+ * Run with {@code ./mvnw -Pbenchmark test-compile exec:exec -Dbenchmark=IdGeneratorBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class IdGeneratorBenchmark {
+
+    private static final int ROWS = 500;
+
+    private static final int BATCH_SIZE = 25;
+
+    /**
+     * The allocation size and the optimizer, as {@code application.id-generator} sets them.
+     */
+    @Param({"1/pooled", "50/pooled", "100/pooled-lo"})
+    public String idGenerator;
+
+    private ConfigurableApplicationContext context;
+
+    private EntityManager entityManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private Producto producto;
+
+    private ProductOrder order;
+
+    @Setup(Level.Trial)
+    public void start() {
+        String[] setting = idGenerator.split("/");
+        context = new SpringApplicationBuilder(Application.class)
+            .properties(
+                "server.port=0",
+                "application.id-generator.allocation-size=" + setting[0],
+                "application.id-generator.optimizer=" + setting[1],
+                "spring.jpa.properties.hibernate.jdbc.batch_size=" + BATCH_SIZE,
+                "spring.jpa.properties.hibernate.order_inserts=true")
+            .run();
+        entityManager = context.getBean(EntityManager.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        transactionTemplate.executeWithoutResult(status -> {
+            OrderItem orderItem = OrderItemResourceIT.createEntity(entityManager);
+            producto = orderItem.getProducto();
+            order = orderItem.getOrder();
+        });
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteRows() {
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.createQuery("delete from OrderItem").executeUpdate();
+            entityManager.createQuery("delete from PersistentAuditEvent").executeUpdate();
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void insertAuditEvents() {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < ROWS; i++) {
+                PersistentAuditEvent event = new PersistentAuditEvent();
+                event.setPrincipal("benchmark");
+                event.setAuditEventType("BENCHMARK");
+                event.setAuditEventDate(Instant.now());
+                entityManager.persist(event);
+            }
+            entityManager.flush();
+            entityManager.clear();
+        });
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void insertOrderItems() {
+        transactionTemplate.executeWithoutResult(status -> {
+            ProductOrder managedOrder = entityManager.getReference(ProductOrder.class, order.getId());
+            Producto managedProducto = entityManager.getReference(Producto.class, producto.getId());
+            for (int i = 0; i < ROWS; i++) {
+                entityManager.persist(new OrderItem()
+                    .quantity(1)
+                    .totalPrice(BigDecimal.ONE)
+                    .status(OrderItemStatus.AVAILABLE)
+                    .producto(managedProducto)
+                    .order(managedOrder));
+            }
+            entityManager.flush();
+            entityManager.clear();
+        });
+    }
+}
@@ -0,0 +1,104 @@
+package es.fabio.aop.metrics;
+
+import es.fabio.config.ApplicationProperties;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aspect recording the latency of the repository, service and Web REST methods as {@code method.timed} timers,
+ * tagged by class, method and outcome.
+ * <p>
+ * Only {@code sampleRate} of the calls are timed. Timed calls slower than {@code slowCallThresholdMs} are logged with
+ * their class and method, never with their arguments.
+ */
+@Aspect
+public class MethodTimingAspect {
+
+    private final Logger log = LoggerFactory.getLogger(MethodTimingAspect.class);
+
+    private final ApplicationProperties.MethodTiming properties;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<Method, MethodTimers> timers = new ConcurrentHashMap<>();
+
+    public MethodTimingAspect(ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        this.properties = applicationProperties.getMethodTiming();
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Advice that times a sample of the method calls.
+     *
+     * @param joinPoint join point for advice.
+     * @return result.
+     * @throws Throwable the exception thrown by the method.
+     */
+    @Around("es.fabio.aop.logging.LoggingAspect.applicationPackagePointcut() && es.fabio.aop.logging.LoggingAspect.springBeanPointcut()")
+    public Object timeAround(ProceedingJoinPoint joinPoint) throws Throwable {
+        double sampleRate = properties.getSampleRate();
+        if (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return joinPoint.proceed();
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            Object result = joinPoint.proceed();
+            failed = false;
+            return result;
+        } finally {
+            long duration = System.nanoTime() - start;
+            Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+            MethodTimers methodTimers = timers.computeIfAbsent(method, this::createTimers);
+            (failed ? methodTimers.error : methodTimers.success).record(duration, TimeUnit.NANOSECONDS);
+            if (duration >= TimeUnit.MILLISECONDS.toNanos(properties.getSlowCallThresholdMs())) {
+                log.warn("Slow call {}.{}() {} ms{}", methodTimers.className, method.getName(),
+                    TimeUnit.NANOSECONDS.toMillis(duration), failed ? " failed" : "");
+            }
+        }
+    }
+
+    private MethodTimers createTimers(Method method) {
+        String className = method.getDeclaringClass().getSimpleName();
+        return new MethodTimers(className, timer(className, method, "success"), timer(className, method, "error"));
+    }
+
+    private Timer timer(String className, Method method, String outcome) {
+        return Timer.builder("method.timed")
+            .description("Duration of the repository, service and Web REST method calls")
+            .tag("class", className)
+            .tag("method", method.getName())
+            .tag("outcome", outcome)
+            .publishPercentileHistogram(properties.isPercentileHistogram())
+            .register(meterRegistry);
+    }
+
+    private static final class MethodTimers {
+
+        private final String className;
+
+        private final Timer success;
+
+        private final Timer error;
+
+        private MethodTimers(String className, Timer success, Timer error) {
+            this.className = className;
+            this.success = success;
+            this.error = error;
+        }
+    }
+}
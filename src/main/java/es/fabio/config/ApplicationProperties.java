@@ -2,6 +2,13 @@ package es.fabio.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Properties specific to 1 H Project.
  * <p>
@@ -10,4 +17,698 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
  */
 @ConfigurationProperties(prefix = "application", ignoreUnknownFields = false)
 public class ApplicationProperties {
+
+    private final SearchIndexer searchIndexer = new SearchIndexer();
+
+    private final SearchReindex searchReindex = new SearchReindex();
+
+    private final JwtCache jwtCache = new JwtCache();
+
+    private final AuditEvents auditEvents = new AuditEvents();
+
+    private final Purge purge = new Purge();
+
+    private final Cache cache = new Cache();
+
+    private final HibernateStatistics hibernateStatistics = new HibernateStatistics();
+
+    private final MethodTiming methodTiming = new MethodTiming();
+
+    private final Bulk bulk = new Bulk();
+
+    private final IdGenerator idGenerator = new IdGenerator();
+
+    private final SalesAnalytics salesAnalytics = new SalesAnalytics();
+
+    private final CatalogueCache catalogueCache = new CatalogueCache();
+
+    private final Search search = new Search();
+
+    public SearchIndexer getSearchIndexer() {
+        return searchIndexer;
+    }
+
+    public SearchReindex getSearchReindex() {
+        return searchReindex;
+    }
+
+    public JwtCache getJwtCache() {
+        return jwtCache;
+    }
+
+    public AuditEvents getAuditEvents() {
+        return auditEvents;
+    }
+
+    public Purge getPurge() {
+        return purge;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public HibernateStatistics getHibernateStatistics() {
+        return hibernateStatistics;
+    }
+
+    public MethodTiming getMethodTiming() {
+        return methodTiming;
+    }
+
+    public Bulk getBulk() {
+        return bulk;
+    }
+
+    public IdGenerator getIdGenerator() {
+        return idGenerator;
+    }
+
+    public SalesAnalytics getSalesAnalytics() {
+        return salesAnalytics;
+    }
+
+    public CatalogueCache getCatalogueCache() {
+        return catalogueCache;
+    }
+
+    public Search getSearch() {
+        return search;
+    }
+
+    /**
+     * Settings of the background indexer draining the search outbox into Elasticsearch.
+     */
+    public static class SearchIndexer {
+
+        private boolean enabled = true;
+
+        private long pollIntervalMs = 1000;
+
+        private int batchSize = 500;
+
+        private int minBatchSize = 10;
+
+        private int maxBatchesPerRun = 20;
+
+        private int maxAttempts = 10;
+
+        private long retryBackoffMs = 1000;
+
+        private long maxRetryBackoffMs = 300000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getPollIntervalMs() {
+            return pollIntervalMs;
+        }
+
+        public void setPollIntervalMs(long pollIntervalMs) {
+            this.pollIntervalMs = pollIntervalMs;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getMinBatchSize() {
+            return minBatchSize;
+        }
+
+        public void setMinBatchSize(int minBatchSize) {
+            this.minBatchSize = minBatchSize;
+        }
+
+        public int getMaxBatchesPerRun() {
+            return maxBatchesPerRun;
+        }
+
+        public void setMaxBatchesPerRun(int maxBatchesPerRun) {
+            this.maxBatchesPerRun = maxBatchesPerRun;
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public long getRetryBackoffMs() {
+            return retryBackoffMs;
+        }
+
+        public void setRetryBackoffMs(long retryBackoffMs) {
+            this.retryBackoffMs = retryBackoffMs;
+        }
+
+        public long getMaxRetryBackoffMs() {
+            return maxRetryBackoffMs;
+        }
+
+        public void setMaxRetryBackoffMs(long maxRetryBackoffMs) {
+            this.maxRetryBackoffMs = maxRetryBackoffMs;
+        }
+    }
+
+    /**
+     * Settings of the full reindex of the search indexes.
+     */
+    public static class SearchReindex {
+
+        private int chunkSize = 1000;
+
+        private int workers = 4;
+
+        private int maxAttempts = 3;
+
+        private long retryBackoffMs = 1000;
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        public int getWorkers() {
+            return workers;
+        }
+
+        public void setWorkers(int workers) {
+            this.workers = workers;
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public long getRetryBackoffMs() {
+            return retryBackoffMs;
+        }
+
+        public void setRetryBackoffMs(long retryBackoffMs) {
+            this.retryBackoffMs = retryBackoffMs;
+        }
+    }
+
+    /**
+     * Settings of the cache of the authentications of verified JWT tokens.
+     */
+    public static class JwtCache {
+
+        private int maxSize = 10000;
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+    }
+
+    /**
+     * Settings of the background writer of the audit events.
+     */
+    public static class AuditEvents {
+
+        /**
+         * What to do with an audit event received while the queue is full.
+         */
+        public enum OverflowPolicy {
+            /** Write the event in the calling thread. */
+            CALLER_RUNS,
+            /** Drop the received event. */
+            DROP_NEWEST,
+            /** Drop the oldest queued event to make room for the received one. */
+            DROP_OLDEST
+        }
+
+        private boolean async = true;
+
+        private int capacity = 10000;
+
+        private int batchSize = 100;
+
+        private long flushIntervalMs = 1000;
+
+        private long shutdownTimeoutMs = 10000;
+
+        private OverflowPolicy overflowPolicy = OverflowPolicy.CALLER_RUNS;
+
+        public boolean isAsync() {
+            return async;
+        }
+
+        public void setAsync(boolean async) {
+            this.async = async;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public long getFlushIntervalMs() {
+            return flushIntervalMs;
+        }
+
+        public void setFlushIntervalMs(long flushIntervalMs) {
+            this.flushIntervalMs = flushIntervalMs;
+        }
+
+        public long getShutdownTimeoutMs() {
+            return shutdownTimeoutMs;
+        }
+
+        public void setShutdownTimeoutMs(long shutdownTimeoutMs) {
+            this.shutdownTimeoutMs = shutdownTimeoutMs;
+        }
+
+        public OverflowPolicy getOverflowPolicy() {
+            return overflowPolicy;
+        }
+
+        public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+        }
+    }
+
+    /**
+     * Settings of the scheduled purges of old audit events and not activated users.
+     */
+    public static class Purge {
+
+        private int chunkSize = 500;
+
+        private long pauseMs = 100;
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        public long getPauseMs() {
+            return pauseMs;
+        }
+
+        public void setPauseMs(long pauseMs) {
+            this.pauseMs = pauseMs;
+        }
+    }
+
+    /**
+     * Settings of the Ehcache regions which differ from {@code jhipster.cache.ehcache}.
+     * <p>
+     * Regions are keyed by cache name, either the full name or the name without the {@code es.fabio.domain.} package,
+     * e.g. {@code Producto} or {@code "[ProductOrder.orderItems]"}.
+     */
+    public static class Cache {
+
+        private boolean statistics = true;
+
+        private final Map<String, Region> regions = new LinkedHashMap<>();
+
+        public boolean isStatistics() {
+            return statistics;
+        }
+
+        public void setStatistics(boolean statistics) {
+            this.statistics = statistics;
+        }
+
+        public Map<String, Region> getRegions() {
+            return regions;
+        }
+
+        /**
+         * Settings of one region, unset values fall back to {@code jhipster.cache.ehcache}.
+         */
+        public static class Region {
+
+            private Long heapEntries;
+
+            private Long offHeapMb;
+
+            private Long timeToLiveSeconds;
+
+            private Long timeToIdleSeconds;
+
+            public Long getHeapEntries() {
+                return heapEntries;
+            }
+
+            public void setHeapEntries(Long heapEntries) {
+                this.heapEntries = heapEntries;
+            }
+
+            public Long getOffHeapMb() {
+                return offHeapMb;
+            }
+
+            public void setOffHeapMb(Long offHeapMb) {
+                this.offHeapMb = offHeapMb;
+            }
+
+            public Long getTimeToLiveSeconds() {
+                return timeToLiveSeconds;
+            }
+
+            public void setTimeToLiveSeconds(Long timeToLiveSeconds) {
+                this.timeToLiveSeconds = timeToLiveSeconds;
+            }
+
+            public Long getTimeToIdleSeconds() {
+                return timeToIdleSeconds;
+            }
+
+            public void setTimeToIdleSeconds(Long timeToIdleSeconds) {
+                this.timeToIdleSeconds = timeToIdleSeconds;
+            }
+        }
+    }
+
+    /**
+     * Settings of the Hibernate metrics, published when {@code hibernate.generate_statistics} is enabled.
+     */
+    public static class HibernateStatistics {
+
+        private boolean detailed = false;
+
+        private long slowQueryThresholdMs = 500;
+
+        public boolean isDetailed() {
+            return detailed;
+        }
+
+        public void setDetailed(boolean detailed) {
+            this.detailed = detailed;
+        }
+
+        public long getSlowQueryThresholdMs() {
+            return slowQueryThresholdMs;
+        }
+
+        public void setSlowQueryThresholdMs(long slowQueryThresholdMs) {
+            this.slowQueryThresholdMs = slowQueryThresholdMs;
+        }
+    }
+
+    /**
+     * Settings of the aspect timing the repository, service and Web REST methods.
+     */
+    public static class MethodTiming {
+
+        private boolean enabled = false;
+
+        private double sampleRate = 1.0;
+
+        private long slowCallThresholdMs = 1000;
+
+        private boolean percentileHistogram = false;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getSampleRate() {
+            return sampleRate;
+        }
+
+        public void setSampleRate(double sampleRate) {
+            this.sampleRate = sampleRate;
+        }
+
+        public long getSlowCallThresholdMs() {
+            return slowCallThresholdMs;
+        }
+
+        public void setSlowCallThresholdMs(long slowCallThresholdMs) {
+            this.slowCallThresholdMs = slowCallThresholdMs;
+        }
+
+        public boolean isPercentileHistogram() {
+            return percentileHistogram;
+        }
+
+        public void setPercentileHistogram(boolean percentileHistogram) {
+            this.percentileHistogram = percentileHistogram;
+        }
+    }
+
+    /**
+     * Settings of the bulk save endpoints.
+     */
+    public static class Bulk {
+
+        private int chunkSize = 500;
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+    }
+
+    /**
+     * Settings of the sequence id generator of the entities, see {@link PooledSequenceGenerator}.
+     */
+    public static class IdGenerator {
+
+        private int allocationSize = 100;
+
+        private String optimizer = "pooled-lo";
+
+        public int getAllocationSize() {
+            return allocationSize;
+        }
+
+        public void setAllocationSize(int allocationSize) {
+            this.allocationSize = allocationSize;
+        }
+
+        public String getOptimizer() {
+            return optimizer;
+        }
+
+        public void setOptimizer(String optimizer) {
+            this.optimizer = optimizer;
+        }
+    }
+
+    /**
+     * Settings of the sales rollups, see the {@link es.fabio.service.SalesRollupJob}.
+     */
+    public static class SalesAnalytics {
+
+        private boolean enabled = true;
+
+        private long foldIntervalMs = 60000;
+
+        private int batchSize = 1000;
+
+        private int maxBatchesPerRun = 20;
+
+        private int hourlyRetentionDays = 7;
+
+        private String compactionCron = "0 15 * * * ?";
+
+        private String zone = "UTC";
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getFoldIntervalMs() {
+            return foldIntervalMs;
+        }
+
+        public void setFoldIntervalMs(long foldIntervalMs) {
+            this.foldIntervalMs = foldIntervalMs;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public int getMaxBatchesPerRun() {
+            return maxBatchesPerRun;
+        }
+
+        public void setMaxBatchesPerRun(int maxBatchesPerRun) {
+            this.maxBatchesPerRun = maxBatchesPerRun;
+        }
+
+        public int getHourlyRetentionDays() {
+            return hourlyRetentionDays;
+        }
+
+        public void setHourlyRetentionDays(int hourlyRetentionDays) {
+            this.hourlyRetentionDays = hourlyRetentionDays;
+        }
+
+        public String getCompactionCron() {
+            return compactionCron;
+        }
+
+        public void setCompactionCron(String compactionCron) {
+            this.compactionCron = compactionCron;
+        }
+
+        public String getZone() {
+            return zone;
+        }
+
+        public void setZone(String zone) {
+            this.zone = zone;
+        }
+    }
+
+    /**
+     * Settings of the cache of the catalogue read responses, see the {@link es.fabio.web.rest.util.CatalogueResponseCache}.
+     * <p>
+     * Its size and time-to-live are those of its {@code catalogueResponses} region in {@code application.cache.regions}.
+     * The region is bounded in entries, so its heap use is at most its {@code heap-entries} times {@code maxBodyBytes}:
+     * keep the product within the heap budget of the cache, 32 MiB with the defaults.
+     */
+    public static class CatalogueCache {
+
+        private boolean enabled = true;
+
+        private int maxBodyBytes = 131072;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxBodyBytes() {
+            return maxBodyBytes;
+        }
+
+        public void setMaxBodyBytes(int maxBodyBytes) {
+            this.maxBodyBytes = maxBodyBytes;
+        }
+    }
+
+    /**
+     * Limits of the searches run against Elasticsearch, so that a single query cannot hold the cluster.
+     */
+    public static class Search {
+
+        private long timeoutMs = 2000;
+
+        private int maxResultWindow = 1000;
+
+        private int maxDeterminizedStates = 2000;
+
+        private List<BigDecimal> priceFacetBounds = new ArrayList<>(Arrays.asList(
+            new BigDecimal("10"), new BigDecimal("25"), new BigDecimal("50"), new BigDecimal("100")));
+
+        private int maxSuggestions = 10;
+
+        /**
+         * @return the time the shards search for, after which the hits collected so far are returned.
+         */
+        public long getTimeoutMs() {
+            return timeoutMs;
+        }
+
+        public void setTimeoutMs(long timeoutMs) {
+            this.timeoutMs = timeoutMs;
+        }
+
+        /**
+         * @return the maximum offset plus size of a requested page, deeper pages are rejected.
+         */
+        public int getMaxResultWindow() {
+            return maxResultWindow;
+        }
+
+        public void setMaxResultWindow(int maxResultWindow) {
+            this.maxResultWindow = maxResultWindow;
+        }
+
+        /**
+         * @return the maximum number of automaton states a wildcard or regexp of a query string may expand to.
+         */
+        public int getMaxDeterminizedStates() {
+            return maxDeterminizedStates;
+        }
+
+        public void setMaxDeterminizedStates(int maxDeterminizedStates) {
+            this.maxDeterminizedStates = maxDeterminizedStates;
+        }
+
+        /**
+         * @return the ascending bounds between the price bands of the faceted searches, with a band below the first
+         * and one above the last.
+         */
+        public List<BigDecimal> getPriceFacetBounds() {
+            return priceFacetBounds;
+        }
+
+        public void setPriceFacetBounds(List<BigDecimal> priceFacetBounds) {
+            this.priceFacetBounds = priceFacetBounds;
+        }
+
+        /**
+         * @return the maximum number of suggestions returned by the autocomplete searches.
+         */
+        public int getMaxSuggestions() {
+            return maxSuggestions;
+        }
+
+        public void setMaxSuggestions(int maxSuggestions) {
+            this.maxSuggestions = maxSuggestions;
+        }
+    }
 }
@@ -3,6 +3,9 @@ package es.fabio.config;
 import java.time.Duration;
 
 import org.ehcache.config.builders.*;
+import org.ehcache.config.units.MemoryUnit;
+import org.ehcache.expiry.ExpiryPolicy;
+import org.ehcache.impl.serialization.PlainJavaSerializer;
 import org.ehcache.jsr107.Eh107Configuration;
 
 import org.hibernate.cache.jcache.ConfigSettings;
@@ -21,12 +24,17 @@ import org.springframework.context.annotation.*;
 @Configuration
 @EnableCaching
 public class CacheConfiguration {
+    private static final String DOMAIN_PACKAGE = "es.fabio.domain.";
+
     private GitProperties gitProperties;
     private BuildProperties buildProperties;
     private final javax.cache.configuration.Configuration<Object, Object> jcacheConfiguration;
+    private final JHipsterProperties.Cache.Ehcache ehcache;
+    private final ApplicationProperties.Cache cacheProperties;
 
-    public CacheConfiguration(JHipsterProperties jHipsterProperties) {
-        JHipsterProperties.Cache.Ehcache ehcache = jHipsterProperties.getCache().getEhcache();
+    public CacheConfiguration(JHipsterProperties jHipsterProperties, ApplicationProperties applicationProperties) {
+        ehcache = jHipsterProperties.getCache().getEhcache();
+        cacheProperties = applicationProperties.getCache();
 
         jcacheConfiguration = Eh107Configuration.fromEhcacheCacheConfiguration(
             CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class,
@@ -56,6 +64,9 @@ public class CacheConfiguration {
             createCache(cm, es.fabio.domain.ProductOrder.class.getName());
             createCache(cm, es.fabio.domain.ProductOrder.class.getName() + ".orderItems");
             createCache(cm, es.fabio.domain.OrderItem.class.getName());
+            createCache(cm, es.fabio.web.rest.util.CatalogueResponseCache.CACHE_NAME);
+            createCache(cm, es.fabio.service.ProductoService.SUGGESTIONS_CACHE);
+            createCache(cm, es.fabio.service.CustomerService.SUGGESTIONS_CACHE);
             // jhipster-needle-ehcache-add-entry
         };
     }
@@ -63,8 +74,52 @@ public class CacheConfiguration {
     private void createCache(javax.cache.CacheManager cm, String cacheName) {
         javax.cache.Cache<Object, Object> cache = cm.getCache(cacheName);
         if (cache == null) {
-            cm.createCache(cacheName, jcacheConfiguration);
+            cm.createCache(cacheName, regionConfiguration(cacheName));
+        }
+        // Lets the cache metrics bound by Spring Boot report the hits, misses, puts and evictions of the region
+        cm.enableStatistics(cacheName, cacheProperties.isStatistics());
+    }
+
+    /**
+     * Build the configuration of a region from its {@code application.cache.regions} entry, or use the default one.
+     * <p>
+     * Regions with an off-heap tier store their entries serialized outside of the Java heap, so they can hold many
+     * entries without adding to the GC pressure; the JVM needs enough {@code -XX:MaxDirectMemorySize} for them.
+     */
+    private javax.cache.configuration.Configuration<Object, Object> regionConfiguration(String cacheName) {
+        ApplicationProperties.Cache.Region region = cacheProperties.getRegions().get(cacheName);
+        if (region == null && cacheName.startsWith(DOMAIN_PACKAGE)) {
+            region = cacheProperties.getRegions().get(cacheName.substring(DOMAIN_PACKAGE.length()));
+        }
+        if (region == null) {
+            return jcacheConfiguration;
+        }
+
+        long heapEntries = region.getHeapEntries() != null ? region.getHeapEntries() : ehcache.getMaxEntries();
+        ResourcePoolsBuilder resourcePools = ResourcePoolsBuilder.heap(heapEntries);
+        if (region.getOffHeapMb() != null && region.getOffHeapMb() > 0) {
+            resourcePools = resourcePools.offheap(region.getOffHeapMb(), MemoryUnit.MB);
+        }
+
+        CacheConfigurationBuilder<Object, Object> builder = CacheConfigurationBuilder
+            .newCacheConfigurationBuilder(Object.class, Object.class, resourcePools)
+            .withExpiry(regionExpiry(region));
+        if (region.getOffHeapMb() != null && region.getOffHeapMb() > 0) {
+            // Off-heap entries are serialized, Ehcache has no default serializer for Object keys and values
+            ClassLoader classLoader = getClass().getClassLoader();
+            builder = builder
+                .withKeySerializer(new PlainJavaSerializer<>(classLoader))
+                .withValueSerializer(new PlainJavaSerializer<>(classLoader));
+        }
+        return Eh107Configuration.fromEhcacheCacheConfiguration(builder.build());
+    }
+
+    private ExpiryPolicy<Object, Object> regionExpiry(ApplicationProperties.Cache.Region region) {
+        if (region.getTimeToIdleSeconds() != null) {
+            return ExpiryPolicyBuilder.timeToIdleExpiration(Duration.ofSeconds(region.getTimeToIdleSeconds()));
         }
+        long timeToLiveSeconds = region.getTimeToLiveSeconds() != null ? region.getTimeToLiveSeconds() : ehcache.getTimeToLiveSeconds();
+        return ExpiryPolicyBuilder.timeToLiveExpiration(Duration.ofSeconds(timeToLiveSeconds));
     }
 
     @Autowired(required = false)
@@ -2,8 +2,10 @@ package es.fabio.config;
 
 import io.github.jhipster.config.JHipsterConstants;
 import io.github.jhipster.config.h2.H2ConfigurationHelper;
+import org.hibernate.cfg.AvailableSettings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
@@ -31,6 +33,21 @@ public class DatabaseConfiguration {
         this.env = env;
     }
 
+    /**
+     * Configure the {@link PooledSequenceGenerator} of the entities from {@code application.id-generator}.
+     *
+     * @param applicationProperties the application properties.
+     * @return the customizer of the Hibernate properties.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer idGeneratorCustomizer(ApplicationProperties applicationProperties) {
+        ApplicationProperties.IdGenerator idGenerator = applicationProperties.getIdGenerator();
+        return hibernateProperties -> {
+            hibernateProperties.put(PooledSequenceGenerator.ALLOCATION_SIZE, String.valueOf(idGenerator.getAllocationSize()));
+            hibernateProperties.put(AvailableSettings.PREFERRED_POOLED_OPTIMIZER, idGenerator.getOptimizer());
+        };
+    }
+
     /**
      * Open the TCP port for the H2 database, so it is available remotely.
      *
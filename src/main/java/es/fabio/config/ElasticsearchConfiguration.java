@@ -1,8 +1,12 @@
 package es.fabio.config;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import com.github.vanroy.springdata.jest.JestElasticsearchTemplate;
 import com.github.vanroy.springdata.jest.mapper.DefaultJestResultsMapper;
 import io.searchbox.client.JestClient;
@@ -18,8 +22,8 @@ import org.springframework.data.elasticsearch.core.mapping.SimpleElasticsearchMa
 import org.springframework.data.mapping.MappingException;
 
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Configuration
 @EnableConfigurationProperties(ElasticsearchProperties.class)
@@ -48,33 +52,51 @@ public class ElasticsearchConfiguration {
             new DefaultJestResultsMapper(mappingContext, entityMapper));
     }
 
+    /**
+     * Maps the entities to and from their search documents.
+     * <p>
+     * The documents are the slim ones written with the {@link SearchDocumentModule}. Objects are converted to and from
+     * maps in a single pass through a token buffer, without printing and parsing a JSON string, and the readers and
+     * writers are built once. They are configured here rather than on the application {@link ObjectMapper}, which is
+     * left as it is for the REST API.
+     */
     public class CustomEntityMapper implements EntityMapper {
 
-        private ObjectMapper objectMapper;
+        private final ObjectMapper documentMapper;
+
+        private final ObjectWriter writer;
+
+        private final ObjectReader reader;
+
+        private final ObjectReader mapReader;
+
+        private final Map<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
 
         public CustomEntityMapper(ObjectMapper objectMapper) {
-            this.objectMapper = objectMapper;
-            objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-            objectMapper.configure(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY, true);
-            objectMapper.configure(SerializationFeature.WRITE_DATE_TIMESTAMPS_AS_NANOSECONDS, true);
-            objectMapper.configure(SerializationFeature.INDENT_OUTPUT, false);
-            objectMapper.configure(DeserializationFeature.READ_DATE_TIMESTAMPS_AS_NANOSECONDS, true);
+            this.documentMapper = objectMapper.copy().registerModule(new SearchDocumentModule());
+            this.writer = documentMapper.writer()
+                .with(SerializationFeature.WRITE_DATE_TIMESTAMPS_AS_NANOSECONDS)
+                .without(SerializationFeature.INDENT_OUTPUT);
+            this.reader = documentMapper.reader()
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .with(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY, DeserializationFeature.READ_DATE_TIMESTAMPS_AS_NANOSECONDS);
+            this.mapReader = reader.forType(Map.class);
         }
 
         @Override
         public String mapToString(Object object) throws IOException {
-            return objectMapper.writeValueAsString(object);
+            return writer.writeValueAsString(object);
         }
 
         @Override
         public <T> T mapToObject(String source, Class<T> clazz) throws IOException {
-            return objectMapper.readValue(source, clazz);
+            return readerFor(clazz).readValue(source);
         }
 
         @Override
         public Map<String, Object> mapObject(Object source) {
             try {
-                return objectMapper.readValue(mapToString(source), HashMap.class);
+                return mapReader.readValue(buffer(source));
             } catch (IOException e) {
                 throw new MappingException(e.getMessage(), e);
             }
@@ -83,11 +105,23 @@ public class ElasticsearchConfiguration {
         @Override
         public <T> T readObject(Map<String, Object> source, Class<T> targetType) {
             try {
-                return mapToObject(mapToString(source), targetType);
+                return readerFor(targetType).readValue(buffer(source));
             } catch (IOException e) {
                 throw new MappingException(e.getMessage(), e);
             }
         }
-    }
 
+        private ObjectReader readerFor(Class<?> type) {
+            return readers.computeIfAbsent(type, reader::forType);
+        }
+
+        /**
+         * Write an object as tokens, to be read back without a JSON string in between.
+         */
+        private JsonParser buffer(Object source) throws IOException {
+            TokenBuffer buffer = new TokenBuffer(documentMapper, false);
+            writer.writeValue(buffer, source);
+            return buffer.asParser();
+        }
+    }
 }
@@ -0,0 +1,29 @@
+package es.fabio.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.stat.internal.StatisticsInitiator;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Publishes the Hibernate statistics to Micrometer when {@code hibernate.generate_statistics} is enabled.
+ * <p>
+ * The session factory totals and the second-level cache regions are bound by Spring Boot, this adds the query
+ * executions and slow queries by entity, and in detailed mode the entity loads and fetches by entity.
+ */
+@Configuration
+public class HibernateMetricsConfiguration {
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateStatisticsCustomizer(ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        return hibernateProperties -> {
+            if (Boolean.parseBoolean(String.valueOf(hibernateProperties.get(AvailableSettings.GENERATE_STATISTICS)))) {
+                hibernateProperties.put(StatisticsInitiator.STATS_BUILDER,
+                    new MeteredStatistics.Factory(applicationProperties.getHibernateStatistics(), meterRegistry));
+            }
+        };
+    }
+}
@@ -1,9 +1,12 @@
 package es.fabio.config;
 
 import es.fabio.aop.logging.LoggingAspect;
+import es.fabio.aop.metrics.MethodTimingAspect;
 
 import io.github.jhipster.config.JHipsterConstants;
+import io.micrometer.core.instrument.MeterRegistry;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.*;
 import org.springframework.core.env.Environment;
 
@@ -16,4 +19,10 @@ public class LoggingAspectConfiguration {
     public LoggingAspect loggingAspect(Environment env) {
         return new LoggingAspect(env);
     }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "application.method-timing", name = "enabled", havingValue = "true")
+    public MethodTimingAspect methodTimingAspect(ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        return new MethodTimingAspect(applicationProperties, meterRegistry);
+    }
 }
@@ -0,0 +1,127 @@
+package es.fabio.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.internal.StatisticsImpl;
+import org.hibernate.stat.spi.StatisticsFactory;
+import org.hibernate.stat.spi.StatisticsImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Hibernate statistics which also record the query executions in Micrometer, tagged by the queried entity.
+ * <p>
+ * Queries slower than {@code slowQueryThresholdMs} are counted and logged. In detailed mode the entity loads and
+ * fetches are counted by entity and the query timers publish a histogram; otherwise only the Hibernate totals are
+ * kept for them, which is cheap enough to stay on in production.
+ */
+class MeteredStatistics extends StatisticsImpl {
+
+    private static final Pattern QUERIED_ENTITY = Pattern.compile("\\bfrom\\s+([\\w.$]+)", Pattern.CASE_INSENSITIVE);
+
+    private final Logger log = LoggerFactory.getLogger(MeteredStatistics.class);
+
+    private final ApplicationProperties.HibernateStatistics properties;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Timer> queryTimers = new ConcurrentHashMap<>();
+
+    private final Map<String, Counter> slowQueryCounters = new ConcurrentHashMap<>();
+
+    private final Map<String, Counter> loadCounters = new ConcurrentHashMap<>();
+
+    private final Map<String, Counter> fetchCounters = new ConcurrentHashMap<>();
+
+    MeteredStatistics(SessionFactoryImplementor sessionFactory, ApplicationProperties.HibernateStatistics properties, MeterRegistry meterRegistry) {
+        super(sessionFactory);
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void entityLoad(String entityName) {
+        super.entityLoad(entityName);
+        if (properties.isDetailed()) {
+            entityCounter(loadCounters, "hibernate.entity.loads", "Number of entities loaded", entityName).increment();
+        }
+    }
+
+    @Override
+    public void entityFetch(String entityName) {
+        super.entityFetch(entityName);
+        if (properties.isDetailed()) {
+            entityCounter(fetchCounters, "hibernate.entity.fetches", "Number of entities fetched", entityName).increment();
+        }
+    }
+
+    @Override
+    public void queryExecuted(String hql, int rows, long time) {
+        super.queryExecuted(hql, rows, time);
+        String entity = queriedEntity(hql);
+        queryTimers.computeIfAbsent(entity, this::queryTimer).record(time, TimeUnit.MILLISECONDS);
+        if (time >= properties.getSlowQueryThresholdMs()) {
+            entityCounter(slowQueryCounters, "hibernate.query.slow", "Number of queries slower than the threshold", entity).increment();
+            log.warn("Slow query on {}: {} ms, {} rows: {}", entity, time, rows, hql);
+        }
+    }
+
+    private Timer queryTimer(String entity) {
+        return Timer.builder("hibernate.query.execution")
+            .description("Duration of the query executions")
+            .tag("entity", entity)
+            .publishPercentileHistogram(properties.isDetailed())
+            .register(meterRegistry);
+    }
+
+    /**
+     * The counter of an entity, registered on its first use only: these are called for each entity and query.
+     */
+    private Counter entityCounter(Map<String, Counter> counters, String name, String description, String entityName) {
+        return counters.computeIfAbsent(entityName, key -> Counter.builder(name)
+            .description(description)
+            .tag("entity", simpleName(key))
+            .register(meterRegistry));
+    }
+
+    static String queriedEntity(String hql) {
+        if (hql == null) {
+            return "unknown";
+        }
+        Matcher matcher = QUERIED_ENTITY.matcher(hql);
+        return matcher.find() ? simpleName(matcher.group(1)) : "unknown";
+    }
+
+    private static String simpleName(String entityName) {
+        return entityName.substring(entityName.lastIndexOf('.') + 1);
+    }
+
+    /**
+     * Builds the {@link MeteredStatistics} of the session factory, set as {@code hibernate.stats.factory}.
+     */
+    static class Factory implements StatisticsFactory {
+
+        private final ApplicationProperties.HibernateStatistics properties;
+
+        private final MeterRegistry meterRegistry;
+
+        Factory(ApplicationProperties.HibernateStatistics properties, MeterRegistry meterRegistry) {
+            this.properties = properties;
+            this.meterRegistry = meterRegistry;
+        }
+
+        @Override
+        public StatisticsImplementor buildStatistics(SessionFactoryImplementor sessionFactory) {
+            return new MeteredStatistics(sessionFactory, properties, meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package es.fabio.config;
+
+import es.fabio.domain.Customer;
+import es.fabio.domain.ProductCategory;
+import es.fabio.domain.ProductOrder;
+import es.fabio.domain.Producto;
+import es.fabio.domain.User;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import javax.persistence.Entity;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Jackson module writing the slim search documents of the entities, see the
+ * {@link ElasticsearchConfiguration.CustomEntityMapper}.
+ * <p>
+ * A document holds the fields of its entity, and the entities it references only as their id and the label read by
+ * the DTO mappers, such as {@code "productCategory": {"id": 1, "name": "..."}}: a search result still hydrates the
+ * entity its DTO is mapped from, without the referenced entities, and the ones they reference in turn, being nested
+ * in every document. The collections of entities are left out.
+ */
+final class SearchDocumentModule extends SimpleModule {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Map<Class<?>, ReferenceSerializer> REFERENCES = new HashMap<>();
+
+    static {
+        reference(ProductCategory.class, ProductCategory::getId, "name", ProductCategory::getName);
+        reference(Producto.class, Producto::getId, "name", Producto::getName);
+        reference(ProductOrder.class, ProductOrder::getId, "code", ProductOrder::getCode);
+        reference(Customer.class, Customer::getId, "email", Customer::getEmail);
+        reference(User.class, User::getId, "login", User::getLogin);
+    }
+
+    SearchDocumentModule() {
+        super(SearchDocumentModule.class.getSimpleName());
+        setSerializerModifier(new BeanSerializerModifier() {
+            @Override
+            public List<BeanPropertyWriter> changeProperties(SerializationConfig config, BeanDescription beanDesc,
+                                                             List<BeanPropertyWriter> beanProperties) {
+                if (!isEntity(beanDesc.getBeanClass())) {
+                    return beanProperties;
+                }
+                List<BeanPropertyWriter> properties = new ArrayList<>(beanProperties.size());
+                for (BeanPropertyWriter property : beanProperties) {
+                    JavaType type = property.getType();
+                    if (type.isContainerType() && type.getContentType() != null && isEntity(type.getContentType().getRawClass())) {
+                        continue;
+                    }
+                    ReferenceSerializer reference = REFERENCES.get(type.getRawClass());
+                    if (reference != null) {
+                        property.assignSerializer(reference);
+                    }
+                    properties.add(property);
+                }
+                return properties;
+            }
+        });
+    }
+
+    private static boolean isEntity(Class<?> type) {
+        return type.isAnnotationPresent(Entity.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void reference(Class<T> type, Function<T, Long> id, String labelName, Function<T, ?> label) {
+        REFERENCES.put(type, new ReferenceSerializer((Function<Object, Long>) id, labelName, (Function<Object, ?>) label));
+    }
+
+    /**
+     * Writes a referenced entity as its id and label.
+     */
+    private static final class ReferenceSerializer extends StdSerializer<Object> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient Function<Object, Long> id;
+
+        private final String labelName;
+
+        private final transient Function<Object, ?> label;
+
+        private ReferenceSerializer(Function<Object, Long> id, String labelName, Function<Object, ?> label) {
+            super(Object.class);
+            this.id = id;
+            this.labelName = labelName;
+            this.label = label;
+        }
+
+        @Override
+        public void serialize(Object value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject();
+            provider.defaultSerializeField("id", id.apply(value), gen);
+            provider.defaultSerializeField(labelName, label.apply(value), gen);
+            gen.writeEndObject();
+        }
+    }
+}
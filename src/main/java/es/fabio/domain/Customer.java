@@ -2,12 +2,17 @@ package es.fabio.domain;
 
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import javax.persistence.*;
 import javax.validation.constraints.*;
 
 import org.springframework.data.elasticsearch.annotations.FieldType;
 import java.io.Serializable;
+import java.time.Instant;
+import java.math.BigDecimal;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -19,14 +24,17 @@ import es.fabio.domain.enumeration.Gender;
 @Entity
 @Table(name = "customer")
 @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@DynamicUpdate
 @org.springframework.data.elasticsearch.annotations.Document(indexName = "customer")
-public class Customer implements Serializable {
+@org.springframework.data.elasticsearch.annotations.Setting(settingPath = "/config/elasticsearch/autocomplete-settings.json")
+@org.springframework.data.elasticsearch.annotations.Mapping(mappingPath = "/config/elasticsearch/customer-mapping.json")
+public class Customer implements Serializable, Versioned {
 
     private static final long serialVersionUID = 1L;
 
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
-    @SequenceGenerator(name = "sequenceGenerator")
+    @GenericGenerator(name = "sequenceGenerator", strategy = "es.fabio.config.PooledSequenceGenerator")
     private Long id;
 
     @NotNull
@@ -66,6 +74,18 @@ public class Customer implements Serializable {
     @Column(name = "country", nullable = false)
     private String country;
 
+    /**
+     * Number of orders, maintained by the OrderAggregateService.
+     */
+    @Column(name = "order_count", nullable = false)
+    private Integer orderCount = 0;
+
+    /**
+     * Sum of the totals of the orders, maintained by the OrderAggregateService.
+     */
+    @Column(name = "total_spent", precision = 21, scale = 2, nullable = false)
+    private BigDecimal totalSpent = BigDecimal.ZERO;
+
     @OneToOne(optional = false)
     @NotNull
     @JoinColumn(unique = true)
@@ -75,6 +95,14 @@ public class Customer implements Serializable {
     @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     private Set<ProductOrder> orders = new HashSet<>();
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    @UpdateTimestamp
+    @Column(name = "last_modified_date", nullable = false)
+    private Instant lastModifiedDate;
+
     // jhipster-needle-entity-add-field - JHipster will add fields here
     public Long getId() {
         return id;
@@ -84,6 +112,25 @@ public class Customer implements Serializable {
         this.id = id;
     }
 
+    @Override
+    public Long getVersion() {
+        return version;
+    }
+
+    @Override
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    @Override
+    public Instant getLastModifiedDate() {
+        return lastModifiedDate;
+    }
+
+    public void setLastModifiedDate(Instant lastModifiedDate) {
+        this.lastModifiedDate = lastModifiedDate;
+    }
+
     public String getFirstName() {
         return firstName;
     }
@@ -201,6 +248,32 @@ public class Customer implements Serializable {
         this.country = country;
     }
 
+    public Integer getOrderCount() {
+        return orderCount;
+    }
+
+    public Customer orderCount(Integer orderCount) {
+        this.orderCount = orderCount;
+        return this;
+    }
+
+    public void setOrderCount(Integer orderCount) {
+        this.orderCount = orderCount;
+    }
+
+    public BigDecimal getTotalSpent() {
+        return totalSpent;
+    }
+
+    public Customer totalSpent(BigDecimal totalSpent) {
+        this.totalSpent = totalSpent;
+        return this;
+    }
+
+    public void setTotalSpent(BigDecimal totalSpent) {
+        this.totalSpent = totalSpent;
+    }
+
     public User getUser() {
         return user;
     }
@@ -270,6 +343,9 @@ public class Customer implements Serializable {
             ", addressLine2='" + getAddressLine2() + "'" +
             ", city='" + getCity() + "'" +
             ", country='" + getCountry() + "'" +
+            ", orderCount=" + getOrderCount() +
+            ", totalSpent=" + getTotalSpent() +
+            ", version=" + getVersion() +
             "}";
     }
 }
@@ -1,18 +1,24 @@
 package es.fabio.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import javax.persistence.*;
 import javax.validation.constraints.*;
 
 import org.springframework.data.elasticsearch.annotations.FieldType;
 import java.io.Serializable;
+import java.time.Instant;
 import java.math.BigDecimal;
 
 import es.fabio.domain.enumeration.OrderItemStatus;
 
+import es.fabio.domain.enumeration.Size;
+
 /**
  * A OrderItem.
  */
@@ -20,13 +26,13 @@ import es.fabio.domain.enumeration.OrderItemStatus;
 @Table(name = "order_item")
 @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @org.springframework.data.elasticsearch.annotations.Document(indexName = "orderitem")
-public class OrderItem implements Serializable {
+public class OrderItem implements Serializable, Versioned {
 
     private static final long serialVersionUID = 1L;
 
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
-    @SequenceGenerator(name = "sequenceGenerator")
+    @GenericGenerator(name = "sequenceGenerator", strategy = "es.fabio.config.PooledSequenceGenerator")
     private Long id;
 
     @NotNull
@@ -49,11 +55,34 @@ public class OrderItem implements Serializable {
     @JsonIgnoreProperties(value = "orderItems", allowSetters = true)
     private Producto producto;
 
+    /**
+     * Product category of the producto when the item was last counted in the sales rollups, set by the SalesRecorder.
+     */
+    @JsonIgnore
+    @Column(name = "sales_product_category_id")
+    private Long salesProductCategoryId;
+
+    /**
+     * Size of the producto when the item was last counted in the sales rollups, set by the SalesRecorder.
+     */
+    @JsonIgnore
+    @Enumerated(EnumType.STRING)
+    @Column(name = "sales_size")
+    private Size salesSize;
+
     @ManyToOne(optional = false)
     @NotNull
     @JsonIgnoreProperties(value = "orderItems", allowSetters = true)
     private ProductOrder order;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    @UpdateTimestamp
+    @Column(name = "last_modified_date", nullable = false)
+    private Instant lastModifiedDate;
+
     // jhipster-needle-entity-add-field - JHipster will add fields here
     public Long getId() {
         return id;
@@ -63,6 +92,25 @@ public class OrderItem implements Serializable {
         this.id = id;
     }
 
+    @Override
+    public Long getVersion() {
+        return version;
+    }
+
+    @Override
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    @Override
+    public Instant getLastModifiedDate() {
+        return lastModifiedDate;
+    }
+
+    public void setLastModifiedDate(Instant lastModifiedDate) {
+        this.lastModifiedDate = lastModifiedDate;
+    }
+
     public Integer getQuantity() {
         return quantity;
     }
@@ -127,6 +175,22 @@ public class OrderItem implements Serializable {
     public void setOrder(ProductOrder productOrder) {
         this.order = productOrder;
     }
+
+    public Long getSalesProductCategoryId() {
+        return salesProductCategoryId;
+    }
+
+    public void setSalesProductCategoryId(Long salesProductCategoryId) {
+        this.salesProductCategoryId = salesProductCategoryId;
+    }
+
+    public Size getSalesSize() {
+        return salesSize;
+    }
+
+    public void setSalesSize(Size salesSize) {
+        this.salesSize = salesSize;
+    }
     // jhipster-needle-entity-add-getters-setters - JHipster will add getters and setters here
 
     @Override
@@ -153,6 +217,7 @@ public class OrderItem implements Serializable {
             ", quantity=" + getQuantity() +
             ", totalPrice=" + getTotalPrice() +
             ", status='" + getStatus() + "'" +
+            ", version=" + getVersion() +
             "}";
     }
 }
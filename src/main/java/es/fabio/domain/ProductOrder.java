@@ -3,12 +3,16 @@ package es.fabio.domain;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import javax.persistence.*;
 import javax.validation.constraints.*;
 
 import org.springframework.data.elasticsearch.annotations.FieldType;
 import java.io.Serializable;
+import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.HashSet;
 import java.util.Set;
@@ -21,14 +25,15 @@ import es.fabio.domain.enumeration.OrderStatus;
 @Entity
 @Table(name = "product_order")
 @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@DynamicUpdate
 @org.springframework.data.elasticsearch.annotations.Document(indexName = "productorder")
-public class ProductOrder implements Serializable {
+public class ProductOrder implements Serializable, Versioned {
 
     private static final long serialVersionUID = 1L;
 
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
-    @SequenceGenerator(name = "sequenceGenerator")
+    @GenericGenerator(name = "sequenceGenerator", strategy = "es.fabio.config.PooledSequenceGenerator")
     private Long id;
 
     @NotNull
@@ -47,6 +52,18 @@ public class ProductOrder implements Serializable {
     @Column(name = "invoice_id")
     private Long invoiceId;
 
+    /**
+     * Sum of the total prices of the order items, maintained by the OrderAggregateService.
+     */
+    @Column(name = "total", precision = 21, scale = 2, nullable = false)
+    private BigDecimal total = BigDecimal.ZERO;
+
+    /**
+     * Number of order items, maintained by the OrderAggregateService.
+     */
+    @Column(name = "item_count", nullable = false)
+    private Integer itemCount = 0;
+
     @OneToMany(mappedBy = "order")
     @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     private Set<OrderItem> orderItems = new HashSet<>();
@@ -56,6 +73,14 @@ public class ProductOrder implements Serializable {
     @JsonIgnoreProperties(value = "orders", allowSetters = true)
     private Customer customer;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    @UpdateTimestamp
+    @Column(name = "last_modified_date", nullable = false)
+    private Instant lastModifiedDate;
+
     // jhipster-needle-entity-add-field - JHipster will add fields here
     public Long getId() {
         return id;
@@ -65,6 +90,25 @@ public class ProductOrder implements Serializable {
         this.id = id;
     }
 
+    @Override
+    public Long getVersion() {
+        return version;
+    }
+
+    @Override
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    @Override
+    public Instant getLastModifiedDate() {
+        return lastModifiedDate;
+    }
+
+    public void setLastModifiedDate(Instant lastModifiedDate) {
+        this.lastModifiedDate = lastModifiedDate;
+    }
+
     public Instant getPlacedDate() {
         return placedDate;
     }
@@ -117,6 +161,32 @@ public class ProductOrder implements Serializable {
         this.invoiceId = invoiceId;
     }
 
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    public ProductOrder total(BigDecimal total) {
+        this.total = total;
+        return this;
+    }
+
+    public void setTotal(BigDecimal total) {
+        this.total = total;
+    }
+
+    public Integer getItemCount() {
+        return itemCount;
+    }
+
+    public ProductOrder itemCount(Integer itemCount) {
+        this.itemCount = itemCount;
+        return this;
+    }
+
+    public void setItemCount(Integer itemCount) {
+        this.itemCount = itemCount;
+    }
+
     public Set<OrderItem> getOrderItems() {
         return orderItems;
     }
@@ -181,6 +251,9 @@ public class ProductOrder implements Serializable {
             ", status='" + getStatus() + "'" +
             ", code='" + getCode() + "'" +
             ", invoiceId=" + getInvoiceId() +
+            ", total=" + getTotal() +
+            ", itemCount=" + getItemCount() +
+            ", version=" + getVersion() +
             "}";
     }
 }
@@ -3,30 +3,37 @@ package es.fabio.domain;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import javax.persistence.*;
 import javax.validation.constraints.*;
 
 import org.springframework.data.elasticsearch.annotations.FieldType;
 import java.io.Serializable;
+import java.time.Instant;
 import java.math.BigDecimal;
 
 import es.fabio.domain.enumeration.Size;
 
 /**
  * A Producto.
+ * <p>
+ * The image bytes are stored in {@link ProductoImage}, this entity only holds their content type and hash.
  */
 @Entity
 @Table(name = "producto")
 @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @org.springframework.data.elasticsearch.annotations.Document(indexName = "producto")
-public class Producto implements Serializable {
+@org.springframework.data.elasticsearch.annotations.Setting(settingPath = "/config/elasticsearch/autocomplete-settings.json")
+@org.springframework.data.elasticsearch.annotations.Mapping(mappingPath = "/config/elasticsearch/producto-mapping.json")
+public class Producto implements Serializable, Versioned {
 
     private static final long serialVersionUID = 1L;
 
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
-    @SequenceGenerator(name = "sequenceGenerator")
+    @GenericGenerator(name = "sequenceGenerator", strategy = "es.fabio.config.PooledSequenceGenerator")
     private Long id;
 
     @NotNull
@@ -46,17 +53,24 @@ public class Producto implements Serializable {
     @Column(name = "size", nullable = false)
     private Size size;
 
-    @Lob
-    @Column(name = "image")
-    private byte[] image;
-
     @Column(name = "image_content_type")
     private String imageContentType;
 
+    @Column(name = "image_etag", length = 32)
+    private String imageEtag;
+
     @ManyToOne
     @JsonIgnoreProperties(value = "productos", allowSetters = true)
     private ProductCategory productCategory;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    @UpdateTimestamp
+    @Column(name = "last_modified_date", nullable = false)
+    private Instant lastModifiedDate;
+
     // jhipster-needle-entity-add-field - JHipster will add fields here
     public Long getId() {
         return id;
@@ -66,6 +80,25 @@ public class Producto implements Serializable {
         this.id = id;
     }
 
+    @Override
+    public Long getVersion() {
+        return version;
+    }
+
+    @Override
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    @Override
+    public Instant getLastModifiedDate() {
+        return lastModifiedDate;
+    }
+
+    public void setLastModifiedDate(Instant lastModifiedDate) {
+        this.lastModifiedDate = lastModifiedDate;
+    }
+
     public String getName() {
         return name;
     }
@@ -118,30 +151,30 @@ public class Producto implements Serializable {
         this.size = size;
     }
 
-    public byte[] getImage() {
-        return image;
+    public String getImageContentType() {
+        return imageContentType;
     }
 
-    public Producto image(byte[] image) {
-        this.image = image;
+    public Producto imageContentType(String imageContentType) {
+        this.imageContentType = imageContentType;
         return this;
     }
 
-    public void setImage(byte[] image) {
-        this.image = image;
+    public void setImageContentType(String imageContentType) {
+        this.imageContentType = imageContentType;
     }
 
-    public String getImageContentType() {
-        return imageContentType;
+    public String getImageEtag() {
+        return imageEtag;
     }
 
-    public Producto imageContentType(String imageContentType) {
-        this.imageContentType = imageContentType;
+    public Producto imageEtag(String imageEtag) {
+        this.imageEtag = imageEtag;
         return this;
     }
 
-    public void setImageContentType(String imageContentType) {
-        this.imageContentType = imageContentType;
+    public void setImageEtag(String imageEtag) {
+        this.imageEtag = imageEtag;
     }
 
     public ProductCategory getProductCategory() {
@@ -183,8 +216,9 @@ public class Producto implements Serializable {
             ", description='" + getDescription() + "'" +
             ", price=" + getPrice() +
             ", size='" + getSize() + "'" +
-            ", image='" + getImage() + "'" +
             ", imageContentType='" + getImageContentType() + "'" +
+            ", imageEtag='" + getImageEtag() + "'" +
+            ", version=" + getVersion() +
             "}";
     }
 }
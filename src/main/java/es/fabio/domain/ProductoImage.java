@@ -0,0 +1,80 @@
+package es.fabio.domain;
+
+import javax.persistence.*;
+import javax.validation.constraints.*;
+
+import java.io.Serializable;
+
+/**
+ * The image bytes of a {@link Producto}.
+ * <p>
+ * Kept apart from the {@link Producto} row, and out of the second-level cache and the search index,
+ * so listing, caching and indexing productos does not scale with the image size. It shares the id of
+ * its producto and is only loaded when the image itself is requested.
+ */
+@Entity
+@Table(name = "producto_image")
+public class ProductoImage implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @Column(name = "producto_id")
+    private Long productoId;
+
+    @NotNull
+    @Lob
+    @Column(name = "data", nullable = false)
+    private byte[] data;
+
+    public Long getProductoId() {
+        return productoId;
+    }
+
+    public void setProductoId(Long productoId) {
+        this.productoId = productoId;
+    }
+
+    public ProductoImage productoId(Long productoId) {
+        this.productoId = productoId;
+        return this;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public ProductoImage data(byte[] data) {
+        this.data = data;
+        return this;
+    }
+
+    public void setData(byte[] data) {
+        this.data = data;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ProductoImage)) {
+            return false;
+        }
+        return productoId != null && productoId.equals(((ProductoImage) o).productoId);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "ProductoImage{" +
+            "productoId=" + getProductoId() +
+            ", size=" + (data == null ? 0 : data.length) +
+            "}";
+    }
+}
@@ -0,0 +1,167 @@
+package es.fabio.domain;
+
+import es.fabio.domain.enumeration.OrderStatus;
+import es.fabio.domain.enumeration.SalesGranularity;
+import es.fabio.domain.enumeration.Size;
+
+import org.hibernate.annotations.GenericGenerator;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * The revenue, units and order items sold in a time bucket, for one product category, size and order status.
+ * <p>
+ * Rows are partial sums: a bucket may be spread over several rows, which the queries add up, until the compaction
+ * merges them. Hourly rows are folded from the {@link SalesRollupDelta}s and compacted into daily rows once they are
+ * older than the hourly retention.
+ */
+@Entity
+@Table(name = "sales_rollup")
+public class SalesRollup implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
+    @GenericGenerator(name = "sequenceGenerator", strategy = "es.fabio.config.PooledSequenceGenerator")
+    private Long id;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "granularity", length = 10, nullable = false)
+    private SalesGranularity granularity;
+
+    @NotNull
+    @Column(name = "bucket_start", nullable = false)
+    private Instant bucketStart;
+
+    @Column(name = "product_category_id")
+    private Long productCategoryId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "size", length = 10)
+    private Size size;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "order_status", length = 10, nullable = false)
+    private OrderStatus orderStatus;
+
+    @NotNull
+    @Column(name = "revenue", precision = 21, scale = 2, nullable = false)
+    private BigDecimal revenue;
+
+    @Column(name = "units", nullable = false)
+    private long units;
+
+    @Column(name = "item_count", nullable = false)
+    private long itemCount;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public SalesGranularity getGranularity() {
+        return granularity;
+    }
+
+    public void setGranularity(SalesGranularity granularity) {
+        this.granularity = granularity;
+    }
+
+    public Instant getBucketStart() {
+        return bucketStart;
+    }
+
+    public void setBucketStart(Instant bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public Long getProductCategoryId() {
+        return productCategoryId;
+    }
+
+    public void setProductCategoryId(Long productCategoryId) {
+        this.productCategoryId = productCategoryId;
+    }
+
+    public Size getSize() {
+        return size;
+    }
+
+    public void setSize(Size size) {
+        this.size = size;
+    }
+
+    public OrderStatus getOrderStatus() {
+        return orderStatus;
+    }
+
+    public void setOrderStatus(OrderStatus orderStatus) {
+        this.orderStatus = orderStatus;
+    }
+
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+
+    public void setRevenue(BigDecimal revenue) {
+        this.revenue = revenue;
+    }
+
+    public long getUnits() {
+        return units;
+    }
+
+    public void setUnits(long units) {
+        this.units = units;
+    }
+
+    public long getItemCount() {
+        return itemCount;
+    }
+
+    public void setItemCount(long itemCount) {
+        this.itemCount = itemCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SalesRollup)) {
+            return false;
+        }
+        return id != null && id.equals(((SalesRollup) o).id);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "SalesRollup{" +
+            "id=" + getId() +
+            ", granularity='" + getGranularity() + "'" +
+            ", bucketStart='" + getBucketStart() + "'" +
+            ", productCategoryId=" + getProductCategoryId() +
+            ", size='" + getSize() + "'" +
+            ", orderStatus='" + getOrderStatus() + "'" +
+            ", revenue=" + getRevenue() +
+            ", units=" + getUnits() +
+            ", itemCount=" + getItemCount() +
+            "}";
+    }
+}
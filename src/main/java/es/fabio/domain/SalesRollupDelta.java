@@ -0,0 +1,153 @@
+package es.fabio.domain;
+
+import es.fabio.domain.enumeration.OrderStatus;
+import es.fabio.domain.enumeration.Size;
+
+import org.hibernate.annotations.GenericGenerator;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * A change to the sales of an order item, written in the same transaction as the order item or order change and
+ * folded into the hourly {@link SalesRollup}s in the background.
+ * <p>
+ * An order item is counted in the product category and size of its producto and the status and placed date of its
+ * order at the time of the write; a change of any of them is recorded as the removal of the previous values and the
+ * addition of the new ones.
+ */
+@Entity
+@Table(name = "sales_rollup_delta")
+public class SalesRollupDelta implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequenceGenerator")
+    @GenericGenerator(name = "sequenceGenerator", strategy = "es.fabio.config.PooledSequenceGenerator")
+    private Long id;
+
+    @NotNull
+    @Column(name = "placed_date", nullable = false)
+    private Instant placedDate;
+
+    @Column(name = "product_category_id")
+    private Long productCategoryId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "size", length = 10)
+    private Size size;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "order_status", length = 10, nullable = false)
+    private OrderStatus orderStatus;
+
+    @NotNull
+    @Column(name = "revenue", precision = 21, scale = 2, nullable = false)
+    private BigDecimal revenue;
+
+    @Column(name = "units", nullable = false)
+    private int units;
+
+    @Column(name = "item_count", nullable = false)
+    private int itemCount;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Instant getPlacedDate() {
+        return placedDate;
+    }
+
+    public void setPlacedDate(Instant placedDate) {
+        this.placedDate = placedDate;
+    }
+
+    public Long getProductCategoryId() {
+        return productCategoryId;
+    }
+
+    public void setProductCategoryId(Long productCategoryId) {
+        this.productCategoryId = productCategoryId;
+    }
+
+    public Size getSize() {
+        return size;
+    }
+
+    public void setSize(Size size) {
+        this.size = size;
+    }
+
+    public OrderStatus getOrderStatus() {
+        return orderStatus;
+    }
+
+    public void setOrderStatus(OrderStatus orderStatus) {
+        this.orderStatus = orderStatus;
+    }
+
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+
+    public void setRevenue(BigDecimal revenue) {
+        this.revenue = revenue;
+    }
+
+    public int getUnits() {
+        return units;
+    }
+
+    public void setUnits(int units) {
+        this.units = units;
+    }
+
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    public void setItemCount(int itemCount) {
+        this.itemCount = itemCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SalesRollupDelta)) {
+            return false;
+        }
+        return id != null && id.equals(((SalesRollupDelta) o).id);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "SalesRollupDelta{" +
+            "id=" + getId() +
+            ", placedDate='" + getPlacedDate() + "'" +
+            ", productCategoryId=" + getProductCategoryId() +
+            ", size='" + getSize() + "'" +
+            ", orderStatus='" + getOrderStatus() + "'" +
+            ", revenue=" + getRevenue() +
+            ", units=" + getUnits() +
+            ", itemCount=" + getItemCount() +
+            "}";
+    }
+}
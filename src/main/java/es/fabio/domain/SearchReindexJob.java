@@ -0,0 +1,144 @@
+package es.fabio.domain;
+
+import es.fabio.domain.enumeration.SearchReindexStatus;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * The checkpoint of a full reindex of a search index.
+ * <p>
+ * Rows are indexed in ascending id order into {@code targetIndex}, {@code lastId} being the highest id below which
+ * every row is indexed, so an interrupted reindex resumes from there. Once completed, the alias is swapped
+ * to {@code targetIndex}.
+ */
+@Entity
+@Table(name = "jhi_search_reindex_job")
+public class SearchReindexJob implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @Column(name = "index_alias", length = 50)
+    private String indexAlias;
+
+    @NotNull
+    @Column(name = "target_index", length = 100, nullable = false)
+    private String targetIndex;
+
+    @Column(name = "last_id")
+    private Long lastId;
+
+    @Column(name = "indexed_count", nullable = false)
+    private long indexedCount;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 10, nullable = false)
+    private SearchReindexStatus status;
+
+    @NotNull
+    @Column(name = "started_date", nullable = false)
+    private Instant startedDate;
+
+    @Column(name = "updated_date")
+    private Instant updatedDate;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    public String getIndexAlias() {
+        return indexAlias;
+    }
+
+    public void setIndexAlias(String indexAlias) {
+        this.indexAlias = indexAlias;
+    }
+
+    public String getTargetIndex() {
+        return targetIndex;
+    }
+
+    public void setTargetIndex(String targetIndex) {
+        this.targetIndex = targetIndex;
+    }
+
+    public Long getLastId() {
+        return lastId;
+    }
+
+    public void setLastId(Long lastId) {
+        this.lastId = lastId;
+    }
+
+    public long getIndexedCount() {
+        return indexedCount;
+    }
+
+    public void setIndexedCount(long indexedCount) {
+        this.indexedCount = indexedCount;
+    }
+
+    public SearchReindexStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(SearchReindexStatus status) {
+        this.status = status;
+    }
+
+    public Instant getStartedDate() {
+        return startedDate;
+    }
+
+    public void setStartedDate(Instant startedDate) {
+        this.startedDate = startedDate;
+    }
+
+    public Instant getUpdatedDate() {
+        return updatedDate;
+    }
+
+    public void setUpdatedDate(Instant updatedDate) {
+        this.updatedDate = updatedDate;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SearchReindexJob)) {
+            return false;
+        }
+        return indexAlias != null && indexAlias.equals(((SearchReindexJob) o).indexAlias);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "SearchReindexJob{" +
+            "indexAlias='" + getIndexAlias() + "'" +
+            ", targetIndex='" + getTargetIndex() + "'" +
+            ", lastId=" + getLastId() +
+            ", indexedCount=" + getIndexedCount() +
+            ", status='" + getStatus() + "'" +
+            ", startedDate='" + getStartedDate() + "'" +
+            "}";
+    }
+}
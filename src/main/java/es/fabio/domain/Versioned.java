@@ -0,0 +1,22 @@
+package es.fabio.domain;
+
+import java.time.Instant;
+
+/**
+ * An entity, or its DTO, carrying the version which identifies its state, behind the {@code ETag} and
+ * {@code Last-Modified} of its REST resource and the optimistic locking of its updates.
+ */
+public interface Versioned {
+
+    /**
+     * @return the version, incremented by Hibernate on each update, {@code null} before the entity is saved.
+     */
+    Long getVersion();
+
+    void setVersion(Long version);
+
+    /**
+     * @return the instant of the last insert or update.
+     */
+    Instant getLastModifiedDate();
+}
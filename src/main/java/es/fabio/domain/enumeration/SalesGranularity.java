@@ -0,0 +1,8 @@
+package es.fabio.domain.enumeration;
+
+/**
+ * The SalesGranularity enumeration.
+ */
+public enum SalesGranularity {
+    HOUR, DAY
+}
@@ -0,0 +1,8 @@
+package es.fabio.domain.enumeration;
+
+/**
+ * The SearchOutboxOperation enumeration.
+ */
+public enum SearchOutboxOperation {
+    INDEX, DELETE
+}
@@ -0,0 +1,8 @@
+package es.fabio.domain.enumeration;
+
+/**
+ * The SearchReindexStatus enumeration.
+ */
+public enum SearchReindexStatus {
+    RUNNING, FAILED, COMPLETED
+}
@@ -0,0 +1,233 @@
+package es.fabio.repository;
+
+import es.fabio.config.ApplicationProperties;
+import es.fabio.domain.PersistentAuditEvent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the {@link PersistentAuditEvent}s in the background.
+ * <p>
+ * Events are queued in a bounded buffer and written by a single thread, in one transaction per batch so Hibernate
+ * sends them as JDBC batches, when {@code batchSize} events are queued or {@code flushIntervalMs} after the first one.
+ * When the buffer is full the {@code overflowPolicy} decides whether the event is written by the caller, or whether the
+ * newest or oldest event is dropped. Queued events are written when the application shuts down.
+ * <p>
+ * If {@code async} is disabled the events are saved right away, in the caller transaction if there is one.
+ */
+@Component
+public class AuditEventWriter {
+
+    private final Logger log = LoggerFactory.getLogger(AuditEventWriter.class);
+
+    private final ApplicationProperties.AuditEvents properties;
+
+    private final PersistenceAuditEventRepository persistenceAuditEventRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final BlockingQueue<PersistentAuditEvent> queue;
+
+    private final Counter writtenCounter;
+
+    private final Counter overflowCounter;
+
+    private final Counter droppedOnOverflowCounter;
+
+    private final Counter droppedOnErrorCounter;
+
+    private final DistributionSummary batchSizeSummary;
+
+    private final Timer flushTimer;
+
+    private volatile boolean running;
+
+    private Thread writerThread;
+
+    public AuditEventWriter(ApplicationProperties applicationProperties, PersistenceAuditEventRepository persistenceAuditEventRepository,
+                            PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.properties = applicationProperties.getAuditEvents();
+        this.persistenceAuditEventRepository = persistenceAuditEventRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.queue = new ArrayBlockingQueue<>(properties.getCapacity());
+
+        Gauge.builder("audit.events.queue.size", queue, BlockingQueue::size)
+            .description("Number of audit events waiting to be written")
+            .register(meterRegistry);
+        Gauge.builder("audit.events.queue.capacity", properties, ApplicationProperties.AuditEvents::getCapacity)
+            .description("Maximum number of audit events waiting to be written")
+            .register(meterRegistry);
+        this.writtenCounter = Counter.builder("audit.events.written")
+            .description("Number of audit events written")
+            .register(meterRegistry);
+        this.overflowCounter = Counter.builder("audit.events.overflow")
+            .description("Number of audit events received while the queue was full")
+            .register(meterRegistry);
+        this.droppedOnOverflowCounter = droppedCounter(meterRegistry, "overflow");
+        this.droppedOnErrorCounter = droppedCounter(meterRegistry, "error");
+        this.batchSizeSummary = DistributionSummary.builder("audit.events.batch.size")
+            .description("Number of audit events written per batch")
+            .register(meterRegistry);
+        this.flushTimer = Timer.builder("audit.events.flush")
+            .description("Duration of the audit event batch writes")
+            .register(meterRegistry);
+    }
+
+    private static Counter droppedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("audit.events.dropped")
+            .description("Number of audit events which were not written")
+            .tag("reason", reason)
+            .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!properties.isAsync()) {
+            return;
+        }
+        running = true;
+        writerThread = new Thread(this::run, "audit-event-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Stop the writer thread once it has written the queued events, or write them in the calling thread if the writer
+     * thread is not running.
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (writerThread != null) {
+            try {
+                writerThread.join(properties.getShutdownTimeoutMs());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (writerThread.isAlive()) {
+                log.warn("Audit event writer did not stop in time, {} events are not written", queue.size());
+                return;
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Queue an audit event to be written.
+     *
+     * @param event the event.
+     */
+    public void write(PersistentAuditEvent event) {
+        if (!properties.isAsync()) {
+            persistenceAuditEventRepository.save(event);
+            writtenCounter.increment();
+            return;
+        }
+        if (queue.offer(event)) {
+            return;
+        }
+        overflowCounter.increment();
+        switch (properties.getOverflowPolicy()) {
+            case DROP_NEWEST:
+                droppedOnOverflowCounter.increment();
+                break;
+            case DROP_OLDEST:
+                while (!queue.offer(event)) {
+                    if (queue.poll() != null) {
+                        droppedOnOverflowCounter.increment();
+                    }
+                }
+                break;
+            default:
+                writeBatch(Collections.singletonList(event));
+        }
+    }
+
+    /**
+     * Write all the queued events in the calling thread.
+     */
+    public void flush() {
+        List<PersistentAuditEvent> batch = new ArrayList<>(properties.getBatchSize());
+        while (queue.drainTo(batch, properties.getBatchSize()) > 0) {
+            writeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void run() {
+        List<PersistentAuditEvent> batch = new ArrayList<>(properties.getBatchSize());
+        while (running) {
+            try {
+                PersistentAuditEvent first = queue.poll(properties.getFlushIntervalMs(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getFlushIntervalMs());
+                while (batch.size() < properties.getBatchSize()) {
+                    queue.drainTo(batch, properties.getBatchSize() - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= properties.getBatchSize() || remaining <= 0) {
+                        break;
+                    }
+                    PersistentAuditEvent next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                writeBatch(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<PersistentAuditEvent> batch) {
+        long start = System.nanoTime();
+        try {
+            transactionTemplate.execute(status -> persistenceAuditEventRepository.saveAll(batch));
+            writtenCounter.increment(batch.size());
+            batchSizeSummary.record(batch.size());
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                log.error("Could not write audit event {}", batch.get(0), e);
+                droppedOnErrorCounter.increment();
+                return;
+            }
+            // Retry the events one by one, so a single invalid event does not lose the whole batch.
+            log.warn("Could not write a batch of {} audit events, writing them one by one: {}", batch.size(), e.toString());
+            batch.forEach(event -> {
+                event.setId(null);
+                writeBatch(Collections.singletonList(event));
+            });
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
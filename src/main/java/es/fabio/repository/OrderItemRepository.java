@@ -2,13 +2,28 @@ package es.fabio.repository;
 
 import es.fabio.domain.OrderItem;
 
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 /**
  * Spring Data  repository for the OrderItem entity.
+ * <p>
+ * The criteria lists fetch the {@code producto} and {@code order} associations, and their own eager ones, in the same
+ * statement, so they are not loaded row by row. The listing pages are read as DTO projections instead, see the
+ * {@link es.fabio.service.OrderItemQueryService}.
  */
 @SuppressWarnings("unused")
 @Repository
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long>, JpaSpecificationExecutor<OrderItem> {
+
+    @Override
+    @EntityGraph(attributePaths = {"producto.productCategory", "order.customer.user"})
+    List<OrderItem> findAll(@Nullable Specification<OrderItem> specification);
+
+    @EntityGraph(attributePaths = "producto")
+    List<OrderItem> findAllByOrderId(Long orderId);
 }
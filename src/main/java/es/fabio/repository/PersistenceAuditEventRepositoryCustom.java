@@ -0,0 +1,17 @@
+package es.fabio.repository;
+
+import java.util.Collection;
+
+/**
+ * Statements of the {@link PersistenceAuditEventRepository} which Spring Data can not declare.
+ */
+public interface PersistenceAuditEventRepositoryCustom {
+
+    /**
+     * Delete the data of audit events, without invalidating the second-level cache of the other tables.
+     *
+     * @param ids the ids of the audit events.
+     * @return the number of deleted rows.
+     */
+    int deleteDataByEventIdIn(Collection<Long> ids);
+}
@@ -0,0 +1,28 @@
+package es.fabio.repository;
+
+import org.hibernate.query.NativeQuery;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Collection;
+
+/**
+ * Implementation of the {@link PersistenceAuditEventRepositoryCustom} statements.
+ */
+public class PersistenceAuditEventRepositoryCustomImpl implements PersistenceAuditEventRepositoryCustom {
+
+    private static final String AUDIT_EVENT_DATA_TABLE = "jhi_persistent_audit_evt_data";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int deleteDataByEventIdIn(Collection<Long> ids) {
+        // Without its table, Hibernate would invalidate every second-level cache region after the native statement.
+        return entityManager.createNativeQuery("delete from " + AUDIT_EVENT_DATA_TABLE + " where event_id in (:ids)")
+            .unwrap(NativeQuery.class)
+            .addSynchronizedQuerySpace(AUDIT_EVENT_DATA_TABLE)
+            .setParameterList("ids", ids)
+            .executeUpdate();
+    }
+}
@@ -2,13 +2,25 @@ package es.fabio.repository;
 
 import es.fabio.domain.ProductOrder;
 
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 /**
  * Spring Data  repository for the ProductOrder entity.
+ * <p>
+ * The criteria lists fetch the {@code customer} association, and its user, in the same statement, so they are not
+ * loaded row by row. The listing pages are read as DTO projections instead, see the
+ * {@link es.fabio.service.ProductOrderQueryService}.
  */
 @SuppressWarnings("unused")
 @Repository
 public interface ProductOrderRepository extends JpaRepository<ProductOrder, Long>, JpaSpecificationExecutor<ProductOrder> {
+
+    @Override
+    @EntityGraph(attributePaths = "customer.user")
+    List<ProductOrder> findAll(@Nullable Specification<ProductOrder> specification);
 }
@@ -0,0 +1,23 @@
+package es.fabio.repository;
+
+import es.fabio.domain.ProductoImage;
+
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Spring Data  repository for the ProductoImage entity.
+ */
+@Repository
+public interface ProductoImageRepository extends JpaRepository<ProductoImage, Long> {
+
+    /**
+     * Delete the image of a producto, if any, without loading its bytes.
+     *
+     * @param productoId the id of the producto.
+     */
+    @Modifying
+    @Query("delete from ProductoImage productoImage where productoImage.productoId = :productoId")
+    void deleteByProductoId(@Param("productoId") Long productoId);
+}
@@ -0,0 +1,30 @@
+package es.fabio.repository;
+
+import es.fabio.domain.SalesRollupDelta;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.util.List;
+
+/**
+ * Spring Data JPA repository for the {@link SalesRollupDelta} entity.
+ */
+@Repository
+public interface SalesRollupDeltaRepository extends JpaRepository<SalesRollupDelta, Long> {
+
+    /**
+     * Lock the oldest deltas, skipping the ones already locked by another run.
+     *
+     * @param pageable the size of the batch.
+     * @return the locked deltas.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+    List<SalesRollupDelta> findAllByOrderByIdAsc(Pageable pageable);
+}
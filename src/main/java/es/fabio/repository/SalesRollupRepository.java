@@ -0,0 +1,49 @@
+package es.fabio.repository;
+
+import es.fabio.domain.SalesRollup;
+import es.fabio.domain.enumeration.OrderStatus;
+import es.fabio.domain.enumeration.SalesGranularity;
+import es.fabio.domain.enumeration.Size;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Spring Data JPA repository for the {@link SalesRollup} entity.
+ */
+@Repository
+public interface SalesRollupRepository extends JpaRepository<SalesRollup, Long> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<SalesRollup> findAllByGranularityAndBucketStartIn(SalesGranularity granularity, Collection<Instant> bucketStarts);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<SalesRollup> findAllByBucketStartGreaterThanEqualAndBucketStartLessThan(Instant from, Instant to);
+
+    Optional<SalesRollup> findFirstByGranularityAndBucketStartLessThanOrderByBucketStartAsc(SalesGranularity granularity, Instant before);
+
+    /**
+     * Sum the rollups of a time range by bucket and dimensions.
+     *
+     * @return rows of bucket start, product category id, size, order status, revenue, units and item count.
+     */
+    @Query("select r.bucketStart, r.productCategoryId, r.size, r.orderStatus, sum(r.revenue), sum(r.units), sum(r.itemCount)" +
+        " from SalesRollup r" +
+        " where r.granularity in :granularities and r.bucketStart >= :from and r.bucketStart < :to" +
+        " and (:productCategoryId is null or r.productCategoryId = :productCategoryId)" +
+        " and (:size is null or r.size = :size)" +
+        " and (:orderStatus is null or r.orderStatus = :orderStatus)" +
+        " group by r.bucketStart, r.productCategoryId, r.size, r.orderStatus")
+    List<Object[]> sumByBucket(@Param("granularities") Collection<SalesGranularity> granularities, @Param("from") Instant from,
+                               @Param("to") Instant to, @Param("productCategoryId") Long productCategoryId, @Param("size") Size size,
+                               @Param("orderStatus") OrderStatus orderStatus);
+}
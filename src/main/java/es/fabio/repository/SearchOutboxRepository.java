@@ -0,0 +1,40 @@
+package es.fabio.repository;
+
+import es.fabio.domain.SearchOutboxEntry;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Spring Data JPA repository for the {@link SearchOutboxEntry} entity.
+ */
+@Repository
+public interface SearchOutboxRepository extends JpaRepository<SearchOutboxEntry, Long> {
+
+    /**
+     * Lock the oldest entries which are due, skipping the ones already locked by another indexer.
+     *
+     * @param maxAttempts the number of attempts after which an entry is no longer retried.
+     * @param now the current time.
+     * @param pageable the size of the batch.
+     * @return the locked entries.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+    List<SearchOutboxEntry> findByAttemptsLessThanAndNextAttemptDateLessThanEqualOrderByIdAsc(int maxAttempts, Instant now, Pageable pageable);
+
+    Optional<SearchOutboxEntry> findFirstByAttemptsLessThanOrderByIdAsc(int maxAttempts);
+
+    long countByAttemptsLessThan(int maxAttempts);
+
+    long countByAttemptsGreaterThanEqual(int maxAttempts);
+}
@@ -0,0 +1,18 @@
+package es.fabio.repository;
+
+import es.fabio.domain.SearchReindexJob;
+import es.fabio.domain.enumeration.SearchReindexStatus;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Spring Data JPA repository for the {@link SearchReindexJob} entity.
+ */
+@Repository
+public interface SearchReindexJobRepository extends JpaRepository<SearchReindexJob, String> {
+
+    List<SearchReindexJob> findAllByStatusNot(SearchReindexStatus status);
+}
@@ -0,0 +1,17 @@
+package es.fabio.repository;
+
+import java.util.Collection;
+
+/**
+ * Statements of the {@link UserRepository} which Spring Data can not declare.
+ */
+public interface UserRepositoryCustom {
+
+    /**
+     * Delete the authorities of users, only invalidating the second-level cache of the user authorities.
+     *
+     * @param ids the ids of the users.
+     * @return the number of deleted rows.
+     */
+    int deleteAuthoritiesByUserIdIn(Collection<Long> ids);
+}
@@ -0,0 +1,28 @@
+package es.fabio.repository;
+
+import org.hibernate.query.NativeQuery;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Collection;
+
+/**
+ * Implementation of the {@link UserRepositoryCustom} statements.
+ */
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+    private static final String USER_AUTHORITY_TABLE = "jhi_user_authority";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int deleteAuthoritiesByUserIdIn(Collection<Long> ids) {
+        // Without its table, Hibernate would invalidate every second-level cache region after the native statement.
+        return entityManager.createNativeQuery("delete from " + USER_AUTHORITY_TABLE + " where user_id in (:ids)")
+            .unwrap(NativeQuery.class)
+            .addSynchronizedQuerySpace(USER_AUTHORITY_TABLE)
+            .setParameterList("ids", ids)
+            .executeUpdate();
+    }
+}
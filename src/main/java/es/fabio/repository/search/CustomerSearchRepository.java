@@ -7,5 +7,5 @@ import org.springframework.data.elasticsearch.repository.ElasticsearchRepository
 /**
  * Spring Data Elasticsearch repository for the {@link Customer} entity.
  */
-public interface CustomerSearchRepository extends ElasticsearchRepository<Customer, Long> {
+public interface CustomerSearchRepository extends ElasticsearchRepository<Customer, Long>, CustomerSearchRepositoryCustom {
 }
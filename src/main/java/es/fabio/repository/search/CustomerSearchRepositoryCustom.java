@@ -0,0 +1,35 @@
+package es.fabio.repository.search;
+
+import es.fabio.domain.Customer;
+
+import org.elasticsearch.index.query.QueryBuilder;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+
+/**
+ * Searches of the {@link Customer} documents run with the limits of {@code application.search}.
+ */
+public interface CustomerSearchRepositoryCustom {
+
+    /**
+     * Search the best matching customers, without counting all of them, stopping at the search timeout.
+     *
+     * @param query the query.
+     * @param fields the fields of the documents to read.
+     * @param size the maximum number of customers.
+     * @return the customers, holding only the fields read.
+     */
+    List<Customer> searchTop(QueryBuilder query, String[] fields, int size);
+
+    /**
+     * Search the customers following a position in a sorted search, stopping at the search timeout.
+     *
+     * @param query the query.
+     * @param sort the sort, by document fields, ending with the id.
+     * @param searchAfter the sort values of the last customer already returned, {@code null} for the first ones.
+     * @param size the maximum number of customers.
+     * @return the customers, and the position of the last one if there are more.
+     */
+    SearchAfterSlice<Customer> searchAfter(QueryBuilder query, Sort sort, Object[] searchAfter, int size);
+}
@@ -0,0 +1,31 @@
+package es.fabio.repository.search;
+
+import es.fabio.domain.Customer;
+
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+
+/**
+ * Implementation of the {@link CustomerSearchRepositoryCustom} searches.
+ */
+class CustomerSearchRepositoryImpl implements CustomerSearchRepositoryCustom {
+
+    private final SearchExecutor searchExecutor;
+
+    CustomerSearchRepositoryImpl(SearchExecutor searchExecutor) {
+        this.searchExecutor = searchExecutor;
+    }
+
+    @Override
+    public List<Customer> searchTop(QueryBuilder query, String[] fields, int size) {
+        return searchExecutor.searchTop(Customer.class, new SearchSourceBuilder().query(query).fetchSource(fields, null), size);
+    }
+
+    @Override
+    public SearchAfterSlice<Customer> searchAfter(QueryBuilder query, Sort sort, Object[] searchAfter, int size) {
+        return searchExecutor.searchAfter(Customer.class, new SearchSourceBuilder().query(query), sort, searchAfter, size);
+    }
+}
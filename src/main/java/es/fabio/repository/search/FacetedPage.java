@@ -0,0 +1,30 @@
+package es.fabio.repository.search;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A page of search hits with the facets of the whole search.
+ * <p>
+ * Each facet maps the keys of its buckets, in the order they were returned, to their document counts.
+ *
+ * @param <T> the type of the hits.
+ */
+public class FacetedPage<T> extends PageImpl<T> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Map<String, Map<String, Long>> facets;
+
+    public FacetedPage(List<T> content, Pageable pageable, long total, Map<String, Map<String, Long>> facets) {
+        super(content, pageable, total);
+        this.facets = facets;
+    }
+
+    public Map<String, Map<String, Long>> getFacets() {
+        return facets;
+    }
+}
@@ -7,5 +7,5 @@ import org.springframework.data.elasticsearch.repository.ElasticsearchRepository
 /**
  * Spring Data Elasticsearch repository for the {@link OrderItem} entity.
  */
-public interface OrderItemSearchRepository extends ElasticsearchRepository<OrderItem, Long> {
+public interface OrderItemSearchRepository extends ElasticsearchRepository<OrderItem, Long>, OrderItemSearchRepositoryCustom {
 }
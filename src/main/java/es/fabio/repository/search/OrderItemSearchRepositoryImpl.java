@@ -0,0 +1,24 @@
+package es.fabio.repository.search;
+
+import es.fabio.domain.OrderItem;
+
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Implementation of the {@link OrderItemSearchRepositoryCustom} searches.
+ */
+class OrderItemSearchRepositoryImpl implements OrderItemSearchRepositoryCustom {
+
+    private final SearchExecutor searchExecutor;
+
+    OrderItemSearchRepositoryImpl(SearchExecutor searchExecutor) {
+        this.searchExecutor = searchExecutor;
+    }
+
+    @Override
+    public SearchAfterSlice<OrderItem> searchAfter(QueryBuilder query, Sort sort, Object[] searchAfter, int size) {
+        return searchExecutor.searchAfter(OrderItem.class, new SearchSourceBuilder().query(query), sort, searchAfter, size);
+    }
+}
@@ -7,5 +7,5 @@ import org.springframework.data.elasticsearch.repository.ElasticsearchRepository
 /**
  * Spring Data Elasticsearch repository for the {@link ProductCategory} entity.
  */
-public interface ProductCategorySearchRepository extends ElasticsearchRepository<ProductCategory, Long> {
+public interface ProductCategorySearchRepository extends ElasticsearchRepository<ProductCategory, Long>, ProductCategorySearchRepositoryCustom {
 }
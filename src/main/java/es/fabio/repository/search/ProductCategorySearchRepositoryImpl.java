@@ -0,0 +1,24 @@
+package es.fabio.repository.search;
+
+import es.fabio.domain.ProductCategory;
+
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Implementation of the {@link ProductCategorySearchRepositoryCustom} searches.
+ */
+class ProductCategorySearchRepositoryImpl implements ProductCategorySearchRepositoryCustom {
+
+    private final SearchExecutor searchExecutor;
+
+    ProductCategorySearchRepositoryImpl(SearchExecutor searchExecutor) {
+        this.searchExecutor = searchExecutor;
+    }
+
+    @Override
+    public SearchAfterSlice<ProductCategory> searchAfter(QueryBuilder query, Sort sort, Object[] searchAfter, int size) {
+        return searchExecutor.searchAfter(ProductCategory.class, new SearchSourceBuilder().query(query), sort, searchAfter, size);
+    }
+}
@@ -7,5 +7,5 @@ import org.springframework.data.elasticsearch.repository.ElasticsearchRepository
 /**
  * Spring Data Elasticsearch repository for the {@link ProductOrder} entity.
  */
-public interface ProductOrderSearchRepository extends ElasticsearchRepository<ProductOrder, Long> {
+public interface ProductOrderSearchRepository extends ElasticsearchRepository<ProductOrder, Long>, ProductOrderSearchRepositoryCustom {
 }
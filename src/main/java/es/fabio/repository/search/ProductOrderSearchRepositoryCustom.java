@@ -0,0 +1,23 @@
+package es.fabio.repository.search;
+
+import es.fabio.domain.ProductOrder;
+
+import org.elasticsearch.index.query.QueryBuilder;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Searches of the {@link ProductOrder} documents run with the limits of {@code application.search}.
+ */
+public interface ProductOrderSearchRepositoryCustom {
+
+    /**
+     * Search the product orders following a position in a sorted search, stopping at the search timeout.
+     *
+     * @param query the query.
+     * @param sort the sort, by document fields, ending with the id.
+     * @param searchAfter the sort values of the last product order already returned, {@code null} for the first ones.
+     * @param size the maximum number of product orders.
+     * @return the product orders, and the position of the last one if there are more.
+     */
+    SearchAfterSlice<ProductOrder> searchAfter(QueryBuilder query, Sort sort, Object[] searchAfter, int size);
+}
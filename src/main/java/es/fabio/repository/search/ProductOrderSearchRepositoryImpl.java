@@ -0,0 +1,24 @@
+package es.fabio.repository.search;
+
+import es.fabio.domain.ProductOrder;
+
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Implementation of the {@link ProductOrderSearchRepositoryCustom} searches.
+ */
+class ProductOrderSearchRepositoryImpl implements ProductOrderSearchRepositoryCustom {
+
+    private final SearchExecutor searchExecutor;
+
+    ProductOrderSearchRepositoryImpl(SearchExecutor searchExecutor) {
+        this.searchExecutor = searchExecutor;
+    }
+
+    @Override
+    public SearchAfterSlice<ProductOrder> searchAfter(QueryBuilder query, Sort sort, Object[] searchAfter, int size) {
+        return searchExecutor.searchAfter(ProductOrder.class, new SearchSourceBuilder().query(query), sort, searchAfter, size);
+    }
+}
@@ -7,5 +7,5 @@ import org.springframework.data.elasticsearch.repository.ElasticsearchRepository
 /**
  * Spring Data Elasticsearch repository for the {@link Producto} entity.
  */
-public interface ProductoSearchRepository extends ElasticsearchRepository<Producto, Long> {
+public interface ProductoSearchRepository extends ElasticsearchRepository<Producto, Long>, ProductoSearchRepositoryCustom {
 }
@@ -0,0 +1,62 @@
+package es.fabio.repository.search;
+
+import es.fabio.domain.Producto;
+
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Searches of the {@link Producto} documents run with the limits of {@code application.search}.
+ */
+public interface ProductoSearchRepositoryCustom {
+
+    /**
+     * Search a page of productos, stopping at the search timeout.
+     *
+     * @param query the query.
+     * @param pageable the page, sorted by document fields.
+     * @return the page of productos.
+     */
+    Page<Producto> searchWithinLimits(QueryBuilder query, Pageable pageable);
+
+    /**
+     * Search a page of productos and the facets of the search in a single request, stopping at the search timeout.
+     * <p>
+     * Each facet counts the productos matching the query and the filters other than its own.
+     *
+     * @param query the query, applied to the hits and the facets.
+     * @param filters the filters, by the name of the facet they filter.
+     * @param facets the terms or range aggregations of the facets, by name.
+     * @param pageable the page, sorted by document fields.
+     * @return the page of productos with the facets.
+     */
+    FacetedPage<Producto> searchWithFacets(QueryBuilder query, Map<String, QueryBuilder> filters, Map<String, AggregationBuilder> facets,
+                                           Pageable pageable);
+
+    /**
+     * Search the best matching productos, without counting all of them, stopping at the search timeout.
+     *
+     * @param query the query.
+     * @param fields the fields of the documents to read.
+     * @param size the maximum number of productos.
+     * @return the productos, holding only the fields read.
+     */
+    List<Producto> searchTop(QueryBuilder query, String[] fields, int size);
+
+    /**
+     * Search the productos following a position in a sorted search, stopping at the search timeout.
+     *
+     * @param query the query.
+     * @param sort the sort, by document fields, ending with the id.
+     * @param searchAfter the sort values of the last producto already returned, {@code null} for the first ones.
+     * @param size the maximum number of productos.
+     * @return the productos, and the position of the last one if there are more.
+     */
+    SearchAfterSlice<Producto> searchAfter(QueryBuilder query, Sort sort, Object[] searchAfter, int size);
+}
@@ -0,0 +1,46 @@
+package es.fabio.repository.search;
+
+import es.fabio.domain.Producto;
+
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementation of the {@link ProductoSearchRepositoryCustom} searches.
+ */
+class ProductoSearchRepositoryImpl implements ProductoSearchRepositoryCustom {
+
+    private final SearchExecutor searchExecutor;
+
+    ProductoSearchRepositoryImpl(SearchExecutor searchExecutor) {
+        this.searchExecutor = searchExecutor;
+    }
+
+    @Override
+    public Page<Producto> searchWithinLimits(QueryBuilder query, Pageable pageable) {
+        return searchExecutor.search(Producto.class, new SearchSourceBuilder().query(query), pageable);
+    }
+
+    @Override
+    public FacetedPage<Producto> searchWithFacets(QueryBuilder query, Map<String, QueryBuilder> filters, Map<String, AggregationBuilder> facets,
+                                                  Pageable pageable) {
+        return searchExecutor.searchWithFacets(Producto.class, new SearchSourceBuilder().query(query), filters, facets, pageable);
+    }
+
+    @Override
+    public List<Producto> searchTop(QueryBuilder query, String[] fields, int size) {
+        return searchExecutor.searchTop(Producto.class, new SearchSourceBuilder().query(query).fetchSource(fields, null), size);
+    }
+
+    @Override
+    public SearchAfterSlice<Producto> searchAfter(QueryBuilder query, Sort sort, Object[] searchAfter, int size) {
+        return searchExecutor.searchAfter(Producto.class, new SearchSourceBuilder().query(query), sort, searchAfter, size);
+    }
+}
@@ -0,0 +1,34 @@
+package es.fabio.repository.search;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A slice of the hits of a search paginated with {@code search_after}: the hits plus the sort values of the last one,
+ * from which the next slice is searched.
+ *
+ * @param <T> the type of the hits.
+ */
+public class SearchAfterSlice<T> {
+
+    private final List<T> content;
+
+    private final List<String> lastSortValues;
+
+    public SearchAfterSlice(List<T> content, List<String> lastSortValues) {
+        this.content = Collections.unmodifiableList(content);
+        this.lastSortValues = lastSortValues;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    /**
+     * @return the sort values of the last hit as strings, in the order of the sort, or {@code null} if there are no
+     * more hits.
+     */
+    public List<String> getLastSortValues() {
+        return lastSortValues;
+    }
+}
@@ -0,0 +1,228 @@
+package es.fabio.repository.search;
+
+import es.fabio.config.ApplicationProperties;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import io.searchbox.client.JestClient;
+import io.searchbox.core.Search;
+import io.searchbox.core.SearchResult;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.ElasticsearchException;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.EntityMapper;
+import org.springframework.data.elasticsearch.core.mapping.ElasticsearchPersistentEntity;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the searches of the custom search repositories with the limits of {@code application.search}.
+ * <p>
+ * The requests are sent as they are built, so they can use the options the repositories do not expose: the shards
+ * stop searching when the timeout elapses, and the hits they collected until then are returned. The request is then
+ * marked with {@link SearchTimeouts}, so the partial hits are not cached and the response tells they are partial.
+ */
+@Component
+class SearchExecutor {
+
+    private final Logger log = LoggerFactory.getLogger(SearchExecutor.class);
+
+    private final ApplicationProperties.Search properties;
+
+    private final JestClient jestClient;
+
+    private final ElasticsearchOperations elasticsearchOperations;
+
+    private final EntityMapper entityMapper;
+
+    SearchExecutor(ApplicationProperties applicationProperties, JestClient jestClient, ElasticsearchOperations elasticsearchOperations,
+                   EntityMapper entityMapper) {
+        this.properties = applicationProperties.getSearch();
+        this.jestClient = jestClient;
+        this.elasticsearchOperations = elasticsearchOperations;
+        this.entityMapper = entityMapper;
+    }
+
+    /**
+     * Search a page of entities.
+     *
+     * @param entityClass the class of the entities.
+     * @param source the search, without its page and sort.
+     * @param pageable the page, sorted by document fields.
+     * @param <T> the type of the entities.
+     * @return the page of entities.
+     */
+    <T> Page<T> search(Class<T> entityClass, SearchSourceBuilder source, Pageable pageable) {
+        SearchResult result = execute(entityClass, page(source, pageable));
+        return new PageImpl<>(hits(entityClass, result), pageable, result.getTotal());
+    }
+
+    /**
+     * Search a page of entities and the facets of the whole search, in a single request.
+     * <p>
+     * The filters apply to the hits, and each facet counts the documents matching the filters other than its own, so
+     * that its buckets are the alternatives to the value it is filtered by.
+     *
+     * @param entityClass the class of the entities.
+     * @param source the search, without its page and sort, whose query does not count as a filter.
+     * @param filters the filters, by the name of the facet they filter.
+     * @param facets the terms or range aggregations of the facets, by name.
+     * @param pageable the page, sorted by document fields.
+     * @param <T> the type of the entities.
+     * @return the page of entities with the facets.
+     */
+    <T> FacetedPage<T> searchWithFacets(Class<T> entityClass, SearchSourceBuilder source, Map<String, QueryBuilder> filters,
+                                        Map<String, AggregationBuilder> facets, Pageable pageable) {
+        if (!filters.isEmpty()) {
+            source.postFilter(filtersExcept(filters, null));
+        }
+        for (Map.Entry<String, AggregationBuilder> facet : facets.entrySet()) {
+            source.aggregation(AggregationBuilders.filter(facet.getKey(), filtersExcept(filters, facet.getKey()))
+                .subAggregation(facet.getValue()));
+        }
+        SearchResult result = execute(entityClass, page(source, pageable));
+        JsonObject aggregations = result.getJsonObject().getAsJsonObject("aggregations");
+        Map<String, Map<String, Long>> buckets = new LinkedHashMap<>();
+        for (Map.Entry<String, AggregationBuilder> facet : facets.entrySet()) {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            JsonObject aggregation = aggregations.getAsJsonObject(facet.getKey()).getAsJsonObject(facet.getValue().getName());
+            for (JsonElement bucket : aggregation.getAsJsonArray("buckets")) {
+                counts.put(bucket.getAsJsonObject().get("key").getAsString(), bucket.getAsJsonObject().get("doc_count").getAsLong());
+            }
+            buckets.put(facet.getKey(), counts);
+        }
+        return new FacetedPage<>(hits(entityClass, result), pageable, result.getTotal(), buckets);
+    }
+
+    /**
+     * Search the best hits of a search, without counting all of them.
+     *
+     * @param entityClass the class of the entities.
+     * @param source the search, whose source filtering is kept.
+     * @param size the maximum number of hits.
+     * @param <T> the type of the entities.
+     * @return the entities, by decreasing relevance unless sorted, holding only the fields of the filtered source.
+     */
+    <T> List<T> searchTop(Class<T> entityClass, SearchSourceBuilder source, int size) {
+        return hits(entityClass, execute(entityClass, source.size(size).trackTotalHits(false)));
+    }
+
+    /**
+     * Search the hits following a position in a sorted search, without counting all of them.
+     * <p>
+     * Unlike an offset, the position costs the same at any depth. The sort must end with a unique field, such as the
+     * id, for the position to be exact.
+     *
+     * @param entityClass the class of the entities.
+     * @param source the search, without its sort and size.
+     * @param sort the sort, by document fields.
+     * @param searchAfter the sort values of the last hit already returned, {@code null} for the first hits.
+     * @param size the maximum number of hits.
+     * @param <T> the type of the entities.
+     * @return the hits, and the position of the last one if there are more.
+     */
+    <T> SearchAfterSlice<T> searchAfter(Class<T> entityClass, SearchSourceBuilder source, Sort sort, Object[] searchAfter, int size) {
+        for (Sort.Order order : sort) {
+            source.sort(SortBuilders.fieldSort(order.getProperty()).order(order.isAscending() ? SortOrder.ASC : SortOrder.DESC));
+        }
+        if (searchAfter != null) {
+            source.searchAfter(searchAfter);
+        }
+        // One more hit than returned tells whether there is a next slice.
+        SearchResult result = execute(entityClass, source.size(size + 1).trackTotalHits(false));
+        JsonArray hits = result.getJsonObject().getAsJsonObject("hits").getAsJsonArray("hits");
+        List<T> content = new ArrayList<>();
+        for (int i = 0; i < Math.min(size, hits.size()); i++) {
+            content.add(read(entityClass, hits.get(i).getAsJsonObject()));
+        }
+        List<String> lastSortValues = null;
+        if (hits.size() > size) {
+            lastSortValues = new ArrayList<>();
+            for (JsonElement value : hits.get(size - 1).getAsJsonObject().getAsJsonArray("sort")) {
+                lastSortValues.add(value.isJsonNull() ? null : value.getAsString());
+            }
+        }
+        return new SearchAfterSlice<>(content, lastSortValues);
+    }
+
+    private static QueryBuilder filtersExcept(Map<String, QueryBuilder> filters, String facet) {
+        BoolQueryBuilder query = QueryBuilders.boolQuery();
+        filters.forEach((name, filter) -> {
+            if (!name.equals(facet)) {
+                query.filter(filter);
+            }
+        });
+        return query;
+    }
+
+    private static SearchSourceBuilder page(SearchSourceBuilder source, Pageable pageable) {
+        if (pageable.isPaged()) {
+            source.from((int) pageable.getOffset()).size(pageable.getPageSize());
+        }
+        for (Sort.Order order : pageable.getSort()) {
+            source.sort(SortBuilders.fieldSort(order.getProperty()).order(order.isAscending() ? SortOrder.ASC : SortOrder.DESC));
+        }
+        return source;
+    }
+
+    private <T> List<T> hits(Class<T> entityClass, SearchResult result) {
+        List<T> content = new ArrayList<>();
+        for (JsonElement hit : result.getJsonObject().getAsJsonObject("hits").getAsJsonArray("hits")) {
+            content.add(read(entityClass, hit.getAsJsonObject()));
+        }
+        return content;
+    }
+
+    private SearchResult execute(Class<?> entityClass, SearchSourceBuilder source) {
+        ElasticsearchPersistentEntity<?> persistentEntity = elasticsearchOperations.getPersistentEntityFor(entityClass);
+        source.timeout(TimeValue.timeValueMillis(properties.getTimeoutMs()));
+        Search search = new Search.Builder(source.toString())
+            .addIndex(persistentEntity.getIndexName())
+            .addType(persistentEntity.getIndexType())
+            .build();
+        SearchResult result;
+        try {
+            result = jestClient.execute(search);
+        } catch (IOException e) {
+            throw new ElasticsearchException("Search of " + persistentEntity.getIndexName() + " failed", e);
+        }
+        if (!result.isSucceeded()) {
+            throw new ElasticsearchException("Search of " + persistentEntity.getIndexName() + " failed: " + result.getErrorMessage());
+        }
+        JsonElement timedOut = result.getJsonObject().get("timed_out");
+        if (timedOut != null && timedOut.getAsBoolean()) {
+            log.warn("Search of {} timed out after {} ms, returning partial results: {}",
+                persistentEntity.getIndexName(), properties.getTimeoutMs(), source);
+            SearchTimeouts.markTimedOut();
+        }
+        return result;
+    }
+
+    private <T> T read(Class<T> entityClass, JsonObject hit) {
+        try {
+            return entityMapper.mapToObject(hit.get("_source").toString(), entityClass);
+        } catch (IOException e) {
+            throw new ElasticsearchException("Could not read the " + entityClass.getSimpleName() + " document " + hit.get("_id"), e);
+        }
+    }
+}
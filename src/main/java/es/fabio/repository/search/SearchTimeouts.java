@@ -0,0 +1,36 @@
+package es.fabio.repository.search;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Marks the requests whose searches timed out, so their partial hits are neither cached nor passed off as complete.
+ * <p>
+ * The mark is an attribute of the current request, so it ends with the request; the searches run outside of a request
+ * are not marked.
+ */
+public final class SearchTimeouts {
+
+    private static final String TIMED_OUT_ATTRIBUTE = SearchTimeouts.class.getName() + ".TIMED_OUT";
+
+    private SearchTimeouts() {
+    }
+
+    /**
+     * Mark the current request: one of its searches returned the hits collected until the timeout.
+     */
+    public static void markTimedOut() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.setAttribute(TIMED_OUT_ATTRIBUTE, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    /**
+     * @return whether a search of the current request timed out.
+     */
+    public static boolean hasTimedOut() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes != null && attributes.getAttribute(TIMED_OUT_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) != null;
+    }
+}
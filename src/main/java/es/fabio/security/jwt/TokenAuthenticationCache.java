@@ -0,0 +1,104 @@
+package es.fabio.security.jwt;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.security.core.Authentication;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded cache of the authentications of already verified tokens, so a token is only parsed and its signature
+ * checked once, not on every request.
+ * <p>
+ * Entries are kept until the token expires. When the cache is full the expired entries are purged, and if it is still
+ * full it is emptied: a miss only costs a parse, so a simple bound is preferred over an LRU bookkeeping on every hit.
+ */
+final class TokenAuthenticationCache {
+
+    private static final String CACHE_NAME = "jwt";
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final int maxSize;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    TokenAuthenticationCache(int maxSize, MeterRegistry meterRegistry) {
+        this.maxSize = maxSize;
+        this.hits = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "hit")
+            .description("The number of times a token was found in the cache")
+            .register(meterRegistry);
+        this.misses = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "miss")
+            .description("The number of times a token had to be parsed")
+            .register(meterRegistry);
+        Gauge.builder("cache.size", entries, Map::size).tag("cache", CACHE_NAME)
+            .description("The number of tokens in the cache")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Get the authentication of a token.
+     *
+     * @param token the token.
+     * @return the authentication, or {@code null} if the token is not cached or has expired.
+     */
+    Authentication get(String token) {
+        Entry entry = entries.get(token);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.isExpired(System.currentTimeMillis())) {
+            entries.remove(token, entry);
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.authentication;
+    }
+
+    /**
+     * Cache the authentication of a verified token.
+     *
+     * @param token the token.
+     * @param authentication its authentication.
+     * @param expiration the expiration time of the token, in milliseconds since the epoch.
+     */
+    void put(String token, Authentication authentication, long expiration) {
+        if (maxSize <= 0) {
+            return;
+        }
+        if (entries.size() >= maxSize) {
+            long now = System.currentTimeMillis();
+            entries.values().removeIf(entry -> entry.isExpired(now));
+            if (entries.size() >= maxSize) {
+                entries.clear();
+            }
+        }
+        entries.put(token, new Entry(authentication, expiration));
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private static final class Entry {
+
+        private final Authentication authentication;
+
+        private final long expiration;
+
+        private Entry(Authentication authentication, long expiration) {
+            this.authentication = authentication;
+            this.expiration = expiration;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expiration;
+        }
+    }
+}
@@ -1,19 +1,26 @@
 package es.fabio.service;
 
 import io.github.jhipster.config.JHipsterProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import es.fabio.config.ApplicationProperties;
 import es.fabio.config.audit.AuditEventConverter;
 import es.fabio.repository.PersistenceAuditEventRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.actuate.audit.AuditEvent;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -33,28 +40,39 @@ public class AuditEventService {
 
     private final AuditEventConverter auditEventConverter;
 
+    private final ChunkedPurge purge;
+
     public AuditEventService(
         PersistenceAuditEventRepository persistenceAuditEventRepository,
-        AuditEventConverter auditEventConverter, JHipsterProperties jhipsterProperties) {
+        AuditEventConverter auditEventConverter, JHipsterProperties jhipsterProperties,
+        ApplicationProperties applicationProperties, PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
 
         this.persistenceAuditEventRepository = persistenceAuditEventRepository;
         this.auditEventConverter = auditEventConverter;
         this.jHipsterProperties = jhipsterProperties;
+        this.purge = new ChunkedPurge("audit-events", applicationProperties.getPurge(), new TransactionTemplate(transactionManager), meterRegistry);
     }
 
     /**
      * Old audit events should be automatically deleted after 30 days.
      *
      * This is scheduled to get fired at 12:00 (am).
+     * <p>
+     * They are deleted by chunks, each in its own transaction unless a transaction is already running.
      */
     @Scheduled(cron = "0 0 12 * * ?")
+    @Transactional(propagation = Propagation.SUPPORTS)
     public void removeOldAuditEvents() {
-        persistenceAuditEventRepository
-            .findByAuditEventDateBefore(Instant.now().minus(jHipsterProperties.getAuditEvents().getRetentionPeriod(), ChronoUnit.DAYS))
-            .forEach(auditEvent -> {
-                log.debug("Deleting audit data {}", auditEvent);
-                persistenceAuditEventRepository.delete(auditEvent);
-            });
+        Instant before = Instant.now().minus(jHipsterProperties.getAuditEvents().getRetentionPeriod(), ChronoUnit.DAYS);
+        long removed = purge.run(() -> {
+            List<Long> ids = persistenceAuditEventRepository.findIdsByAuditEventDateBefore(before, PageRequest.of(0, purge.getChunkSize()));
+            if (ids.isEmpty()) {
+                return 0;
+            }
+            persistenceAuditEventRepository.deleteDataByEventIdIn(ids);
+            return persistenceAuditEventRepository.deleteByIdIn(ids);
+        });
+        log.info("Deleted {} audit events older than {}", removed, before);
     }
 
     @Transactional(readOnly = true)
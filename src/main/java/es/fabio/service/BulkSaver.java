@@ -0,0 +1,126 @@
+package es.fabio.service;
+
+import es.fabio.config.ApplicationProperties;
+import es.fabio.service.dto.BulkItemResult;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Saves many DTOs with per-item results.
+ * <p>
+ * Items are validated one by one, then the valid ones are saved by chunks of {@code chunkSize}, each chunk in its own
+ * transaction so Hibernate sends its inserts as JDBC batches and the persistence context does not grow with the
+ * request. If a chunk fails, its items are saved one by one so only the faulty ones are reported as failed, which is
+ * why it must not be called in a running transaction.
+ */
+@Service
+public class BulkSaver {
+
+    private final Logger log = LoggerFactory.getLogger(BulkSaver.class);
+
+    private final ApplicationProperties.Bulk properties;
+
+    private final Validator validator;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public BulkSaver(ApplicationProperties applicationProperties, Validator validator, PlatformTransactionManager transactionManager) {
+        this.properties = applicationProperties.getBulk();
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Validate and save the items.
+     *
+     * @param items the items to save; an item whose {@code next()} throws an {@link IllegalArgumentException}, e.g.
+     *              because it cannot be parsed, is reported as failed and the next ones are still saved.
+     * @param idOf the id of an item, {@code null} for an item to create.
+     * @param save saves a chunk of items and returns the saved items, in the same order.
+     * @param <T> the type of the DTO.
+     * @return the result of each item, in the order of the items.
+     */
+    public <T> List<BulkItemResult<T>> saveAll(Iterator<T> items, Function<T, Long> idOf, Function<List<T>, List<T>> save) {
+        List<BulkItemResult<T>> results = new ArrayList<>();
+        List<T> chunk = new ArrayList<>(properties.getChunkSize());
+        List<Integer> chunkIndexes = new ArrayList<>(properties.getChunkSize());
+        int index = 0;
+        while (items.hasNext()) {
+            results.add(null);
+            T item;
+            try {
+                item = items.next();
+            } catch (IllegalArgumentException e) {
+                results.set(index, BulkItemResult.failed(index, Collections.singletonList(e.getMessage())));
+                index++;
+                continue;
+            }
+            List<String> violations = validate(item);
+            if (!violations.isEmpty()) {
+                results.set(index, BulkItemResult.failed(index, violations));
+            } else {
+                chunk.add(item);
+                chunkIndexes.add(index);
+                if (chunk.size() >= properties.getChunkSize()) {
+                    saveChunk(chunk, chunkIndexes, idOf, save, results);
+                    chunk.clear();
+                    chunkIndexes.clear();
+                }
+            }
+            index++;
+        }
+        if (!chunk.isEmpty()) {
+            saveChunk(chunk, chunkIndexes, idOf, save, results);
+        }
+        return results;
+    }
+
+    private <T> List<String> validate(T item) {
+        if (item == null) {
+            return Collections.singletonList("must not be null");
+        }
+        Set<ConstraintViolation<T>> violations = validator.validate(item);
+        return violations.stream()
+            .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+            .sorted()
+            .collect(Collectors.toList());
+    }
+
+    private <T> void saveChunk(List<T> chunk, List<Integer> chunkIndexes, Function<T, Long> idOf, Function<List<T>, List<T>> save,
+                               List<BulkItemResult<T>> results) {
+        List<Boolean> created = chunk.stream().map(item -> idOf.apply(item) == null).collect(Collectors.toList());
+        try {
+            List<T> saved = transactionTemplate.execute(status -> save.apply(new ArrayList<>(chunk)));
+            for (int i = 0; i < chunk.size(); i++) {
+                results.set(chunkIndexes.get(i), BulkItemResult.saved(chunkIndexes.get(i), created.get(i), saved.get(i)));
+            }
+        } catch (RuntimeException e) {
+            if (chunk.size() == 1) {
+                String error = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+                log.warn("Could not save bulk item {}: {}", chunkIndexes.get(0), error);
+                results.set(chunkIndexes.get(0), BulkItemResult.failed(chunkIndexes.get(0), Collections.singletonList(error)));
+                return;
+            }
+            // Save the items one by one, so a single invalid item does not fail the whole chunk.
+            log.warn("Could not save a chunk of {} bulk items, saving them one by one: {}", chunk.size(), e.toString());
+            for (int i = 0; i < chunk.size(); i++) {
+                saveChunk(Collections.singletonList(chunk.get(i)), Collections.singletonList(chunkIndexes.get(i)), idOf, save, results);
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package es.fabio.service;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generation of the product catalogue, the productos and product categories, advanced on each of their writes.
+ * <p>
+ * The responses cached from the catalogue are keyed by the generation they were read at: a write makes them
+ * unreachable at once, without tracking which ones it affects. The generation is advanced when the write is made, and
+ * again after its commit, so a read running concurrently with the transaction can only cache its possibly stale result
+ * under a previous generation. The search results of the catalogue change when the {@link SearchIndexer} applies a
+ * write, which advances it again.
+ * <p>
+ * The generation is local to the instance, the responses cached by another instance only expire with their
+ * time-to-live.
+ */
+@Service
+public class CatalogueGeneration {
+
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * @return the current generation.
+     */
+    public long current() {
+        return generation.get();
+    }
+
+    /**
+     * Advance the generation now, and again when the current transaction commits.
+     * <p>
+     * The generation is advanced after the commit once per transaction, however many writes it makes.
+     */
+    public void advance() {
+        generation.incrementAndGet();
+        if (!TransactionSynchronizationManager.isSynchronizationActive() || TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                generation.incrementAndGet();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(CatalogueGeneration.this);
+            }
+        });
+    }
+}
@@ -0,0 +1,84 @@
+package es.fabio.service;
+
+import es.fabio.config.ApplicationProperties;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * Runs a purge as a sequence of bounded deletes, each in its own transaction, pausing between them so the purge
+ * neither holds locks for long nor starves the other transactions.
+ * <p>
+ * The number of removed rows and the duration of each run are published as {@code purge.rows} and
+ * {@code purge.duration}, tagged with the name of the purge.
+ */
+final class ChunkedPurge {
+
+    private final ApplicationProperties.Purge properties;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Counter rows;
+
+    private final Timer duration;
+
+    ChunkedPurge(String name, ApplicationProperties.Purge properties, TransactionTemplate transactionTemplate, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.transactionTemplate = transactionTemplate;
+        this.rows = Counter.builder("purge.rows")
+            .description("Number of rows removed by the purge")
+            .tag("purge", name)
+            .register(meterRegistry);
+        this.duration = Timer.builder("purge.duration")
+            .description("Duration of the purge")
+            .tag("purge", name)
+            .register(meterRegistry);
+    }
+
+    int getChunkSize() {
+        return properties.getChunkSize();
+    }
+
+    /**
+     * Run the chunk until it removes less than {@code chunkSize} rows.
+     *
+     * @param chunk deletes at most {@code chunkSize} rows and returns their number.
+     * @return the total number of removed rows.
+     */
+    long run(IntSupplier chunk) {
+        long start = System.nanoTime();
+        long removed = 0;
+        try {
+            while (true) {
+                Integer deleted = transactionTemplate.execute(status -> chunk.getAsInt());
+                int count = deleted == null ? 0 : deleted;
+                removed += count;
+                rows.increment(count);
+                if (count < properties.getChunkSize() || !pause()) {
+                    return removed;
+                }
+            }
+        } finally {
+            duration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private boolean pause() {
+        if (properties.getPauseMs() <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(properties.getPauseMs());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
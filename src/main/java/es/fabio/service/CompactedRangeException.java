@@ -0,0 +1,11 @@
+package es.fabio.service;
+
+public class CompactedRangeException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public CompactedRangeException(String message) {
+        super(message);
+    }
+
+}
@@ -2,6 +2,7 @@ package es.fabio.service;
 
 import java.util.List;
 
+import javax.persistence.EntityManager;
 import javax.persistence.criteria.JoinType;
 
 import org.slf4j.Logger;
@@ -12,25 +13,26 @@ import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import io.github.jhipster.service.QueryService;
-
 import es.fabio.domain.Customer;
 import es.fabio.domain.*; // for static metamodels
 import es.fabio.repository.CustomerRepository;
 import es.fabio.repository.search.CustomerSearchRepository;
 import es.fabio.service.dto.CustomerCriteria;
 import es.fabio.service.dto.CustomerDTO;
+import es.fabio.service.dto.KeysetCursor;
+import es.fabio.service.dto.KeysetSlice;
 import es.fabio.service.mapper.CustomerMapper;
 
 /**
  * Service for executing complex queries for {@link Customer} entities in the database.
  * The main input is a {@link CustomerCriteria} which gets converted to {@link Specification},
  * in a way that all the filters must apply.
- * It returns a {@link List} of {@link CustomerDTO} or a {@link Page} of {@link CustomerDTO} which fulfills the criteria.
+ * It returns a {@link List} of {@link CustomerDTO}, a {@link Page} of {@link CustomerDTO} or a keyset paginated
+ * {@link KeysetSlice} of {@link CustomerDTO} which fulfills the criteria.
  */
 @Service
 @Transactional(readOnly = true)
-public class CustomerQueryService extends QueryService<Customer> {
+public class CustomerQueryService extends KeysetQueryService<Customer> {
 
     private final Logger log = LoggerFactory.getLogger(CustomerQueryService.class);
 
@@ -38,11 +40,31 @@ public class CustomerQueryService extends QueryService<Customer> {
 
     private final CustomerMapper customerMapper;
 
+    private final DtoProjection<Customer, CustomerDTO> projection;
+
     private final CustomerSearchRepository customerSearchRepository;
 
-    public CustomerQueryService(CustomerRepository customerRepository, CustomerMapper customerMapper, CustomerSearchRepository customerSearchRepository) {
+    public CustomerQueryService(CustomerRepository customerRepository, CustomerMapper customerMapper, CustomerSearchRepository customerSearchRepository, EntityManager entityManager) {
+        super(entityManager, Customer.class, "firstName", "lastName", "gender", "email", "city", "country", "orderCount", "totalSpent");
         this.customerRepository = customerRepository;
         this.customerMapper = customerMapper;
+        this.projection = new DtoProjection<Customer, CustomerDTO>(CustomerDTO::new)
+            .attribute(Customer_.id, CustomerDTO::setId)
+            .attribute(Customer_.firstName, CustomerDTO::setFirstName)
+            .attribute(Customer_.lastName, CustomerDTO::setLastName)
+            .attribute(Customer_.gender, CustomerDTO::setGender)
+            .attribute(Customer_.email, CustomerDTO::setEmail)
+            .attribute(Customer_.phone, CustomerDTO::setPhone)
+            .attribute(Customer_.addressLine1, CustomerDTO::setAddressLine1)
+            .attribute(Customer_.addressLine2, CustomerDTO::setAddressLine2)
+            .attribute(Customer_.city, CustomerDTO::setCity)
+            .attribute(Customer_.country, CustomerDTO::setCountry)
+            .attribute(Customer_.orderCount, CustomerDTO::setOrderCount)
+            .attribute(Customer_.totalSpent, CustomerDTO::setTotalSpent)
+            .attribute(Customer_.version, CustomerDTO::setVersion)
+            .attribute(Customer_.lastModifiedDate, CustomerDTO::setLastModifiedDate)
+            .expression(root -> root.get(Customer_.user).get(User_.id), CustomerDTO::setUserId)
+            .expression(root -> DtoProjection.join(root, Customer_.user, JoinType.INNER).get(User_.login), CustomerDTO::setUserLogin);
         this.customerSearchRepository = customerSearchRepository;
     }
 
@@ -59,7 +81,8 @@ public class CustomerQueryService extends QueryService<Customer> {
     }
 
     /**
-     * Return a {@link Page} of {@link CustomerDTO} which matches the criteria from the database.
+     * Return a {@link Page} of {@link CustomerDTO} which matches the criteria from the database,
+     * selecting only the columns of the DTO instead of loading the entities.
      * @param criteria The object which holds all the filters, which the entities should match.
      * @param page The page, which should be returned.
      * @return the matching entities.
@@ -68,7 +91,22 @@ public class CustomerQueryService extends QueryService<Customer> {
     public Page<CustomerDTO> findByCriteria(CustomerCriteria criteria, Pageable page) {
         log.debug("find by criteria : {}, page: {}", criteria, page);
         final Specification<Customer> specification = createSpecification(criteria);
-        return customerRepository.findAll(specification, page)
+        return findProjectedPage(specification, page, projection);
+    }
+
+    /**
+     * Return a {@link KeysetSlice} of {@link CustomerDTO} which matches the criteria from the database,
+     * seeking from the cursor position instead of skipping an offset, and without counting the matches.
+     * @param criteria The object which holds all the filters, which the entities should match.
+     * @param cursor The position after which the entities should be returned.
+     * @param size The maximum number of entities to return.
+     * @return the matching entities and the cursor of the next page.
+     */
+    @Transactional(readOnly = true)
+    public KeysetSlice<CustomerDTO> findByCriteria(CustomerCriteria criteria, KeysetCursor cursor, int size) {
+        log.debug("find by criteria : {}, cursor: {}, size: {}", criteria, cursor, size);
+        final Specification<Customer> specification = createSpecification(criteria);
+        return findSlice(specification, cursor, size)
             .map(customerMapper::toDto);
     }
 
@@ -122,9 +160,15 @@ public class CustomerQueryService extends QueryService<Customer> {
             if (criteria.getCountry() != null) {
                 specification = specification.and(buildStringSpecification(criteria.getCountry(), Customer_.country));
             }
+            if (criteria.getOrderCount() != null) {
+                specification = specification.and(buildRangeSpecification(criteria.getOrderCount(), Customer_.orderCount));
+            }
+            if (criteria.getTotalSpent() != null) {
+                specification = specification.and(buildRangeSpecification(criteria.getTotalSpent(), Customer_.totalSpent));
+            }
             if (criteria.getUserId() != null) {
                 specification = specification.and(buildSpecification(criteria.getUserId(),
-                    root -> root.join(Customer_.user, JoinType.LEFT).get(User_.id)));
+                    root -> root.get(Customer_.user).get(User_.id)));
             }
             if (criteria.getOrderId() != null) {
                 specification = specification.and(buildSpecification(criteria.getOrderId(),
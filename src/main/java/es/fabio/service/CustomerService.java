@@ -1,10 +1,14 @@
 package es.fabio.service;
 
 import es.fabio.service.dto.CustomerDTO;
+import es.fabio.service.dto.KeysetCursor;
+import es.fabio.service.dto.KeysetSlice;
+import es.fabio.service.dto.SuggestionDTO;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -12,6 +16,8 @@ import java.util.Optional;
  */
 public interface CustomerService {
 
+    String SUGGESTIONS_CACHE = "customerSuggestions";
+
     /**
      * Save a customer.
      *
@@ -53,4 +59,30 @@ public interface CustomerService {
      * @return the list of entities.
      */
     Page<CustomerDTO> search(String query, Pageable pageable);
+
+    /**
+     * Suggest the customers whose first or last names start with the words of a prefix, for the autocomplete pickers.
+     * <p>
+     * The responses are cached by prefix for a short time, in the {@value #SUGGESTIONS_CACHE} cache, so they may
+     * miss the latest changes.
+     *
+     * @param prefix the prefix typed, in lower case.
+     * @param size the maximum number of suggestions, capped by {@code application.search.max-suggestions}.
+     * @return the ids and full names of the best matching customers.
+     */
+    List<SuggestionDTO> suggest(String prefix, int size);
+
+    /**
+     * Search for the customers corresponding to the query, after a cursor.
+     * <p>
+     * The hits are sorted by relevance unless the cursor is sorted by a property, and are not limited to
+     * {@code application.search.max-result-window}.
+     *
+     * @param query the query of the search.
+     * @param cursor the position to search from.
+     * @param size the maximum number of entities.
+     * @return the entities and the cursor of the next page.
+     * @throws InvalidCursorException if the cursor is invalid or sorted by an unsupported property.
+     */
+    KeysetSlice<CustomerDTO> search(String query, KeysetCursor cursor, int size);
 }
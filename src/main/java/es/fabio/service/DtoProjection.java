@@ -0,0 +1,88 @@
+package es.fabio.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.From;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import javax.persistence.metamodel.SingularAttribute;
+
+/**
+ * Maps the columns of a multiselect query straight into a DTO, so a listing does not hydrate managed entities.
+ * <p>
+ * Each mapping pairs an expression selected from the root entity with the DTO setter receiving its value; the setters
+ * are applied in the order the mappings were declared.
+ *
+ * @param <ENTITY> the type of the queried entity.
+ * @param <DTO> the type of the DTO.
+ */
+final class DtoProjection<ENTITY, DTO> {
+
+    private final Supplier<DTO> dtoFactory;
+
+    private final List<Function<Root<ENTITY>, ? extends Expression<?>>> expressions = new ArrayList<>();
+
+    private final List<BiConsumer<DTO, Object>> setters = new ArrayList<>();
+
+    DtoProjection(Supplier<DTO> dtoFactory) {
+        this.dtoFactory = dtoFactory;
+    }
+
+    /**
+     * Map an attribute of the root entity.
+     */
+    <T> DtoProjection<ENTITY, DTO> attribute(SingularAttribute<? super ENTITY, T> attribute, BiConsumer<DTO, ? super T> setter) {
+        return expression(root -> root.get(attribute), setter);
+    }
+
+    /**
+     * Map an expression built from the root entity, e.g. an attribute of a joined entity.
+     */
+    @SuppressWarnings("unchecked")
+    <T> DtoProjection<ENTITY, DTO> expression(Function<Root<ENTITY>, ? extends Expression<T>> expression, BiConsumer<DTO, ? super T> setter) {
+        expressions.add(expression);
+        setters.add((dto, value) -> setter.accept(dto, (T) value));
+        return this;
+    }
+
+    List<Selection<?>> select(Root<ENTITY> root) {
+        List<Selection<?>> selections = new ArrayList<>(expressions.size());
+        for (Function<Root<ENTITY>, ? extends Expression<?>> expression : expressions) {
+            selections.add(expression.apply(root));
+        }
+        return selections;
+    }
+
+    DTO toDto(Object[] row) {
+        DTO dto = dtoFactory.get();
+        for (int i = 0; i < setters.size(); i++) {
+            setters.get(i).accept(dto, row[i]);
+        }
+        return dto;
+    }
+
+    /**
+     * Join an association once, whatever the number of its attributes which are selected.
+     *
+     * @param from the entity holding the association.
+     * @param attribute the association.
+     * @param joinType {@link JoinType#LEFT} for an optional association, so rows without it are kept.
+     * @return the existing join of the association, or a new one.
+     */
+    @SuppressWarnings("unchecked")
+    static <X, Y> Join<X, Y> join(From<?, X> from, SingularAttribute<? super X, Y> attribute, JoinType joinType) {
+        for (Join<X, ?> join : from.getJoins()) {
+            if (join.getAttribute().equals(attribute) && join.getJoinType() == joinType) {
+                return (Join<X, Y>) join;
+            }
+        }
+        return from.join(attribute, joinType);
+    }
+}
@@ -0,0 +1,101 @@
+package es.fabio.service;
+
+import es.fabio.domain.AbstractAuditingEntity;
+import es.fabio.domain.Customer;
+import es.fabio.domain.OrderItem;
+import es.fabio.domain.ProductOrder;
+import es.fabio.domain.Producto;
+import es.fabio.domain.Versioned;
+import es.fabio.service.dto.EntityVersion;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Service reading the current version of the entities, for the conditional requests of their REST resources.
+ * <p>
+ * The entity is looked up by id, so it is read from the second-level cache when it is cached there: a conditional
+ * GET of an unchanged entity then neither queries the database nor maps and serializes the entity.
+ * <p>
+ * The DTO of an entity also holds labels of the entities it references, such as the {@code productCategoryName} of a
+ * producto, so the entity tag is made of the version of the entity followed by the versions of these references: a
+ * new name of the product category is a new representation of its productos.
+ */
+@Service
+@Transactional(readOnly = true)
+public class EntityVersionService {
+
+    private static final Map<Class<?>, List<Function<Object, Object>>> REFERENCES = new HashMap<>();
+
+    static {
+        reference(Producto.class, Producto::getProductCategory);
+        reference(ProductOrder.class, ProductOrder::getCustomer);
+        reference(OrderItem.class, OrderItem::getProducto, OrderItem::getOrder);
+        reference(Customer.class, Customer::getUser);
+    }
+
+    private final Logger log = LoggerFactory.getLogger(EntityVersionService.class);
+
+    private final EntityManager entityManager;
+
+    public EntityVersionService(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Get the version of an entity.
+     *
+     * @param entityClass the class of the entity.
+     * @param id the id of the entity.
+     * @return the version, or empty if the entity does not exist.
+     */
+    public Optional<EntityVersion> findVersion(Class<? extends Versioned> entityClass, Long id) {
+        log.debug("Request to get the version of {} : {}", entityClass.getSimpleName(), id);
+        return Optional.ofNullable(entityManager.find(entityClass, id))
+            .map(entity -> version(entity, REFERENCES.getOrDefault(entityClass, Collections.emptyList())));
+    }
+
+    private static EntityVersion version(Versioned entity, List<Function<Object, Object>> references) {
+        StringBuilder tag = new StringBuilder(String.valueOf(entity.getVersion()));
+        Instant lastModifiedDate = entity.getLastModifiedDate();
+        for (Function<Object, Object> reference : references) {
+            Object referenced = reference.apply(entity);
+            Long version = null;
+            Instant modified = null;
+            if (referenced instanceof Versioned) {
+                version = ((Versioned) referenced).getVersion();
+                modified = ((Versioned) referenced).getLastModifiedDate();
+            } else if (referenced instanceof AbstractAuditingEntity) {
+                // Not versioned, such as the users: their last modification stands for the version.
+                modified = ((AbstractAuditingEntity) referenced).getLastModifiedDate();
+                version = modified == null ? null : modified.toEpochMilli();
+            }
+            tag.append('-').append(version == null ? 0 : version);
+            if (modified != null && (lastModifiedDate == null || modified.isAfter(lastModifiedDate))) {
+                lastModifiedDate = modified;
+            }
+        }
+        return new EntityVersion(entity.getVersion(), lastModifiedDate, tag.toString());
+    }
+
+    @SafeVarargs
+    private static <T> void reference(Class<T> entityClass, Function<T, ?>... references) {
+        List<Function<Object, Object>> functions = new ArrayList<>(references.length);
+        for (Function<T, ?> reference : references) {
+            functions.add(entity -> reference.apply(entityClass.cast(entity)));
+        }
+        REFERENCES.put(entityClass, functions);
+    }
+}
@@ -0,0 +1,23 @@
+package es.fabio.service;
+
+import org.springframework.util.StringUtils;
+
+/**
+ * Thrown by an update whose id does not identify an existing entity.
+ */
+public class IdNotFoundException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String entityName;
+
+    public IdNotFoundException(Class<?> entityClass, Long id) {
+        super("No " + entityClass.getSimpleName() + " with id " + id);
+        this.entityName = StringUtils.uncapitalize(entityClass.getSimpleName());
+    }
+
+    public String getEntityName() {
+        return entityName;
+    }
+
+}
@@ -0,0 +1,11 @@
+package es.fabio.service;
+
+public class InvalidSearchException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public InvalidSearchException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,267 @@
+package es.fabio.service;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityGraph;
+import javax.persistence.EntityManager;
+import javax.persistence.Subgraph;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import org.hibernate.annotations.QueryHints;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.repository.support.PageableExecutionUtils;
+
+import io.github.jhipster.service.QueryService;
+
+import es.fabio.service.dto.KeysetCursor;
+import es.fabio.service.dto.KeysetSlice;
+
+/**
+ * Base service for query services which, on top of the offset pagination of {@link QueryService},
+ * support keyset (seek) pagination and offset pages projected straight into DTOs.
+ * <p>
+ * A keyset page seeks on {@code (sort key, id)} from the position held by a {@link KeysetCursor}
+ * and fetches one extra row to know whether there is a next page, so it costs the same at any
+ * depth and never runs a {@code count} query. Only non-null properties declared by the subclass
+ * can be used as sort key, as a {@code null} key would break the seek predicate.
+ *
+ * @param <ENTITY> the type of the entity which is queried.
+ */
+public abstract class KeysetQueryService<ENTITY> extends QueryService<ENTITY> {
+
+    private static final String ID_PROPERTY = "id";
+
+    private static final String FETCH_GRAPH_HINT = "javax.persistence.fetchgraph";
+
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    private final EntityManager entityManager;
+
+    private final Class<ENTITY> entityClass;
+
+    private final Set<String> keysetProperties;
+
+    private final List<String> fetchPaths = new ArrayList<>();
+
+    protected KeysetQueryService(EntityManager entityManager, Class<ENTITY> entityClass, String... keysetProperties) {
+        this.entityManager = entityManager;
+        this.entityClass = entityClass;
+        this.keysetProperties = new HashSet<>(Arrays.asList(keysetProperties));
+    }
+
+    /**
+     * Fetch the given associations in the same statement as the keyset page, like the {@code @EntityGraph} of the
+     * repository does for the criteria lists.
+     *
+     * @param attributePaths the associations to fetch, nested ones separated by dots.
+     */
+    protected final void fetchGraph(String... attributePaths) {
+        fetchPaths.addAll(Arrays.asList(attributePaths));
+    }
+
+    /**
+     * Return the rows matching the specification which come after the cursor position.
+     *
+     * @param specification the filters the rows should match.
+     * @param cursor the position to seek from.
+     * @param size the maximum number of rows to return.
+     * @return the matching rows and the cursor of the next page.
+     * @throws InvalidCursorException if the cursor sort property is not supported.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    protected KeysetSlice<ENTITY> findSlice(Specification<ENTITY> specification, KeysetCursor cursor, int size) {
+        if (!cursor.isIdOnly() && !keysetProperties.contains(cursor.getProperty())) {
+            throw new InvalidCursorException("Unsupported keyset sort property: " + cursor.getProperty());
+        }
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ENTITY> query = cb.createQuery(entityClass);
+        Root<ENTITY> root = query.from(entityClass);
+        boolean ascending = cursor.getDirection().isAscending();
+        Path<Long> id = root.get(ID_PROPERTY);
+        Path<Comparable> key = cursor.isIdOnly() ? null : root.get(cursor.getProperty());
+
+        List<Predicate> predicates = new ArrayList<>();
+        Predicate filter = specification.toPredicate(root, query, cb);
+        if (filter != null) {
+            predicates.add(filter);
+        }
+        if (!cursor.isFirst()) {
+            Predicate afterId = ascending ? cb.greaterThan(id, cursor.getId()) : cb.lessThan(id, cursor.getId());
+            if (key == null) {
+                predicates.add(afterId);
+            } else {
+                Comparable value = parseKey(key.getJavaType(), cursor.getValue());
+                predicates.add(cb.or(
+                    ascending ? cb.greaterThan(key, value) : cb.lessThan(key, value),
+                    cb.and(cb.equal(key, value), afterId)));
+            }
+        }
+
+        List<Order> orders = new ArrayList<>();
+        if (key != null) {
+            orders.add(ascending ? cb.asc(key) : cb.desc(key));
+        }
+        orders.add(ascending ? cb.asc(id) : cb.desc(id));
+        query.select(root).where(predicates.toArray(new Predicate[0])).orderBy(orders);
+
+        TypedQuery<ENTITY> typedQuery = entityManager.createQuery(query)
+            .setMaxResults(size + 1);
+        if (!fetchPaths.isEmpty()) {
+            typedQuery.setHint(FETCH_GRAPH_HINT, createFetchGraph());
+        }
+        List<ENTITY> rows = typedQuery.getResultList();
+        if (rows.size() <= size) {
+            return new KeysetSlice<>(rows, null);
+        }
+        List<ENTITY> content = new ArrayList<>(rows.subList(0, size));
+        ENTITY last = content.get(size - 1);
+        Long lastId = (Long) entityManager.getEntityManagerFactory().getPersistenceUnitUtil().getIdentifier(last);
+        String lastKey = key == null ? null :
+            formatKey(PropertyAccessorFactory.forBeanPropertyAccess(last).getPropertyValue(cursor.getProperty()));
+        return new KeysetSlice<>(content, cursor.after(lastId, lastKey));
+    }
+
+    /**
+     * Return a page of the rows matching the specification, selecting only the columns of the projection.
+     * <p>
+     * The rows are read as tuples and copied into DTOs, so no entity is loaded in the persistence context or the
+     * second-level cache, and no dirty-checking snapshot is kept for them.
+     *
+     * @param specification the filters the rows should match.
+     * @param page the page to return.
+     * @param projection the columns to select and how to set them on the DTO.
+     * @param <DTO> the type of the DTO.
+     * @return the page of DTOs.
+     */
+    protected <DTO> Page<DTO> findProjectedPage(Specification<ENTITY> specification, Pageable page, DtoProjection<ENTITY, DTO> projection) {
+        TypedQuery<Object[]> query = createProjectionQuery(specification, page.getSort(), projection);
+        if (page.isPaged()) {
+            query.setFirstResult((int) page.getOffset());
+            query.setMaxResults(page.getPageSize());
+        }
+        List<DTO> content = new ArrayList<>();
+        for (Object[] row : query.getResultList()) {
+            content.add(projection.toDto(row));
+        }
+        return PageableExecutionUtils.getPage(content, page, () -> count(specification));
+    }
+
+    /**
+     * Pass all the rows matching the specification to the action, reading them from a forward-only cursor.
+     * <p>
+     * The rows are fetched {@value #STREAM_FETCH_SIZE} at a time and copied into DTOs like the projected pages, so the
+     * memory used does not depend on the number of rows. Must be called in a transaction, which keeps the cursor open.
+     *
+     * @param specification the filters the rows should match.
+     * @param sort the order of the rows, by id if unsorted.
+     * @param projection the columns to select and how to set them on the DTO.
+     * @param action the action receiving each DTO.
+     * @param <DTO> the type of the DTO.
+     */
+    protected <DTO> void streamProjection(Specification<ENTITY> specification, Sort sort, DtoProjection<ENTITY, DTO> projection, Consumer<? super DTO> action) {
+        TypedQuery<Object[]> query = createProjectionQuery(specification, sort.isSorted() ? sort : Sort.by(ID_PROPERTY), projection)
+            .setHint(QueryHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+            .setHint(QueryHints.HINT_READONLY, true);
+        try (Stream<Object[]> rows = query.getResultStream()) {
+            rows.map(projection::toDto).forEach(action);
+        }
+    }
+
+    private <DTO> TypedQuery<Object[]> createProjectionQuery(Specification<ENTITY> specification, Sort sort, DtoProjection<ENTITY, DTO> projection) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
+        Root<ENTITY> root = query.from(entityClass);
+        Predicate filter = specification.toPredicate(root, query, cb);
+        if (filter != null) {
+            query.where(filter);
+        }
+        query.multiselect(projection.select(root));
+        if (sort.isSorted()) {
+            query.orderBy(QueryUtils.toOrders(sort, root, cb));
+        }
+        return entityManager.createQuery(query);
+    }
+
+    private long count(Specification<ENTITY> specification) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<ENTITY> root = query.from(entityClass);
+        Predicate filter = specification.toPredicate(root, query, cb);
+        if (filter != null) {
+            query.where(filter);
+        }
+        query.select(query.isDistinct() ? cb.countDistinct(root) : cb.count(root));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    private EntityGraph<ENTITY> createFetchGraph() {
+        EntityGraph<ENTITY> graph = entityManager.createEntityGraph(entityClass);
+        for (String path : fetchPaths) {
+            String[] attributes = path.split("\\.");
+            if (attributes.length == 1) {
+                graph.addAttributeNodes(attributes[0]);
+                continue;
+            }
+            Subgraph<Object> subgraph = graph.addSubgraph(attributes[0]);
+            for (int i = 1; i < attributes.length - 1; i++) {
+                subgraph = subgraph.addSubgraph(attributes[i]);
+            }
+            subgraph.addAttributeNodes(attributes[attributes.length - 1]);
+        }
+        return graph;
+    }
+
+    private static String formatKey(Object value) {
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).toPlainString();
+        }
+        if (value instanceof Enum) {
+            return ((Enum<?>) value).name();
+        }
+        return String.valueOf(value);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Comparable parseKey(Class<?> type, String value) {
+        try {
+            if (String.class.equals(type)) {
+                return value;
+            } else if (type.isEnum()) {
+                return Enum.valueOf((Class<? extends Enum>) type, value);
+            } else if (BigDecimal.class.equals(type)) {
+                return new BigDecimal(value);
+            } else if (Integer.class.equals(type)) {
+                return Integer.valueOf(value);
+            } else if (Long.class.equals(type)) {
+                return Long.valueOf(value);
+            } else if (Instant.class.equals(type)) {
+                return Instant.parse(value);
+            } else if (LocalDate.class.equals(type)) {
+                return LocalDate.parse(value);
+            }
+        } catch (RuntimeException e) {
+            throw new InvalidCursorException("Invalid pagination cursor value: " + value);
+        }
+        throw new InvalidCursorException("Unsupported keyset sort type: " + type.getName());
+    }
+}
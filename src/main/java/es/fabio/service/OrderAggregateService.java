@@ -0,0 +1,252 @@
+package es.fabio.service;
+
+import es.fabio.domain.Customer;
+import es.fabio.domain.OrderItem;
+import es.fabio.domain.ProductOrder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Maintains the aggregates materialised on the orders and the customers: the total and item count of an order, the
+ * order count and total spent of a customer.
+ * <p>
+ * They are updated incrementally, in the transaction writing the order items or the orders, so listings, filters and
+ * sorts read them as plain columns. The writes of a transaction are summed in {@link Changes} and applied at once to
+ * the entities, which stay in the second-level cache. The rows are locked by {@link #lock} before anything is written,
+ * order items before orders before customers and each by ascending id, so concurrent writes neither lose an increment
+ * nor deadlock.
+ */
+@Service
+@Transactional(propagation = Propagation.MANDATORY)
+public class OrderAggregateService {
+
+    private final Logger log = LoggerFactory.getLogger(OrderAggregateService.class);
+
+    private final EntityManager entityManager;
+
+    private final SearchOutboxService searchOutboxService;
+
+    public OrderAggregateService(EntityManager entityManager, SearchOutboxService searchOutboxService) {
+        this.entityManager = entityManager;
+        this.searchOutboxService = searchOutboxService;
+    }
+
+    /**
+     * The writes of order items and orders which change the aggregates.
+     */
+    public static final class Changes {
+
+        private final Map<Long, BigDecimal> itemTotals = new HashMap<>();
+
+        private final Map<Long, Integer> itemCounts = new HashMap<>();
+
+        private final Map<Long, Integer> createdOrders = new HashMap<>();
+
+        private final Map<Long, Long> movedOrders = new HashMap<>();
+
+        private final Set<Long> deletedOrders = new HashSet<>();
+
+        /**
+         * Count an order item added to an order.
+         *
+         * @param orderId the id of the order.
+         * @param totalPrice the total price of the item.
+         * @return these changes.
+         */
+        public Changes itemAdded(Long orderId, BigDecimal totalPrice) {
+            return item(orderId, totalPrice, 1);
+        }
+
+        /**
+         * Count an order item removed from an order, including the previous state of an updated item.
+         *
+         * @param orderId the id of the order.
+         * @param totalPrice the total price of the item.
+         * @return these changes.
+         */
+        public Changes itemRemoved(Long orderId, BigDecimal totalPrice) {
+            return item(orderId, totalPrice == null ? null : totalPrice.negate(), -1);
+        }
+
+        /**
+         * Count a new order in its customer.
+         *
+         * @param customerId the id of the customer of the order.
+         * @return these changes.
+         */
+        public Changes orderCreated(Long customerId) {
+            createdOrders.merge(customerId, 1, Integer::sum);
+            return this;
+        }
+
+        /**
+         * Move an order, and its total, from its previous customer to its current one.
+         *
+         * @param orderId the id of the order.
+         * @param previousCustomerId the id of the customer of the order before the update.
+         * @return these changes.
+         */
+        public Changes orderMoved(Long orderId, Long previousCustomerId) {
+            movedOrders.putIfAbsent(orderId, previousCustomerId);
+            return this;
+        }
+
+        /**
+         * Remove an order from its customer, to be applied before the order is deleted.
+         *
+         * @param orderId the id of the order.
+         * @return these changes.
+         */
+        public Changes orderDeleted(Long orderId) {
+            deletedOrders.add(orderId);
+            return this;
+        }
+
+        private Changes item(Long orderId, BigDecimal total, int count) {
+            if (orderId != null) {
+                itemTotals.merge(orderId, total == null ? BigDecimal.ZERO : total, BigDecimal::add);
+                itemCounts.merge(orderId, count, Integer::sum);
+            }
+            return this;
+        }
+
+        private Set<Long> orderIds() {
+            Set<Long> orderIds = new TreeSet<>();
+            itemTotals.forEach((orderId, total) -> {
+                if (total.signum() != 0 || itemCounts.get(orderId) != 0) {
+                    orderIds.add(orderId);
+                }
+            });
+            orderIds.addAll(movedOrders.keySet());
+            orderIds.addAll(deletedOrders);
+            return orderIds;
+        }
+    }
+
+    /**
+     * Lock the rows a write is about to change: the order items to update or delete, then the orders, with those of the
+     * locked items, then the customers, with those of the locked orders, each by ascending id.
+     * <p>
+     * Must be called before any row is written: inserting or moving an item takes a key share lock on its order, as
+     * inserting an order does on its customer, which on PostgreSQL conflicts with the update lock of another
+     * transaction, so two transactions locking the order after writing their items would deadlock.
+     *
+     * @param orderItemIds the ids of the order items to update or delete.
+     * @param orderIds the ids of the orders the items are added to, or of the orders to update or delete.
+     * @param customerIds the ids of the customers the orders are added to.
+     * @return the locked order items by id, with their current state.
+     */
+    public Map<Long, OrderItem> lock(Collection<Long> orderItemIds, Collection<Long> orderIds, Collection<Long> customerIds) {
+        Map<Long, OrderItem> orderItems = new HashMap<>();
+        Set<Long> lockedOrderIds = sorted(orderIds);
+        for (Long orderItemId : sorted(orderItemIds)) {
+            OrderItem orderItem = lock(OrderItem.class, orderItemId);
+            if (orderItem != null) {
+                orderItems.put(orderItemId, orderItem);
+                lockedOrderIds.add(orderItem.getOrder().getId());
+            }
+        }
+        Set<Long> lockedCustomerIds = sorted(customerIds);
+        for (Long orderId : lockedOrderIds) {
+            ProductOrder order = lock(ProductOrder.class, orderId);
+            if (order != null) {
+                lockedCustomerIds.add(order.getCustomer().getId());
+            }
+        }
+        lockedCustomerIds.forEach(customerId -> lock(Customer.class, customerId));
+        return orderItems;
+    }
+
+    /**
+     * Apply the changes to the aggregates of the orders and customers, which must have been locked by {@link #lock}.
+     *
+     * @param changes the changes.
+     */
+    public void apply(Changes changes) {
+        Set<Long> orderIds = changes.orderIds();
+        if (orderIds.isEmpty() && changes.createdOrders.isEmpty()) {
+            return;
+        }
+        // Flushed so that the refresh of a row which was not locked beforehand neither discards pending changes nor
+        // misses new rows.
+        entityManager.flush();
+        Map<Long, Integer> orderCounts = new TreeMap<>(changes.createdOrders);
+        Map<Long, BigDecimal> spent = new TreeMap<>();
+        for (Long orderId : orderIds) {
+            ProductOrder order = lock(ProductOrder.class, orderId);
+            if (order == null) {
+                continue;
+            }
+            Long customerId = order.getCustomer().getId();
+            if (changes.deletedOrders.contains(orderId)) {
+                orderCounts.merge(customerId, -1, Integer::sum);
+                spent.merge(customerId, order.getTotal().negate(), BigDecimal::add);
+                continue;
+            }
+            Long previousCustomerId = changes.movedOrders.get(orderId);
+            if (previousCustomerId != null && !previousCustomerId.equals(customerId)) {
+                log.debug("Moving ProductOrder {} from Customer {} to Customer {}", orderId, previousCustomerId, customerId);
+                orderCounts.merge(previousCustomerId, -1, Integer::sum);
+                spent.merge(previousCustomerId, order.getTotal().negate(), BigDecimal::add);
+                orderCounts.merge(customerId, 1, Integer::sum);
+                spent.merge(customerId, order.getTotal(), BigDecimal::add);
+            }
+            BigDecimal itemTotal = changes.itemTotals.get(orderId);
+            if (itemTotal != null) {
+                order.setTotal(order.getTotal().add(itemTotal));
+                order.setItemCount(order.getItemCount() + changes.itemCounts.get(orderId));
+                spent.merge(customerId, itemTotal, BigDecimal::add);
+                searchOutboxService.index(ProductOrder.class, orderId);
+            }
+        }
+        Set<Long> customerIds = new TreeSet<>(orderCounts.keySet());
+        customerIds.addAll(spent.keySet());
+        for (Long customerId : customerIds) {
+            updateCustomer(customerId, orderCounts.getOrDefault(customerId, 0), spent.getOrDefault(customerId, BigDecimal.ZERO));
+        }
+    }
+
+    private void updateCustomer(Long customerId, int orderCount, BigDecimal spent) {
+        if (orderCount == 0 && spent.signum() == 0) {
+            return;
+        }
+        Customer customer = lock(Customer.class, customerId);
+        if (customer == null) {
+            return;
+        }
+        customer.setOrderCount(customer.getOrderCount() + orderCount);
+        customer.setTotalSpent(customer.getTotalSpent().add(spent));
+        searchOutboxService.index(Customer.class, customerId);
+    }
+
+    private <T> T lock(Class<T> entityClass, Long id) {
+        T entity = entityManager.find(entityClass, id);
+        // A row locked by this transaction is current, and may have pending changes a refresh would discard.
+        if (entity != null && entityManager.getLockMode(entity) != LockModeType.PESSIMISTIC_WRITE) {
+            entityManager.refresh(entity, LockModeType.PESSIMISTIC_WRITE);
+        }
+        return entity;
+    }
+
+    private static Set<Long> sorted(Collection<Long> ids) {
+        Set<Long> sorted = new TreeSet<>();
+        ids.stream().filter(Objects::nonNull).forEach(sorted::add);
+        return sorted;
+    }
+}
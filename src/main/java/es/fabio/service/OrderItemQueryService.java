@@ -1,36 +1,40 @@
 package es.fabio.service;
 
 import java.util.List;
+import java.util.function.Consumer;
 
+import javax.persistence.EntityManager;
 import javax.persistence.criteria.JoinType;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import io.github.jhipster.service.QueryService;
-
 import es.fabio.domain.OrderItem;
 import es.fabio.domain.*; // for static metamodels
 import es.fabio.repository.OrderItemRepository;
 import es.fabio.repository.search.OrderItemSearchRepository;
 import es.fabio.service.dto.OrderItemCriteria;
 import es.fabio.service.dto.OrderItemDTO;
+import es.fabio.service.dto.KeysetCursor;
+import es.fabio.service.dto.KeysetSlice;
 import es.fabio.service.mapper.OrderItemMapper;
 
 /**
  * Service for executing complex queries for {@link OrderItem} entities in the database.
  * The main input is a {@link OrderItemCriteria} which gets converted to {@link Specification},
  * in a way that all the filters must apply.
- * It returns a {@link List} of {@link OrderItemDTO} or a {@link Page} of {@link OrderItemDTO} which fulfills the criteria.
+ * It returns a {@link List} of {@link OrderItemDTO}, a {@link Page} of {@link OrderItemDTO} or a keyset paginated
+ * {@link KeysetSlice} of {@link OrderItemDTO} which fulfills the criteria.
  */
 @Service
 @Transactional(readOnly = true)
-public class OrderItemQueryService extends QueryService<OrderItem> {
+public class OrderItemQueryService extends KeysetQueryService<OrderItem> {
 
     private final Logger log = LoggerFactory.getLogger(OrderItemQueryService.class);
 
@@ -38,11 +42,26 @@ public class OrderItemQueryService extends QueryService<OrderItem> {
 
     private final OrderItemMapper orderItemMapper;
 
+    private final DtoProjection<OrderItem, OrderItemDTO> projection;
+
     private final OrderItemSearchRepository orderItemSearchRepository;
 
-    public OrderItemQueryService(OrderItemRepository orderItemRepository, OrderItemMapper orderItemMapper, OrderItemSearchRepository orderItemSearchRepository) {
+    public OrderItemQueryService(OrderItemRepository orderItemRepository, OrderItemMapper orderItemMapper, OrderItemSearchRepository orderItemSearchRepository, EntityManager entityManager) {
+        super(entityManager, OrderItem.class, "quantity", "totalPrice", "status");
+        fetchGraph("producto.productCategory", "order.customer.user");
         this.orderItemRepository = orderItemRepository;
         this.orderItemMapper = orderItemMapper;
+        this.projection = new DtoProjection<OrderItem, OrderItemDTO>(OrderItemDTO::new)
+            .attribute(OrderItem_.id, OrderItemDTO::setId)
+            .attribute(OrderItem_.quantity, OrderItemDTO::setQuantity)
+            .attribute(OrderItem_.totalPrice, OrderItemDTO::setTotalPrice)
+            .attribute(OrderItem_.status, OrderItemDTO::setStatus)
+            .attribute(OrderItem_.version, OrderItemDTO::setVersion)
+            .attribute(OrderItem_.lastModifiedDate, OrderItemDTO::setLastModifiedDate)
+            .expression(root -> root.get(OrderItem_.producto).get(Producto_.id), OrderItemDTO::setProductoId)
+            .expression(root -> DtoProjection.join(root, OrderItem_.producto, JoinType.INNER).get(Producto_.name), OrderItemDTO::setProductoName)
+            .expression(root -> root.get(OrderItem_.order).get(ProductOrder_.id), OrderItemDTO::setOrderId)
+            .expression(root -> DtoProjection.join(root, OrderItem_.order, JoinType.INNER).get(ProductOrder_.code), OrderItemDTO::setOrderCode);
         this.orderItemSearchRepository = orderItemSearchRepository;
     }
 
@@ -59,7 +78,8 @@ public class OrderItemQueryService extends QueryService<OrderItem> {
     }
 
     /**
-     * Return a {@link Page} of {@link OrderItemDTO} which matches the criteria from the database.
+     * Return a {@link Page} of {@link OrderItemDTO} which matches the criteria from the database,
+     * selecting only the columns of the DTO instead of loading the entities.
      * @param criteria The object which holds all the filters, which the entities should match.
      * @param page The page, which should be returned.
      * @return the matching entities.
@@ -68,10 +88,39 @@ public class OrderItemQueryService extends QueryService<OrderItem> {
     public Page<OrderItemDTO> findByCriteria(OrderItemCriteria criteria, Pageable page) {
         log.debug("find by criteria : {}, page: {}", criteria, page);
         final Specification<OrderItem> specification = createSpecification(criteria);
-        return orderItemRepository.findAll(specification, page)
+        return findProjectedPage(specification, page, projection);
+    }
+
+    /**
+     * Return a {@link KeysetSlice} of {@link OrderItemDTO} which matches the criteria from the database,
+     * seeking from the cursor position instead of skipping an offset, and without counting the matches.
+     * @param criteria The object which holds all the filters, which the entities should match.
+     * @param cursor The position after which the entities should be returned.
+     * @param size The maximum number of entities to return.
+     * @return the matching entities and the cursor of the next page.
+     */
+    @Transactional(readOnly = true)
+    public KeysetSlice<OrderItemDTO> findByCriteria(OrderItemCriteria criteria, KeysetCursor cursor, int size) {
+        log.debug("find by criteria : {}, cursor: {}, size: {}", criteria, cursor, size);
+        final Specification<OrderItem> specification = createSpecification(criteria);
+        return findSlice(specification, cursor, size)
             .map(orderItemMapper::toDto);
     }
 
+    /**
+     * Pass every {@link OrderItemDTO} which matches the criteria to the action, streaming them from the database
+     * instead of building the whole list in memory.
+     * @param criteria The object which holds all the filters, which the entities should match.
+     * @param sort The order of the entities, by id if unsorted.
+     * @param action The action receiving each matching entity.
+     */
+    @Transactional(readOnly = true)
+    public void exportByCriteria(OrderItemCriteria criteria, Sort sort, Consumer<? super OrderItemDTO> action) {
+        log.debug("export by criteria : {}, sort: {}", criteria, sort);
+        final Specification<OrderItem> specification = createSpecification(criteria);
+        streamProjection(specification, sort, projection, action);
+    }
+
     /**
      * Return the number of matching entities in the database.
      * @param criteria The object which holds all the filters, which the entities should match.
@@ -106,11 +155,11 @@ public class OrderItemQueryService extends QueryService<OrderItem> {
             }
             if (criteria.getProductoId() != null) {
                 specification = specification.and(buildSpecification(criteria.getProductoId(),
-                    root -> root.join(OrderItem_.producto, JoinType.LEFT).get(Producto_.id)));
+                    root -> root.get(OrderItem_.producto).get(Producto_.id)));
             }
             if (criteria.getOrderId() != null) {
                 specification = specification.and(buildSpecification(criteria.getOrderId(),
-                    root -> root.join(OrderItem_.order, JoinType.LEFT).get(ProductOrder_.id)));
+                    root -> root.get(OrderItem_.order).get(ProductOrder_.id)));
             }
         }
         return specification;
@@ -1,6 +1,8 @@
 package es.fabio.service;
 
 import es.fabio.service.dto.ProductCategoryDTO;
+import es.fabio.service.dto.KeysetCursor;
+import es.fabio.service.dto.KeysetSlice;
 
 import java.util.List;
 import java.util.Optional;
@@ -49,4 +51,18 @@ public interface ProductCategoryService {
      * @return the list of entities.
      */
     List<ProductCategoryDTO> search(String query);
+
+    /**
+     * Search for the productCategorys corresponding to the query, after a cursor.
+     * <p>
+     * The hits are sorted by relevance unless the cursor is sorted by a property, and are not limited to
+     * {@code application.search.max-result-window}.
+     *
+     * @param query the query of the search.
+     * @param cursor the position to search from.
+     * @param size the maximum number of entities.
+     * @return the entities and the cursor of the next page.
+     * @throws InvalidCursorException if the cursor is invalid or sorted by an unsupported property.
+     */
+    KeysetSlice<ProductCategoryDTO> search(String query, KeysetCursor cursor, int size);
 }
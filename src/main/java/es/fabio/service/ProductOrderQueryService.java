@@ -1,36 +1,40 @@
 package es.fabio.service;
 
 import java.util.List;
+import java.util.function.Consumer;
 
+import javax.persistence.EntityManager;
 import javax.persistence.criteria.JoinType;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import io.github.jhipster.service.QueryService;
-
 import es.fabio.domain.ProductOrder;
 import es.fabio.domain.*; // for static metamodels
 import es.fabio.repository.ProductOrderRepository;
 import es.fabio.repository.search.ProductOrderSearchRepository;
 import es.fabio.service.dto.ProductOrderCriteria;
 import es.fabio.service.dto.ProductOrderDTO;
+import es.fabio.service.dto.KeysetCursor;
+import es.fabio.service.dto.KeysetSlice;
 import es.fabio.service.mapper.ProductOrderMapper;
 
 /**
  * Service for executing complex queries for {@link ProductOrder} entities in the database.
  * The main input is a {@link ProductOrderCriteria} which gets converted to {@link Specification},
  * in a way that all the filters must apply.
- * It returns a {@link List} of {@link ProductOrderDTO} or a {@link Page} of {@link ProductOrderDTO} which fulfills the criteria.
+ * It returns a {@link List} of {@link ProductOrderDTO}, a {@link Page} of {@link ProductOrderDTO} or a keyset paginated
+ * {@link KeysetSlice} of {@link ProductOrderDTO} which fulfills the criteria.
  */
 @Service
 @Transactional(readOnly = true)
-public class ProductOrderQueryService extends QueryService<ProductOrder> {
+public class ProductOrderQueryService extends KeysetQueryService<ProductOrder> {
 
     private final Logger log = LoggerFactory.getLogger(ProductOrderQueryService.class);
 
@@ -38,11 +42,27 @@ public class ProductOrderQueryService extends QueryService<ProductOrder> {
 
     private final ProductOrderMapper productOrderMapper;
 
+    private final DtoProjection<ProductOrder, ProductOrderDTO> projection;
+
     private final ProductOrderSearchRepository productOrderSearchRepository;
 
-    public ProductOrderQueryService(ProductOrderRepository productOrderRepository, ProductOrderMapper productOrderMapper, ProductOrderSearchRepository productOrderSearchRepository) {
+    public ProductOrderQueryService(ProductOrderRepository productOrderRepository, ProductOrderMapper productOrderMapper, ProductOrderSearchRepository productOrderSearchRepository, EntityManager entityManager) {
+        super(entityManager, ProductOrder.class, "placedDate", "status", "code", "total", "itemCount");
+        fetchGraph("customer.user");
         this.productOrderRepository = productOrderRepository;
         this.productOrderMapper = productOrderMapper;
+        this.projection = new DtoProjection<ProductOrder, ProductOrderDTO>(ProductOrderDTO::new)
+            .attribute(ProductOrder_.id, ProductOrderDTO::setId)
+            .attribute(ProductOrder_.placedDate, ProductOrderDTO::setPlacedDate)
+            .attribute(ProductOrder_.status, ProductOrderDTO::setStatus)
+            .attribute(ProductOrder_.code, ProductOrderDTO::setCode)
+            .attribute(ProductOrder_.invoiceId, ProductOrderDTO::setInvoiceId)
+            .attribute(ProductOrder_.total, ProductOrderDTO::setTotal)
+            .attribute(ProductOrder_.itemCount, ProductOrderDTO::setItemCount)
+            .attribute(ProductOrder_.version, ProductOrderDTO::setVersion)
+            .attribute(ProductOrder_.lastModifiedDate, ProductOrderDTO::setLastModifiedDate)
+            .expression(root -> root.get(ProductOrder_.customer).get(Customer_.id), ProductOrderDTO::setCustomerId)
+            .expression(root -> DtoProjection.join(root, ProductOrder_.customer, JoinType.INNER).get(Customer_.email), ProductOrderDTO::setCustomerEmail);
         this.productOrderSearchRepository = productOrderSearchRepository;
     }
 
@@ -59,7 +79,8 @@ public class ProductOrderQueryService extends QueryService<ProductOrder> {
     }
 
     /**
-     * Return a {@link Page} of {@link ProductOrderDTO} which matches the criteria from the database.
+     * Return a {@link Page} of {@link ProductOrderDTO} which matches the criteria from the database,
+     * selecting only the columns of the DTO instead of loading the entities.
      * @param criteria The object which holds all the filters, which the entities should match.
      * @param page The page, which should be returned.
      * @return the matching entities.
@@ -68,10 +89,39 @@ public class ProductOrderQueryService extends QueryService<ProductOrder> {
     public Page<ProductOrderDTO> findByCriteria(ProductOrderCriteria criteria, Pageable page) {
         log.debug("find by criteria : {}, page: {}", criteria, page);
         final Specification<ProductOrder> specification = createSpecification(criteria);
-        return productOrderRepository.findAll(specification, page)
+        return findProjectedPage(specification, page, projection);
+    }
+
+    /**
+     * Return a {@link KeysetSlice} of {@link ProductOrderDTO} which matches the criteria from the database,
+     * seeking from the cursor position instead of skipping an offset, and without counting the matches.
+     * @param criteria The object which holds all the filters, which the entities should match.
+     * @param cursor The position after which the entities should be returned.
+     * @param size The maximum number of entities to return.
+     * @return the matching entities and the cursor of the next page.
+     */
+    @Transactional(readOnly = true)
+    public KeysetSlice<ProductOrderDTO> findByCriteria(ProductOrderCriteria criteria, KeysetCursor cursor, int size) {
+        log.debug("find by criteria : {}, cursor: {}, size: {}", criteria, cursor, size);
+        final Specification<ProductOrder> specification = createSpecification(criteria);
+        return findSlice(specification, cursor, size)
             .map(productOrderMapper::toDto);
     }
 
+    /**
+     * Pass every {@link ProductOrderDTO} which matches the criteria to the action, streaming them from the database
+     * instead of building the whole list in memory.
+     * @param criteria The object which holds all the filters, which the entities should match.
+     * @param sort The order of the entities, by id if unsorted.
+     * @param action The action receiving each matching entity.
+     */
+    @Transactional(readOnly = true)
+    public void exportByCriteria(ProductOrderCriteria criteria, Sort sort, Consumer<? super ProductOrderDTO> action) {
+        log.debug("export by criteria : {}, sort: {}", criteria, sort);
+        final Specification<ProductOrder> specification = createSpecification(criteria);
+        streamProjection(specification, sort, projection, action);
+    }
+
     /**
      * Return the number of matching entities in the database.
      * @param criteria The object which holds all the filters, which the entities should match.
@@ -107,13 +157,19 @@ public class ProductOrderQueryService extends QueryService<ProductOrder> {
             if (criteria.getInvoiceId() != null) {
                 specification = specification.and(buildRangeSpecification(criteria.getInvoiceId(), ProductOrder_.invoiceId));
             }
+            if (criteria.getTotal() != null) {
+                specification = specification.and(buildRangeSpecification(criteria.getTotal(), ProductOrder_.total));
+            }
+            if (criteria.getItemCount() != null) {
+                specification = specification.and(buildRangeSpecification(criteria.getItemCount(), ProductOrder_.itemCount));
+            }
             if (criteria.getOrderItemId() != null) {
                 specification = specification.and(buildSpecification(criteria.getOrderItemId(),
                     root -> root.join(ProductOrder_.orderItems, JoinType.LEFT).get(OrderItem_.id)));
             }
             if (criteria.getCustomerId() != null) {
                 specification = specification.and(buildSpecification(criteria.getCustomerId(),
-                    root -> root.join(ProductOrder_.customer, JoinType.LEFT).get(Customer_.id)));
+                    root -> root.get(ProductOrder_.customer).get(Customer_.id)));
             }
         }
         return specification;
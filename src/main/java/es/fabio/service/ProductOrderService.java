@@ -1,10 +1,13 @@
 package es.fabio.service;
 
 import es.fabio.service.dto.ProductOrderDTO;
+import es.fabio.service.dto.KeysetCursor;
+import es.fabio.service.dto.KeysetSlice;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -20,6 +23,14 @@ public interface ProductOrderService {
      */
     ProductOrderDTO save(ProductOrderDTO productOrderDTO);
 
+    /**
+     * Save a chunk of productOrders in the current transaction.
+     *
+     * @param productOrderDTOs the entities to save.
+     * @return the persisted entities, in the same order.
+     */
+    List<ProductOrderDTO> saveAll(List<ProductOrderDTO> productOrderDTOs);
+
     /**
      * Get all the productOrders.
      *
@@ -53,4 +64,18 @@ public interface ProductOrderService {
      * @return the list of entities.
      */
     Page<ProductOrderDTO> search(String query, Pageable pageable);
+
+    /**
+     * Search for the productOrders corresponding to the query, after a cursor.
+     * <p>
+     * The hits are sorted by relevance unless the cursor is sorted by a property, and are not limited to
+     * {@code application.search.max-result-window}.
+     *
+     * @param query the query of the search.
+     * @param cursor the position to search from.
+     * @param size the maximum number of entities.
+     * @return the entities and the cursor of the next page.
+     * @throws InvalidCursorException if the cursor is invalid or sorted by an unsupported property.
+     */
+    KeysetSlice<ProductOrderDTO> search(String query, KeysetCursor cursor, int size);
 }
@@ -2,6 +2,7 @@ package es.fabio.service;
 
 import java.util.List;
 
+import javax.persistence.EntityManager;
 import javax.persistence.criteria.JoinType;
 
 import org.slf4j.Logger;
@@ -12,25 +13,26 @@ import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import io.github.jhipster.service.QueryService;
-
 import es.fabio.domain.Producto;
 import es.fabio.domain.*; // for static metamodels
 import es.fabio.repository.ProductoRepository;
 import es.fabio.repository.search.ProductoSearchRepository;
 import es.fabio.service.dto.ProductoCriteria;
 import es.fabio.service.dto.ProductoDTO;
+import es.fabio.service.dto.KeysetCursor;
+import es.fabio.service.dto.KeysetSlice;
 import es.fabio.service.mapper.ProductoMapper;
 
 /**
  * Service for executing complex queries for {@link Producto} entities in the database.
  * The main input is a {@link ProductoCriteria} which gets converted to {@link Specification},
  * in a way that all the filters must apply.
- * It returns a {@link List} of {@link ProductoDTO} or a {@link Page} of {@link ProductoDTO} which fulfills the criteria.
+ * It returns a {@link List} of {@link ProductoDTO}, a {@link Page} of {@link ProductoDTO} or a keyset paginated
+ * {@link KeysetSlice} of {@link ProductoDTO} which fulfills the criteria.
  */
 @Service
 @Transactional(readOnly = true)
-public class ProductoQueryService extends QueryService<Producto> {
+public class ProductoQueryService extends KeysetQueryService<Producto> {
 
     private final Logger log = LoggerFactory.getLogger(ProductoQueryService.class);
 
@@ -38,11 +40,28 @@ public class ProductoQueryService extends QueryService<Producto> {
 
     private final ProductoMapper productoMapper;
 
+    private final DtoProjection<Producto, ProductoDTO> projection;
+
     private final ProductoSearchRepository productoSearchRepository;
 
-    public ProductoQueryService(ProductoRepository productoRepository, ProductoMapper productoMapper, ProductoSearchRepository productoSearchRepository) {
+    public ProductoQueryService(ProductoRepository productoRepository, ProductoMapper productoMapper, ProductoSearchRepository productoSearchRepository, EntityManager entityManager) {
+        super(entityManager, Producto.class, "name", "price", "size");
         this.productoRepository = productoRepository;
         this.productoMapper = productoMapper;
+        this.projection = new DtoProjection<Producto, ProductoDTO>(ProductoDTO::new)
+            .attribute(Producto_.id, ProductoDTO::setId)
+            .attribute(Producto_.name, ProductoDTO::setName)
+            .attribute(Producto_.description, ProductoDTO::setDescription)
+            .attribute(Producto_.price, ProductoDTO::setPrice)
+            .attribute(Producto_.size, ProductoDTO::setSize)
+            .attribute(Producto_.imageContentType, ProductoDTO::setImageContentType)
+            .attribute(Producto_.version, ProductoDTO::setVersion)
+            .attribute(Producto_.lastModifiedDate, ProductoDTO::setLastModifiedDate)
+            .attribute(Producto_.imageEtag, (dto, imageEtag) ->
+                dto.setImageUrl(productoMapper.imageUrl(dto.getId(), dto.getImageContentType(), imageEtag)))
+            .expression(root -> root.get(Producto_.productCategory).get(ProductCategory_.id), ProductoDTO::setProductCategoryId)
+            .expression(root -> DtoProjection.join(root, Producto_.productCategory, JoinType.LEFT).get(ProductCategory_.name),
+                ProductoDTO::setProductCategoryName);
         this.productoSearchRepository = productoSearchRepository;
     }
 
@@ -59,7 +78,8 @@ public class ProductoQueryService extends QueryService<Producto> {
     }
 
     /**
-     * Return a {@link Page} of {@link ProductoDTO} which matches the criteria from the database.
+     * Return a {@link Page} of {@link ProductoDTO} which matches the criteria from the database,
+     * selecting only the columns of the DTO instead of loading the entities.
      * @param criteria The object which holds all the filters, which the entities should match.
      * @param page The page, which should be returned.
      * @return the matching entities.
@@ -68,7 +88,22 @@ public class ProductoQueryService extends QueryService<Producto> {
     public Page<ProductoDTO> findByCriteria(ProductoCriteria criteria, Pageable page) {
         log.debug("find by criteria : {}, page: {}", criteria, page);
         final Specification<Producto> specification = createSpecification(criteria);
-        return productoRepository.findAll(specification, page)
+        return findProjectedPage(specification, page, projection);
+    }
+
+    /**
+     * Return a {@link KeysetSlice} of {@link ProductoDTO} which matches the criteria from the database,
+     * seeking from the cursor position instead of skipping an offset, and without counting the matches.
+     * @param criteria The object which holds all the filters, which the entities should match.
+     * @param cursor The position after which the entities should be returned.
+     * @param size The maximum number of entities to return.
+     * @return the matching entities and the cursor of the next page.
+     */
+    @Transactional(readOnly = true)
+    public KeysetSlice<ProductoDTO> findByCriteria(ProductoCriteria criteria, KeysetCursor cursor, int size) {
+        log.debug("find by criteria : {}, cursor: {}, size: {}", criteria, cursor, size);
+        final Specification<Producto> specification = createSpecification(criteria);
+        return findSlice(specification, cursor, size)
             .map(productoMapper::toDto);
     }
 
@@ -109,7 +144,7 @@ public class ProductoQueryService extends QueryService<Producto> {
             }
             if (criteria.getProductCategoryId() != null) {
                 specification = specification.and(buildSpecification(criteria.getProductCategoryId(),
-                    root -> root.join(Producto_.productCategory, JoinType.LEFT).get(ProductCategory_.id)));
+                    root -> root.get(Producto_.productCategory).get(ProductCategory_.id)));
             }
         }
         return specification;
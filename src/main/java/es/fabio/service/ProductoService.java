@@ -1,10 +1,17 @@
 package es.fabio.service;
 
+import es.fabio.service.dto.KeysetCursor;
+import es.fabio.service.dto.KeysetSlice;
 import es.fabio.service.dto.ProductoDTO;
+import es.fabio.service.dto.SuggestionDTO;
+import es.fabio.service.dto.ProductoImageDTO;
+import es.fabio.service.dto.ProductoSearch;
+import es.fabio.service.dto.ProductoSearchResultDTO;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -12,6 +19,8 @@ import java.util.Optional;
  */
 public interface ProductoService {
 
+    String SUGGESTIONS_CACHE = "productoSuggestions";
+
     /**
      * Save a producto.
      *
@@ -20,6 +29,14 @@ public interface ProductoService {
      */
     ProductoDTO save(ProductoDTO productoDTO);
 
+    /**
+     * Save a chunk of productos in the current transaction.
+     *
+     * @param productoDTOs the entities to save.
+     * @return the persisted entities, in the same order.
+     */
+    List<ProductoDTO> saveAll(List<ProductoDTO> productoDTOs);
+
     /**
      * Get all the productos.
      *
@@ -37,6 +54,22 @@ public interface ProductoService {
      */
     Optional<ProductoDTO> findOne(Long id);
 
+    /**
+     * Get the hash of the image of the "id" producto, without loading the image.
+     *
+     * @param id the id of the entity.
+     * @return the image hash, empty if the producto has no image or its hash is not known.
+     */
+    Optional<String> findImageEtag(Long id);
+
+    /**
+     * Get the image of the "id" producto.
+     *
+     * @param id the id of the entity.
+     * @return the image.
+     */
+    Optional<ProductoImageDTO> findImage(Long id);
+
     /**
      * Delete the "id" producto.
      *
@@ -53,4 +86,68 @@ public interface ProductoService {
      * @return the list of entities.
      */
     Page<ProductoDTO> search(String query, Pageable pageable);
+
+    /**
+     * Search for the productos corresponding to the query, after a cursor.
+     * <p>
+     * The hits are sorted by relevance unless the cursor is sorted by a property, and are not limited to
+     * {@code application.search.max-result-window}.
+     *
+     * @param query the query of the search.
+     * @param cursor the position to search from.
+     * @param size the maximum number of entities.
+     * @return the entities and the cursor of the next page.
+     * @throws InvalidCursorException if the cursor is invalid or sorted by an unsupported property.
+     */
+    KeysetSlice<ProductoDTO> search(String query, KeysetCursor cursor, int size);
+
+    /**
+     * Search for the productos matching a typed search.
+     * <p>
+     * The page is sorted by relevance unless sorted by {@code price}, {@code name} or {@code id}, and must lie
+     * within {@code application.search.max-result-window}.
+     *
+     * @param search the search.
+     * @param pageable the pagination information.
+     * @return the list of entities.
+     * @throws InvalidSearchException if the page is too deep or sorted by another property.
+     */
+    Page<ProductoDTO> search(ProductoSearch search, Pageable pageable);
+
+    /**
+     * Search for the productos matching a typed search, after a cursor, as {@link #search(String, KeysetCursor, int)}.
+     *
+     * @param search the search.
+     * @param cursor the position to search from.
+     * @param size the maximum number of entities.
+     * @return the entities and the cursor of the next page.
+     * @throws InvalidCursorException if the cursor is invalid or sorted by an unsupported property.
+     */
+    KeysetSlice<ProductoDTO> search(ProductoSearch search, KeysetCursor cursor, int size);
+
+    /**
+     * Search for a page of the productos matching a typed search, with the counts of the productos by category, size
+     * and price band, in a single search request.
+     * <p>
+     * Each facet counts the productos matching the search without its own filter, so that it lists the alternatives
+     * to the values filtered by. The page is sorted and limited as by {@link #search(ProductoSearch, Pageable)}.
+     *
+     * @param search the search.
+     * @param pageable the pagination information.
+     * @return the page of entities with the facets.
+     * @throws InvalidSearchException if the page is too deep or sorted by another property.
+     */
+    ProductoSearchResultDTO searchWithFacets(ProductoSearch search, Pageable pageable);
+
+    /**
+     * Suggest the productos whose names start with the words of a prefix, for the autocomplete pickers.
+     * <p>
+     * The responses are cached by prefix for a short time, in the {@value #SUGGESTIONS_CACHE} cache, so they may
+     * miss the latest changes.
+     *
+     * @param prefix the prefix typed, in lower case.
+     * @param size the maximum number of suggestions, capped by {@code application.search.max-suggestions}.
+     * @return the ids and names of the best matching productos.
+     */
+    List<SuggestionDTO> suggest(String prefix, int size);
 }
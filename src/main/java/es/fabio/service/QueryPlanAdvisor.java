@@ -0,0 +1,223 @@
+package es.fabio.service;
+
+import es.fabio.domain.Customer;
+import es.fabio.domain.OrderItem;
+import es.fabio.domain.ProductOrder;
+import es.fabio.domain.Producto;
+import es.fabio.domain.enumeration.OrderStatus;
+import es.fabio.service.dto.CustomerCriteria;
+import es.fabio.service.dto.OrderItemCriteria;
+import es.fabio.service.dto.ProductOrderCriteria;
+import es.fabio.service.dto.ProductoCriteria;
+import es.fabio.service.dto.QueryPlanDTO;
+
+import io.github.jhipster.config.JHipsterConstants;
+import io.github.jhipster.service.filter.InstantFilter;
+import io.github.jhipster.service.filter.LongFilter;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Explains the SQL of the criteria queries and flags the tables they read by a full scan.
+ * <p>
+ * Each check renders the listing query of a {@code *QueryService} specification for representative criteria, runs
+ * {@code EXPLAIN} on it with its parameters bound to {@code null}, and reports the tables of the {@code tableScan}
+ * steps of an H2 plan or the {@code Seq Scan} steps of a PostgreSQL plan. Meant for the dev and test databases, to
+ * catch a filter or a join which misses its index.
+ */
+@Service
+@Profile({JHipsterConstants.SPRING_PROFILE_DEVELOPMENT, JHipsterConstants.SPRING_PROFILE_TEST})
+@Transactional(readOnly = true)
+public class QueryPlanAdvisor {
+
+    private static final Pattern H2_TABLE_SCAN = Pattern.compile("(\\w+)\\.tableScan");
+
+    private static final Pattern POSTGRESQL_SEQ_SCAN = Pattern.compile("Seq Scan on (\\w+)");
+
+    private final Logger log = LoggerFactory.getLogger(QueryPlanAdvisor.class);
+
+    private final EntityManager entityManager;
+
+    private final List<Check<?>> checks = new ArrayList<>();
+
+    public QueryPlanAdvisor(EntityManager entityManager, ProductoQueryService productoQueryService,
+                            OrderItemQueryService orderItemQueryService, ProductOrderQueryService productOrderQueryService,
+                            CustomerQueryService customerQueryService) {
+        this.entityManager = entityManager;
+
+        ProductoCriteria productosByCategory = new ProductoCriteria();
+        productosByCategory.setProductCategoryId(longEquals());
+        checks.add(new Check<>("productos by productCategoryId", Producto.class,
+            productoQueryService.createSpecification(productosByCategory)));
+
+        OrderItemCriteria orderItemsByOrder = new OrderItemCriteria();
+        orderItemsByOrder.setOrderId(longEquals());
+        checks.add(new Check<>("order items by orderId", OrderItem.class,
+            orderItemQueryService.createSpecification(orderItemsByOrder)));
+
+        OrderItemCriteria orderItemsByProducto = new OrderItemCriteria();
+        orderItemsByProducto.setProductoId(longEquals());
+        checks.add(new Check<>("order items by productoId", OrderItem.class,
+            orderItemQueryService.createSpecification(orderItemsByProducto)));
+
+        ProductOrderCriteria productOrdersByCustomer = new ProductOrderCriteria();
+        productOrdersByCustomer.setCustomerId(longEquals());
+        checks.add(new Check<>("product orders by customerId", ProductOrder.class,
+            productOrderQueryService.createSpecification(productOrdersByCustomer)));
+
+        ProductOrderCriteria productOrdersByStatus = new ProductOrderCriteria();
+        productOrdersByStatus.setStatus(statusEquals());
+        productOrdersByStatus.setPlacedDate(placedSince());
+        checks.add(new Check<>("product orders by status and placedDate", ProductOrder.class,
+            productOrderQueryService.createSpecification(productOrdersByStatus)));
+
+        ProductOrderCriteria productOrdersByPlacedDate = new ProductOrderCriteria();
+        productOrdersByPlacedDate.setPlacedDate(placedSince());
+        checks.add(new Check<>("product orders by placedDate", ProductOrder.class,
+            productOrderQueryService.createSpecification(productOrdersByPlacedDate)));
+
+        CustomerCriteria customersByUser = new CustomerCriteria();
+        customersByUser.setUserId(longEquals());
+        checks.add(new Check<>("customers by userId", Customer.class,
+            customerQueryService.createSpecification(customersByUser)));
+    }
+
+    /**
+     * Explain the queries of all the checks, logging a warning for each one which scans a table.
+     *
+     * @return the plan of each check.
+     */
+    public List<QueryPlanDTO> explainAll() {
+        List<QueryPlanDTO> plans = new ArrayList<>(checks.size());
+        for (Check<?> check : checks) {
+            plans.add(explain(check));
+        }
+        return plans;
+    }
+
+    /**
+     * Explain the listing query of the entities matching a specification.
+     *
+     * @param name the name of the query in the report.
+     * @param entityClass the queried entity.
+     * @param specification the filters of the query.
+     * @param <T> the type of the entity.
+     * @return the plan of the query.
+     */
+    public <T> QueryPlanDTO explain(String name, Class<T> entityClass, Specification<T> specification) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = cb.createQuery(entityClass);
+        Root<T> root = query.from(entityClass);
+        Predicate filter = specification.toPredicate(root, query, cb);
+        if (filter != null) {
+            query.where(filter);
+        }
+        String sql = toSql(entityManager.createQuery(query.select(root)));
+        String plan = entityManager.unwrap(Session.class).doReturningWork(connection -> explain(connection, sql));
+        List<String> scannedTables = scannedTables(plan);
+        if (!scannedTables.isEmpty()) {
+            log.warn("The query of {} scans {}: {}", name, scannedTables, plan);
+        }
+        return new QueryPlanDTO(name, sql, plan, scannedTables);
+    }
+
+    private <T> QueryPlanDTO explain(Check<T> check) {
+        return explain(check.name, check.entityClass, check.specification);
+    }
+
+    private String toSql(TypedQuery<?> query) {
+        String hql = query.unwrap(org.hibernate.query.Query.class).getQueryString();
+        SessionFactoryImplementor sessionFactory = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class);
+        return sessionFactory.getQueryPlanCache().getHQLQueryPlan(hql, false, Collections.emptyMap()).getSqlStrings()[0];
+    }
+
+    private static String explain(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+            int parameterCount = statement.getParameterMetaData().getParameterCount();
+            for (int i = 1; i <= parameterCount; i++) {
+                statement.setObject(i, null);
+            }
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    if (plan.length() > 0) {
+                        plan.append('\n');
+                    }
+                    plan.append(resultSet.getString(1));
+                }
+            }
+            return plan.toString();
+        }
+    }
+
+    static List<String> scannedTables(String plan) {
+        List<String> tables = new ArrayList<>();
+        for (Pattern pattern : new Pattern[] {H2_TABLE_SCAN, POSTGRESQL_SEQ_SCAN}) {
+            Matcher matcher = pattern.matcher(plan);
+            while (matcher.find()) {
+                String table = matcher.group(1).toLowerCase(Locale.ROOT);
+                if (!tables.contains(table)) {
+                    tables.add(table);
+                }
+            }
+        }
+        return tables;
+    }
+
+    private static LongFilter longEquals() {
+        LongFilter filter = new LongFilter();
+        filter.setEquals(1L);
+        return filter;
+    }
+
+    private static ProductOrderCriteria.OrderStatusFilter statusEquals() {
+        ProductOrderCriteria.OrderStatusFilter filter = new ProductOrderCriteria.OrderStatusFilter();
+        filter.setEquals(OrderStatus.PENDING);
+        return filter;
+    }
+
+    private static InstantFilter placedSince() {
+        InstantFilter filter = new InstantFilter();
+        filter.setGreaterThanOrEqual(Instant.EPOCH);
+        return filter;
+    }
+
+    private static final class Check<T> {
+
+        private final String name;
+
+        private final Class<T> entityClass;
+
+        private final Specification<T> specification;
+
+        private Check(String name, Class<T> entityClass, Specification<T> specification) {
+            this.name = name;
+            this.entityClass = entityClass;
+            this.specification = specification;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package es.fabio.service;
+
+import es.fabio.config.ApplicationProperties;
+import es.fabio.domain.enumeration.OrderStatus;
+import es.fabio.domain.enumeration.SalesGranularity;
+import es.fabio.domain.enumeration.Size;
+import es.fabio.repository.SalesRollupRepository;
+import es.fabio.service.dto.SalesBucketDTO;
+import es.fabio.service.dto.SalesDimension;
+import es.fabio.service.dto.SalesQuery;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Service answering range queries over the sales, from the hourly and daily {@link es.fabio.domain.SalesRollup}s
+ * maintained by the {@link SalesRollupJob} rather than from the order items.
+ * <p>
+ * The figures lag the order writes by at most {@code application.sales-analytics.fold-interval-ms}.
+ */
+@Service
+@Transactional(readOnly = true)
+public class SalesAnalyticsService {
+
+    private static final Comparator<SalesBucketDTO> BUCKET_ORDER = Comparator.comparing(SalesBucketDTO::getBucketStart)
+        .thenComparing(SalesBucketDTO::getProductCategoryId, Comparator.nullsFirst(Comparator.naturalOrder()))
+        .thenComparing(SalesBucketDTO::getSize, Comparator.nullsFirst(Comparator.naturalOrder()))
+        .thenComparing(SalesBucketDTO::getOrderStatus, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final Logger log = LoggerFactory.getLogger(SalesAnalyticsService.class);
+
+    private final SalesRollupRepository salesRollupRepository;
+
+    private final ZoneId zone;
+
+    private final int hourlyRetentionDays;
+
+    public SalesAnalyticsService(ApplicationProperties applicationProperties, SalesRollupRepository salesRollupRepository) {
+        this.salesRollupRepository = salesRollupRepository;
+        this.zone = ZoneId.of(applicationProperties.getSalesAnalytics().getZone());
+        this.hourlyRetentionDays = applicationProperties.getSalesAnalytics().getHourlyRetentionDays();
+    }
+
+    /**
+     * Get the sales of the buckets of a range.
+     *
+     * @param query the range, granularity, grouping and filters.
+     * @return the non-empty buckets, by bucket start and dimensions.
+     * @throws CompactedRangeException if an hourly range starts before the hourly rollups kept.
+     */
+    public List<SalesBucketDTO> findSales(SalesQuery query) {
+        log.debug("Request to get the sales for {}", query);
+        SalesGranularity granularity = query.getGranularity();
+        Instant from = bucketStart(query.getFrom(), granularity, zone);
+        if (granularity == SalesGranularity.HOUR) {
+            // The same cutoff as the compaction of the SalesRollupJob, the hours before it are only kept by day
+            Instant cutoff = Instant.now().atZone(zone).minusDays(hourlyRetentionDays).truncatedTo(ChronoUnit.DAYS).toInstant();
+            if (from.isBefore(cutoff)) {
+                throw new CompactedRangeException("The hourly sales are only kept from " + cutoff + ", query older ones by DAY");
+            }
+        }
+        Instant to = bucketStart(query.getTo(), granularity, zone);
+        if (to.isBefore(query.getTo())) {
+            to = nextBucketStart(to, granularity, zone);
+        }
+        // A day is made of its daily rollup and of its hourly ones not compacted yet.
+        Collection<SalesGranularity> granularities = granularity == SalesGranularity.HOUR
+            ? Collections.singleton(SalesGranularity.HOUR)
+            : Arrays.asList(SalesGranularity.values());
+        Set<SalesDimension> groupBy = query.getGroupBy() == null || query.getGroupBy().isEmpty()
+            ? EnumSet.noneOf(SalesDimension.class)
+            : EnumSet.copyOf(query.getGroupBy());
+
+        Map<List<Object>, Totals> buckets = new LinkedHashMap<>();
+        for (Object[] row : salesRollupRepository.sumByBucket(granularities, from, to, query.getProductCategoryId(),
+            query.getSize(), query.getOrderStatus())) {
+            List<Object> key = Arrays.asList(
+                bucketStart((Instant) row[0], granularity, zone),
+                groupBy.contains(SalesDimension.CATEGORY) ? row[1] : null,
+                groupBy.contains(SalesDimension.SIZE) ? row[2] : null,
+                groupBy.contains(SalesDimension.STATUS) ? row[3] : null);
+            buckets.computeIfAbsent(key, k -> new Totals())
+                .add((BigDecimal) row[4], ((Number) row[5]).longValue(), ((Number) row[6]).longValue());
+        }
+
+        List<SalesBucketDTO> result = new ArrayList<>(buckets.size());
+        buckets.forEach((key, totals) -> {
+            if (!totals.isEmpty()) {
+                result.add(new SalesBucketDTO((Instant) key.get(0), (Long) key.get(1), (Size) key.get(2), (OrderStatus) key.get(3),
+                    totals.revenue, totals.units, totals.itemCount));
+            }
+        });
+        result.sort(BUCKET_ORDER);
+        return result;
+    }
+
+    /**
+     * The start of the bucket of an instant, hours and days starting in the given time zone.
+     */
+    static Instant bucketStart(Instant instant, SalesGranularity granularity, ZoneId zone) {
+        ChronoUnit unit = granularity == SalesGranularity.HOUR ? ChronoUnit.HOURS : ChronoUnit.DAYS;
+        return instant.atZone(zone).truncatedTo(unit).toInstant();
+    }
+
+    static Instant nextBucketStart(Instant bucketStart, SalesGranularity granularity, ZoneId zone) {
+        ZonedDateTime start = bucketStart.atZone(zone);
+        return (granularity == SalesGranularity.HOUR ? start.plusHours(1) : start.plusDays(1)).toInstant();
+    }
+
+    private static final class Totals {
+
+        private BigDecimal revenue = BigDecimal.ZERO;
+
+        private long units;
+
+        private long itemCount;
+
+        void add(BigDecimal revenue, long units, long itemCount) {
+            this.revenue = this.revenue.add(revenue == null ? BigDecimal.ZERO : revenue);
+            this.units += units;
+            this.itemCount += itemCount;
+        }
+
+        /**
+         * @return whether the sales of the bucket were all cancelled out, e.g. by the removal of their items.
+         */
+        boolean isEmpty() {
+            return revenue.signum() == 0 && units == 0 && itemCount == 0;
+        }
+    }
+}
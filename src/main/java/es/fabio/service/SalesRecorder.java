@@ -0,0 +1,95 @@
+package es.fabio.service;
+
+import es.fabio.domain.OrderItem;
+import es.fabio.domain.ProductOrder;
+import es.fabio.domain.Producto;
+import es.fabio.domain.SalesRollupDelta;
+import es.fabio.domain.enumeration.Size;
+import es.fabio.repository.SalesRollupDeltaRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+
+/**
+ * Service recording the changes to the sales of the order items as {@link SalesRollupDelta}s.
+ * <p>
+ * It must be called from the transaction changing the order item or its order, so the delta is committed, or rolled
+ * back, together with the change. The deltas are added to the rollups asynchronously by the {@link SalesRollupJob}.
+ */
+@Service
+@Transactional(propagation = Propagation.MANDATORY)
+public class SalesRecorder {
+
+    private final Logger log = LoggerFactory.getLogger(SalesRecorder.class);
+
+    private final SalesRollupDeltaRepository salesRollupDeltaRepository;
+
+    public SalesRecorder(SalesRollupDeltaRepository salesRollupDeltaRepository) {
+        this.salesRollupDeltaRepository = salesRollupDeltaRepository;
+    }
+
+    /**
+     * Record that an order item is sold, with the current state of its producto and order. The product category and
+     * size it is counted under are kept on the managed order item, so it must be called after the item is saved.
+     *
+     * @param orderItem the order item.
+     */
+    public void itemAdded(OrderItem orderItem) {
+        Producto producto = orderItem.getProducto();
+        orderItem.setSalesProductCategoryId(productCategoryId(producto));
+        orderItem.setSalesSize(producto.getSize());
+        record(orderItem, orderItem.getSalesProductCategoryId(), orderItem.getSalesSize(), 1);
+    }
+
+    /**
+     * Record that an order item is no longer sold as before, with the product category and size it was added with and
+     * the current state of its order, which must still be the state it was added with: call it before the order item
+     * or its order is changed. A producto can change in between, its order items stay counted where they were added.
+     *
+     * @param orderItem the order item.
+     */
+    public void itemRemoved(OrderItem orderItem) {
+        if (orderItem.getSalesSize() == null) {
+            // Not saved through the services, such as an item inserted directly: counted with its current producto.
+            Producto producto = orderItem.getProducto();
+            record(orderItem, productCategoryId(producto), producto.getSize(), -1);
+        } else {
+            record(orderItem, orderItem.getSalesProductCategoryId(), orderItem.getSalesSize(), -1);
+        }
+    }
+
+    /**
+     * Whether an update of an order changes the buckets its items are counted in.
+     *
+     * @param previous the order before the update.
+     * @param updated the order after the update.
+     * @return {@code true} if the items have to be removed from their buckets and added again.
+     */
+    public boolean changesBuckets(ProductOrder previous, ProductOrder updated) {
+        return previous.getStatus() != updated.getStatus() || !previous.getPlacedDate().equals(updated.getPlacedDate());
+    }
+
+    private void record(OrderItem orderItem, Long productCategoryId, Size size, int sign) {
+        ProductOrder order = orderItem.getOrder();
+        log.debug("Request to record {} OrderItem : {} in the sales rollups", sign > 0 ? "adding" : "removing", orderItem.getId());
+        SalesRollupDelta delta = new SalesRollupDelta();
+        delta.setPlacedDate(order.getPlacedDate());
+        delta.setOrderStatus(order.getStatus());
+        delta.setProductCategoryId(productCategoryId);
+        delta.setSize(size);
+        BigDecimal revenue = orderItem.getTotalPrice() == null ? BigDecimal.ZERO : orderItem.getTotalPrice();
+        delta.setRevenue(sign > 0 ? revenue : revenue.negate());
+        delta.setUnits(sign * (orderItem.getQuantity() == null ? 0 : orderItem.getQuantity()));
+        delta.setItemCount(sign);
+        salesRollupDeltaRepository.save(delta);
+    }
+
+    private static Long productCategoryId(Producto producto) {
+        return producto.getProductCategory() == null ? null : producto.getProductCategory().getId();
+    }
+}
@@ -0,0 +1,241 @@
+package es.fabio.service;
+
+import es.fabio.config.ApplicationProperties;
+import es.fabio.domain.SalesRollup;
+import es.fabio.domain.SalesRollupDelta;
+import es.fabio.domain.enumeration.OrderStatus;
+import es.fabio.domain.enumeration.SalesGranularity;
+import es.fabio.domain.enumeration.Size;
+import es.fabio.repository.SalesRollupDeltaRepository;
+import es.fabio.repository.SalesRollupRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Background job maintaining the {@link SalesRollup}s.
+ * <p>
+ * The fold locks a batch of {@link SalesRollupDelta}s, sums them by hour and dimensions, adds the sums to the
+ * hourly rollups and removes the deltas, so each delta is counted exactly once whatever the number of instances
+ * running the job. The compaction replaces the hourly rollups older than {@code hourlyRetentionDays} by one daily
+ * rollup per day and dimensions, keeping the tables small enough for range queries to read in milliseconds.
+ */
+@Service
+public class SalesRollupJob {
+
+    private final Logger log = LoggerFactory.getLogger(SalesRollupJob.class);
+
+    private final ApplicationProperties.SalesAnalytics properties;
+
+    private final SalesRollupDeltaRepository salesRollupDeltaRepository;
+
+    private final SalesRollupRepository salesRollupRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ZoneId zone;
+
+    private final Counter foldedCounter;
+
+    private final Counter compactedCounter;
+
+    public SalesRollupJob(ApplicationProperties applicationProperties, SalesRollupDeltaRepository salesRollupDeltaRepository,
+                          SalesRollupRepository salesRollupRepository, PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.properties = applicationProperties.getSalesAnalytics();
+        this.salesRollupDeltaRepository = salesRollupDeltaRepository;
+        this.salesRollupRepository = salesRollupRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.zone = ZoneId.of(properties.getZone());
+        this.foldedCounter = Counter.builder("sales.rollup.folded")
+            .description("Number of sales deltas added to the hourly rollups")
+            .register(meterRegistry);
+        this.compactedCounter = Counter.builder("sales.rollup.compacted")
+            .description("Number of hourly sales rollups compacted into daily ones")
+            .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${application.sales-analytics.fold-interval-ms:60000}")
+    public void fold() {
+        if (properties.isEnabled()) {
+            foldDeltas();
+        }
+    }
+
+    @Scheduled(cron = "${application.sales-analytics.compaction-cron:0 15 * * * ?}")
+    public void compact() {
+        if (properties.isEnabled()) {
+            compactBefore(Instant.now());
+        }
+    }
+
+    /**
+     * Add the recorded deltas to the hourly rollups, up to {@code maxBatchesPerRun} batches.
+     *
+     * @return the number of folded deltas.
+     */
+    public long foldDeltas() {
+        long folded = 0;
+        for (int i = 0; i < properties.getMaxBatchesPerRun(); i++) {
+            Integer count = transactionTemplate.execute(status -> foldBatch());
+            folded += count == null ? 0 : count;
+            if (count == null || count < properties.getBatchSize()) {
+                break;
+            }
+        }
+        foldedCounter.increment(folded);
+        return folded;
+    }
+
+    private int foldBatch() {
+        List<SalesRollupDelta> deltas = salesRollupDeltaRepository.findAllByOrderByIdAsc(PageRequest.of(0, properties.getBatchSize()));
+        if (deltas.isEmpty()) {
+            return 0;
+        }
+        Map<Key, SalesRollup> sums = new LinkedHashMap<>();
+        for (SalesRollupDelta delta : deltas) {
+            Key key = new Key(SalesAnalyticsService.bucketStart(delta.getPlacedDate(), SalesGranularity.HOUR, zone),
+                delta.getProductCategoryId(), delta.getSize(), delta.getOrderStatus());
+            add(sums.computeIfAbsent(key, k -> k.newRollup(SalesGranularity.HOUR)),
+                delta.getRevenue(), delta.getUnits(), delta.getItemCount());
+        }
+
+        Set<Instant> hours = new TreeSet<>();
+        sums.keySet().forEach(key -> hours.add(key.bucketStart));
+        for (SalesRollup rollup : salesRollupRepository.findAllByGranularityAndBucketStartIn(SalesGranularity.HOUR, hours)) {
+            SalesRollup sum = sums.remove(Key.of(rollup.getBucketStart(), rollup));
+            if (sum != null) {
+                add(rollup, sum.getRevenue(), sum.getUnits(), sum.getItemCount());
+            }
+        }
+        salesRollupRepository.saveAll(sums.values());
+        salesRollupDeltaRepository.deleteInBatch(deltas);
+        log.debug("Folded {} sales deltas into the hourly rollups", deltas.size());
+        return deltas.size();
+    }
+
+    /**
+     * Compact the hourly rollups of the days which ended {@code hourlyRetentionDays} before the given instant.
+     *
+     * @param now the current time.
+     * @return the number of compacted days.
+     */
+    public int compactBefore(Instant now) {
+        Instant cutoff = now.atZone(zone).minusDays(properties.getHourlyRetentionDays()).truncatedTo(ChronoUnit.DAYS).toInstant();
+        int days = 0;
+        while (Boolean.TRUE.equals(transactionTemplate.execute(status -> compactOldestDay(cutoff)))) {
+            days++;
+        }
+        if (days > 0) {
+            log.info("Compacted the hourly sales rollups of {} days before {}", days, cutoff);
+        }
+        return days;
+    }
+
+    private boolean compactOldestDay(Instant cutoff) {
+        Optional<SalesRollup> oldest = salesRollupRepository.findFirstByGranularityAndBucketStartLessThanOrderByBucketStartAsc(
+            SalesGranularity.HOUR, cutoff);
+        if (!oldest.isPresent()) {
+            return false;
+        }
+        Instant dayStart = SalesAnalyticsService.bucketStart(oldest.get().getBucketStart(), SalesGranularity.DAY, zone);
+        Instant dayEnd = SalesAnalyticsService.nextBucketStart(dayStart, SalesGranularity.DAY, zone);
+        // The daily rollups of the day are rewritten too, so a day is always made of a single rollup per dimensions.
+        List<SalesRollup> rollups = salesRollupRepository.findAllByBucketStartGreaterThanEqualAndBucketStartLessThan(dayStart, dayEnd);
+        Map<Key, SalesRollup> daily = new LinkedHashMap<>();
+        for (SalesRollup rollup : rollups) {
+            add(daily.computeIfAbsent(Key.of(dayStart, rollup), k -> k.newRollup(SalesGranularity.DAY)),
+                rollup.getRevenue(), rollup.getUnits(), rollup.getItemCount());
+        }
+        List<SalesRollup> compacted = new ArrayList<>();
+        for (SalesRollup rollup : daily.values()) {
+            if (rollup.getRevenue().signum() != 0 || rollup.getUnits() != 0 || rollup.getItemCount() != 0) {
+                compacted.add(rollup);
+            }
+        }
+        salesRollupRepository.deleteAll(rollups);
+        salesRollupRepository.saveAll(compacted);
+        compactedCounter.increment(rollups.size());
+        return true;
+    }
+
+    private static void add(SalesRollup rollup, BigDecimal revenue, long units, long itemCount) {
+        rollup.setRevenue(rollup.getRevenue().add(revenue));
+        rollup.setUnits(rollup.getUnits() + units);
+        rollup.setItemCount(rollup.getItemCount() + itemCount);
+    }
+
+    /**
+     * The bucket and dimensions of a rollup.
+     */
+    private static final class Key {
+
+        private final Instant bucketStart;
+
+        private final Long productCategoryId;
+
+        private final Size size;
+
+        private final OrderStatus orderStatus;
+
+        Key(Instant bucketStart, Long productCategoryId, Size size, OrderStatus orderStatus) {
+            this.bucketStart = bucketStart;
+            this.productCategoryId = productCategoryId;
+            this.size = size;
+            this.orderStatus = orderStatus;
+        }
+
+        static Key of(Instant bucketStart, SalesRollup rollup) {
+            return new Key(bucketStart, rollup.getProductCategoryId(), rollup.getSize(), rollup.getOrderStatus());
+        }
+
+        SalesRollup newRollup(SalesGranularity granularity) {
+            SalesRollup rollup = new SalesRollup();
+            rollup.setGranularity(granularity);
+            rollup.setBucketStart(bucketStart);
+            rollup.setProductCategoryId(productCategoryId);
+            rollup.setSize(size);
+            rollup.setOrderStatus(orderStatus);
+            rollup.setRevenue(BigDecimal.ZERO);
+            return rollup;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return bucketStart.equals(key.bucketStart) && Objects.equals(productCategoryId, key.productCategoryId)
+                && size == key.size && orderStatus == key.orderStatus;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(bucketStart, productCategoryId, size, orderStatus);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package es.fabio.service;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.util.ReflectionUtils;
+
+import es.fabio.repository.search.SearchAfterSlice;
+import es.fabio.service.dto.KeysetCursor;
+import es.fabio.service.dto.KeysetSlice;
+
+/**
+ * Keyset pagination of the searches of an entity, with the {@code search_after} of Elasticsearch.
+ * <p>
+ * The searches are sorted by relevance ({@value #SCORE}) or by one of the non-null properties given, then by id, and
+ * the {@link KeysetCursor} holds the sort values of the last hit returned, so the next hits cost the same at any depth
+ * instead of growing with the offset up to the result window. The cursors use the format of the keyset listings.
+ * <p>
+ * Elasticsearch 6.8 has no point in time: each page searches the live index, so the documents indexed or deleted
+ * between two pages may be missed or shifted, but no hit is returned twice for an unchanged document.
+ */
+public class SearchAfterPagination {
+
+    public static final String SCORE = "_score";
+
+    private static final String ID_PROPERTY = "id";
+
+    private static final String KEYWORD_SUFFIX = ".keyword";
+
+    private final Class<?> entityClass;
+
+    private final Set<String> sortProperties;
+
+    public SearchAfterPagination(Class<?> entityClass, String... sortProperties) {
+        this.entityClass = entityClass;
+        this.sortProperties = new HashSet<>(Arrays.asList(sortProperties));
+    }
+
+    /**
+     * Return the sort of the search of a cursor.
+     *
+     * @param cursor the position to search from.
+     * @return the sort, by document fields, ending with the id.
+     * @throws InvalidCursorException if the cursor sort property is not supported.
+     */
+    public Sort sort(KeysetCursor cursor) {
+        Sort id = Sort.by(cursor.getDirection(), ID_PROPERTY);
+        if (cursor.isIdOnly()) {
+            return id;
+        }
+        Class<?> type = type(cursor.getProperty());
+        // The text fields are sorted by their keyword subfield, the enums are indexed as text too.
+        String field = String.class.equals(type) || type.isEnum() ? cursor.getProperty() + KEYWORD_SUFFIX : cursor.getProperty();
+        return Sort.by(cursor.getDirection(), field).and(id);
+    }
+
+    /**
+     * Return the sort values to search after for a cursor.
+     *
+     * @param cursor the position to search from.
+     * @return the sort values of the last hit returned, or {@code null} for the first page.
+     * @throws InvalidCursorException if the cursor is not a valid position of this search.
+     */
+    public Object[] searchAfter(KeysetCursor cursor) {
+        if (cursor.isFirst()) {
+            return null;
+        }
+        if (cursor.isIdOnly()) {
+            return new Object[] {cursor.getId()};
+        }
+        return new Object[] {parseValue(type(cursor.getProperty()), cursor.getValue()), cursor.getId()};
+    }
+
+    /**
+     * Return the hits of a search as a keyset page.
+     *
+     * @param cursor the position the hits were searched from.
+     * @param hits the hits, with the sort values of the last one if there are more.
+     * @param <T> the type of the hits.
+     * @return the hits and the cursor of the next page.
+     */
+    public <T> KeysetSlice<T> slice(KeysetCursor cursor, SearchAfterSlice<T> hits) {
+        List<String> last = hits.getLastSortValues();
+        if (last == null) {
+            return new KeysetSlice<>(new ArrayList<>(hits.getContent()), null);
+        }
+        try {
+            return new KeysetSlice<>(new ArrayList<>(hits.getContent()), cursor.after(Long.valueOf(last.get(last.size() - 1)), last.get(0)));
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Search hit without id sort value: " + last, e);
+        }
+    }
+
+    private Class<?> type(String property) {
+        if (SCORE.equals(property)) {
+            return Float.class;
+        }
+        if (!sortProperties.contains(property)) {
+            throw new InvalidCursorException("Unsupported search sort property: " + property);
+        }
+        return ReflectionUtils.findField(entityClass, property).getType();
+    }
+
+    /**
+     * Parse a sort value as returned by Elasticsearch: the keyword fields as text, the numbers as numbers and the
+     * dates as epoch milliseconds.
+     */
+    private static Object parseValue(Class<?> type, String value) {
+        try {
+            if (String.class.equals(type) || type.isEnum()) {
+                return value;
+            } else if (Integer.class.equals(type) || Long.class.equals(type) || Instant.class.equals(type) || LocalDate.class.equals(type)) {
+                return Long.valueOf(value);
+            } else if (BigDecimal.class.equals(type) || Float.class.equals(type) || Double.class.equals(type)) {
+                return Double.valueOf(value);
+            }
+        } catch (RuntimeException e) {
+            throw new InvalidCursorException("Invalid pagination cursor value: " + value);
+        }
+        throw new InvalidCursorException("Unsupported search sort type: " + type.getName());
+    }
+}
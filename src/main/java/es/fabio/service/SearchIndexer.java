@@ -0,0 +1,376 @@
+package es.fabio.service;
+
+import es.fabio.config.ApplicationProperties;
+import es.fabio.domain.ProductCategory;
+import es.fabio.domain.Producto;
+import es.fabio.domain.SearchOutboxEntry;
+import es.fabio.domain.enumeration.SearchReindexStatus;
+import es.fabio.repository.SearchOutboxRepository;
+import es.fabio.repository.SearchReindexJobRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import io.searchbox.action.BulkableAction;
+import io.searchbox.client.JestClient;
+import io.searchbox.core.Bulk;
+import io.searchbox.core.BulkResult;
+import io.searchbox.core.Delete;
+import io.searchbox.core.Index;
+import io.searchbox.params.Parameters;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.EntityMapper;
+import org.springframework.data.elasticsearch.core.mapping.ElasticsearchPersistentEntity;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceUnitUtil;
+import javax.persistence.metamodel.EntityType;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background indexer applying the entries of the search outbox to Elasticsearch.
+ * <p>
+ * Each run locks a batch of due entries, collapses the entries targeting the same document, loads the current
+ * state of the entities and sends a single bulk request. Entries whose document was applied are removed, the others
+ * are retried with an exponential backoff until {@code maxAttempts} is reached, after which they are kept in the
+ * outbox for inspection. The batch size shrinks when Elasticsearch rejects or fails requests, and grows back once
+ * they succeed again.
+ * <p>
+ * Several instances may drain entries of the same document at once, as the outbox rows are locked but the documents
+ * are not. The documents are therefore written with an external version, the time taken before loading their state:
+ * a bulk carrying a state loaded before the last change can not overwrite the state loaded after it.
+ */
+@Service
+public class SearchIndexer {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    private static final int NOT_FOUND = 404;
+
+    private static final int CONFLICT = 409;
+
+    private static final Set<String> CATALOGUE_TYPES = new HashSet<>(Arrays.asList(
+        Producto.class.getSimpleName(), ProductCategory.class.getSimpleName()));
+
+    private final Logger log = LoggerFactory.getLogger(SearchIndexer.class);
+
+    private final ApplicationProperties.SearchIndexer properties;
+
+    private final SearchOutboxRepository searchOutboxRepository;
+
+    private final SearchReindexJobRepository searchReindexJobRepository;
+
+    private final EntityManager entityManager;
+
+    private final JestClient jestClient;
+
+    private final ElasticsearchOperations elasticsearchOperations;
+
+    private final EntityMapper entityMapper;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final CatalogueGeneration catalogueGeneration;
+
+    private final Map<String, EntityType<?>> indexedTypes = new HashMap<>();
+
+    private final AtomicInteger batchSize;
+
+    private final AtomicLong pending = new AtomicLong();
+
+    private final AtomicLong dead = new AtomicLong();
+
+    private final AtomicLong lagMillis = new AtomicLong();
+
+    private final DistributionSummary batchSizeSummary;
+
+    private final Timer bulkTimer;
+
+    private final Counter indexedCounter;
+
+    private final Counter deletedCounter;
+
+    private final Counter failedCounter;
+
+    public SearchIndexer(ApplicationProperties applicationProperties, SearchOutboxRepository searchOutboxRepository,
+                         SearchReindexJobRepository searchReindexJobRepository, EntityManager entityManager, JestClient jestClient, ElasticsearchOperations elasticsearchOperations,
+                         EntityMapper entityMapper, PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                         CatalogueGeneration catalogueGeneration) {
+        this.properties = applicationProperties.getSearchIndexer();
+        this.searchOutboxRepository = searchOutboxRepository;
+        this.searchReindexJobRepository = searchReindexJobRepository;
+        this.entityManager = entityManager;
+        this.jestClient = jestClient;
+        this.elasticsearchOperations = elasticsearchOperations;
+        this.entityMapper = entityMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.catalogueGeneration = catalogueGeneration;
+        this.batchSize = new AtomicInteger(properties.getBatchSize());
+
+        for (EntityType<?> entityType : entityManager.getMetamodel().getEntities()) {
+            if (entityType.getJavaType().isAnnotationPresent(Document.class)) {
+                indexedTypes.put(entityType.getJavaType().getSimpleName(), entityType);
+            }
+        }
+
+        Gauge.builder("search.outbox.pending", pending, AtomicLong::get)
+            .description("Number of search outbox entries waiting to be indexed")
+            .register(meterRegistry);
+        Gauge.builder("search.outbox.dead", dead, AtomicLong::get)
+            .description("Number of search outbox entries which exhausted their attempts")
+            .register(meterRegistry);
+        TimeGauge.builder("search.outbox.lag", lagMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+            .description("Age of the oldest search outbox entry waiting to be indexed")
+            .register(meterRegistry);
+        Gauge.builder("search.indexer.batch.limit", batchSize, AtomicInteger::get)
+            .description("Current maximum size of the bulk requests")
+            .register(meterRegistry);
+        this.batchSizeSummary = DistributionSummary.builder("search.indexer.batch.size")
+            .description("Number of documents sent per bulk request")
+            .register(meterRegistry);
+        this.bulkTimer = Timer.builder("search.indexer.bulk")
+            .description("Duration of the bulk requests")
+            .register(meterRegistry);
+        this.indexedCounter = documentCounter(meterRegistry, "indexed");
+        this.deletedCounter = documentCounter(meterRegistry, "deleted");
+        this.failedCounter = documentCounter(meterRegistry, "failed");
+    }
+
+    private static Counter documentCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("search.indexer.documents")
+            .description("Number of documents applied to the search index")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Drain the search outbox, up to {@code maxBatchesPerRun} bulk requests per run.
+     */
+    @Scheduled(fixedDelayString = "${application.search-indexer.poll-interval-ms:1000}")
+    public void drain() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            for (int i = 0; i < properties.getMaxBatchesPerRun(); i++) {
+                Boolean more = transactionTemplate.execute(status -> indexBatch());
+                if (!Boolean.TRUE.equals(more)) {
+                    break;
+                }
+            }
+        } finally {
+            refreshBacklog();
+        }
+    }
+
+    /**
+     * Index a single batch of due entries.
+     *
+     * @return {@code true} if the batch was full and succeeded, so another one should be run right away.
+     */
+    private boolean indexBatch() {
+        int limit = batchSize.get();
+        List<SearchOutboxEntry> entries = searchOutboxRepository.findByAttemptsLessThanAndNextAttemptDateLessThanEqualOrderByIdAsc(
+            properties.getMaxAttempts(), Instant.now(), PageRequest.of(0, limit));
+        if (entries.isEmpty()) {
+            return false;
+        }
+
+        // Several changes of the same document only need the last state to be indexed.
+        Map<String, Map<Long, List<SearchOutboxEntry>>> byDocument = new LinkedHashMap<>();
+        for (SearchOutboxEntry entry : entries) {
+            byDocument.computeIfAbsent(entry.getEntityType(), type -> new LinkedHashMap<>())
+                .computeIfAbsent(entry.getEntityId(), id -> new ArrayList<>())
+                .add(entry);
+        }
+
+        // The indexes being rebuilt get the changes too, see the SearchReindexService.
+        Map<String, String> reindexTargets = new HashMap<>();
+        searchReindexJobRepository.findAllByStatusNot(SearchReindexStatus.COMPLETED)
+            .forEach(job -> reindexTargets.put(job.getIndexAlias(), job.getTargetIndex()));
+
+        List<SearchOutboxEntry> done = new ArrayList<>();
+        List<List<SearchOutboxEntry>> actions = new ArrayList<>();
+        Bulk.Builder bulk = new Bulk.Builder();
+        for (Map.Entry<String, Map<Long, List<SearchOutboxEntry>>> group : byDocument.entrySet()) {
+            EntityType<?> entityType = indexedTypes.get(group.getKey());
+            if (entityType == null) {
+                log.warn("Dropping search outbox entries of unknown type {}", group.getKey());
+                group.getValue().values().forEach(done::addAll);
+                continue;
+            }
+            ElasticsearchPersistentEntity<?> persistentEntity = elasticsearchOperations.getPersistentEntityFor(entityType.getJavaType());
+            String reindexTarget = reindexTargets.get(persistentEntity.getIndexName());
+            // Taken before the load, so that a change committed after it is loaded with a greater version.
+            long version = System.currentTimeMillis();
+            Map<Long, Object> current = load(entityType, group.getValue().keySet());
+            for (Map.Entry<Long, List<SearchOutboxEntry>> document : group.getValue().entrySet()) {
+                String id = String.valueOf(document.getKey());
+                Object entity = current.get(document.getKey());
+                String source = null;
+                if (entity != null) {
+                    try {
+                        source = entityMapper.mapToString(entity);
+                    } catch (IOException e) {
+                        log.warn("Could not serialize {} : {} for the search index", group.getKey(), id, e);
+                        retry(document.getValue(), e.toString());
+                        continue;
+                    }
+                }
+                bulk.addAction(action(persistentEntity.getIndexName(), persistentEntity.getIndexType(), id, source, version));
+                actions.add(document.getValue());
+                if (reindexTarget != null) {
+                    bulk.addAction(action(reindexTarget, persistentEntity.getIndexType(), id, source, version));
+                    actions.add(document.getValue());
+                }
+            }
+        }
+        searchOutboxRepository.deleteInBatch(done);
+        if (actions.isEmpty()) {
+            return entries.size() == limit;
+        }
+
+        batchSizeSummary.record(actions.size());
+        BulkResult result;
+        long start = System.nanoTime();
+        try {
+            result = jestClient.execute(bulk.build());
+        } catch (IOException e) {
+            log.warn("Bulk indexing of {} documents failed: {}", actions.size(), e.toString());
+            actions.forEach(action -> retry(action, e.toString()));
+            shrink();
+            return false;
+        } finally {
+            bulkTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        if (result.getItems().size() != actions.size()) {
+            String error = result.getErrorMessage();
+            log.warn("Bulk indexing of {} documents failed: {}", actions.size(), error);
+            actions.forEach(action -> retry(action, error));
+            shrink();
+            return false;
+        }
+
+        boolean throttled = false;
+        Set<List<SearchOutboxEntry>> failed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < actions.size(); i++) {
+            BulkResult.BulkResultItem item = result.getItems().get(i);
+            boolean delete = "delete".equals(item.operation);
+            // A version conflict means the index already holds a state of the document loaded later.
+            if (item.status < 300 || item.status == CONFLICT || (delete && item.status == NOT_FOUND)) {
+                (delete ? deletedCounter : indexedCounter).increment();
+            } else if (failed.add(actions.get(i))) {
+                throttled |= item.status == TOO_MANY_REQUESTS;
+                retry(actions.get(i), item.status + " " + item.error);
+            }
+        }
+        List<SearchOutboxEntry> applied = new ArrayList<>();
+        actions.stream()
+            .filter(action -> !failed.contains(action))
+            .distinct()
+            .forEach(applied::addAll);
+        searchOutboxRepository.deleteInBatch(applied);
+        // The search results of the catalogue changed, see the CatalogueGeneration.
+        if (applied.stream().map(SearchOutboxEntry::getEntityType).anyMatch(CATALOGUE_TYPES::contains)) {
+            catalogueGeneration.advance();
+        }
+        if (throttled) {
+            shrink();
+            return false;
+        }
+        grow();
+        return entries.size() == limit;
+    }
+
+    private static BulkableAction<?> action(String index, String type, String id, String source, long version) {
+        if (source == null) {
+            return new Delete.Builder(id).index(index).type(type)
+                .setParameter(Parameters.VERSION, version)
+                .setParameter(Parameters.VERSION_TYPE, "external")
+                .build();
+        }
+        return new Index.Builder(source).id(id).index(index).type(type)
+            .setParameter(Parameters.VERSION, version)
+            .setParameter(Parameters.VERSION_TYPE, "external")
+            .build();
+    }
+
+    private Map<Long, Object> load(EntityType<?> entityType, Collection<Long> ids) {
+        PersistenceUnitUtil persistenceUnitUtil = entityManager.getEntityManagerFactory().getPersistenceUnitUtil();
+        Map<Long, Object> entities = new HashMap<>();
+        entityManager.createQuery("select e from " + entityType.getName() + " e where e.id in :ids", entityType.getJavaType())
+            .setParameter("ids", ids)
+            .getResultList()
+            .forEach(entity -> entities.put((Long) persistenceUnitUtil.getIdentifier(entity), entity));
+        return entities;
+    }
+
+    private void retry(List<SearchOutboxEntry> entries, String error) {
+        failedCounter.increment();
+        String lastError = error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+        for (SearchOutboxEntry entry : entries) {
+            int attempts = entry.getAttempts() + 1;
+            long backoff = properties.getRetryBackoffMs() << Math.min(attempts - 1, 20);
+            entry.setAttempts(attempts);
+            entry.setLastError(lastError);
+            entry.setNextAttemptDate(Instant.now().plusMillis(Math.min(backoff, properties.getMaxRetryBackoffMs())));
+            if (attempts >= properties.getMaxAttempts()) {
+                log.error("Giving up indexing {} {} : {} after {} attempts: {}",
+                    entry.getOperation(), entry.getEntityType(), entry.getEntityId(), attempts, lastError);
+            }
+        }
+    }
+
+    private void shrink() {
+        batchSize.updateAndGet(size -> Math.max(properties.getMinBatchSize(), size / 2));
+    }
+
+    private void grow() {
+        batchSize.updateAndGet(size -> Math.min(properties.getBatchSize(), size * 2));
+    }
+
+    private void refreshBacklog() {
+        try {
+            pending.set(searchOutboxRepository.countByAttemptsLessThan(properties.getMaxAttempts()));
+            dead.set(searchOutboxRepository.countByAttemptsGreaterThanEqual(properties.getMaxAttempts()));
+            lagMillis.set(searchOutboxRepository.findFirstByAttemptsLessThanOrderByIdAsc(properties.getMaxAttempts())
+                .map(SearchOutboxEntry::getCreatedDate)
+                .filter(Objects::nonNull)
+                .map(createdDate -> Math.max(0, Duration.between(createdDate, Instant.now()).toMillis()))
+                .orElse(0L));
+        } catch (RuntimeException e) {
+            log.warn("Could not refresh the search outbox backlog metrics: {}", e.toString());
+        }
+    }
+}
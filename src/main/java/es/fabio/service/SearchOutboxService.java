@@ -0,0 +1,64 @@
+package es.fabio.service;
+
+import es.fabio.domain.SearchOutboxEntry;
+import es.fabio.domain.enumeration.SearchOutboxOperation;
+import es.fabio.repository.SearchOutboxRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+/**
+ * Service recording the changes to apply to the search index in the search outbox.
+ * <p>
+ * It must be called from the transaction changing the entity, so the outbox entry is committed, or rolled back,
+ * together with the change. The entries are applied to Elasticsearch asynchronously by the {@link SearchIndexer}.
+ */
+@Service
+@Transactional(propagation = Propagation.MANDATORY)
+public class SearchOutboxService {
+
+    private final Logger log = LoggerFactory.getLogger(SearchOutboxService.class);
+
+    private final SearchOutboxRepository searchOutboxRepository;
+
+    public SearchOutboxService(SearchOutboxRepository searchOutboxRepository) {
+        this.searchOutboxRepository = searchOutboxRepository;
+    }
+
+    /**
+     * Record that an entity was created or updated, and has to be (re)indexed.
+     *
+     * @param entityClass the class of the entity.
+     * @param id the id of the entity.
+     */
+    public void index(Class<?> entityClass, Long id) {
+        enqueue(entityClass, id, SearchOutboxOperation.INDEX);
+    }
+
+    /**
+     * Record that an entity was deleted, and has to be removed from the index.
+     *
+     * @param entityClass the class of the entity.
+     * @param id the id of the entity.
+     */
+    public void delete(Class<?> entityClass, Long id) {
+        enqueue(entityClass, id, SearchOutboxOperation.DELETE);
+    }
+
+    private void enqueue(Class<?> entityClass, Long id, SearchOutboxOperation operation) {
+        log.debug("Request to {} {} : {} in the search index", operation, entityClass.getSimpleName(), id);
+        Instant now = Instant.now();
+        SearchOutboxEntry entry = new SearchOutboxEntry();
+        entry.setEntityType(entityClass.getSimpleName());
+        entry.setEntityId(id);
+        entry.setOperation(operation);
+        entry.setCreatedDate(now);
+        entry.setNextAttemptDate(now);
+        searchOutboxRepository.save(entry);
+    }
+}
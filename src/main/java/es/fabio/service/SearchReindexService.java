@@ -0,0 +1,442 @@
+package es.fabio.service;
+
+import es.fabio.config.ApplicationProperties;
+import es.fabio.domain.SearchReindexJob;
+import es.fabio.domain.enumeration.SearchReindexStatus;
+import es.fabio.repository.SearchReindexJobRepository;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import io.searchbox.client.JestClient;
+import io.searchbox.client.JestResult;
+import io.searchbox.core.Bulk;
+import io.searchbox.core.BulkResult;
+import io.searchbox.core.Index;
+import io.searchbox.indices.aliases.AddAliasMapping;
+import io.searchbox.indices.aliases.AliasMapping;
+import io.searchbox.indices.aliases.GetAliases;
+import io.searchbox.indices.aliases.ModifyAliases;
+import io.searchbox.indices.aliases.RemoveAliasMapping;
+import io.searchbox.params.Parameters;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.annotations.Mapping;
+import org.springframework.data.elasticsearch.annotations.Setting;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.EntityMapper;
+import org.springframework.data.elasticsearch.core.mapping.ElasticsearchPersistentEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceUnitUtil;
+import javax.persistence.TypedQuery;
+import javax.persistence.metamodel.EntityType;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service rebuilding a search index from the database.
+ * <p>
+ * The rows are read in id order by chunks of {@code chunkSize} and indexed with bulk requests by a pool of
+ * {@code workers} into a new index. Progress is checkpointed in {@link SearchReindexJob}, so an interrupted reindex
+ * resumes from the last fully indexed chunk. Once every row is indexed the index alias is atomically moved to the
+ * new index and the previous one is deleted.
+ * <p>
+ * While a reindex is running the {@link SearchIndexer} also applies the changes to the new index. Both use external
+ * versions taken before reading the rows, so a chunk read before a change can not overwrite it.
+ */
+@Service
+public class SearchReindexService {
+
+    private static final DateTimeFormatter INDEX_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMddHHmmss").withZone(ZoneOffset.UTC);
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private static final int CONFLICT = 409;
+
+    private final Logger log = LoggerFactory.getLogger(SearchReindexService.class);
+
+    private final ApplicationProperties.SearchReindex properties;
+
+    private final SearchReindexJobRepository searchReindexJobRepository;
+
+    private final EntityManager entityManager;
+
+    private final JestClient jestClient;
+
+    private final ElasticsearchOperations elasticsearchOperations;
+
+    private final EntityMapper entityMapper;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    private final Map<String, EntityType<?>> indexedTypes = new ConcurrentHashMap<>();
+
+    private final Map<String, Future<?>> running = new ConcurrentHashMap<>();
+
+    private final ExecutorService jobExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "search-reindex");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SearchReindexService(ApplicationProperties applicationProperties, SearchReindexJobRepository searchReindexJobRepository,
+                                EntityManager entityManager, JestClient jestClient, ElasticsearchOperations elasticsearchOperations,
+                                EntityMapper entityMapper, PlatformTransactionManager transactionManager) {
+        this.properties = applicationProperties.getSearchReindex();
+        this.searchReindexJobRepository = searchReindexJobRepository;
+        this.entityManager = entityManager;
+        this.jestClient = jestClient;
+        this.elasticsearchOperations = elasticsearchOperations;
+        this.entityMapper = entityMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+
+        for (EntityType<?> entityType : entityManager.getMetamodel().getEntities()) {
+            if (entityType.getJavaType().isAnnotationPresent(Document.class)) {
+                indexedTypes.put(elasticsearchOperations.getPersistentEntityFor(entityType.getJavaType()).getIndexName(), entityType);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+    }
+
+    /**
+     * Get the names of the indexes which can be rebuilt.
+     *
+     * @return the index names.
+     */
+    public Set<String> getIndexNames() {
+        return new TreeSet<>(indexedTypes.keySet());
+    }
+
+    /**
+     * Get the checkpoints of all the reindex jobs.
+     *
+     * @return the list of jobs.
+     */
+    public List<SearchReindexJob> findAll() {
+        return searchReindexJobRepository.findAll();
+    }
+
+    /**
+     * Start rebuilding an index, or resume the previous reindex of this index if it did not complete.
+     * Does nothing if the index is already being rebuilt by this instance.
+     *
+     * @param indexName the name of the index.
+     * @return the checkpoint of the job, or empty if the index is unknown.
+     */
+    public synchronized Optional<SearchReindexJob> reindex(String indexName) {
+        EntityType<?> entityType = indexedTypes.get(indexName);
+        if (entityType == null) {
+            return Optional.empty();
+        }
+        Future<?> current = running.get(indexName);
+        if (current != null && !current.isDone()) {
+            return searchReindexJobRepository.findById(indexName);
+        }
+        SearchReindexJob job = transactionTemplate.execute(status -> start(entityType));
+        running.put(indexName, jobExecutor.submit(() -> run(entityType, job)));
+        return Optional.of(job);
+    }
+
+    private SearchReindexJob start(EntityType<?> entityType) {
+        ElasticsearchPersistentEntity<?> persistentEntity = elasticsearchOperations.getPersistentEntityFor(entityType.getJavaType());
+        String alias = persistentEntity.getIndexName();
+        Optional<SearchReindexJob> previous = searchReindexJobRepository.findById(alias)
+            .filter(job -> job.getStatus() != SearchReindexStatus.COMPLETED)
+            .filter(job -> elasticsearchOperations.indexExists(job.getTargetIndex()));
+        SearchReindexJob job;
+        if (previous.isPresent()) {
+            job = previous.get();
+            log.info("Resuming reindex of {} into {} after id {}", alias, job.getTargetIndex(), job.getLastId());
+        } else {
+            job = searchReindexJobRepository.findById(alias).orElseGet(SearchReindexJob::new);
+            job.setIndexAlias(alias);
+            job.setTargetIndex(alias + "_" + INDEX_SUFFIX.format(Instant.now()));
+            job.setLastId(null);
+            job.setIndexedCount(0);
+            job.setStartedDate(Instant.now());
+            createIndex(persistentEntity, job.getTargetIndex());
+            log.info("Starting reindex of {} into {}", alias, job.getTargetIndex());
+        }
+        job.setStatus(SearchReindexStatus.RUNNING);
+        job.setLastError(null);
+        job.setUpdatedDate(Instant.now());
+        return searchReindexJobRepository.save(job);
+    }
+
+    /**
+     * Create the target index with the settings and mapping declared on the entity, such as its analyzers, completed
+     * by the mapping of the current index.
+     */
+    private void createIndex(ElasticsearchPersistentEntity<?> persistentEntity, String targetIndex) {
+        Class<?> entityClass = persistentEntity.getType();
+        Setting setting = entityClass.getAnnotation(Setting.class);
+        if (setting != null && StringUtils.hasText(setting.settingPath())) {
+            elasticsearchOperations.createIndex(targetIndex, readResource(setting.settingPath()));
+        } else {
+            elasticsearchOperations.createIndex(targetIndex);
+        }
+        Mapping mapping = entityClass.getAnnotation(Mapping.class);
+        if (mapping != null && StringUtils.hasText(mapping.mappingPath())) {
+            elasticsearchOperations.putMapping(targetIndex, persistentEntity.getIndexType(), readResource(mapping.mappingPath()));
+        }
+        if (elasticsearchOperations.indexExists(persistentEntity.getIndexName())) {
+            Map<String, Object> currentMapping = elasticsearchOperations.getMapping(persistentEntity.getIndexName(), persistentEntity.getIndexType());
+            if (currentMapping != null && !currentMapping.isEmpty()) {
+                elasticsearchOperations.putMapping(targetIndex, persistentEntity.getIndexType(), currentMapping);
+            }
+        }
+    }
+
+    private static String readResource(String path) {
+        try (InputStream input = new ClassPathResource(path).getInputStream()) {
+            return StreamUtils.copyToString(input, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + path, e);
+        }
+    }
+
+    private void run(EntityType<?> entityType, SearchReindexJob job) {
+        String type = elasticsearchOperations.getPersistentEntityFor(entityType.getJavaType()).getIndexType();
+        Checkpoint checkpoint = new Checkpoint(job);
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(properties.getWorkers(), properties.getWorkers(), 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(properties.getWorkers()), new ThreadPoolExecutor.CallerRunsPolicy());
+        try {
+            Long lastId = job.getLastId();
+            long sequence = 0;
+            while (checkpoint.getFailure() == null) {
+                Long afterId = lastId;
+                long version = System.currentTimeMillis();
+                Chunk chunk = readOnlyTransactionTemplate.execute(status -> readChunk(entityType, afterId));
+                if (chunk == null || chunk.ids.isEmpty()) {
+                    break;
+                }
+                long chunkSequence = sequence++;
+                checkpoint.submitted(chunkSequence, chunk);
+                workers.execute(() -> {
+                    try {
+                        indexChunk(job.getTargetIndex(), type, chunk, version);
+                        checkpoint.completed(chunkSequence);
+                    } catch (IOException | RuntimeException e) {
+                        checkpoint.failed(e);
+                    }
+                });
+                lastId = chunk.lastId;
+            }
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            if (checkpoint.getFailure() != null) {
+                throw checkpoint.getFailure();
+            }
+            elasticsearchOperations.refresh(job.getTargetIndex());
+            swapAlias(job.getIndexAlias(), job.getTargetIndex());
+            checkpoint.finish(SearchReindexStatus.COMPLETED, null);
+            log.info("Reindexed {} documents into {}", job.getIndexedCount(), job.getTargetIndex());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            checkpoint.finish(SearchReindexStatus.FAILED, "Interrupted");
+        } catch (Exception e) {
+            log.error("Reindex of {} failed after id {}", job.getIndexAlias(), job.getLastId(), e);
+            checkpoint.finish(SearchReindexStatus.FAILED, e.toString());
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private Chunk readChunk(EntityType<?> entityType, Long afterId) {
+        PersistenceUnitUtil persistenceUnitUtil = entityManager.getEntityManagerFactory().getPersistenceUnitUtil();
+        String jpql = "select e from " + entityType.getName() + " e" + (afterId == null ? "" : " where e.id > :afterId") + " order by e.id";
+        TypedQuery<?> query = entityManager.createQuery(jpql, entityType.getJavaType())
+            .setMaxResults(properties.getChunkSize());
+        if (afterId != null) {
+            query.setParameter("afterId", afterId);
+        }
+        Chunk chunk = new Chunk();
+        for (Object entity : query.getResultList()) {
+            Long id = (Long) persistenceUnitUtil.getIdentifier(entity);
+            try {
+                chunk.sources.add(entityMapper.mapToString(entity));
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not serialize " + entityType.getName() + " : " + id, e);
+            }
+            chunk.ids.add(id);
+            chunk.lastId = id;
+        }
+        entityManager.clear();
+        return chunk;
+    }
+
+    private void indexChunk(String index, String type, Chunk chunk, long version) throws IOException {
+        Bulk.Builder bulk = new Bulk.Builder().defaultIndex(index).defaultType(type);
+        for (int i = 0; i < chunk.ids.size(); i++) {
+            bulk.addAction(new Index.Builder(chunk.sources.get(i))
+                .id(String.valueOf(chunk.ids.get(i)))
+                .setParameter(Parameters.VERSION, version)
+                .setParameter(Parameters.VERSION_TYPE, "external")
+                .build());
+        }
+        for (int attempt = 1; ; attempt++) {
+            BulkResult result = jestClient.execute(bulk.build());
+            String error = bulkError(result);
+            if (error == null) {
+                return;
+            }
+            if (attempt >= properties.getMaxAttempts()) {
+                throw new IOException("Bulk indexing into " + index + " failed: " + error);
+            }
+            log.warn("Bulk indexing into {} failed, attempt {}: {}", index, attempt, error);
+            try {
+                Thread.sleep(properties.getRetryBackoffMs() * attempt);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted", e);
+            }
+        }
+    }
+
+    private static String bulkError(BulkResult result) {
+        if (result.getItems().isEmpty() && !result.isSucceeded()) {
+            return result.getErrorMessage();
+        }
+        // A version conflict means the document was already updated by the SearchIndexer with a newer state.
+        return result.getFailedItems().stream()
+            .filter(item -> item.status != CONFLICT)
+            .findFirst()
+            .map(item -> item.status + " " + item.error)
+            .orElse(null);
+    }
+
+    private void swapAlias(String alias, String targetIndex) throws IOException {
+        JestResult aliases = jestClient.execute(new GetAliases.Builder().build());
+        if (!aliases.isSucceeded()) {
+            throw new IOException("Could not read the aliases: " + aliases.getErrorMessage());
+        }
+        List<String> previousIndexes = new ArrayList<>();
+        for (Map.Entry<String, JsonElement> index : aliases.getJsonObject().entrySet()) {
+            JsonObject indexAliases = index.getValue().getAsJsonObject().getAsJsonObject("aliases");
+            if (indexAliases != null && indexAliases.has(alias) && !index.getKey().equals(targetIndex)) {
+                previousIndexes.add(index.getKey());
+            }
+        }
+        if (previousIndexes.isEmpty() && elasticsearchOperations.indexExists(alias)) {
+            // The index was created under the alias name, which has to be freed for the alias: only happens once.
+            log.warn("Deleting index {} to replace it by an alias to {}", alias, targetIndex);
+            elasticsearchOperations.deleteIndex(alias);
+        }
+        List<AliasMapping> mappings = new ArrayList<>();
+        if (!previousIndexes.isEmpty()) {
+            mappings.add(new RemoveAliasMapping.Builder(previousIndexes, alias).build());
+        }
+        mappings.add(new AddAliasMapping.Builder(targetIndex, alias).build());
+        JestResult result = jestClient.execute(new ModifyAliases.Builder(mappings).build());
+        if (!result.isSucceeded()) {
+            throw new IOException("Could not move alias " + alias + " to " + targetIndex + ": " + result.getErrorMessage());
+        }
+        previousIndexes.forEach(elasticsearchOperations::deleteIndex);
+    }
+
+    /**
+     * Rows read from the database, serialized for the search index.
+     */
+    private static final class Chunk {
+
+        private final List<Long> ids = new ArrayList<>();
+
+        private final List<String> sources = new ArrayList<>();
+
+        private Long lastId;
+    }
+
+    /**
+     * Tracks the chunks indexed by the workers, which may complete out of order, and saves the id below which every
+     * row is indexed.
+     */
+    private final class Checkpoint {
+
+        private final SearchReindexJob job;
+
+        private final SortedMap<Long, Chunk> pending = new TreeMap<>();
+
+        private final Set<Long> completed = new HashSet<>();
+
+        private volatile Exception failure;
+
+        private Checkpoint(SearchReindexJob job) {
+            this.job = job;
+        }
+
+        private synchronized void submitted(long sequence, Chunk chunk) {
+            pending.put(sequence, chunk);
+        }
+
+        private synchronized void completed(long sequence) {
+            completed.add(sequence);
+            boolean advanced = false;
+            while (!pending.isEmpty() && completed.remove(pending.firstKey())) {
+                Chunk chunk = pending.remove(pending.firstKey());
+                job.setLastId(chunk.lastId);
+                job.setIndexedCount(job.getIndexedCount() + chunk.ids.size());
+                advanced = true;
+            }
+            if (advanced) {
+                save();
+            }
+        }
+
+        private void failed(Exception e) {
+            failure = e;
+        }
+
+        private Exception getFailure() {
+            return failure;
+        }
+
+        private synchronized void finish(SearchReindexStatus status, String error) {
+            job.setStatus(status);
+            job.setLastError(error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+            save();
+        }
+
+        private void save() {
+            job.setUpdatedDate(Instant.now());
+            transactionTemplate.execute(status -> searchReindexJobRepository.save(job));
+        }
+    }
+}
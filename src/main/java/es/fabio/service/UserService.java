@@ -1,26 +1,31 @@
 package es.fabio.service;
 
+import es.fabio.config.ApplicationProperties;
 import es.fabio.config.Constants;
 import es.fabio.domain.Authority;
 import es.fabio.domain.User;
 import es.fabio.repository.AuthorityRepository;
 import es.fabio.repository.UserRepository;
-import es.fabio.repository.search.UserSearchRepository;
 import es.fabio.security.AuthoritiesConstants;
 import es.fabio.security.SecurityUtils;
 import es.fabio.service.dto.UserDTO;
 
 import io.github.jhipster.security.RandomUtil;
+import io.micrometer.core.instrument.MeterRegistry;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.cache.CacheManager;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
@@ -40,18 +45,25 @@ public class UserService {
 
     private final PasswordEncoder passwordEncoder;
 
-    private final UserSearchRepository userSearchRepository;
+    private final SearchOutboxService searchOutboxService;
 
     private final AuthorityRepository authorityRepository;
 
     private final CacheManager cacheManager;
 
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, UserSearchRepository userSearchRepository, AuthorityRepository authorityRepository, CacheManager cacheManager) {
+    private final TransactionTemplate transactionTemplate;
+
+    private final ChunkedPurge notActivatedUsersPurge;
+
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, SearchOutboxService searchOutboxService, AuthorityRepository authorityRepository, CacheManager cacheManager,
+                       ApplicationProperties applicationProperties, PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
-        this.userSearchRepository = userSearchRepository;
+        this.searchOutboxService = searchOutboxService;
         this.authorityRepository = authorityRepository;
         this.cacheManager = cacheManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.notActivatedUsersPurge = new ChunkedPurge("not-activated-users", applicationProperties.getPurge(), transactionTemplate, meterRegistry);
     }
 
     public Optional<User> activateRegistration(String key) {
@@ -61,7 +73,7 @@ public class UserService {
                 // activate given user for the registration key.
                 user.setActivated(true);
                 user.setActivationKey(null);
-                userSearchRepository.save(user);
+                searchOutboxService.index(User.class, user.getId());
                 this.clearUserCaches(user);
                 log.debug("Activated user: {}", user);
                 return user;
@@ -125,7 +137,7 @@ public class UserService {
         authorityRepository.findById(AuthoritiesConstants.USER).ifPresent(authorities::add);
         newUser.setAuthorities(authorities);
         userRepository.save(newUser);
-        userSearchRepository.save(newUser);
+        searchOutboxService.index(User.class, newUser.getId());
         this.clearUserCaches(newUser);
         log.debug("Created Information for User: {}", newUser);
         return newUser;
@@ -137,6 +149,7 @@ public class UserService {
         }
         userRepository.delete(existingUser);
         userRepository.flush();
+        searchOutboxService.delete(User.class, existingUser.getId());
         this.clearUserCaches(existingUser);
         return true;
     }
@@ -169,7 +182,7 @@ public class UserService {
             user.setAuthorities(authorities);
         }
         userRepository.save(user);
-        userSearchRepository.save(user);
+        searchOutboxService.index(User.class, user.getId());
         this.clearUserCaches(user);
         log.debug("Created Information for User: {}", user);
         return user;
@@ -204,7 +217,7 @@ public class UserService {
                     .filter(Optional::isPresent)
                     .map(Optional::get)
                     .forEach(managedAuthorities::add);
-                userSearchRepository.save(user);
+                searchOutboxService.index(User.class, user.getId());
                 this.clearUserCaches(user);
                 log.debug("Changed Information for User: {}", user);
                 return user;
@@ -215,7 +228,7 @@ public class UserService {
     public void deleteUser(String login) {
         userRepository.findOneByLogin(login).ifPresent(user -> {
             userRepository.delete(user);
-            userSearchRepository.delete(user);
+            searchOutboxService.delete(User.class, user.getId());
             this.clearUserCaches(user);
             log.debug("Deleted User: {}", user);
         });
@@ -241,7 +254,7 @@ public class UserService {
                 }
                 user.setLangKey(langKey);
                 user.setImageUrl(imageUrl);
-                userSearchRepository.save(user);
+                searchOutboxService.index(User.class, user.getId());
                 this.clearUserCaches(user);
                 log.debug("Changed Information for User: {}", user);
             });
@@ -285,15 +298,25 @@ public class UserService {
      * This is scheduled to get fired everyday, at 01:00 (am).
      */
     @Scheduled(cron = "0 0 1 * * ?")
+    @Transactional(propagation = Propagation.SUPPORTS)
     public void removeNotActivatedUsers() {
-        userRepository
-            .findAllByActivatedIsFalseAndActivationKeyIsNotNullAndCreatedDateBefore(Instant.now().minus(3, ChronoUnit.DAYS))
-            .forEach(user -> {
-                log.debug("Deleting not activated user {}", user.getLogin());
-                userRepository.delete(user);
-                userSearchRepository.delete(user);
-                this.clearUserCaches(user);
-            });
+        Instant before = Instant.now().minus(3, ChronoUnit.DAYS);
+        long removed = notActivatedUsersPurge.run(() -> {
+            List<Long> ids = userRepository.findIdsOfNotActivatedUsersCreatedBefore(before, PageRequest.of(0, notActivatedUsersPurge.getChunkSize()));
+            if (ids.isEmpty()) {
+                return 0;
+            }
+            userRepository.deleteAuthoritiesByUserIdIn(ids);
+            int deleted = userRepository.deleteByIdIn(ids);
+            // Queued with the chunk: the indexer removes them from Elasticsearch in bulk once it is committed
+            ids.forEach(id -> searchOutboxService.delete(User.class, id));
+            return deleted;
+        });
+        if (removed > 0) {
+            Objects.requireNonNull(cacheManager.getCache(UserRepository.USERS_BY_LOGIN_CACHE)).clear();
+            Objects.requireNonNull(cacheManager.getCache(UserRepository.USERS_BY_EMAIL_CACHE)).clear();
+        }
+        log.info("Deleted {} not activated users created before {}", removed, before);
     }
 
     /**
@@ -0,0 +1,77 @@
+package es.fabio.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of one item of a bulk save: the saved entity, or why it could not be saved.
+ *
+ * @param <T> the type of the saved DTO.
+ */
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class BulkItemResult<T> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * What happened to the item.
+     */
+    public enum Status {
+        CREATED, UPDATED, FAILED
+    }
+
+    private final int index;
+
+    private final Status status;
+
+    private final T item;
+
+    private final List<String> errors;
+
+    private BulkItemResult(int index, Status status, T item, List<String> errors) {
+        this.index = index;
+        this.status = status;
+        this.item = item;
+        this.errors = errors;
+    }
+
+    public static <T> BulkItemResult<T> saved(int index, boolean created, T item) {
+        return new BulkItemResult<>(index, created ? Status.CREATED : Status.UPDATED, item, Collections.emptyList());
+    }
+
+    public static <T> BulkItemResult<T> failed(int index, List<String> errors) {
+        return new BulkItemResult<>(index, Status.FAILED, null, errors);
+    }
+
+    /**
+     * @return the position of the item in the request, starting at 0.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public T getItem() {
+        return item;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "BulkItemResult{" +
+            "index=" + getIndex() +
+            ", status='" + getStatus() + "'" +
+            ", errors=" + getErrors() +
+            "}";
+    }
+}
@@ -11,6 +11,7 @@ import io.github.jhipster.service.filter.FloatFilter;
 import io.github.jhipster.service.filter.IntegerFilter;
 import io.github.jhipster.service.filter.LongFilter;
 import io.github.jhipster.service.filter.StringFilter;
+import io.github.jhipster.service.filter.BigDecimalFilter;
 
 /**
  * Criteria class for the {@link es.fabio.domain.Customer} entity. This class is used
@@ -63,6 +64,10 @@ public class CustomerCriteria implements Serializable, Criteria {
 
     private StringFilter country;
 
+    private IntegerFilter orderCount;
+
+    private BigDecimalFilter totalSpent;
+
     private LongFilter userId;
 
     private LongFilter orderId;
@@ -81,6 +86,8 @@ public class CustomerCriteria implements Serializable, Criteria {
         this.addressLine2 = other.addressLine2 == null ? null : other.addressLine2.copy();
         this.city = other.city == null ? null : other.city.copy();
         this.country = other.country == null ? null : other.country.copy();
+        this.orderCount = other.orderCount == null ? null : other.orderCount.copy();
+        this.totalSpent = other.totalSpent == null ? null : other.totalSpent.copy();
         this.userId = other.userId == null ? null : other.userId.copy();
         this.orderId = other.orderId == null ? null : other.orderId.copy();
     }
@@ -170,6 +177,22 @@ public class CustomerCriteria implements Serializable, Criteria {
         this.country = country;
     }
 
+    public IntegerFilter getOrderCount() {
+        return orderCount;
+    }
+
+    public void setOrderCount(IntegerFilter orderCount) {
+        this.orderCount = orderCount;
+    }
+
+    public BigDecimalFilter getTotalSpent() {
+        return totalSpent;
+    }
+
+    public void setTotalSpent(BigDecimalFilter totalSpent) {
+        this.totalSpent = totalSpent;
+    }
+
     public LongFilter getUserId() {
         return userId;
     }
@@ -207,6 +230,8 @@ public class CustomerCriteria implements Serializable, Criteria {
             Objects.equals(addressLine2, that.addressLine2) &&
             Objects.equals(city, that.city) &&
             Objects.equals(country, that.country) &&
+            Objects.equals(orderCount, that.orderCount) &&
+            Objects.equals(totalSpent, that.totalSpent) &&
             Objects.equals(userId, that.userId) &&
             Objects.equals(orderId, that.orderId);
     }
@@ -224,6 +249,8 @@ public class CustomerCriteria implements Serializable, Criteria {
         addressLine2,
         city,
         country,
+        orderCount,
+        totalSpent,
         userId,
         orderId
         );
@@ -243,6 +270,8 @@ public class CustomerCriteria implements Serializable, Criteria {
                 (addressLine2 != null ? "addressLine2=" + addressLine2 + ", " : "") +
                 (city != null ? "city=" + city + ", " : "") +
                 (country != null ? "country=" + country + ", " : "") +
+                (orderCount != null ? "orderCount=" + orderCount + ", " : "") +
+                (totalSpent != null ? "totalSpent=" + totalSpent + ", " : "") +
                 (userId != null ? "userId=" + userId + ", " : "") +
                 (orderId != null ? "orderId=" + orderId + ", " : "") +
             "}";
@@ -1,16 +1,24 @@
 package es.fabio.service.dto;
 
+import es.fabio.domain.Versioned;
+
 import javax.validation.constraints.*;
 import java.io.Serializable;
+import java.time.Instant;
+import java.math.BigDecimal;
 import es.fabio.domain.enumeration.Gender;
 
 /**
  * A DTO for the {@link es.fabio.domain.Customer} entity.
  */
-public class CustomerDTO implements Serializable {
+public class CustomerDTO implements Serializable, Versioned {
     
     private Long id;
 
+    private Long version;
+
+    private Instant lastModifiedDate;
+
     @NotNull
     private String firstName;
 
@@ -38,6 +46,16 @@ public class CustomerDTO implements Serializable {
     @NotNull
     private String country;
 
+    /**
+     * Number of orders, read-only.
+     */
+    private Integer orderCount;
+
+    /**
+     * Sum of the totals of the orders, read-only.
+     */
+    private BigDecimal totalSpent;
+
 
     private Long userId;
 
@@ -51,6 +69,25 @@ public class CustomerDTO implements Serializable {
         this.id = id;
     }
 
+    @Override
+    public Long getVersion() {
+        return version;
+    }
+
+    @Override
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    @Override
+    public Instant getLastModifiedDate() {
+        return lastModifiedDate;
+    }
+
+    public void setLastModifiedDate(Instant lastModifiedDate) {
+        this.lastModifiedDate = lastModifiedDate;
+    }
+
     public String getFirstName() {
         return firstName;
     }
@@ -123,6 +160,22 @@ public class CustomerDTO implements Serializable {
         this.country = country;
     }
 
+    public Integer getOrderCount() {
+        return orderCount;
+    }
+
+    public void setOrderCount(Integer orderCount) {
+        this.orderCount = orderCount;
+    }
+
+    public BigDecimal getTotalSpent() {
+        return totalSpent;
+    }
+
+    public void setTotalSpent(BigDecimal totalSpent) {
+        this.totalSpent = totalSpent;
+    }
+
     public Long getUserId() {
         return userId;
     }
@@ -170,8 +223,11 @@ public class CustomerDTO implements Serializable {
             ", addressLine2='" + getAddressLine2() + "'" +
             ", city='" + getCity() + "'" +
             ", country='" + getCountry() + "'" +
+            ", orderCount=" + getOrderCount() +
+            ", totalSpent=" + getTotalSpent() +
             ", userId=" + getUserId() +
             ", userLogin='" + getUserLogin() + "'" +
+            ", version=" + getVersion() +
             "}";
     }
 }
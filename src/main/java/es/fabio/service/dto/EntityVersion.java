@@ -0,0 +1,61 @@
+package es.fabio.service.dto;
+
+import es.fabio.domain.Versioned;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * The version of an entity, without its state, and its entity tag, see {@link es.fabio.service.EntityVersionService}.
+ */
+public class EntityVersion implements Serializable, Versioned {
+
+    private static final long serialVersionUID = 1L;
+
+    private Long version;
+
+    private Instant lastModifiedDate;
+
+    private String tag;
+
+    public EntityVersion(Long version, Instant lastModifiedDate, String tag) {
+        this.version = version;
+        this.lastModifiedDate = lastModifiedDate;
+        this.tag = tag;
+    }
+
+    @Override
+    public Long getVersion() {
+        return version;
+    }
+
+    @Override
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    /**
+     * @return the last modification of the entity or of an entity its DTO holds a label of, whichever is the latest.
+     */
+    @Override
+    public Instant getLastModifiedDate() {
+        return lastModifiedDate;
+    }
+
+    /**
+     * @return the version of the entity, followed by the versions of the entities its DTO holds a label of.
+     */
+    public String getTag() {
+        return tag;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "EntityVersion{" +
+            "version=" + version +
+            ", lastModifiedDate='" + lastModifiedDate + "'" +
+            ", tag='" + tag + "'" +
+            "}";
+    }
+}
@@ -0,0 +1,66 @@
+package es.fabio.service.dto;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * A bucket of a search facet: the key of a value or range, and the number of documents in it.
+ */
+public class FacetBucketDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String key;
+
+    private long count;
+
+    public FacetBucketDTO() {
+    }
+
+    public FacetBucketDTO(String key, long count) {
+        this.key = key;
+        this.count = count;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FacetBucketDTO)) {
+            return false;
+        }
+        FacetBucketDTO that = (FacetBucketDTO) o;
+        return count == that.count && Objects.equals(key, that.key);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(key, count);
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "FacetBucketDTO{" +
+            "key='" + key + "'" +
+            ", count=" + count +
+            "}";
+    }
+}
@@ -0,0 +1,166 @@
+package es.fabio.service.dto;
+
+import es.fabio.service.InvalidCursorException;
+
+import org.springframework.data.domain.Sort;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Objects;
+
+/**
+ * An opaque position in a keyset (seek) paginated listing.
+ * <p>
+ * A cursor carries the sort property and direction it was created with, plus the sort key and id
+ * of the last row already returned, so the next page can be fetched with
+ * {@code WHERE (key, id) > (:key, :id)} instead of an {@code OFFSET}.
+ * A cursor without a position denotes the first page.
+ */
+public final class KeysetCursor implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String ID_PROPERTY = "id";
+
+    private static final char SEPARATOR = '\n';
+
+    private final String property;
+
+    private final Sort.Direction direction;
+
+    private final Long id;
+
+    private final String value;
+
+    private KeysetCursor(String property, Sort.Direction direction, Long id, String value) {
+        this.property = property;
+        this.direction = direction;
+        this.id = id;
+        this.value = value;
+    }
+
+    /**
+     * Create the cursor of the first page for the given sort, defaulting to ascending id order.
+     * Only the first order of the sort is used, the id is always the tie-breaker.
+     *
+     * @param sort the requested sort.
+     * @return the cursor of the first page.
+     */
+    public static KeysetCursor first(Sort sort) {
+        Iterator<Sort.Order> orders = sort.iterator();
+        if (!orders.hasNext()) {
+            return new KeysetCursor(ID_PROPERTY, Sort.Direction.ASC, null, null);
+        }
+        Sort.Order order = orders.next();
+        return new KeysetCursor(order.getProperty(), order.getDirection(), null, null);
+    }
+
+    /**
+     * Create the cursor positioned right after the given row.
+     *
+     * @param id the id of the last returned row.
+     * @param value the sort key of the last returned row, as a string.
+     * @return the cursor of the next page.
+     */
+    public KeysetCursor after(Long id, String value) {
+        return new KeysetCursor(property, direction, id, value);
+    }
+
+    /**
+     * Decode a cursor previously produced by {@link #encode()}.
+     *
+     * @param token the opaque cursor.
+     * @return the decoded cursor.
+     * @throws InvalidCursorException if the token is not a valid cursor.
+     */
+    public static KeysetCursor decode(String token) {
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Invalid pagination cursor: " + token);
+        }
+        int first = decoded.indexOf(SEPARATOR);
+        int second = first < 0 ? -1 : decoded.indexOf(SEPARATOR, first + 1);
+        int third = second < 0 ? -1 : decoded.indexOf(SEPARATOR, second + 1);
+        if (third < 0) {
+            throw new InvalidCursorException("Invalid pagination cursor: " + token);
+        }
+        try {
+            return new KeysetCursor(
+                decoded.substring(0, first),
+                Sort.Direction.fromString(decoded.substring(first + 1, second)),
+                Long.valueOf(decoded.substring(second + 1, third)),
+                decoded.substring(third + 1));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Invalid pagination cursor: " + token);
+        }
+    }
+
+    /**
+     * Encode this cursor as an opaque, URL safe token.
+     *
+     * @return the token.
+     */
+    public String encode() {
+        String raw = property + SEPARATOR + direction + SEPARATOR + id + SEPARATOR + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public Sort.Direction getDirection() {
+        return direction;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public boolean isFirst() {
+        return id == null;
+    }
+
+    public boolean isIdOnly() {
+        return ID_PROPERTY.equals(property);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        KeysetCursor that = (KeysetCursor) o;
+        return Objects.equals(property, that.property) &&
+            direction == that.direction &&
+            Objects.equals(id, that.id) &&
+            Objects.equals(value, that.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(property, direction, id, value);
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "KeysetCursor{" +
+            "property='" + property + "'" +
+            ", direction=" + direction +
+            ", id=" + id +
+            ", value='" + value + "'" +
+            "}";
+    }
+}
@@ -1,17 +1,24 @@
 package es.fabio.service.dto;
 
+import es.fabio.domain.Versioned;
+
 import javax.validation.constraints.*;
 import java.io.Serializable;
+import java.time.Instant;
 import java.math.BigDecimal;
 import es.fabio.domain.enumeration.OrderItemStatus;
 
 /**
  * A DTO for the {@link es.fabio.domain.OrderItem} entity.
  */
-public class OrderItemDTO implements Serializable {
+public class OrderItemDTO implements Serializable, Versioned {
     
     private Long id;
 
+    private Long version;
+
+    private Instant lastModifiedDate;
+
     @NotNull
     @Min(value = 0)
     private Integer quantity;
@@ -40,6 +47,25 @@ public class OrderItemDTO implements Serializable {
         this.id = id;
     }
 
+    @Override
+    public Long getVersion() {
+        return version;
+    }
+
+    @Override
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    @Override
+    public Instant getLastModifiedDate() {
+        return lastModifiedDate;
+    }
+
+    public void setLastModifiedDate(Instant lastModifiedDate) {
+        this.lastModifiedDate = lastModifiedDate;
+    }
+
     public Integer getQuantity() {
         return quantity;
     }
@@ -125,6 +151,7 @@ public class OrderItemDTO implements Serializable {
             ", productoName='" + getProductoName() + "'" +
             ", orderId=" + getOrderId() +
             ", orderCode='" + getOrderCode() + "'" +
+            ", version=" + getVersion() +
             "}";
     }
 }
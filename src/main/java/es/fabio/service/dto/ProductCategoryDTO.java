@@ -1,15 +1,22 @@
 package es.fabio.service.dto;
 
+import es.fabio.domain.Versioned;
+
 import javax.validation.constraints.*;
 import java.io.Serializable;
+import java.time.Instant;
 
 /**
  * A DTO for the {@link es.fabio.domain.ProductCategory} entity.
  */
-public class ProductCategoryDTO implements Serializable {
+public class ProductCategoryDTO implements Serializable, Versioned {
     
     private Long id;
 
+    private Long version;
+
+    private Instant lastModifiedDate;
+
     @NotNull
     private String name;
 
@@ -24,6 +31,25 @@ public class ProductCategoryDTO implements Serializable {
         this.id = id;
     }
 
+    @Override
+    public Long getVersion() {
+        return version;
+    }
+
+    @Override
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    @Override
+    public Instant getLastModifiedDate() {
+        return lastModifiedDate;
+    }
+
+    public void setLastModifiedDate(Instant lastModifiedDate) {
+        this.lastModifiedDate = lastModifiedDate;
+    }
+
     public String getName() {
         return name;
     }
@@ -64,6 +90,7 @@ public class ProductCategoryDTO implements Serializable {
             "id=" + getId() +
             ", name='" + getName() + "'" +
             ", description='" + getDescription() + "'" +
+            ", version=" + getVersion() +
             "}";
     }
 }
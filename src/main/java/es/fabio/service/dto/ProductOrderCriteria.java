@@ -11,6 +11,7 @@ import io.github.jhipster.service.filter.FloatFilter;
 import io.github.jhipster.service.filter.IntegerFilter;
 import io.github.jhipster.service.filter.LongFilter;
 import io.github.jhipster.service.filter.StringFilter;
+import io.github.jhipster.service.filter.BigDecimalFilter;
 import io.github.jhipster.service.filter.InstantFilter;
 
 /**
@@ -54,6 +55,10 @@ public class ProductOrderCriteria implements Serializable, Criteria {
 
     private LongFilter invoiceId;
 
+    private BigDecimalFilter total;
+
+    private IntegerFilter itemCount;
+
     private LongFilter orderItemId;
 
     private LongFilter customerId;
@@ -67,6 +72,8 @@ public class ProductOrderCriteria implements Serializable, Criteria {
         this.status = other.status == null ? null : other.status.copy();
         this.code = other.code == null ? null : other.code.copy();
         this.invoiceId = other.invoiceId == null ? null : other.invoiceId.copy();
+        this.total = other.total == null ? null : other.total.copy();
+        this.itemCount = other.itemCount == null ? null : other.itemCount.copy();
         this.orderItemId = other.orderItemId == null ? null : other.orderItemId.copy();
         this.customerId = other.customerId == null ? null : other.customerId.copy();
     }
@@ -116,6 +123,22 @@ public class ProductOrderCriteria implements Serializable, Criteria {
         this.invoiceId = invoiceId;
     }
 
+    public BigDecimalFilter getTotal() {
+        return total;
+    }
+
+    public void setTotal(BigDecimalFilter total) {
+        this.total = total;
+    }
+
+    public IntegerFilter getItemCount() {
+        return itemCount;
+    }
+
+    public void setItemCount(IntegerFilter itemCount) {
+        this.itemCount = itemCount;
+    }
+
     public LongFilter getOrderItemId() {
         return orderItemId;
     }
@@ -148,6 +171,8 @@ public class ProductOrderCriteria implements Serializable, Criteria {
             Objects.equals(status, that.status) &&
             Objects.equals(code, that.code) &&
             Objects.equals(invoiceId, that.invoiceId) &&
+            Objects.equals(total, that.total) &&
+            Objects.equals(itemCount, that.itemCount) &&
             Objects.equals(orderItemId, that.orderItemId) &&
             Objects.equals(customerId, that.customerId);
     }
@@ -160,6 +185,8 @@ public class ProductOrderCriteria implements Serializable, Criteria {
         status,
         code,
         invoiceId,
+        total,
+        itemCount,
         orderItemId,
         customerId
         );
@@ -174,6 +201,8 @@ public class ProductOrderCriteria implements Serializable, Criteria {
                 (status != null ? "status=" + status + ", " : "") +
                 (code != null ? "code=" + code + ", " : "") +
                 (invoiceId != null ? "invoiceId=" + invoiceId + ", " : "") +
+                (total != null ? "total=" + total + ", " : "") +
+                (itemCount != null ? "itemCount=" + itemCount + ", " : "") +
                 (orderItemId != null ? "orderItemId=" + orderItemId + ", " : "") +
                 (customerId != null ? "customerId=" + customerId + ", " : "") +
             "}";
@@ -1,17 +1,24 @@
 package es.fabio.service.dto;
 
+import es.fabio.domain.Versioned;
+
 import java.time.Instant;
 import javax.validation.constraints.*;
 import java.io.Serializable;
+import java.math.BigDecimal;
 import es.fabio.domain.enumeration.OrderStatus;
 
 /**
  * A DTO for the {@link es.fabio.domain.ProductOrder} entity.
  */
-public class ProductOrderDTO implements Serializable {
+public class ProductOrderDTO implements Serializable, Versioned {
     
     private Long id;
 
+    private Long version;
+
+    private Instant lastModifiedDate;
+
     @NotNull
     private Instant placedDate;
 
@@ -23,6 +30,16 @@ public class ProductOrderDTO implements Serializable {
 
     private Long invoiceId;
 
+    /**
+     * Sum of the total prices of the order items, read-only.
+     */
+    private BigDecimal total;
+
+    /**
+     * Number of order items, read-only.
+     */
+    private Integer itemCount;
+
 
     private Long customerId;
 
@@ -36,6 +53,25 @@ public class ProductOrderDTO implements Serializable {
         this.id = id;
     }
 
+    @Override
+    public Long getVersion() {
+        return version;
+    }
+
+    @Override
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    @Override
+    public Instant getLastModifiedDate() {
+        return lastModifiedDate;
+    }
+
+    public void setLastModifiedDate(Instant lastModifiedDate) {
+        this.lastModifiedDate = lastModifiedDate;
+    }
+
     public Instant getPlacedDate() {
         return placedDate;
     }
@@ -68,6 +104,22 @@ public class ProductOrderDTO implements Serializable {
         this.invoiceId = invoiceId;
     }
 
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    public void setTotal(BigDecimal total) {
+        this.total = total;
+    }
+
+    public Integer getItemCount() {
+        return itemCount;
+    }
+
+    public void setItemCount(Integer itemCount) {
+        this.itemCount = itemCount;
+    }
+
     public Long getCustomerId() {
         return customerId;
     }
@@ -110,8 +162,11 @@ public class ProductOrderDTO implements Serializable {
             ", status='" + getStatus() + "'" +
             ", code='" + getCode() + "'" +
             ", invoiceId=" + getInvoiceId() +
+            ", total=" + getTotal() +
+            ", itemCount=" + getItemCount() +
             ", customerId=" + getCustomerId() +
             ", customerEmail='" + getCustomerEmail() + "'" +
+            ", version=" + getVersion() +
             "}";
     }
 }
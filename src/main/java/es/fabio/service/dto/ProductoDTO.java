@@ -1,18 +1,28 @@
 package es.fabio.service.dto;
 
+import es.fabio.domain.Versioned;
+
 import javax.validation.constraints.*;
 import java.io.Serializable;
+import java.time.Instant;
 import java.math.BigDecimal;
 import javax.persistence.Lob;
 import es.fabio.domain.enumeration.Size;
 
 /**
  * A DTO for the {@link es.fabio.domain.Producto} entity.
+ * <p>
+ * The image bytes are only carried when creating or updating a producto and when reading a single one,
+ * listings and searches only carry the {@link #getImageUrl() image URL}.
  */
-public class ProductoDTO implements Serializable {
+public class ProductoDTO implements Serializable, Versioned {
     
     private Long id;
 
+    private Long version;
+
+    private Instant lastModifiedDate;
+
     @NotNull
     private String name;
 
@@ -30,6 +40,8 @@ public class ProductoDTO implements Serializable {
 
     private String imageContentType;
 
+    private String imageUrl;
+
     private Long productCategoryId;
 
     private String productCategoryName;
@@ -42,6 +54,25 @@ public class ProductoDTO implements Serializable {
         this.id = id;
     }
 
+    @Override
+    public Long getVersion() {
+        return version;
+    }
+
+    @Override
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    @Override
+    public Instant getLastModifiedDate() {
+        return lastModifiedDate;
+    }
+
+    public void setLastModifiedDate(Instant lastModifiedDate) {
+        this.lastModifiedDate = lastModifiedDate;
+    }
+
     public String getName() {
         return name;
     }
@@ -90,6 +121,17 @@ public class ProductoDTO implements Serializable {
         this.imageContentType = imageContentType;
     }
 
+    /**
+     * @return the versioned URL of the image, or {@code null} if the producto has no image.
+     */
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public void setImageUrl(String imageUrl) {
+        this.imageUrl = imageUrl;
+    }
+
     public Long getProductCategoryId() {
         return productCategoryId;
     }
@@ -133,8 +175,10 @@ public class ProductoDTO implements Serializable {
             ", price=" + getPrice() +
             ", size='" + getSize() + "'" +
             ", image='" + getImage() + "'" +
+            ", imageUrl='" + getImageUrl() + "'" +
             ", productCategoryId=" + getProductCategoryId() +
             ", productCategoryName='" + getProductCategoryName() + "'" +
+            ", version=" + getVersion() +
             "}";
     }
 }
@@ -0,0 +1,48 @@
+package es.fabio.service.dto;
+
+import java.io.Serializable;
+
+/**
+ * A DTO for the image of a {@link es.fabio.domain.Producto}, as served by the image endpoint.
+ */
+public class ProductoImageDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String contentType;
+
+    private final String etag;
+
+    private final byte[] data;
+
+    public ProductoImageDTO(String contentType, String etag, byte[] data) {
+        this.contentType = contentType;
+        this.etag = etag;
+        this.data = data;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @return the hash of the image bytes, used as strong ETag.
+     */
+    public String getEtag() {
+        return etag;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "ProductoImageDTO{" +
+            "contentType='" + getContentType() + "'" +
+            ", etag='" + getEtag() + "'" +
+            ", size=" + (data == null ? 0 : data.length) +
+            "}";
+    }
+}
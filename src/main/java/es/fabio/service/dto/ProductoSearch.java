@@ -0,0 +1,118 @@
+package es.fabio.service.dto;
+
+import es.fabio.domain.enumeration.Size;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A typed search of the productos, see {@link es.fabio.service.ProductoService#search(ProductoSearch, org.springframework.data.domain.Pageable)}.
+ * <p>
+ * The text is matched against the name and the description of the productos, the other fields filter the matches
+ * without changing their relevance. Empty fields do not filter.
+ */
+public class ProductoSearch implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String text;
+
+    private List<Long> productCategoryIds = new ArrayList<>();
+
+    private Set<Size> sizes = EnumSet.noneOf(Size.class);
+
+    private BigDecimal minPrice;
+
+    private BigDecimal maxPrice;
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    /**
+     * @return the categories the productos belong to any of.
+     */
+    public List<Long> getProductCategoryIds() {
+        return productCategoryIds;
+    }
+
+    public void setProductCategoryIds(List<Long> productCategoryIds) {
+        this.productCategoryIds = productCategoryIds;
+    }
+
+    /**
+     * @return the sizes the productos have any of.
+     */
+    public Set<Size> getSizes() {
+        return sizes;
+    }
+
+    public void setSizes(Set<Size> sizes) {
+        this.sizes = sizes;
+    }
+
+    public BigDecimal getMinPrice() {
+        return minPrice;
+    }
+
+    public void setMinPrice(BigDecimal minPrice) {
+        this.minPrice = minPrice;
+    }
+
+    public BigDecimal getMaxPrice() {
+        return maxPrice;
+    }
+
+    public void setMaxPrice(BigDecimal maxPrice) {
+        this.maxPrice = maxPrice;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final ProductoSearch that = (ProductoSearch) o;
+        return
+            Objects.equals(text, that.text) &&
+            Objects.equals(productCategoryIds, that.productCategoryIds) &&
+            Objects.equals(sizes, that.sizes) &&
+            Objects.equals(minPrice, that.minPrice) &&
+            Objects.equals(maxPrice, that.maxPrice);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(
+        text,
+        productCategoryIds,
+        sizes,
+        minPrice,
+        maxPrice
+        );
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "ProductoSearch{" +
+            "text='" + text + "'" +
+            ", productCategoryIds=" + productCategoryIds +
+            ", sizes=" + sizes +
+            ", minPrice=" + minPrice +
+            ", maxPrice=" + maxPrice +
+            "}";
+    }
+}
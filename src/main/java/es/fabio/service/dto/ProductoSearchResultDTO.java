@@ -0,0 +1,58 @@
+package es.fabio.service.dto;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A page of a faceted search of the productos, see {@link ProductoSearch}.
+ * <p>
+ * The facets are {@code productCategory}, keyed by category id, {@code size} and {@code price}, keyed by price band
+ * such as {@code "10-25"}. Each counts the productos matching the search without its own filter.
+ */
+public class ProductoSearchResultDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private List<ProductoDTO> content = new ArrayList<>();
+
+    private long totalCount;
+
+    private Map<String, List<FacetBucketDTO>> facets = new LinkedHashMap<>();
+
+    public List<ProductoDTO> getContent() {
+        return content;
+    }
+
+    public void setContent(List<ProductoDTO> content) {
+        this.content = content;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public void setTotalCount(long totalCount) {
+        this.totalCount = totalCount;
+    }
+
+    public Map<String, List<FacetBucketDTO>> getFacets() {
+        return facets;
+    }
+
+    public void setFacets(Map<String, List<FacetBucketDTO>> facets) {
+        this.facets = facets;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "ProductoSearchResultDTO{" +
+            "content=" + content.size() + " productos" +
+            ", totalCount=" + totalCount +
+            ", facets=" + facets +
+            "}";
+    }
+}
@@ -0,0 +1,57 @@
+package es.fabio.service.dto;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The execution plan of the SQL of a criteria query, see {@link es.fabio.service.QueryPlanAdvisor}.
+ */
+public class QueryPlanDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String name;
+
+    private final String sql;
+
+    private final String plan;
+
+    private final List<String> scannedTables;
+
+    public QueryPlanDTO(String name, String sql, String plan, List<String> scannedTables) {
+        this.name = name;
+        this.sql = sql;
+        this.plan = plan;
+        this.scannedTables = Collections.unmodifiableList(scannedTables);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public String getPlan() {
+        return plan;
+    }
+
+    /**
+     * @return the tables the plan reads by a full scan, empty if every table is read through an index.
+     */
+    public List<String> getScannedTables() {
+        return scannedTables;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "QueryPlanDTO{" +
+            "name='" + name + "'" +
+            ", scannedTables=" + scannedTables +
+            ", plan='" + plan + "'" +
+            "}";
+    }
+}
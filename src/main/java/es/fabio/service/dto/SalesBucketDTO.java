@@ -0,0 +1,85 @@
+package es.fabio.service.dto;
+
+import es.fabio.domain.enumeration.OrderStatus;
+import es.fabio.domain.enumeration.Size;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * The sales of a time bucket, see {@link es.fabio.service.SalesAnalyticsService}.
+ * <p>
+ * The dimensions the query is not grouped by are {@code null}.
+ */
+public class SalesBucketDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Instant bucketStart;
+
+    private final Long productCategoryId;
+
+    private final Size size;
+
+    private final OrderStatus orderStatus;
+
+    private final BigDecimal revenue;
+
+    private final long units;
+
+    private final long itemCount;
+
+    public SalesBucketDTO(Instant bucketStart, Long productCategoryId, Size size, OrderStatus orderStatus, BigDecimal revenue,
+                          long units, long itemCount) {
+        this.bucketStart = bucketStart;
+        this.productCategoryId = productCategoryId;
+        this.size = size;
+        this.orderStatus = orderStatus;
+        this.revenue = revenue;
+        this.units = units;
+        this.itemCount = itemCount;
+    }
+
+    public Instant getBucketStart() {
+        return bucketStart;
+    }
+
+    public Long getProductCategoryId() {
+        return productCategoryId;
+    }
+
+    public Size getSize() {
+        return size;
+    }
+
+    public OrderStatus getOrderStatus() {
+        return orderStatus;
+    }
+
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+
+    public long getUnits() {
+        return units;
+    }
+
+    public long getItemCount() {
+        return itemCount;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "SalesBucketDTO{" +
+            "bucketStart='" + bucketStart + "'" +
+            ", productCategoryId=" + productCategoryId +
+            ", size='" + size + "'" +
+            ", orderStatus='" + orderStatus + "'" +
+            ", revenue=" + revenue +
+            ", units=" + units +
+            ", itemCount=" + itemCount +
+            "}";
+    }
+}
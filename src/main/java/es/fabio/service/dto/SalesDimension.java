@@ -0,0 +1,8 @@
+package es.fabio.service.dto;
+
+/**
+ * A dimension the sales can be grouped by, see {@link SalesQuery#getGroupBy()}.
+ */
+public enum SalesDimension {
+    CATEGORY, SIZE, STATUS
+}
@@ -0,0 +1,109 @@
+package es.fabio.service.dto;
+
+import es.fabio.domain.enumeration.OrderStatus;
+import es.fabio.domain.enumeration.SalesGranularity;
+import es.fabio.domain.enumeration.Size;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * A range query over the sales rollups, see {@link es.fabio.service.SalesAnalyticsService}.
+ * <p>
+ * The range {@code [from, to)} is widened to whole buckets of the granularity. Hourly buckets are only kept for
+ * {@code application.sales-analytics.hourly-retention-days}, older sales are only available by day and an hourly
+ * range starting before is rejected.
+ */
+public class SalesQuery implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Instant from;
+
+    private Instant to;
+
+    private SalesGranularity granularity = SalesGranularity.DAY;
+
+    private Set<SalesDimension> groupBy = EnumSet.noneOf(SalesDimension.class);
+
+    private Long productCategoryId;
+
+    private Size size;
+
+    private OrderStatus orderStatus;
+
+    public Instant getFrom() {
+        return from;
+    }
+
+    public void setFrom(Instant from) {
+        this.from = from;
+    }
+
+    public Instant getTo() {
+        return to;
+    }
+
+    public void setTo(Instant to) {
+        this.to = to;
+    }
+
+    public SalesGranularity getGranularity() {
+        return granularity;
+    }
+
+    public void setGranularity(SalesGranularity granularity) {
+        this.granularity = granularity;
+    }
+
+    /**
+     * @return the dimensions the sales are split by in each bucket, the others are summed over.
+     */
+    public Set<SalesDimension> getGroupBy() {
+        return groupBy;
+    }
+
+    public void setGroupBy(Set<SalesDimension> groupBy) {
+        this.groupBy = groupBy;
+    }
+
+    public Long getProductCategoryId() {
+        return productCategoryId;
+    }
+
+    public void setProductCategoryId(Long productCategoryId) {
+        this.productCategoryId = productCategoryId;
+    }
+
+    public Size getSize() {
+        return size;
+    }
+
+    public void setSize(Size size) {
+        this.size = size;
+    }
+
+    public OrderStatus getOrderStatus() {
+        return orderStatus;
+    }
+
+    public void setOrderStatus(OrderStatus orderStatus) {
+        this.orderStatus = orderStatus;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "SalesQuery{" +
+            "from='" + from + "'" +
+            ", to='" + to + "'" +
+            ", granularity='" + granularity + "'" +
+            ", groupBy=" + groupBy +
+            ", productCategoryId=" + productCategoryId +
+            ", size='" + size + "'" +
+            ", orderStatus='" + orderStatus + "'" +
+            "}";
+    }
+}
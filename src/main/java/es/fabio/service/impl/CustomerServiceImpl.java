@@ -1,20 +1,36 @@
 package es.fabio.service.impl;
 
+import es.fabio.config.ApplicationProperties;
 import es.fabio.service.CustomerService;
+import es.fabio.service.IdNotFoundException;
+import es.fabio.service.SearchAfterPagination;
+import es.fabio.service.SearchOutboxService;
 import es.fabio.domain.Customer;
 import es.fabio.repository.CustomerRepository;
 import es.fabio.repository.search.CustomerSearchRepository;
 import es.fabio.service.dto.CustomerDTO;
+import es.fabio.service.dto.KeysetCursor;
+import es.fabio.service.dto.KeysetSlice;
+import es.fabio.service.dto.SuggestionDTO;
 import es.fabio.service.mapper.CustomerMapper;
 import org.slf4j.Logger;
+import org.elasticsearch.index.query.MultiMatchQueryBuilder;
+import org.elasticsearch.index.query.Operator;
 import org.slf4j.LoggerFactory;
 
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.elasticsearch.index.query.QueryBuilders.*;
 
@@ -25,6 +41,13 @@ import static org.elasticsearch.index.query.QueryBuilders.*;
 @Transactional
 public class CustomerServiceImpl implements CustomerService {
 
+    private static final String[] SUGGESTION_FIELDS = {"id", "firstName", "lastName"};
+
+    /**
+     * The properties the searches after a cursor can be sorted by, as for the keyset listings.
+     */
+    private static final SearchAfterPagination SEARCH_AFTER = new SearchAfterPagination(Customer.class, "firstName", "lastName", "gender", "email", "city", "country", "orderCount", "totalSpent");
+
     private final Logger log = LoggerFactory.getLogger(CustomerServiceImpl.class);
 
     private final CustomerRepository customerRepository;
@@ -33,19 +56,38 @@ public class CustomerServiceImpl implements CustomerService {
 
     private final CustomerSearchRepository customerSearchRepository;
 
-    public CustomerServiceImpl(CustomerRepository customerRepository, CustomerMapper customerMapper, CustomerSearchRepository customerSearchRepository) {
+    private final SearchOutboxService searchOutboxService;
+
+    private final ApplicationProperties.Search searchProperties;
+
+    public CustomerServiceImpl(CustomerRepository customerRepository, CustomerMapper customerMapper, CustomerSearchRepository customerSearchRepository, SearchOutboxService searchOutboxService,
+                               ApplicationProperties applicationProperties) {
         this.customerRepository = customerRepository;
         this.customerMapper = customerMapper;
         this.customerSearchRepository = customerSearchRepository;
+        this.searchOutboxService = searchOutboxService;
+        this.searchProperties = applicationProperties.getSearch();
     }
 
     @Override
     public CustomerDTO save(CustomerDTO customerDTO) {
         log.debug("Request to save Customer : {}", customerDTO);
         Customer customer = customerMapper.toEntity(customerDTO);
-        customer = customerRepository.save(customer);
+        // The order count and total spent are maintained by the OrderAggregateService.
+        Optional<Customer> existing = customer.getId() == null ? Optional.empty() : customerRepository.findById(customer.getId());
+        if (customer.getId() != null && !existing.isPresent()) {
+            throw new IdNotFoundException(Customer.class, customer.getId());
+        }
+        customer.setOrderCount(existing.map(Customer::getOrderCount).orElse(0));
+        customer.setTotalSpent(existing.map(Customer::getTotalSpent).orElse(BigDecimal.ZERO));
+        // An update without version overwrites the current state, the version is checked otherwise.
+        Long version = customer.getVersion();
+        customer.setVersion(existing.map(previous -> version != null ? version : previous.getVersion()).orElse(null));
+        customer.setLastModifiedDate(existing.map(Customer::getLastModifiedDate).orElse(null));
+        // Flushed so that the result has the new version and last modification date.
+        customer = customerRepository.saveAndFlush(customer);
         CustomerDTO result = customerMapper.toDto(customer);
-        customerSearchRepository.save(customer);
+        searchOutboxService.index(Customer.class, customer.getId());
         return result;
     }
 
@@ -70,7 +112,7 @@ public class CustomerServiceImpl implements CustomerService {
     public void delete(Long id) {
         log.debug("Request to delete Customer : {}", id);
         customerRepository.deleteById(id);
-        customerSearchRepository.deleteById(id);
+        searchOutboxService.delete(Customer.class, id);
     }
 
     @Override
@@ -80,4 +122,30 @@ public class CustomerServiceImpl implements CustomerService {
         return customerSearchRepository.search(queryStringQuery(query), pageable)
             .map(customerMapper::toDto);
     }
+
+    // Only reads Elasticsearch: the class transaction would check out a database connection for nothing.
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Cacheable(cacheNames = SUGGESTIONS_CACHE)
+    public List<SuggestionDTO> suggest(String prefix, int size) {
+        log.debug("Request to suggest Customers for prefix {}", prefix);
+        if (!StringUtils.hasText(prefix)) {
+            return new ArrayList<>();
+        }
+        // Each word of the prefix starts the first or the last name, as in "jo sm" for John Smith.
+        return customerSearchRepository.searchTop(multiMatchQuery(prefix, "firstName.autocomplete", "lastName.autocomplete")
+            .type(MultiMatchQueryBuilder.Type.CROSS_FIELDS)
+            .operator(Operator.AND), SUGGESTION_FIELDS, Math.max(1, Math.min(size, searchProperties.getMaxSuggestions())))
+            .stream()
+            .map(customer -> new SuggestionDTO(customer.getId(), customer.getFirstName() + " " + customer.getLastName()))
+            .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public KeysetSlice<CustomerDTO> search(String query, KeysetCursor cursor, int size) {
+        log.debug("Request to search for Customers for query {} after {}", query, cursor);
+        return SEARCH_AFTER.slice(cursor, customerSearchRepository.searchAfter(queryStringQuery(query), SEARCH_AFTER.sort(cursor), SEARCH_AFTER.searchAfter(cursor), size))
+            .map(customerMapper::toDto);
+    }
 }
@@ -1,10 +1,18 @@
 package es.fabio.service.impl;
 
+import es.fabio.service.IdNotFoundException;
+import es.fabio.service.OrderAggregateService;
 import es.fabio.service.OrderItemService;
+import es.fabio.service.SearchAfterPagination;
+import es.fabio.service.SalesRecorder;
+import es.fabio.service.SearchOutboxService;
 import es.fabio.domain.OrderItem;
+import es.fabio.domain.ProductOrder;
 import es.fabio.repository.OrderItemRepository;
 import es.fabio.repository.search.OrderItemSearchRepository;
 import es.fabio.service.dto.OrderItemDTO;
+import es.fabio.service.dto.KeysetCursor;
+import es.fabio.service.dto.KeysetSlice;
 import es.fabio.service.mapper.OrderItemMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,7 +22,12 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.elasticsearch.index.query.QueryBuilders.*;
 
@@ -25,6 +38,11 @@ import static org.elasticsearch.index.query.QueryBuilders.*;
 @Transactional
 public class OrderItemServiceImpl implements OrderItemService {
 
+    /**
+     * The properties the searches after a cursor can be sorted by, as for the keyset listings.
+     */
+    private static final SearchAfterPagination SEARCH_AFTER = new SearchAfterPagination(OrderItem.class, "quantity", "totalPrice", "status");
+
     private final Logger log = LoggerFactory.getLogger(OrderItemServiceImpl.class);
 
     private final OrderItemRepository orderItemRepository;
@@ -33,20 +51,85 @@ public class OrderItemServiceImpl implements OrderItemService {
 
     private final OrderItemSearchRepository orderItemSearchRepository;
 
-    public OrderItemServiceImpl(OrderItemRepository orderItemRepository, OrderItemMapper orderItemMapper, OrderItemSearchRepository orderItemSearchRepository) {
+    private final SearchOutboxService searchOutboxService;
+
+    private final OrderAggregateService orderAggregateService;
+
+    private final SalesRecorder salesRecorder;
+
+    public OrderItemServiceImpl(OrderItemRepository orderItemRepository, OrderItemMapper orderItemMapper, OrderItemSearchRepository orderItemSearchRepository, SearchOutboxService searchOutboxService, OrderAggregateService orderAggregateService, SalesRecorder salesRecorder) {
         this.orderItemRepository = orderItemRepository;
         this.orderItemMapper = orderItemMapper;
         this.orderItemSearchRepository = orderItemSearchRepository;
+        this.searchOutboxService = searchOutboxService;
+        this.orderAggregateService = orderAggregateService;
+        this.salesRecorder = salesRecorder;
     }
 
     @Override
     public OrderItemDTO save(OrderItemDTO orderItemDTO) {
         log.debug("Request to save OrderItem : {}", orderItemDTO);
+        OrderAggregateService.Changes changes = new OrderAggregateService.Changes();
         OrderItem orderItem = orderItemMapper.toEntity(orderItemDTO);
+        Map<Long, OrderItem> previousItems = lock(Collections.singletonList(orderItem));
+        orderItem = saveEntity(orderItem, previousItems, changes);
+        orderAggregateService.apply(changes);
+        // Flushed so that the result has the new versions and last modification dates.
+        orderItemRepository.flush();
+        return orderItemMapper.toDto(orderItem);
+    }
+
+    @Override
+    public List<OrderItemDTO> saveAll(List<OrderItemDTO> orderItemDTOs) {
+        log.debug("Request to save {} OrderItems", orderItemDTOs.size());
+        OrderAggregateService.Changes changes = new OrderAggregateService.Changes();
+        List<OrderItem> orderItems = orderItemMapper.toEntity(orderItemDTOs);
+        Map<Long, OrderItem> previousItems = lock(orderItems);
+        orderItems = orderItems.stream()
+            .map(orderItem -> saveEntity(orderItem, previousItems, changes))
+            .collect(Collectors.toList());
+        orderAggregateService.apply(changes);
+        // Flushed so that the result has the new versions and last modification dates.
+        orderItemRepository.flush();
+        return orderItemMapper.toDto(orderItems);
+    }
+
+    /**
+     * Lock the items to update, then the orders and customers whose aggregates the items change, before any is written.
+     */
+    private Map<Long, OrderItem> lock(List<OrderItem> orderItems) {
+        return orderAggregateService.lock(
+            orderItems.stream().map(OrderItem::getId).collect(Collectors.toList()),
+            orderItems.stream().map(OrderItem::getOrder).filter(Objects::nonNull).map(ProductOrder::getId).collect(Collectors.toList()),
+            Collections.emptyList());
+    }
+
+    /**
+     * Save an item, recording in the changes how it moves the total and item count of its previous and current order,
+     * and recording its sales.
+     */
+    private OrderItem saveEntity(OrderItem orderItem, Map<Long, OrderItem> previousItems, OrderAggregateService.Changes changes) {
+        if (orderItem.getId() != null) {
+            // Locked and read before the save, which merges the new state into the managed item.
+            OrderItem previous = previousItems.get(orderItem.getId());
+            if (previous == null) {
+                throw new IdNotFoundException(OrderItem.class, orderItem.getId());
+            }
+            changes.itemRemoved(previous.getOrder().getId(), previous.getTotalPrice());
+            salesRecorder.itemRemoved(previous);
+            // An update without version overwrites the current state, the version is checked otherwise.
+            if (orderItem.getVersion() == null) {
+                orderItem.setVersion(previous.getVersion());
+            }
+            orderItem.setLastModifiedDate(previous.getLastModifiedDate());
+        } else {
+            orderItem.setVersion(null);
+        }
         orderItem = orderItemRepository.save(orderItem);
-        OrderItemDTO result = orderItemMapper.toDto(orderItem);
-        orderItemSearchRepository.save(orderItem);
-        return result;
+        changes.itemAdded(orderItem.getOrder().getId(), orderItem.getTotalPrice());
+        salesRecorder.itemAdded(orderItem);
+        searchOutboxService.index(OrderItem.class, orderItem.getId());
+        return orderItem;
     }
 
     @Override
@@ -69,8 +152,15 @@ public class OrderItemServiceImpl implements OrderItemService {
     @Override
     public void delete(Long id) {
         log.debug("Request to delete OrderItem : {}", id);
+        OrderAggregateService.Changes changes = new OrderAggregateService.Changes();
+        Map<Long, OrderItem> orderItems = orderAggregateService.lock(Collections.singletonList(id), Collections.emptyList(), Collections.emptyList());
+        Optional.ofNullable(orderItems.get(id)).ifPresent(orderItem -> {
+            changes.itemRemoved(orderItem.getOrder().getId(), orderItem.getTotalPrice());
+            salesRecorder.itemRemoved(orderItem);
+        });
         orderItemRepository.deleteById(id);
-        orderItemSearchRepository.deleteById(id);
+        searchOutboxService.delete(OrderItem.class, id);
+        orderAggregateService.apply(changes);
     }
 
     @Override
@@ -80,4 +170,12 @@ public class OrderItemServiceImpl implements OrderItemService {
         return orderItemSearchRepository.search(queryStringQuery(query), pageable)
             .map(orderItemMapper::toDto);
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public KeysetSlice<OrderItemDTO> search(String query, KeysetCursor cursor, int size) {
+        log.debug("Request to search for OrderItems for query {} after {}", query, cursor);
+        return SEARCH_AFTER.slice(cursor, orderItemSearchRepository.searchAfter(queryStringQuery(query), SEARCH_AFTER.sort(cursor), SEARCH_AFTER.searchAfter(cursor), size))
+            .map(orderItemMapper::toDto);
+    }
 }
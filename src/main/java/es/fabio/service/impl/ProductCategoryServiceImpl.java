@@ -1,10 +1,16 @@
 package es.fabio.service.impl;
 
+import es.fabio.service.CatalogueGeneration;
+import es.fabio.service.IdNotFoundException;
 import es.fabio.service.ProductCategoryService;
+import es.fabio.service.SearchAfterPagination;
+import es.fabio.service.SearchOutboxService;
 import es.fabio.domain.ProductCategory;
 import es.fabio.repository.ProductCategoryRepository;
 import es.fabio.repository.search.ProductCategorySearchRepository;
 import es.fabio.service.dto.ProductCategoryDTO;
+import es.fabio.service.dto.KeysetCursor;
+import es.fabio.service.dto.KeysetSlice;
 import es.fabio.service.mapper.ProductCategoryMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,6 +33,11 @@ import static org.elasticsearch.index.query.QueryBuilders.*;
 @Transactional
 public class ProductCategoryServiceImpl implements ProductCategoryService {
 
+    /**
+     * The properties the searches after a cursor can be sorted by, as for the keyset listings.
+     */
+    private static final SearchAfterPagination SEARCH_AFTER = new SearchAfterPagination(ProductCategory.class, "name");
+
     private final Logger log = LoggerFactory.getLogger(ProductCategoryServiceImpl.class);
 
     private final ProductCategoryRepository productCategoryRepository;
@@ -35,19 +46,37 @@ public class ProductCategoryServiceImpl implements ProductCategoryService {
 
     private final ProductCategorySearchRepository productCategorySearchRepository;
 
-    public ProductCategoryServiceImpl(ProductCategoryRepository productCategoryRepository, ProductCategoryMapper productCategoryMapper, ProductCategorySearchRepository productCategorySearchRepository) {
+    private final SearchOutboxService searchOutboxService;
+
+    private final CatalogueGeneration catalogueGeneration;
+
+    public ProductCategoryServiceImpl(ProductCategoryRepository productCategoryRepository, ProductCategoryMapper productCategoryMapper, ProductCategorySearchRepository productCategorySearchRepository, SearchOutboxService searchOutboxService,
+                                      CatalogueGeneration catalogueGeneration) {
         this.productCategoryRepository = productCategoryRepository;
         this.productCategoryMapper = productCategoryMapper;
         this.productCategorySearchRepository = productCategorySearchRepository;
+        this.searchOutboxService = searchOutboxService;
+        this.catalogueGeneration = catalogueGeneration;
     }
 
     @Override
     public ProductCategoryDTO save(ProductCategoryDTO productCategoryDTO) {
         log.debug("Request to save ProductCategory : {}", productCategoryDTO);
         ProductCategory productCategory = productCategoryMapper.toEntity(productCategoryDTO);
-        productCategory = productCategoryRepository.save(productCategory);
+        Optional<ProductCategory> existing = productCategory.getId() == null ? Optional.empty() : productCategoryRepository.findById(productCategory.getId());
+        if (productCategory.getId() != null && !existing.isPresent()) {
+            throw new IdNotFoundException(ProductCategory.class, productCategory.getId());
+        }
+        // An update without version overwrites the current state, the version is checked otherwise.
+        Long version = productCategory.getVersion();
+        productCategory.setVersion(existing.map(previous -> version != null ? version : previous.getVersion()).orElse(null));
+        productCategory.setLastModifiedDate(existing.map(ProductCategory::getLastModifiedDate).orElse(null));
+        // Flushed so that the result has the new version and last modification date.
+        productCategory = productCategoryRepository.saveAndFlush(productCategory);
         ProductCategoryDTO result = productCategoryMapper.toDto(productCategory);
-        productCategorySearchRepository.save(productCategory);
+        searchOutboxService.index(ProductCategory.class, productCategory.getId());
+        // The productos are listed with the name of their category.
+        catalogueGeneration.advance();
         return result;
     }
 
@@ -73,7 +102,8 @@ public class ProductCategoryServiceImpl implements ProductCategoryService {
     public void delete(Long id) {
         log.debug("Request to delete ProductCategory : {}", id);
         productCategoryRepository.deleteById(id);
-        productCategorySearchRepository.deleteById(id);
+        searchOutboxService.delete(ProductCategory.class, id);
+        catalogueGeneration.advance();
     }
 
     @Override
@@ -85,4 +115,12 @@ public class ProductCategoryServiceImpl implements ProductCategoryService {
             .map(productCategoryMapper::toDto)
         .collect(Collectors.toList());
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public KeysetSlice<ProductCategoryDTO> search(String query, KeysetCursor cursor, int size) {
+        log.debug("Request to search for ProductCategories for query {} after {}", query, cursor);
+        return SEARCH_AFTER.slice(cursor, productCategorySearchRepository.searchAfter(queryStringQuery(query), SEARCH_AFTER.sort(cursor), SEARCH_AFTER.searchAfter(cursor), size))
+            .map(productCategoryMapper::toDto);
+    }
 }
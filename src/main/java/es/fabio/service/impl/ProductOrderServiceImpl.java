@@ -1,10 +1,20 @@
 package es.fabio.service.impl;
 
+import es.fabio.service.IdNotFoundException;
+import es.fabio.service.OrderAggregateService;
 import es.fabio.service.ProductOrderService;
+import es.fabio.service.SearchAfterPagination;
+import es.fabio.service.SalesRecorder;
+import es.fabio.service.SearchOutboxService;
+import es.fabio.domain.Customer;
+import es.fabio.domain.OrderItem;
 import es.fabio.domain.ProductOrder;
+import es.fabio.repository.OrderItemRepository;
 import es.fabio.repository.ProductOrderRepository;
 import es.fabio.repository.search.ProductOrderSearchRepository;
 import es.fabio.service.dto.ProductOrderDTO;
+import es.fabio.service.dto.KeysetCursor;
+import es.fabio.service.dto.KeysetSlice;
 import es.fabio.service.mapper.ProductOrderMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,7 +24,12 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.elasticsearch.index.query.QueryBuilders.*;
 
@@ -25,6 +40,11 @@ import static org.elasticsearch.index.query.QueryBuilders.*;
 @Transactional
 public class ProductOrderServiceImpl implements ProductOrderService {
 
+    /**
+     * The properties the searches after a cursor can be sorted by, as for the keyset listings.
+     */
+    private static final SearchAfterPagination SEARCH_AFTER = new SearchAfterPagination(ProductOrder.class, "placedDate", "status", "code", "total", "itemCount");
+
     private final Logger log = LoggerFactory.getLogger(ProductOrderServiceImpl.class);
 
     private final ProductOrderRepository productOrderRepository;
@@ -33,20 +53,93 @@ public class ProductOrderServiceImpl implements ProductOrderService {
 
     private final ProductOrderSearchRepository productOrderSearchRepository;
 
-    public ProductOrderServiceImpl(ProductOrderRepository productOrderRepository, ProductOrderMapper productOrderMapper, ProductOrderSearchRepository productOrderSearchRepository) {
+    private final SearchOutboxService searchOutboxService;
+
+    private final OrderAggregateService orderAggregateService;
+
+    private final OrderItemRepository orderItemRepository;
+
+    private final SalesRecorder salesRecorder;
+
+    public ProductOrderServiceImpl(ProductOrderRepository productOrderRepository, ProductOrderMapper productOrderMapper, ProductOrderSearchRepository productOrderSearchRepository, SearchOutboxService searchOutboxService, OrderAggregateService orderAggregateService, OrderItemRepository orderItemRepository, SalesRecorder salesRecorder) {
         this.productOrderRepository = productOrderRepository;
         this.productOrderMapper = productOrderMapper;
         this.productOrderSearchRepository = productOrderSearchRepository;
+        this.searchOutboxService = searchOutboxService;
+        this.orderAggregateService = orderAggregateService;
+        this.orderItemRepository = orderItemRepository;
+        this.salesRecorder = salesRecorder;
     }
 
     @Override
     public ProductOrderDTO save(ProductOrderDTO productOrderDTO) {
         log.debug("Request to save ProductOrder : {}", productOrderDTO);
+        OrderAggregateService.Changes changes = new OrderAggregateService.Changes();
         ProductOrder productOrder = productOrderMapper.toEntity(productOrderDTO);
+        lock(Collections.singletonList(productOrder));
+        productOrder = saveEntity(productOrder, changes);
+        orderAggregateService.apply(changes);
+        return productOrderMapper.toDto(productOrder);
+    }
+
+    @Override
+    public List<ProductOrderDTO> saveAll(List<ProductOrderDTO> productOrderDTOs) {
+        log.debug("Request to save {} ProductOrders", productOrderDTOs.size());
+        OrderAggregateService.Changes changes = new OrderAggregateService.Changes();
+        List<ProductOrder> productOrders = productOrderMapper.toEntity(productOrderDTOs);
+        lock(productOrders);
+        productOrders = productOrders.stream()
+            .map(productOrder -> saveEntity(productOrder, changes))
+            .collect(Collectors.toList());
+        orderAggregateService.apply(changes);
+        return productOrderMapper.toDto(productOrders);
+    }
+
+    /**
+     * Lock the orders to update, then their previous and current customers, before any is written.
+     */
+    private void lock(List<ProductOrder> productOrders) {
+        orderAggregateService.lock(Collections.emptyList(),
+            productOrders.stream().map(ProductOrder::getId).collect(Collectors.toList()),
+            productOrders.stream().map(ProductOrder::getCustomer).filter(Objects::nonNull).map(Customer::getId).collect(Collectors.toList()));
+    }
+
+    /**
+     * Save an order, keeping its total and item count, which are maintained by the {@link OrderAggregateService}, and
+     * moving the sales of its items when its status or placed date changes.
+     */
+    private ProductOrder saveEntity(ProductOrder productOrder, OrderAggregateService.Changes changes) {
+        Optional<ProductOrder> existing = productOrder.getId() == null ? Optional.empty() : productOrderRepository.findById(productOrder.getId());
+        if (productOrder.getId() != null && !existing.isPresent()) {
+            throw new IdNotFoundException(ProductOrder.class, productOrder.getId());
+        }
+        List<OrderItem> movedItems = Collections.emptyList();
+        if (existing.isPresent()) {
+            productOrder.setTotal(existing.get().getTotal());
+            productOrder.setItemCount(existing.get().getItemCount());
+            // An update without version overwrites the current state, the version is checked otherwise.
+            if (productOrder.getVersion() == null) {
+                productOrder.setVersion(existing.get().getVersion());
+            }
+            productOrder.setLastModifiedDate(existing.get().getLastModifiedDate());
+            changes.orderMoved(productOrder.getId(), existing.get().getCustomer().getId());
+            if (salesRecorder.changesBuckets(existing.get(), productOrder)) {
+                movedItems = orderItemRepository.findAllByOrderId(productOrder.getId());
+                movedItems.forEach(salesRecorder::itemRemoved);
+            }
+        } else {
+            productOrder.setTotal(BigDecimal.ZERO);
+            productOrder.setItemCount(0);
+            productOrder.setVersion(null);
+        }
         productOrder = productOrderRepository.save(productOrder);
-        ProductOrderDTO result = productOrderMapper.toDto(productOrder);
-        productOrderSearchRepository.save(productOrder);
-        return result;
+        // The items reference the managed order, which now has the new status and placed date.
+        movedItems.forEach(salesRecorder::itemAdded);
+        if (!existing.isPresent()) {
+            changes.orderCreated(productOrder.getCustomer().getId());
+        }
+        searchOutboxService.index(ProductOrder.class, productOrder.getId());
+        return productOrder;
     }
 
     @Override
@@ -69,8 +162,10 @@ public class ProductOrderServiceImpl implements ProductOrderService {
     @Override
     public void delete(Long id) {
         log.debug("Request to delete ProductOrder : {}", id);
+        orderAggregateService.lock(Collections.emptyList(), Collections.singletonList(id), Collections.emptyList());
+        orderAggregateService.apply(new OrderAggregateService.Changes().orderDeleted(id));
         productOrderRepository.deleteById(id);
-        productOrderSearchRepository.deleteById(id);
+        searchOutboxService.delete(ProductOrder.class, id);
     }
 
     @Override
@@ -80,4 +175,12 @@ public class ProductOrderServiceImpl implements ProductOrderService {
         return productOrderSearchRepository.search(queryStringQuery(query), pageable)
             .map(productOrderMapper::toDto);
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public KeysetSlice<ProductOrderDTO> search(String query, KeysetCursor cursor, int size) {
+        log.debug("Request to search for ProductOrders for query {} after {}", query, cursor);
+        return SEARCH_AFTER.slice(cursor, productOrderSearchRepository.searchAfter(queryStringQuery(query), SEARCH_AFTER.sort(cursor), SEARCH_AFTER.searchAfter(cursor), size))
+            .map(productOrderMapper::toDto);
+    }
 }
@@ -1,20 +1,58 @@
 package es.fabio.service.impl;
 
+import es.fabio.config.ApplicationProperties;
+import es.fabio.service.CatalogueGeneration;
+import es.fabio.service.IdNotFoundException;
+import es.fabio.service.InvalidSearchException;
 import es.fabio.service.ProductoService;
+import es.fabio.service.SearchAfterPagination;
+import es.fabio.service.SearchOutboxService;
 import es.fabio.domain.Producto;
+import es.fabio.domain.ProductoImage;
+import es.fabio.domain.enumeration.Size;
+import es.fabio.repository.ProductoImageRepository;
 import es.fabio.repository.ProductoRepository;
+import es.fabio.repository.search.FacetedPage;
 import es.fabio.repository.search.ProductoSearchRepository;
 import es.fabio.service.dto.ProductoDTO;
+import es.fabio.service.dto.ProductoImageDTO;
+import es.fabio.service.dto.FacetBucketDTO;
+import es.fabio.service.dto.KeysetCursor;
+import es.fabio.service.dto.KeysetSlice;
+import es.fabio.service.dto.ProductoSearch;
+import es.fabio.service.dto.ProductoSearchResultDTO;
+import es.fabio.service.dto.SuggestionDTO;
 import es.fabio.service.mapper.ProductoMapper;
 import org.slf4j.Logger;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.MultiMatchQueryBuilder;
+import org.elasticsearch.index.query.Operator;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.RangeQueryBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.bucket.range.RangeAggregationBuilder;
 import org.slf4j.LoggerFactory;
 
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StringUtils;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.elasticsearch.index.query.QueryBuilders.*;
 
@@ -25,28 +63,114 @@ import static org.elasticsearch.index.query.QueryBuilders.*;
 @Transactional
 public class ProductoServiceImpl implements ProductoService {
 
+    private static final float NAME_BOOST = 3.0f;
+
+    private static final String CATEGORY_FACET = "productCategory";
+
+    private static final String SIZE_FACET = "size";
+
+    private static final String PRICE_FACET = "price";
+
+    private static final int MAX_CATEGORY_BUCKETS = 100;
+
+    private static final String[] SUGGESTION_FIELDS = {"id", "name"};
+
+    /**
+     * The properties the typed searches can be sorted by, and the document fields sorted on.
+     */
+    private static final Map<String, String> SORT_FIELDS = new HashMap<>();
+
+    static {
+        SORT_FIELDS.put("id", "id");
+        SORT_FIELDS.put("name", "name.keyword");
+        SORT_FIELDS.put("price", "price");
+    }
+
+    /**
+     * The properties the searches after a cursor can be sorted by, as for the keyset listings.
+     */
+    private static final SearchAfterPagination SEARCH_AFTER = new SearchAfterPagination(Producto.class, "name", "price", "size");
+
     private final Logger log = LoggerFactory.getLogger(ProductoServiceImpl.class);
 
     private final ProductoRepository productoRepository;
 
+    private final ProductoImageRepository productoImageRepository;
+
     private final ProductoMapper productoMapper;
 
     private final ProductoSearchRepository productoSearchRepository;
 
-    public ProductoServiceImpl(ProductoRepository productoRepository, ProductoMapper productoMapper, ProductoSearchRepository productoSearchRepository) {
+    private final SearchOutboxService searchOutboxService;
+
+    private final CatalogueGeneration catalogueGeneration;
+
+    private final ApplicationProperties.Search searchProperties;
+
+    public ProductoServiceImpl(ProductoRepository productoRepository, ProductoImageRepository productoImageRepository, ProductoMapper productoMapper, ProductoSearchRepository productoSearchRepository, SearchOutboxService searchOutboxService,
+                               CatalogueGeneration catalogueGeneration, ApplicationProperties applicationProperties) {
         this.productoRepository = productoRepository;
+        this.productoImageRepository = productoImageRepository;
         this.productoMapper = productoMapper;
         this.productoSearchRepository = productoSearchRepository;
+        this.searchOutboxService = searchOutboxService;
+        this.catalogueGeneration = catalogueGeneration;
+        this.searchProperties = applicationProperties.getSearch();
     }
 
     @Override
     public ProductoDTO save(ProductoDTO productoDTO) {
         log.debug("Request to save Producto : {}", productoDTO);
+        Producto producto = saveEntity(productoDTO);
+        // Flushed so that the result has the new version and last modification date.
+        productoRepository.flush();
+        return productoMapper.toDto(producto);
+    }
+
+    @Override
+    public List<ProductoDTO> saveAll(List<ProductoDTO> productoDTOs) {
+        log.debug("Request to save {} Productos", productoDTOs.size());
+        List<Producto> productos = new ArrayList<>(productoDTOs.size());
+        for (ProductoDTO productoDTO : productoDTOs) {
+            productos.add(saveEntity(productoDTO));
+        }
+        // Flushed once, so that the statements of the productos are still batched.
+        productoRepository.flush();
+        return productoMapper.toDto(productos);
+    }
+
+    /**
+     * Save a producto, with its image when it changes.
+     */
+    private Producto saveEntity(ProductoDTO productoDTO) {
         Producto producto = productoMapper.toEntity(productoDTO);
+        byte[] image = productoDTO.getImage();
+        Optional<Producto> existing = producto.getId() == null ? Optional.empty() : productoRepository.findById(producto.getId());
+        if (producto.getId() != null && !existing.isPresent()) {
+            throw new IdNotFoundException(Producto.class, producto.getId());
+        }
+        String previousImageEtag = existing.map(Producto::getImageEtag).orElse(null);
+        // An update without version overwrites the current state, the version is checked otherwise.
+        Long version = producto.getVersion();
+        producto.setVersion(existing.map(previous -> version != null ? version : previous.getVersion()).orElse(null));
+        producto.setLastModifiedDate(existing.map(Producto::getLastModifiedDate).orElse(null));
+        if (image == null) {
+            producto.setImageContentType(null);
+        } else {
+            producto.setImageEtag(DigestUtils.md5DigestAsHex(image));
+        }
+        boolean created = producto.getId() == null;
         producto = productoRepository.save(producto);
-        ProductoDTO result = productoMapper.toDto(producto);
-        productoSearchRepository.save(producto);
-        return result;
+        if (image == null) {
+            if (!created) {
+                productoImageRepository.deleteByProductoId(producto.getId());
+            }
+        } else if (!producto.getImageEtag().equals(previousImageEtag)) {
+            productoImageRepository.save(new ProductoImage().productoId(producto.getId()).data(image));
+        }
+        searchOutboxService.index(Producto.class, producto.getId());
+        catalogueGeneration.advance();
+        return producto;
     }
 
     @Override
@@ -63,21 +187,218 @@ public class ProductoServiceImpl implements ProductoService {
     public Optional<ProductoDTO> findOne(Long id) {
         log.debug("Request to get Producto : {}", id);
         return productoRepository.findById(id)
-            .map(productoMapper::toDto);
+            .map(producto -> {
+                ProductoDTO productoDTO = productoMapper.toDto(producto);
+                if (producto.getImageContentType() != null) {
+                    productoImageRepository.findById(id)
+                        .ifPresent(image -> productoDTO.setImage(image.getData()));
+                }
+                return productoDTO;
+            });
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<String> findImageEtag(Long id) {
+        log.debug("Request to get the image hash of Producto : {}", id);
+        return productoRepository.findById(id)
+            .filter(producto -> producto.getImageContentType() != null)
+            .map(Producto::getImageEtag);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<ProductoImageDTO> findImage(Long id) {
+        log.debug("Request to get the image of Producto : {}", id);
+        return productoRepository.findById(id)
+            .filter(producto -> producto.getImageContentType() != null)
+            .flatMap(producto -> productoImageRepository.findById(id)
+                .map(image -> new ProductoImageDTO(
+                    producto.getImageContentType(),
+                    producto.getImageEtag() != null ? producto.getImageEtag() : DigestUtils.md5DigestAsHex(image.getData()),
+                    image.getData())));
     }
 
     @Override
     public void delete(Long id) {
         log.debug("Request to delete Producto : {}", id);
+        productoImageRepository.deleteByProductoId(id);
         productoRepository.deleteById(id);
-        productoSearchRepository.deleteById(id);
+        searchOutboxService.delete(Producto.class, id);
+        catalogueGeneration.advance();
     }
 
     @Override
     @Transactional(readOnly = true)
     public Page<ProductoDTO> search(String query, Pageable pageable) {
         log.debug("Request to search for a page of Productos for query {}", query);
-        return productoSearchRepository.search(queryStringQuery(query), pageable)
+        checkResultWindow(pageable);
+        return productoSearchRepository.searchWithinLimits(stringQuery(query), pageable)
+            .map(productoMapper::toDto);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public KeysetSlice<ProductoDTO> search(String query, KeysetCursor cursor, int size) {
+        log.debug("Request to search for Productos for query {} after {}", query, cursor);
+        return SEARCH_AFTER.slice(cursor, productoSearchRepository.searchAfter(stringQuery(query), SEARCH_AFTER.sort(cursor), SEARCH_AFTER.searchAfter(cursor), size))
             .map(productoMapper::toDto);
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<ProductoDTO> search(ProductoSearch search, Pageable pageable) {
+        log.debug("Request to search for a page of Productos for {}", search);
+        checkResultWindow(pageable);
+        return productoSearchRepository.searchWithinLimits(typedQuery(search), documentSort(pageable))
+            .map(productoMapper::toDto);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public KeysetSlice<ProductoDTO> search(ProductoSearch search, KeysetCursor cursor, int size) {
+        log.debug("Request to search for Productos for {} after {}", search, cursor);
+        return SEARCH_AFTER.slice(cursor, productoSearchRepository.searchAfter(typedQuery(search), SEARCH_AFTER.sort(cursor), SEARCH_AFTER.searchAfter(cursor), size))
+            .map(productoMapper::toDto);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ProductoSearchResultDTO searchWithFacets(ProductoSearch search, Pageable pageable) {
+        log.debug("Request to search for a page of Productos with facets for {}", search);
+        checkResultWindow(pageable);
+        Map<String, AggregationBuilder> facets = new LinkedHashMap<>();
+        facets.put(CATEGORY_FACET, AggregationBuilders.terms(CATEGORY_FACET).field("productCategory.id").size(MAX_CATEGORY_BUCKETS));
+        facets.put(SIZE_FACET, AggregationBuilders.terms(SIZE_FACET).field("size.keyword").size(Size.values().length));
+        facets.put(PRICE_FACET, priceBands());
+        FacetedPage<Producto> page = productoSearchRepository.searchWithFacets(textQuery(search), filters(search), facets, documentSort(pageable));
+        ProductoSearchResultDTO result = new ProductoSearchResultDTO();
+        result.setContent(productoMapper.toDto(page.getContent()));
+        result.setTotalCount(page.getTotalElements());
+        page.getFacets().forEach((name, buckets) -> result.getFacets().put(name, buckets.entrySet().stream()
+            .map(bucket -> new FacetBucketDTO(bucket.getKey(), bucket.getValue()))
+            .collect(Collectors.toList())));
+        return result;
+    }
+
+    /**
+     * The query of a legacy search, in the query string syntax.
+     */
+    private QueryBuilder stringQuery(String query) {
+        // Leading wildcards scan the whole term dictionary, and wildcards and regexps are bounded.
+        return queryStringQuery(query)
+            .allowLeadingWildcard(false)
+            .maxDeterminizedStates(searchProperties.getMaxDeterminizedStates());
+    }
+
+    /**
+     * The query of a typed search, scored by its text and filtered by its other fields.
+     */
+    private static QueryBuilder typedQuery(ProductoSearch search) {
+        BoolQueryBuilder query = boolQuery().must(textQuery(search));
+        filters(search).values().forEach(query::filter);
+        return query;
+    }
+
+    /**
+     * The query scoring the productos, matching all of them without text.
+     */
+    private static QueryBuilder textQuery(ProductoSearch search) {
+        if (!StringUtils.hasText(search.getText())) {
+            return matchAllQuery();
+        }
+        return multiMatchQuery(search.getText())
+            .field("name", NAME_BOOST)
+            .field("description")
+            .type(MultiMatchQueryBuilder.Type.CROSS_FIELDS)
+            .operator(Operator.AND);
+    }
+
+    /**
+     * The filters of a search, by the name of the facet they filter.
+     */
+    private static Map<String, QueryBuilder> filters(ProductoSearch search) {
+        Map<String, QueryBuilder> filters = new LinkedHashMap<>();
+        if (!search.getProductCategoryIds().isEmpty()) {
+            filters.put(CATEGORY_FACET, termsQuery("productCategory.id", search.getProductCategoryIds()));
+        }
+        if (!search.getSizes().isEmpty()) {
+            filters.put(SIZE_FACET, termsQuery("size.keyword", search.getSizes().stream().map(Enum::name).collect(Collectors.toList())));
+        }
+        if (search.getMinPrice() != null || search.getMaxPrice() != null) {
+            RangeQueryBuilder price = rangeQuery("price");
+            if (search.getMinPrice() != null) {
+                price.gte(search.getMinPrice().toPlainString());
+            }
+            if (search.getMaxPrice() != null) {
+                price.lte(search.getMaxPrice().toPlainString());
+            }
+            filters.put(PRICE_FACET, price);
+        }
+        return filters;
+    }
+
+    /**
+     * The price bands between the configured bounds, keyed like {@code "*-10"}, {@code "10-25"} and {@code "100-*"}.
+     */
+    private AggregationBuilder priceBands() {
+        RangeAggregationBuilder bands = AggregationBuilders.range(PRICE_FACET).field("price");
+        BigDecimal from = null;
+        for (BigDecimal to : searchProperties.getPriceFacetBounds()) {
+            if (from == null) {
+                bands.addUnboundedTo("*-" + to.toPlainString(), to.doubleValue());
+            } else {
+                bands.addRange(from.toPlainString() + "-" + to.toPlainString(), from.doubleValue(), to.doubleValue());
+            }
+            from = to;
+        }
+        if (from != null) {
+            bands.addUnboundedFrom(from.toPlainString() + "-*", from.doubleValue());
+        }
+        return bands;
+    }
+
+    // Only reads Elasticsearch: the class transaction would check out a database connection for nothing.
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Cacheable(cacheNames = SUGGESTIONS_CACHE)
+    public List<SuggestionDTO> suggest(String prefix, int size) {
+        log.debug("Request to suggest Productos for prefix {}", prefix);
+        if (!StringUtils.hasText(prefix)) {
+            return new ArrayList<>();
+        }
+        return productoSearchRepository.searchTop(matchQuery("name.autocomplete", prefix).operator(Operator.AND), SUGGESTION_FIELDS,
+            Math.max(1, Math.min(size, searchProperties.getMaxSuggestions())))
+            .stream()
+            .map(producto -> new SuggestionDTO(producto.getId(), producto.getName()))
+            .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    private void checkResultWindow(Pageable pageable) {
+        if (pageable.isPaged() && pageable.getOffset() + pageable.getPageSize() > searchProperties.getMaxResultWindow()) {
+            throw new InvalidSearchException("Search pages end within the first " + searchProperties.getMaxResultWindow() + " results");
+        }
+    }
+
+    /**
+     * Translate the sort of a page to the document fields, the productos with the same sort values staying in the
+     * order of their ids so that the pages do not overlap.
+     */
+    private static Pageable documentSort(Pageable pageable) {
+        List<Sort.Order> orders = new ArrayList<>();
+        for (Sort.Order order : pageable.getSort()) {
+            String field = SORT_FIELDS.get(order.getProperty());
+            if (field == null) {
+                throw new InvalidSearchException("Productos cannot be sorted by " + order.getProperty());
+            }
+            orders.add(new Sort.Order(order.getDirection(), field));
+        }
+        if (orders.isEmpty()) {
+            orders.add(Sort.Order.desc("_score"));
+        }
+        if (orders.stream().noneMatch(order -> "id".equals(order.getProperty()))) {
+            orders.add(Sort.Order.asc("id"));
+        }
+        return pageable.isPaged() ? PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by(orders)) : pageable;
+    }
 }
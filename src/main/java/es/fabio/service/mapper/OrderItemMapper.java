@@ -20,6 +20,8 @@ public interface OrderItemMapper extends EntityMapper<OrderItemDTO, OrderItem> {
 
     @Mapping(source = "productoId", target = "producto")
     @Mapping(source = "orderId", target = "order")
+    @Mapping(target = "salesProductCategoryId", ignore = true)
+    @Mapping(target = "salesSize", ignore = true)
     OrderItem toEntity(OrderItemDTO orderItemDTO);
 
     default OrderItem fromId(Long id) {
@@ -8,15 +8,22 @@ import org.mapstruct.*;
 
 /**
  * Mapper for the entity {@link Producto} and its DTO {@link ProductoDTO}.
+ * <p>
+ * The image bytes are not part of the entity, so they are never mapped here: the DTO only gets the image URL.
  */
 @Mapper(componentModel = "spring", uses = {ProductCategoryMapper.class})
 public interface ProductoMapper extends EntityMapper<ProductoDTO, Producto> {
 
+    String IMAGE_URL_FORMAT = "/api/productos/%d/image";
+
     @Mapping(source = "productCategory.id", target = "productCategoryId")
     @Mapping(source = "productCategory.name", target = "productCategoryName")
+    @Mapping(target = "image", ignore = true)
+    @Mapping(target = "imageUrl", expression = "java(imageUrl(producto))")
     ProductoDTO toDto(Producto producto);
 
     @Mapping(source = "productCategoryId", target = "productCategory")
+    @Mapping(target = "imageEtag", ignore = true)
     Producto toEntity(ProductoDTO productoDTO);
 
     default Producto fromId(Long id) {
@@ -27,4 +34,30 @@ public interface ProductoMapper extends EntityMapper<ProductoDTO, Producto> {
         producto.setId(id);
         return producto;
     }
+
+    /**
+     * Build the URL of the image of a producto, versioned with the image hash so it can be cached for long.
+     *
+     * @param producto the producto.
+     * @return the URL, or {@code null} if the producto has no image.
+     */
+    default String imageUrl(Producto producto) {
+        return imageUrl(producto.getId(), producto.getImageContentType(), producto.getImageEtag());
+    }
+
+    /**
+     * Build the URL of the image of a producto from its columns, for the listings which do not load the entity.
+     *
+     * @param id the id of the producto.
+     * @param imageContentType the content type of its image.
+     * @param imageEtag the hash of its image.
+     * @return the URL, or {@code null} if the producto has no image.
+     */
+    default String imageUrl(Long id, String imageContentType, String imageEtag) {
+        if (id == null || imageContentType == null) {
+            return null;
+        }
+        String url = String.format(IMAGE_URL_FORMAT, id);
+        return imageEtag == null ? url : url + "?v=" + imageEtag;
+    }
 }
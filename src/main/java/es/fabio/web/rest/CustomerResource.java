@@ -1,19 +1,26 @@
 package es.fabio.web.rest;
 
+import es.fabio.domain.Customer;
 import es.fabio.service.CustomerService;
+import es.fabio.service.EntityVersionService;
 import es.fabio.web.rest.errors.BadRequestAlertException;
+import es.fabio.web.rest.util.ConditionalRequests;
 import es.fabio.service.dto.CustomerDTO;
 import es.fabio.service.dto.CustomerCriteria;
 import es.fabio.service.CustomerQueryService;
+import es.fabio.service.dto.KeysetCursor;
+import es.fabio.service.dto.KeysetSlice;
+import es.fabio.service.dto.SuggestionDTO;
+import es.fabio.web.rest.util.KeysetPaginationUtil;
 
 import io.github.jhipster.web.util.HeaderUtil;
 import io.github.jhipster.web.util.PaginationUtil;
-import io.github.jhipster.web.util.ResponseUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
@@ -24,7 +31,8 @@ import javax.validation.Valid;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
-import java.util.Optional;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.StreamSupport;
 
 import static org.elasticsearch.index.query.QueryBuilders.*;
@@ -40,6 +48,8 @@ public class CustomerResource {
 
     private static final String ENTITY_NAME = "customer";
 
+    private static final long SUGGESTIONS_MAX_AGE_SECONDS = 60;
+
     @Value("${jhipster.clientApp.name}")
     private String applicationName;
 
@@ -47,9 +57,12 @@ public class CustomerResource {
 
     private final CustomerQueryService customerQueryService;
 
-    public CustomerResource(CustomerService customerService, CustomerQueryService customerQueryService) {
+    private final EntityVersionService entityVersionService;
+
+    public CustomerResource(CustomerService customerService, CustomerQueryService customerQueryService, EntityVersionService entityVersionService) {
         this.customerService = customerService;
         this.customerQueryService = customerQueryService;
+        this.entityVersionService = entityVersionService;
     }
 
     /**
@@ -75,20 +88,26 @@ public class CustomerResource {
      * {@code PUT  /customers} : Updates an existing customer.
      *
      * @param customerDTO the customerDTO to update.
+     * @param ifMatch the ETags which the current customer must match, if any.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated customerDTO,
-     * or with status {@code 400 (Bad Request)} if the customerDTO is not valid,
+     * or with status {@code 412 (Precondition Failed)} if the customer does not match {@code If-Match},
+     * or with status {@code 409 (Conflict)} if the version of the customerDTO is not the current one,
+     * or with status {@code 400 (Bad Request)} if the customerDTO is not valid or has no entity with its id,
      * or with status {@code 500 (Internal Server Error)} if the customerDTO couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
     @PutMapping("/customers")
-    public ResponseEntity<CustomerDTO> updateCustomer(@Valid @RequestBody CustomerDTO customerDTO) throws URISyntaxException {
+    public ResponseEntity<CustomerDTO> updateCustomer(@Valid @RequestBody CustomerDTO customerDTO,
+        @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) throws URISyntaxException {
         log.debug("REST request to update Customer : {}", customerDTO);
         if (customerDTO.getId() == null) {
             throw new BadRequestAlertException("Invalid id", ENTITY_NAME, "idnull");
         }
+        ConditionalRequests.checkIfMatch(ifMatch, () -> entityVersionService.findVersion(Customer.class, customerDTO.getId()), customerDTO, ENTITY_NAME);
         CustomerDTO result = customerService.save(customerDTO);
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, customerDTO.getId().toString()))
+            .headers(ConditionalRequests.validators(entityVersionService.findVersion(Customer.class, result.getId())))
             .body(result);
     }
 
@@ -107,6 +126,26 @@ public class CustomerResource {
         return ResponseEntity.ok().headers(headers).body(page.getContent());
     }
 
+    /**
+     * {@code GET  /customers?after=:cursor} : get the customers using keyset pagination.
+     * <p>
+     * An empty cursor returns the first page, sorted by the requested sort. The total count is not computed
+     * and the cursor of the next page, if any, is returned in the {@code Link} header.
+     *
+     * @param criteria the criteria which the requested entities should match.
+     * @param after the cursor returned with the previous page, or an empty value for the first page.
+     * @param pageable the page size, and the sort of the first page.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of customers in body.
+     */
+    @GetMapping(value = "/customers", params = KeysetPaginationUtil.AFTER_PARAMETER)
+    public ResponseEntity<List<CustomerDTO>> getAllCustomersAfter(CustomerCriteria criteria, @RequestParam String after, Pageable pageable) {
+        log.debug("REST request to get Customers by criteria: {} after: {}", criteria, after);
+        KeysetCursor cursor = KeysetPaginationUtil.resolveCursor(after, pageable);
+        KeysetSlice<CustomerDTO> slice = customerQueryService.findByCriteria(criteria, cursor, pageable.getPageSize());
+        HttpHeaders headers = KeysetPaginationUtil.generateKeysetHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), slice);
+        return ResponseEntity.ok().headers(headers).body(slice.getContent());
+    }
+
     /**
      * {@code GET  /customers/count} : count all the customers.
      *
@@ -123,13 +162,16 @@ public class CustomerResource {
      * {@code GET  /customers/:id} : get the "id" customer.
      *
      * @param id the id of the customerDTO to retrieve.
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the customerDTO, or with status {@code 404 (Not Found)}.
+     * @param headers the request headers, with the conditions of a conditional request.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the customerDTO, or with status {@code 304 (Not Modified)},
+     * or with status {@code 404 (Not Found)}.
      */
     @GetMapping("/customers/{id}")
-    public ResponseEntity<CustomerDTO> getCustomer(@PathVariable Long id) {
+    public ResponseEntity<CustomerDTO> getCustomer(@PathVariable Long id, @RequestHeader HttpHeaders headers) {
         log.debug("REST request to get Customer : {}", id);
-        Optional<CustomerDTO> customerDTO = customerService.findOne(id);
-        return ResponseUtil.wrapOrNotFound(customerDTO);
+        return ConditionalRequests.wrapOrNotModified(headers,
+            () -> entityVersionService.findVersion(Customer.class, id),
+            () -> customerService.findOne(id));
     }
 
     /**
@@ -160,4 +202,43 @@ public class CustomerResource {
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
         return ResponseEntity.ok().headers(headers).body(page.getContent());
         }
+
+    /**
+     * {@code SEARCH  /_search/customers?query=:query&after=:cursor} : search for the customers corresponding to the query
+     * using keyset pagination.
+     * <p>
+     * An empty cursor returns the first page, sorted by relevance unless sorted by a property. The pages are not limited
+     * to the result window, the total count is not computed and the cursor of the next page, if any, is returned in
+     * the {@code Link} header.
+     *
+     * @param query the query of the customer search.
+     * @param after the cursor returned with the previous page, or an empty value for the first page.
+     * @param pageable the page size, and the sort of the first page.
+     * @return the result of the search.
+     */
+    @GetMapping(value = "/_search/customers", params = KeysetPaginationUtil.AFTER_PARAMETER)
+    public ResponseEntity<List<CustomerDTO>> searchCustomersAfter(@RequestParam String query, @RequestParam String after, Pageable pageable) {
+        log.debug("REST request to search for Customers for query {} after {}", query, after);
+        KeysetCursor cursor = KeysetPaginationUtil.resolveSearchCursor(after, pageable);
+        KeysetSlice<CustomerDTO> slice = customerService.search(query, cursor, pageable.getPageSize());
+        HttpHeaders headers = KeysetPaginationUtil.generateKeysetHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), slice);
+        return ResponseEntity.ok().headers(headers).body(slice.getContent());
+    }
+
+    /**
+     * {@code GET  /_suggest/customers?prefix=:prefix} : suggest the customers whose first or last names start with the prefix.
+     * <p>
+     * The suggestions are cached by prefix for a short time, and may be kept by the client for as long.
+     *
+     * @param prefix the prefix typed.
+     * @param size the maximum number of suggestions.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the ids and labels of the suggested customers in body.
+     */
+    @GetMapping("/_suggest/customers")
+    public ResponseEntity<List<SuggestionDTO>> suggestCustomers(@RequestParam String prefix, @RequestParam(defaultValue = "10") int size) {
+        log.debug("REST request to suggest Customers for prefix {}", prefix);
+        return ResponseEntity.ok()
+            .cacheControl(CacheControl.maxAge(SUGGESTIONS_MAX_AGE_SECONDS, TimeUnit.SECONDS).cachePrivate())
+            .body(customerService.suggest(prefix.trim().toLowerCase(Locale.ROOT), size));
+    }
 }
@@ -1,30 +1,45 @@
 package es.fabio.web.rest;
 
+import es.fabio.domain.OrderItem;
 import es.fabio.service.OrderItemService;
+import es.fabio.service.EntityVersionService;
 import es.fabio.web.rest.errors.BadRequestAlertException;
+import es.fabio.web.rest.util.ConditionalRequests;
 import es.fabio.service.dto.OrderItemDTO;
 import es.fabio.service.dto.OrderItemCriteria;
 import es.fabio.service.OrderItemQueryService;
+import es.fabio.service.dto.KeysetCursor;
+import es.fabio.service.dto.KeysetSlice;
+import es.fabio.web.rest.util.KeysetPaginationUtil;
+import es.fabio.service.BulkSaver;
+import es.fabio.service.dto.BulkItemResult;
+import es.fabio.web.rest.util.NdjsonReader;
+import es.fabio.web.rest.util.RowExporter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import io.github.jhipster.web.util.HeaderUtil;
 import io.github.jhipster.web.util.PaginationUtil;
-import io.github.jhipster.web.util.ResponseUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
-import java.util.Optional;
 import java.util.stream.StreamSupport;
 
 import static org.elasticsearch.index.query.QueryBuilders.*;
@@ -47,9 +62,29 @@ public class OrderItemResource {
 
     private final OrderItemQueryService orderItemQueryService;
 
-    public OrderItemResource(OrderItemService orderItemService, OrderItemQueryService orderItemQueryService) {
+    private final RowExporter<OrderItemDTO> exporter;
+
+    private final ObjectMapper objectMapper;
+
+    private final BulkSaver bulkSaver;
+
+    private final EntityVersionService entityVersionService;
+
+    public OrderItemResource(OrderItemService orderItemService, OrderItemQueryService orderItemQueryService, ObjectMapper objectMapper, BulkSaver bulkSaver, EntityVersionService entityVersionService) {
         this.orderItemService = orderItemService;
         this.orderItemQueryService = orderItemQueryService;
+        this.objectMapper = objectMapper;
+        this.bulkSaver = bulkSaver;
+        this.entityVersionService = entityVersionService;
+        this.exporter = new RowExporter<>(objectMapper, OrderItemDTO.class)
+            .column("id", OrderItemDTO::getId)
+            .column("quantity", OrderItemDTO::getQuantity)
+            .column("totalPrice", OrderItemDTO::getTotalPrice)
+            .column("status", OrderItemDTO::getStatus)
+            .column("productoId", OrderItemDTO::getProductoId)
+            .column("productoName", OrderItemDTO::getProductoName)
+            .column("orderId", OrderItemDTO::getOrderId)
+            .column("orderCode", OrderItemDTO::getOrderCode);
     }
 
     /**
@@ -75,23 +110,58 @@ public class OrderItemResource {
      * {@code PUT  /order-items} : Updates an existing orderItem.
      *
      * @param orderItemDTO the orderItemDTO to update.
+     * @param ifMatch the ETags which the current orderItem must match, if any.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated orderItemDTO,
-     * or with status {@code 400 (Bad Request)} if the orderItemDTO is not valid,
+     * or with status {@code 412 (Precondition Failed)} if the orderItem does not match {@code If-Match},
+     * or with status {@code 409 (Conflict)} if the version of the orderItemDTO is not the current one,
+     * or with status {@code 400 (Bad Request)} if the orderItemDTO is not valid or has no entity with its id,
      * or with status {@code 500 (Internal Server Error)} if the orderItemDTO couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
     @PutMapping("/order-items")
-    public ResponseEntity<OrderItemDTO> updateOrderItem(@Valid @RequestBody OrderItemDTO orderItemDTO) throws URISyntaxException {
+    public ResponseEntity<OrderItemDTO> updateOrderItem(@Valid @RequestBody OrderItemDTO orderItemDTO,
+        @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) throws URISyntaxException {
         log.debug("REST request to update OrderItem : {}", orderItemDTO);
         if (orderItemDTO.getId() == null) {
             throw new BadRequestAlertException("Invalid id", ENTITY_NAME, "idnull");
         }
+        ConditionalRequests.checkIfMatch(ifMatch, () -> entityVersionService.findVersion(OrderItem.class, orderItemDTO.getId()), orderItemDTO, ENTITY_NAME);
         OrderItemDTO result = orderItemService.save(orderItemDTO);
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, orderItemDTO.getId().toString()))
+            .headers(ConditionalRequests.validators(entityVersionService.findVersion(OrderItem.class, result.getId())))
             .body(result);
     }
 
+    /**
+     * {@code POST  /order-items/bulk} : Create or update many orderItems.
+     * <p>
+     * The items without id are created and the others updated. Each item is validated and saved independently, so an
+     * invalid item is reported in its result and does not prevent the others from being saved.
+     *
+     * @param orderItemDTOs the orderItemDTOs to create or update.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the result of each item, in the request order.
+     */
+    @PostMapping(value = "/order-items/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<BulkItemResult<OrderItemDTO>>> bulkSaveOrderItems(@RequestBody List<OrderItemDTO> orderItemDTOs) {
+        log.debug("REST request to bulk save {} OrderItems", orderItemDTOs.size());
+        return ResponseEntity.ok(bulkSaver.saveAll(orderItemDTOs.iterator(), OrderItemDTO::getId, orderItemService::saveAll));
+    }
+
+    /**
+     * {@code POST  /order-items/bulk} : Create or update many orderItems sent as newline delimited JSON, read as they are saved.
+     *
+     * @param request the request, with one orderItemDTO per line.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the result of each line, in the request order.
+     * @throws IOException if the request cannot be read.
+     */
+    @PostMapping(value = "/order-items/bulk", consumes = NdjsonReader.MEDIA_TYPE)
+    public ResponseEntity<List<BulkItemResult<OrderItemDTO>>> bulkSaveOrderItemsAsNdjson(HttpServletRequest request) throws IOException {
+        log.debug("REST request to bulk save OrderItems as NDJSON");
+        NdjsonReader<OrderItemDTO> items = new NdjsonReader<>(objectMapper, OrderItemDTO.class, request.getInputStream());
+        return ResponseEntity.ok(bulkSaver.saveAll(items, OrderItemDTO::getId, orderItemService::saveAll));
+    }
+
     /**
      * {@code GET  /order-items} : get all the orderItems.
      *
@@ -107,6 +177,46 @@ public class OrderItemResource {
         return ResponseEntity.ok().headers(headers).body(page.getContent());
     }
 
+    /**
+     * {@code GET  /order-items?after=:cursor} : get the orderItems using keyset pagination.
+     * <p>
+     * An empty cursor returns the first page, sorted by the requested sort. The total count is not computed
+     * and the cursor of the next page, if any, is returned in the {@code Link} header.
+     *
+     * @param criteria the criteria which the requested entities should match.
+     * @param after the cursor returned with the previous page, or an empty value for the first page.
+     * @param pageable the page size, and the sort of the first page.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of orderItems in body.
+     */
+    @GetMapping(value = "/order-items", params = KeysetPaginationUtil.AFTER_PARAMETER)
+    public ResponseEntity<List<OrderItemDTO>> getAllOrderItemsAfter(OrderItemCriteria criteria, @RequestParam String after, Pageable pageable) {
+        log.debug("REST request to get OrderItems by criteria: {} after: {}", criteria, after);
+        KeysetCursor cursor = KeysetPaginationUtil.resolveCursor(after, pageable);
+        KeysetSlice<OrderItemDTO> slice = orderItemQueryService.findByCriteria(criteria, cursor, pageable.getPageSize());
+        HttpHeaders headers = KeysetPaginationUtil.generateKeysetHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), slice);
+        return ResponseEntity.ok().headers(headers).body(slice.getContent());
+    }
+
+    /**
+     * {@code GET  /order-items/export?format=ndjson|csv} : export all the orderItems matching the criteria.
+     * <p>
+     * The rows are streamed from the database to the response as they are read, so the export is not limited
+     * in size and is not paginated.
+     *
+     * @param criteria the criteria which the requested entities should match.
+     * @param format the format of the export, {@code ndjson} (default) or {@code csv}.
+     * @param sort the order of the rows, by id if not given.
+     * @param response the response the rows are written to.
+     * @throws IOException if the response cannot be written.
+     */
+    @GetMapping("/order-items/export")
+    public void exportOrderItems(OrderItemCriteria criteria, @RequestParam(defaultValue = "ndjson") String format, Sort sort, HttpServletResponse response) throws IOException {
+        log.debug("REST request to export OrderItems by criteria: {} as {}", criteria, format);
+        RowExporter.Format exportFormat = RowExporter.Format.of(format)
+            .orElseThrow(() -> new BadRequestAlertException("Invalid export format", ENTITY_NAME, "exportformatinvalid"));
+        exporter.export(response, exportFormat, "order-items", rows -> orderItemQueryService.exportByCriteria(criteria, sort, rows));
+    }
+
     /**
      * {@code GET  /order-items/count} : count all the orderItems.
      *
@@ -123,13 +233,16 @@ public class OrderItemResource {
      * {@code GET  /order-items/:id} : get the "id" orderItem.
      *
      * @param id the id of the orderItemDTO to retrieve.
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the orderItemDTO, or with status {@code 404 (Not Found)}.
+     * @param headers the request headers, with the conditions of a conditional request.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the orderItemDTO, or with status {@code 304 (Not Modified)},
+     * or with status {@code 404 (Not Found)}.
      */
     @GetMapping("/order-items/{id}")
-    public ResponseEntity<OrderItemDTO> getOrderItem(@PathVariable Long id) {
+    public ResponseEntity<OrderItemDTO> getOrderItem(@PathVariable Long id, @RequestHeader HttpHeaders headers) {
         log.debug("REST request to get OrderItem : {}", id);
-        Optional<OrderItemDTO> orderItemDTO = orderItemService.findOne(id);
-        return ResponseUtil.wrapOrNotFound(orderItemDTO);
+        return ConditionalRequests.wrapOrNotModified(headers,
+            () -> entityVersionService.findVersion(OrderItem.class, id),
+            () -> orderItemService.findOne(id));
     }
 
     /**
@@ -160,4 +273,26 @@ public class OrderItemResource {
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
         return ResponseEntity.ok().headers(headers).body(page.getContent());
         }
+
+    /**
+     * {@code SEARCH  /_search/order-items?query=:query&after=:cursor} : search for the orderItems corresponding to the query
+     * using keyset pagination.
+     * <p>
+     * An empty cursor returns the first page, sorted by relevance unless sorted by a property. The pages are not limited
+     * to the result window, the total count is not computed and the cursor of the next page, if any, is returned in
+     * the {@code Link} header.
+     *
+     * @param query the query of the orderItem search.
+     * @param after the cursor returned with the previous page, or an empty value for the first page.
+     * @param pageable the page size, and the sort of the first page.
+     * @return the result of the search.
+     */
+    @GetMapping(value = "/_search/order-items", params = KeysetPaginationUtil.AFTER_PARAMETER)
+    public ResponseEntity<List<OrderItemDTO>> searchOrderItemsAfter(@RequestParam String query, @RequestParam String after, Pageable pageable) {
+        log.debug("REST request to search for OrderItems for query {} after {}", query, after);
+        KeysetCursor cursor = KeysetPaginationUtil.resolveSearchCursor(after, pageable);
+        KeysetSlice<OrderItemDTO> slice = orderItemService.search(query, cursor, pageable.getPageSize());
+        HttpHeaders headers = KeysetPaginationUtil.generateKeysetHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), slice);
+        return ResponseEntity.ok().headers(headers).body(slice.getContent());
+    }
 }
@@ -1,24 +1,33 @@
 package es.fabio.web.rest;
 
+import es.fabio.domain.ProductCategory;
 import es.fabio.service.ProductCategoryService;
+import es.fabio.service.EntityVersionService;
 import es.fabio.web.rest.errors.BadRequestAlertException;
+import es.fabio.web.rest.util.CatalogueResponseCache;
+import es.fabio.web.rest.util.ConditionalRequests;
 import es.fabio.service.dto.ProductCategoryDTO;
+import es.fabio.web.rest.util.KeysetPaginationUtil;
+import es.fabio.service.dto.KeysetSlice;
+import es.fabio.service.dto.KeysetCursor;
 import es.fabio.service.dto.ProductCategoryCriteria;
 import es.fabio.service.ProductCategoryQueryService;
 
 import io.github.jhipster.web.util.HeaderUtil;
-import io.github.jhipster.web.util.ResponseUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
-import java.util.Optional;
 import java.util.stream.StreamSupport;
 
 import static org.elasticsearch.index.query.QueryBuilders.*;
@@ -41,9 +50,15 @@ public class ProductCategoryResource {
 
     private final ProductCategoryQueryService productCategoryQueryService;
 
-    public ProductCategoryResource(ProductCategoryService productCategoryService, ProductCategoryQueryService productCategoryQueryService) {
+    private final EntityVersionService entityVersionService;
+
+    private final CatalogueResponseCache catalogueResponseCache;
+
+    public ProductCategoryResource(ProductCategoryService productCategoryService, ProductCategoryQueryService productCategoryQueryService, EntityVersionService entityVersionService, CatalogueResponseCache catalogueResponseCache) {
         this.productCategoryService = productCategoryService;
         this.productCategoryQueryService = productCategoryQueryService;
+        this.entityVersionService = entityVersionService;
+        this.catalogueResponseCache = catalogueResponseCache;
     }
 
     /**
@@ -69,20 +84,26 @@ public class ProductCategoryResource {
      * {@code PUT  /product-categories} : Updates an existing productCategory.
      *
      * @param productCategoryDTO the productCategoryDTO to update.
+     * @param ifMatch the ETags which the current productCategory must match, if any.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated productCategoryDTO,
-     * or with status {@code 400 (Bad Request)} if the productCategoryDTO is not valid,
+     * or with status {@code 412 (Precondition Failed)} if the productCategory does not match {@code If-Match},
+     * or with status {@code 409 (Conflict)} if the version of the productCategoryDTO is not the current one,
+     * or with status {@code 400 (Bad Request)} if the productCategoryDTO is not valid or has no entity with its id,
      * or with status {@code 500 (Internal Server Error)} if the productCategoryDTO couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
     @PutMapping("/product-categories")
-    public ResponseEntity<ProductCategoryDTO> updateProductCategory(@Valid @RequestBody ProductCategoryDTO productCategoryDTO) throws URISyntaxException {
+    public ResponseEntity<ProductCategoryDTO> updateProductCategory(@Valid @RequestBody ProductCategoryDTO productCategoryDTO,
+        @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) throws URISyntaxException {
         log.debug("REST request to update ProductCategory : {}", productCategoryDTO);
         if (productCategoryDTO.getId() == null) {
             throw new BadRequestAlertException("Invalid id", ENTITY_NAME, "idnull");
         }
+        ConditionalRequests.checkIfMatch(ifMatch, () -> entityVersionService.findVersion(ProductCategory.class, productCategoryDTO.getId()), productCategoryDTO, ENTITY_NAME);
         ProductCategoryDTO result = productCategoryService.save(productCategoryDTO);
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, productCategoryDTO.getId().toString()))
+            .headers(ConditionalRequests.validators(entityVersionService.findVersion(ProductCategory.class, result.getId())))
             .body(result);
     }
 
@@ -90,13 +111,16 @@ public class ProductCategoryResource {
      * {@code GET  /product-categories} : get all the productCategories.
      *
      * @param criteria the criteria which the requested entities should match.
+     * @param request the request, whose response is cached by the {@link CatalogueResponseCache}.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of productCategories in body.
      */
     @GetMapping("/product-categories")
-    public ResponseEntity<List<ProductCategoryDTO>> getAllProductCategories(ProductCategoryCriteria criteria) {
+    public ResponseEntity<byte[]> getAllProductCategories(ProductCategoryCriteria criteria, HttpServletRequest request) {
         log.debug("REST request to get ProductCategories by criteria: {}", criteria);
-        List<ProductCategoryDTO> entityList = productCategoryQueryService.findByCriteria(criteria);
-        return ResponseEntity.ok().body(entityList);
+        return catalogueResponseCache.get(request, () -> {
+            List<ProductCategoryDTO> entityList = productCategoryQueryService.findByCriteria(criteria);
+            return ResponseEntity.ok().body(entityList);
+        }, criteria);
     }
 
     /**
@@ -115,13 +139,16 @@ public class ProductCategoryResource {
      * {@code GET  /product-categories/:id} : get the "id" productCategory.
      *
      * @param id the id of the productCategoryDTO to retrieve.
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the productCategoryDTO, or with status {@code 404 (Not Found)}.
+     * @param headers the request headers, with the conditions of a conditional request.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the productCategoryDTO, or with status {@code 304 (Not Modified)},
+     * or with status {@code 404 (Not Found)}.
      */
     @GetMapping("/product-categories/{id}")
-    public ResponseEntity<ProductCategoryDTO> getProductCategory(@PathVariable Long id) {
+    public ResponseEntity<ProductCategoryDTO> getProductCategory(@PathVariable Long id, @RequestHeader HttpHeaders headers) {
         log.debug("REST request to get ProductCategory : {}", id);
-        Optional<ProductCategoryDTO> productCategoryDTO = productCategoryService.findOne(id);
-        return ResponseUtil.wrapOrNotFound(productCategoryDTO);
+        return ConditionalRequests.wrapOrNotModified(headers,
+            () -> entityVersionService.findVersion(ProductCategory.class, id),
+            () -> productCategoryService.findOne(id));
     }
 
     /**
@@ -149,4 +176,26 @@ public class ProductCategoryResource {
         log.debug("REST request to search ProductCategories for query {}", query);
         return productCategoryService.search(query);
     }
+
+    /**
+     * {@code SEARCH  /_search/product-categories?query=:query&after=:cursor} : search for the productCategorys corresponding to the query
+     * using keyset pagination.
+     * <p>
+     * An empty cursor returns the first page, sorted by relevance unless sorted by a property. The pages are not limited
+     * to the result window, the total count is not computed and the cursor of the next page, if any, is returned in
+     * the {@code Link} header.
+     *
+     * @param query the query of the productCategory search.
+     * @param after the cursor returned with the previous page, or an empty value for the first page.
+     * @param pageable the page size, and the sort of the first page.
+     * @return the result of the search.
+     */
+    @GetMapping(value = "/_search/product-categories", params = KeysetPaginationUtil.AFTER_PARAMETER)
+    public ResponseEntity<List<ProductCategoryDTO>> searchProductCategoriesAfter(@RequestParam String query, @RequestParam String after, Pageable pageable) {
+        log.debug("REST request to search for ProductCategories for query {} after {}", query, after);
+        KeysetCursor cursor = KeysetPaginationUtil.resolveSearchCursor(after, pageable);
+        KeysetSlice<ProductCategoryDTO> slice = productCategoryService.search(query, cursor, pageable.getPageSize());
+        HttpHeaders headers = KeysetPaginationUtil.generateKeysetHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), slice);
+        return ResponseEntity.ok().headers(headers).body(slice.getContent());
+    }
 }
@@ -1,30 +1,45 @@
 package es.fabio.web.rest;
 
+import es.fabio.domain.ProductOrder;
 import es.fabio.service.ProductOrderService;
+import es.fabio.service.EntityVersionService;
 import es.fabio.web.rest.errors.BadRequestAlertException;
+import es.fabio.web.rest.util.ConditionalRequests;
 import es.fabio.service.dto.ProductOrderDTO;
 import es.fabio.service.dto.ProductOrderCriteria;
 import es.fabio.service.ProductOrderQueryService;
+import es.fabio.service.dto.KeysetCursor;
+import es.fabio.service.dto.KeysetSlice;
+import es.fabio.web.rest.util.KeysetPaginationUtil;
+import es.fabio.service.BulkSaver;
+import es.fabio.service.dto.BulkItemResult;
+import es.fabio.web.rest.util.NdjsonReader;
+import es.fabio.web.rest.util.RowExporter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import io.github.jhipster.web.util.HeaderUtil;
 import io.github.jhipster.web.util.PaginationUtil;
-import io.github.jhipster.web.util.ResponseUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
-import java.util.Optional;
 import java.util.stream.StreamSupport;
 
 import static org.elasticsearch.index.query.QueryBuilders.*;
@@ -47,9 +62,30 @@ public class ProductOrderResource {
 
     private final ProductOrderQueryService productOrderQueryService;
 
-    public ProductOrderResource(ProductOrderService productOrderService, ProductOrderQueryService productOrderQueryService) {
+    private final RowExporter<ProductOrderDTO> exporter;
+
+    private final ObjectMapper objectMapper;
+
+    private final BulkSaver bulkSaver;
+
+    private final EntityVersionService entityVersionService;
+
+    public ProductOrderResource(ProductOrderService productOrderService, ProductOrderQueryService productOrderQueryService, ObjectMapper objectMapper, BulkSaver bulkSaver, EntityVersionService entityVersionService) {
         this.productOrderService = productOrderService;
         this.productOrderQueryService = productOrderQueryService;
+        this.objectMapper = objectMapper;
+        this.bulkSaver = bulkSaver;
+        this.entityVersionService = entityVersionService;
+        this.exporter = new RowExporter<>(objectMapper, ProductOrderDTO.class)
+            .column("id", ProductOrderDTO::getId)
+            .column("placedDate", ProductOrderDTO::getPlacedDate)
+            .column("status", ProductOrderDTO::getStatus)
+            .column("code", ProductOrderDTO::getCode)
+            .column("invoiceId", ProductOrderDTO::getInvoiceId)
+            .column("total", ProductOrderDTO::getTotal)
+            .column("itemCount", ProductOrderDTO::getItemCount)
+            .column("customerId", ProductOrderDTO::getCustomerId)
+            .column("customerEmail", ProductOrderDTO::getCustomerEmail);
     }
 
     /**
@@ -75,23 +111,58 @@ public class ProductOrderResource {
      * {@code PUT  /product-orders} : Updates an existing productOrder.
      *
      * @param productOrderDTO the productOrderDTO to update.
+     * @param ifMatch the ETags which the current productOrder must match, if any.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated productOrderDTO,
-     * or with status {@code 400 (Bad Request)} if the productOrderDTO is not valid,
+     * or with status {@code 412 (Precondition Failed)} if the productOrder does not match {@code If-Match},
+     * or with status {@code 409 (Conflict)} if the version of the productOrderDTO is not the current one,
+     * or with status {@code 400 (Bad Request)} if the productOrderDTO is not valid or has no entity with its id,
      * or with status {@code 500 (Internal Server Error)} if the productOrderDTO couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
     @PutMapping("/product-orders")
-    public ResponseEntity<ProductOrderDTO> updateProductOrder(@Valid @RequestBody ProductOrderDTO productOrderDTO) throws URISyntaxException {
+    public ResponseEntity<ProductOrderDTO> updateProductOrder(@Valid @RequestBody ProductOrderDTO productOrderDTO,
+        @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) throws URISyntaxException {
         log.debug("REST request to update ProductOrder : {}", productOrderDTO);
         if (productOrderDTO.getId() == null) {
             throw new BadRequestAlertException("Invalid id", ENTITY_NAME, "idnull");
         }
+        ConditionalRequests.checkIfMatch(ifMatch, () -> entityVersionService.findVersion(ProductOrder.class, productOrderDTO.getId()), productOrderDTO, ENTITY_NAME);
         ProductOrderDTO result = productOrderService.save(productOrderDTO);
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, productOrderDTO.getId().toString()))
+            .headers(ConditionalRequests.validators(entityVersionService.findVersion(ProductOrder.class, result.getId())))
             .body(result);
     }
 
+    /**
+     * {@code POST  /product-orders/bulk} : Create or update many productOrders.
+     * <p>
+     * The items without id are created and the others updated. Each item is validated and saved independently, so an
+     * invalid item is reported in its result and does not prevent the others from being saved.
+     *
+     * @param productOrderDTOs the productOrderDTOs to create or update.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the result of each item, in the request order.
+     */
+    @PostMapping(value = "/product-orders/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<BulkItemResult<ProductOrderDTO>>> bulkSaveProductOrders(@RequestBody List<ProductOrderDTO> productOrderDTOs) {
+        log.debug("REST request to bulk save {} ProductOrders", productOrderDTOs.size());
+        return ResponseEntity.ok(bulkSaver.saveAll(productOrderDTOs.iterator(), ProductOrderDTO::getId, productOrderService::saveAll));
+    }
+
+    /**
+     * {@code POST  /product-orders/bulk} : Create or update many productOrders sent as newline delimited JSON, read as they are saved.
+     *
+     * @param request the request, with one productOrderDTO per line.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the result of each line, in the request order.
+     * @throws IOException if the request cannot be read.
+     */
+    @PostMapping(value = "/product-orders/bulk", consumes = NdjsonReader.MEDIA_TYPE)
+    public ResponseEntity<List<BulkItemResult<ProductOrderDTO>>> bulkSaveProductOrdersAsNdjson(HttpServletRequest request) throws IOException {
+        log.debug("REST request to bulk save ProductOrders as NDJSON");
+        NdjsonReader<ProductOrderDTO> items = new NdjsonReader<>(objectMapper, ProductOrderDTO.class, request.getInputStream());
+        return ResponseEntity.ok(bulkSaver.saveAll(items, ProductOrderDTO::getId, productOrderService::saveAll));
+    }
+
     /**
      * {@code GET  /product-orders} : get all the productOrders.
      *
@@ -107,6 +178,46 @@ public class ProductOrderResource {
         return ResponseEntity.ok().headers(headers).body(page.getContent());
     }
 
+    /**
+     * {@code GET  /product-orders?after=:cursor} : get the productOrders using keyset pagination.
+     * <p>
+     * An empty cursor returns the first page, sorted by the requested sort. The total count is not computed
+     * and the cursor of the next page, if any, is returned in the {@code Link} header.
+     *
+     * @param criteria the criteria which the requested entities should match.
+     * @param after the cursor returned with the previous page, or an empty value for the first page.
+     * @param pageable the page size, and the sort of the first page.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of productOrders in body.
+     */
+    @GetMapping(value = "/product-orders", params = KeysetPaginationUtil.AFTER_PARAMETER)
+    public ResponseEntity<List<ProductOrderDTO>> getAllProductOrdersAfter(ProductOrderCriteria criteria, @RequestParam String after, Pageable pageable) {
+        log.debug("REST request to get ProductOrders by criteria: {} after: {}", criteria, after);
+        KeysetCursor cursor = KeysetPaginationUtil.resolveCursor(after, pageable);
+        KeysetSlice<ProductOrderDTO> slice = productOrderQueryService.findByCriteria(criteria, cursor, pageable.getPageSize());
+        HttpHeaders headers = KeysetPaginationUtil.generateKeysetHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), slice);
+        return ResponseEntity.ok().headers(headers).body(slice.getContent());
+    }
+
+    /**
+     * {@code GET  /product-orders/export?format=ndjson|csv} : export all the productOrders matching the criteria.
+     * <p>
+     * The rows are streamed from the database to the response as they are read, so the export is not limited
+     * in size and is not paginated.
+     *
+     * @param criteria the criteria which the requested entities should match.
+     * @param format the format of the export, {@code ndjson} (default) or {@code csv}.
+     * @param sort the order of the rows, by id if not given.
+     * @param response the response the rows are written to.
+     * @throws IOException if the response cannot be written.
+     */
+    @GetMapping("/product-orders/export")
+    public void exportProductOrders(ProductOrderCriteria criteria, @RequestParam(defaultValue = "ndjson") String format, Sort sort, HttpServletResponse response) throws IOException {
+        log.debug("REST request to export ProductOrders by criteria: {} as {}", criteria, format);
+        RowExporter.Format exportFormat = RowExporter.Format.of(format)
+            .orElseThrow(() -> new BadRequestAlertException("Invalid export format", ENTITY_NAME, "exportformatinvalid"));
+        exporter.export(response, exportFormat, "product-orders", rows -> productOrderQueryService.exportByCriteria(criteria, sort, rows));
+    }
+
     /**
      * {@code GET  /product-orders/count} : count all the productOrders.
      *
@@ -123,13 +234,16 @@ public class ProductOrderResource {
      * {@code GET  /product-orders/:id} : get the "id" productOrder.
      *
      * @param id the id of the productOrderDTO to retrieve.
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the productOrderDTO, or with status {@code 404 (Not Found)}.
+     * @param headers the request headers, with the conditions of a conditional request.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the productOrderDTO, or with status {@code 304 (Not Modified)},
+     * or with status {@code 404 (Not Found)}.
      */
     @GetMapping("/product-orders/{id}")
-    public ResponseEntity<ProductOrderDTO> getProductOrder(@PathVariable Long id) {
+    public ResponseEntity<ProductOrderDTO> getProductOrder(@PathVariable Long id, @RequestHeader HttpHeaders headers) {
         log.debug("REST request to get ProductOrder : {}", id);
-        Optional<ProductOrderDTO> productOrderDTO = productOrderService.findOne(id);
-        return ResponseUtil.wrapOrNotFound(productOrderDTO);
+        return ConditionalRequests.wrapOrNotModified(headers,
+            () -> entityVersionService.findVersion(ProductOrder.class, id),
+            () -> productOrderService.findOne(id));
     }
 
     /**
@@ -160,4 +274,26 @@ public class ProductOrderResource {
         HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
         return ResponseEntity.ok().headers(headers).body(page.getContent());
         }
+
+    /**
+     * {@code SEARCH  /_search/product-orders?query=:query&after=:cursor} : search for the productOrders corresponding to the query
+     * using keyset pagination.
+     * <p>
+     * An empty cursor returns the first page, sorted by relevance unless sorted by a property. The pages are not limited
+     * to the result window, the total count is not computed and the cursor of the next page, if any, is returned in
+     * the {@code Link} header.
+     *
+     * @param query the query of the productOrder search.
+     * @param after the cursor returned with the previous page, or an empty value for the first page.
+     * @param pageable the page size, and the sort of the first page.
+     * @return the result of the search.
+     */
+    @GetMapping(value = "/_search/product-orders", params = KeysetPaginationUtil.AFTER_PARAMETER)
+    public ResponseEntity<List<ProductOrderDTO>> searchProductOrdersAfter(@RequestParam String query, @RequestParam String after, Pageable pageable) {
+        log.debug("REST request to search for ProductOrders for query {} after {}", query, after);
+        KeysetCursor cursor = KeysetPaginationUtil.resolveSearchCursor(after, pageable);
+        KeysetSlice<ProductOrderDTO> slice = productOrderService.search(query, cursor, pageable.getPageSize());
+        HttpHeaders headers = KeysetPaginationUtil.generateKeysetHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), slice);
+        return ResponseEntity.ok().headers(headers).body(slice.getContent());
+    }
 }
@@ -1,30 +1,53 @@
 package es.fabio.web.rest;
 
+import es.fabio.domain.Producto;
 import es.fabio.service.ProductoService;
+import es.fabio.service.EntityVersionService;
 import es.fabio.web.rest.errors.BadRequestAlertException;
+import es.fabio.web.rest.util.CatalogueResponseCache;
+import es.fabio.web.rest.util.ConditionalRequests;
 import es.fabio.service.dto.ProductoDTO;
 import es.fabio.service.dto.ProductoCriteria;
+import es.fabio.service.dto.ProductoSearch;
+import es.fabio.service.dto.ProductoSearchResultDTO;
+import es.fabio.service.dto.SuggestionDTO;
 import es.fabio.service.ProductoQueryService;
+import es.fabio.service.dto.KeysetCursor;
+import es.fabio.service.dto.KeysetSlice;
+import es.fabio.web.rest.util.KeysetPaginationUtil;
+import es.fabio.service.BulkSaver;
+import es.fabio.service.dto.BulkItemResult;
+import es.fabio.web.rest.util.NdjsonReader;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import io.github.jhipster.web.util.HeaderUtil;
 import io.github.jhipster.web.util.PaginationUtil;
-import io.github.jhipster.web.util.ResponseUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.StreamSupport;
 
 import static org.elasticsearch.index.query.QueryBuilders.*;
@@ -40,6 +63,10 @@ public class ProductoResource {
 
     private static final String ENTITY_NAME = "producto";
 
+    private static final long SUGGESTIONS_MAX_AGE_SECONDS = 60;
+
+    private static final long IMAGE_MAX_AGE_DAYS = 365;
+
     @Value("${jhipster.clientApp.name}")
     private String applicationName;
 
@@ -47,9 +74,22 @@ public class ProductoResource {
 
     private final ProductoQueryService productoQueryService;
 
-    public ProductoResource(ProductoService productoService, ProductoQueryService productoQueryService) {
+    private final ObjectMapper objectMapper;
+
+    private final BulkSaver bulkSaver;
+
+    private final EntityVersionService entityVersionService;
+
+    private final CatalogueResponseCache catalogueResponseCache;
+
+    public ProductoResource(ProductoService productoService, ProductoQueryService productoQueryService, ObjectMapper objectMapper, BulkSaver bulkSaver,
+                            EntityVersionService entityVersionService, CatalogueResponseCache catalogueResponseCache) {
         this.productoService = productoService;
         this.productoQueryService = productoQueryService;
+        this.objectMapper = objectMapper;
+        this.bulkSaver = bulkSaver;
+        this.entityVersionService = entityVersionService;
+        this.catalogueResponseCache = catalogueResponseCache;
     }
 
     /**
@@ -75,36 +115,94 @@ public class ProductoResource {
      * {@code PUT  /productos} : Updates an existing producto.
      *
      * @param productoDTO the productoDTO to update.
+     * @param ifMatch the ETags which the current producto must match, if any.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated productoDTO,
-     * or with status {@code 400 (Bad Request)} if the productoDTO is not valid,
+     * or with status {@code 412 (Precondition Failed)} if the producto does not match {@code If-Match},
+     * or with status {@code 409 (Conflict)} if the version of the productoDTO is not the current one,
+     * or with status {@code 400 (Bad Request)} if the productoDTO is not valid or has no entity with its id,
      * or with status {@code 500 (Internal Server Error)} if the productoDTO couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
     @PutMapping("/productos")
-    public ResponseEntity<ProductoDTO> updateProducto(@Valid @RequestBody ProductoDTO productoDTO) throws URISyntaxException {
+    public ResponseEntity<ProductoDTO> updateProducto(@Valid @RequestBody ProductoDTO productoDTO,
+        @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) throws URISyntaxException {
         log.debug("REST request to update Producto : {}", productoDTO);
         if (productoDTO.getId() == null) {
             throw new BadRequestAlertException("Invalid id", ENTITY_NAME, "idnull");
         }
+        ConditionalRequests.checkIfMatch(ifMatch, () -> entityVersionService.findVersion(Producto.class, productoDTO.getId()), productoDTO, ENTITY_NAME);
         ProductoDTO result = productoService.save(productoDTO);
         return ResponseEntity.ok()
             .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, productoDTO.getId().toString()))
+            .headers(ConditionalRequests.validators(entityVersionService.findVersion(Producto.class, result.getId())))
             .body(result);
     }
 
+    /**
+     * {@code POST  /productos/bulk} : Create or update many productos.
+     * <p>
+     * The items without id are created and the others updated. Each item is validated and saved independently, so an
+     * invalid item is reported in its result and does not prevent the others from being saved.
+     *
+     * @param productoDTOs the productoDTOs to create or update.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the result of each item, in the request order.
+     */
+    @PostMapping(value = "/productos/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<BulkItemResult<ProductoDTO>>> bulkSaveProductos(@RequestBody List<ProductoDTO> productoDTOs) {
+        log.debug("REST request to bulk save {} Productos", productoDTOs.size());
+        return ResponseEntity.ok(bulkSaver.saveAll(productoDTOs.iterator(), ProductoDTO::getId, productoService::saveAll));
+    }
+
+    /**
+     * {@code POST  /productos/bulk} : Create or update many productos sent as newline delimited JSON, read as they are saved.
+     *
+     * @param request the request, with one productoDTO per line.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the result of each line, in the request order.
+     * @throws IOException if the request cannot be read.
+     */
+    @PostMapping(value = "/productos/bulk", consumes = NdjsonReader.MEDIA_TYPE)
+    public ResponseEntity<List<BulkItemResult<ProductoDTO>>> bulkSaveProductosAsNdjson(HttpServletRequest request) throws IOException {
+        log.debug("REST request to bulk save Productos as NDJSON");
+        NdjsonReader<ProductoDTO> items = new NdjsonReader<>(objectMapper, ProductoDTO.class, request.getInputStream());
+        return ResponseEntity.ok(bulkSaver.saveAll(items, ProductoDTO::getId, productoService::saveAll));
+    }
+
     /**
      * {@code GET  /productos} : get all the productos.
      *
      * @param pageable the pagination information.
      * @param criteria the criteria which the requested entities should match.
+     * @param request the request, whose response is cached by the {@link CatalogueResponseCache}.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of productos in body.
      */
     @GetMapping("/productos")
-    public ResponseEntity<List<ProductoDTO>> getAllProductos(ProductoCriteria criteria, Pageable pageable) {
+    public ResponseEntity<byte[]> getAllProductos(ProductoCriteria criteria, Pageable pageable, HttpServletRequest request) {
         log.debug("REST request to get Productos by criteria: {}", criteria);
-        Page<ProductoDTO> page = productoQueryService.findByCriteria(criteria, pageable);
-        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
-        return ResponseEntity.ok().headers(headers).body(page.getContent());
+        return catalogueResponseCache.get(request, () -> {
+            Page<ProductoDTO> page = productoQueryService.findByCriteria(criteria, pageable);
+            HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
+            return ResponseEntity.ok().headers(headers).body(page.getContent());
+        }, criteria, pageable);
+    }
+
+    /**
+     * {@code GET  /productos?after=:cursor} : get the productos using keyset pagination.
+     * <p>
+     * An empty cursor returns the first page, sorted by the requested sort. The total count is not computed
+     * and the cursor of the next page, if any, is returned in the {@code Link} header.
+     *
+     * @param criteria the criteria which the requested entities should match.
+     * @param after the cursor returned with the previous page, or an empty value for the first page.
+     * @param pageable the page size, and the sort of the first page.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of productos in body.
+     */
+    @GetMapping(value = "/productos", params = KeysetPaginationUtil.AFTER_PARAMETER)
+    public ResponseEntity<List<ProductoDTO>> getAllProductosAfter(ProductoCriteria criteria, @RequestParam String after, Pageable pageable) {
+        log.debug("REST request to get Productos by criteria: {} after: {}", criteria, after);
+        KeysetCursor cursor = KeysetPaginationUtil.resolveCursor(after, pageable);
+        KeysetSlice<ProductoDTO> slice = productoQueryService.findByCriteria(criteria, cursor, pageable.getPageSize());
+        HttpHeaders headers = KeysetPaginationUtil.generateKeysetHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), slice);
+        return ResponseEntity.ok().headers(headers).body(slice.getContent());
     }
 
     /**
@@ -123,13 +221,72 @@ public class ProductoResource {
      * {@code GET  /productos/:id} : get the "id" producto.
      *
      * @param id the id of the productoDTO to retrieve.
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the productoDTO, or with status {@code 404 (Not Found)}.
+     * @param headers the request headers, with the conditions of a conditional request.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the productoDTO, or with status {@code 304 (Not Modified)},
+     * or with status {@code 404 (Not Found)}.
      */
     @GetMapping("/productos/{id}")
-    public ResponseEntity<ProductoDTO> getProducto(@PathVariable Long id) {
+    public ResponseEntity<ProductoDTO> getProducto(@PathVariable Long id, @RequestHeader HttpHeaders headers) {
         log.debug("REST request to get Producto : {}", id);
-        Optional<ProductoDTO> productoDTO = productoService.findOne(id);
-        return ResponseUtil.wrapOrNotFound(productoDTO);
+        return ConditionalRequests.wrapOrNotModified(headers,
+            () -> entityVersionService.findVersion(Producto.class, id),
+            () -> productoService.findOne(id));
+    }
+
+    /**
+     * {@code GET  /productos/:id/image} : get the image of the "id" producto.
+     * <p>
+     * The image hash is sent as strong ETag, and a matching {@code If-None-Match} is answered without loading the image.
+     * Versioned URLs, as given by {@link ProductoDTO#getImageUrl()}, may be cached for a long time as a new image gets a
+     * new URL, while unversioned ones have to be revalidated.
+     *
+     * @param id the id of the producto whose image to retrieve.
+     * @param version the image hash of a versioned URL.
+     * @param ifNoneMatch the ETags of the copies held by the client.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the image bytes,
+     * or with status {@code 304 (Not Modified)}, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/productos/{id}/image")
+    public ResponseEntity<Resource> getProductoImage(@PathVariable Long id,
+                                                     @RequestParam(name = "v", required = false) String version,
+                                                     @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        log.debug("REST request to get the image of Producto : {}", id);
+        Optional<String> etag = productoService.findImageEtag(id);
+        if (etag.isPresent() && etagMatches(ifNoneMatch, etag.get())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(etag.get())
+                .cacheControl(imageCacheControl(version, etag.get()))
+                .build();
+        }
+        return productoService.findImage(id)
+            .map(image -> ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(image.getContentType()))
+                .contentLength(image.getData().length)
+                .eTag(image.getEtag())
+                .cacheControl(imageCacheControl(version, image.getEtag()))
+                .body((Resource) new ByteArrayResource(image.getData())))
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    private static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String quotedEtag = "\"" + etag + "\"";
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if ("*".equals(trimmed) || quotedEtag.equals(trimmed) || ("W/" + quotedEtag).equals(trimmed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static CacheControl imageCacheControl(String version, String etag) {
+        if (etag.equals(version)) {
+            return CacheControl.maxAge(IMAGE_MAX_AGE_DAYS, TimeUnit.DAYS).cachePublic();
+        }
+        return CacheControl.noCache().cachePublic();
     }
 
     /**
@@ -151,13 +308,120 @@ public class ProductoResource {
      *
      * @param query the query of the producto search.
      * @param pageable the pagination information.
+     * @param request the request, whose response is cached by the {@link CatalogueResponseCache}.
      * @return the result of the search.
      */
     @GetMapping("/_search/productos")
-    public ResponseEntity<List<ProductoDTO>> searchProductos(@RequestParam String query, Pageable pageable) {
+    public ResponseEntity<byte[]> searchProductos(@RequestParam String query, Pageable pageable, HttpServletRequest request) {
         log.debug("REST request to search for a page of Productos for query {}", query);
-        Page<ProductoDTO> page = productoService.search(query, pageable);
-        HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
-        return ResponseEntity.ok().headers(headers).body(page.getContent());
-        }
+        return catalogueResponseCache.get(request, () -> {
+            Page<ProductoDTO> page = productoService.search(query, pageable);
+            HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
+            return ResponseEntity.ok().headers(headers).body(page.getContent());
+        }, query, pageable);
+    }
+
+    /**
+     * {@code SEARCH  /_search/productos?text=:text} : search for the productos matching the typed search.
+     * <p>
+     * The text is matched against the names, boosted, and the descriptions. The productos can be filtered by
+     * {@code productCategoryIds}, {@code sizes}, {@code minPrice} and {@code maxPrice}, and sorted by {@code price},
+     * {@code name} or {@code id} instead of relevance.
+     *
+     * @param search the typed search.
+     * @param pageable the pagination information.
+     * @param request the request, whose response is cached by the {@link CatalogueResponseCache}.
+     * @return the result of the search.
+     */
+    @GetMapping(value = "/_search/productos", params = "!query")
+    public ResponseEntity<byte[]> searchProductos(ProductoSearch search, Pageable pageable, HttpServletRequest request) {
+        log.debug("REST request to search for a page of Productos for {}", search);
+        return catalogueResponseCache.get(request, () -> {
+            Page<ProductoDTO> page = productoService.search(search, pageable);
+            HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
+            return ResponseEntity.ok().headers(headers).body(page.getContent());
+        }, search, pageable);
+    }
+
+    /**
+     * {@code SEARCH  /_search/productos?query=:query&after=:cursor} : search for the productos corresponding to the query
+     * using keyset pagination.
+     * <p>
+     * An empty cursor returns the first page, sorted by relevance unless sorted by a property. The pages are not limited
+     * to the result window, the total count is not computed and the cursor of the next page, if any, is returned in
+     * the {@code Link} header.
+     *
+     * @param query the query of the producto search.
+     * @param after the cursor returned with the previous page, or an empty value for the first page.
+     * @param pageable the page size, and the sort of the first page.
+     * @return the result of the search.
+     */
+    @GetMapping(value = "/_search/productos", params = {"query", KeysetPaginationUtil.AFTER_PARAMETER})
+    public ResponseEntity<List<ProductoDTO>> searchProductosAfter(@RequestParam String query, @RequestParam String after, Pageable pageable) {
+        log.debug("REST request to search for Productos for query {} after {}", query, after);
+        KeysetCursor cursor = KeysetPaginationUtil.resolveSearchCursor(after, pageable);
+        KeysetSlice<ProductoDTO> slice = productoService.search(query, cursor, pageable.getPageSize());
+        HttpHeaders headers = KeysetPaginationUtil.generateKeysetHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), slice);
+        return ResponseEntity.ok().headers(headers).body(slice.getContent());
+    }
+
+    /**
+     * {@code SEARCH  /_search/productos?text=:text&after=:cursor} : search for the productos matching the typed search
+     * using keyset pagination.
+     * <p>
+     * Takes the parameters of the typed search. The pages are sorted and returned as by the query search after a
+     * cursor.
+     *
+     * @param search the typed search.
+     * @param after the cursor returned with the previous page, or an empty value for the first page.
+     * @param pageable the page size, and the sort of the first page.
+     * @return the result of the search.
+     */
+    @GetMapping(value = "/_search/productos", params = {"!query", KeysetPaginationUtil.AFTER_PARAMETER})
+    public ResponseEntity<List<ProductoDTO>> searchProductosAfter(ProductoSearch search, @RequestParam String after, Pageable pageable) {
+        log.debug("REST request to search for Productos for {} after {}", search, after);
+        KeysetCursor cursor = KeysetPaginationUtil.resolveSearchCursor(after, pageable);
+        KeysetSlice<ProductoDTO> slice = productoService.search(search, cursor, pageable.getPageSize());
+        HttpHeaders headers = KeysetPaginationUtil.generateKeysetHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), slice);
+        return ResponseEntity.ok().headers(headers).body(slice.getContent());
+    }
+
+    /**
+     * {@code SEARCH  /_search/productos/faceted?text=:text} : search for the productos matching the typed search,
+     * with the counts of the productos by category, size and price band.
+     * <p>
+     * Takes the parameters of the typed search, each facet counting the productos matching it without its own filter.
+     *
+     * @param search the typed search.
+     * @param pageable the pagination information.
+     * @param request the request, whose response is cached by the {@link CatalogueResponseCache}.
+     * @return the page of productos with the facets.
+     */
+    @GetMapping("/_search/productos/faceted")
+    public ResponseEntity<byte[]> searchProductosWithFacets(ProductoSearch search, Pageable pageable, HttpServletRequest request) {
+        log.debug("REST request to search for a page of Productos with facets for {}", search);
+        return catalogueResponseCache.get(request, () -> {
+            ProductoSearchResultDTO result = productoService.searchWithFacets(search, pageable);
+            Page<ProductoDTO> page = new PageImpl<>(result.getContent(), pageable, result.getTotalCount());
+            HttpHeaders headers = PaginationUtil.generatePaginationHttpHeaders(ServletUriComponentsBuilder.fromCurrentRequest(), page);
+            return ResponseEntity.ok().headers(headers).body(result);
+        }, search, pageable);
+    }
+
+    /**
+     * {@code GET  /_suggest/productos?prefix=:prefix} : suggest the productos whose names start with the prefix.
+     * <p>
+     * The suggestions are cached by prefix for a short time, and may be kept by the client for as long.
+     *
+     * @param prefix the prefix typed.
+     * @param size the maximum number of suggestions.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the ids and labels of the suggested productos in body.
+     */
+    @GetMapping("/_suggest/productos")
+    public ResponseEntity<List<SuggestionDTO>> suggestProductos(@RequestParam String prefix, @RequestParam(defaultValue = "10") int size) {
+        log.debug("REST request to suggest Productos for prefix {}", prefix);
+        return ResponseEntity.ok()
+            .cacheControl(CacheControl.maxAge(SUGGESTIONS_MAX_AGE_SECONDS, TimeUnit.SECONDS).cachePrivate())
+            .body(productoService.suggest(prefix.trim().toLowerCase(Locale.ROOT), size));
+    }
 }
@@ -0,0 +1,35 @@
+package es.fabio.web.rest;
+
+import es.fabio.service.QueryPlanAdvisor;
+import es.fabio.service.dto.QueryPlanDTO;
+
+import io.github.jhipster.config.JHipsterConstants;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Management endpoint of the dev profile explaining the criteria queries of the listings.
+ * <p>
+ * {@code GET /management/queryplans} returns the plan of each check of the {@link QueryPlanAdvisor}, with the tables
+ * it reads by a full scan.
+ */
+@Component
+@Profile(JHipsterConstants.SPRING_PROFILE_DEVELOPMENT)
+@WebEndpoint(id = "queryplans")
+public class QueryPlanEndpoint {
+
+    private final QueryPlanAdvisor queryPlanAdvisor;
+
+    public QueryPlanEndpoint(QueryPlanAdvisor queryPlanAdvisor) {
+        this.queryPlanAdvisor = queryPlanAdvisor;
+    }
+
+    @ReadOperation
+    public List<QueryPlanDTO> queryPlans() {
+        return queryPlanAdvisor.explainAll();
+    }
+}
@@ -0,0 +1,61 @@
+package es.fabio.web.rest;
+
+import es.fabio.security.AuthoritiesConstants;
+import es.fabio.service.SalesAnalyticsService;
+import es.fabio.service.dto.SalesBucketDTO;
+import es.fabio.service.dto.SalesQuery;
+import es.fabio.web.rest.errors.BadRequestAlertException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * REST controller for the sales analytics of the admin UI.
+ */
+@RestController
+@RequestMapping("/api/analytics")
+public class SalesAnalyticsResource {
+
+    private static final String ENTITY_NAME = "sales";
+
+    private final Logger log = LoggerFactory.getLogger(SalesAnalyticsResource.class);
+
+    private final SalesAnalyticsService salesAnalyticsService;
+
+    public SalesAnalyticsResource(SalesAnalyticsService salesAnalyticsService) {
+        this.salesAnalyticsService = salesAnalyticsService;
+    }
+
+    /**
+     * {@code GET  /analytics/sales} : get the revenue, units and order items sold per time bucket.
+     * <p>
+     * e.g. {@code /analytics/sales?from=2026-10-01T00:00:00Z&to=2026-11-01T00:00:00Z&granularity=DAY&groupBy=CATEGORY,STATUS&size=M}
+     *
+     * @param query the range {@code [from, to)}, the {@code HOUR} or {@code DAY} granularity, the {@code CATEGORY},
+     *              {@code SIZE} and {@code STATUS} dimensions to group by and the {@code productCategoryId},
+     *              {@code size} and {@code orderStatus} filters.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the non-empty buckets in body,
+     * or with status {@code 400 (Bad Request)} if the range is missing or empty, or if it is an {@code HOUR} range
+     * starting more than {@code application.sales-analytics.hourly-retention-days} ago, the older hours being only
+     * kept by day.
+     */
+    @GetMapping("/sales")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<List<SalesBucketDTO>> getSales(SalesQuery query) {
+        log.debug("REST request to get the sales for {}", query);
+        if (query.getFrom() == null || query.getTo() == null || !query.getFrom().isBefore(query.getTo())) {
+            throw new BadRequestAlertException("The range needs a from before its to", ENTITY_NAME, "invalidrange");
+        }
+        if (query.getGranularity() == null) {
+            throw new BadRequestAlertException("The granularity is HOUR or DAY", ENTITY_NAME, "invalidgranularity");
+        }
+        return ResponseEntity.ok().body(salesAnalyticsService.findSales(query));
+    }
+}
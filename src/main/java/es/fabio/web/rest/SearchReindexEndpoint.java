@@ -0,0 +1,53 @@
+package es.fabio.web.rest;
+
+import es.fabio.domain.SearchReindexJob;
+import es.fabio.service.SearchReindexService;
+
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Management endpoint to rebuild the search indexes from the database.
+ * <p>
+ * {@code POST /management/reindex/{index}} starts, or resumes, the reindex of one index ({@code all} for every index),
+ * {@code GET /management/reindex} returns the progress of the reindex jobs.
+ */
+@Component
+@WebEndpoint(id = "reindex")
+public class SearchReindexEndpoint {
+
+    private static final String ALL = "all";
+
+    private final SearchReindexService searchReindexService;
+
+    public SearchReindexEndpoint(SearchReindexService searchReindexService) {
+        this.searchReindexService = searchReindexService;
+    }
+
+    @ReadOperation
+    public List<SearchReindexJob> jobs() {
+        return searchReindexService.findAll();
+    }
+
+    @WriteOperation
+    public WebEndpointResponse<List<SearchReindexJob>> reindex(@Selector String index) {
+        Collection<String> indexNames = ALL.equals(index) ? searchReindexService.getIndexNames() : Collections.singleton(index);
+        List<SearchReindexJob> jobs = new ArrayList<>();
+        for (String indexName : indexNames) {
+            searchReindexService.reindex(indexName).ifPresent(jobs::add);
+        }
+        if (jobs.isEmpty()) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        return new WebEndpointResponse<>(jobs, 202);
+    }
+}
@@ -0,0 +1,167 @@
+package es.fabio.web.rest.util;
+
+import es.fabio.config.ApplicationProperties;
+import es.fabio.repository.search.SearchTimeouts;
+import es.fabio.service.CatalogueGeneration;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.servlet.http.HttpServletRequest;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Cache of the responses of the catalogue read endpoints, stored serialized so a hit neither queries nor maps nor
+ * serializes anything.
+ * <p>
+ * Responses are keyed by the request URL without its query string, the bound request parameters, such as the criteria
+ * and pageable, the locale and the {@link CatalogueGeneration}: equivalent query strings share their entry, and a
+ * write of the catalogue makes all of them unreachable. The entries carry the {@code ETag} of their body, so the
+ * clients holding it get a {@code 304 (Not Modified)}.
+ * <p>
+ * The size and time-to-live of the cache are those of its {@value #CACHE_NAME} region. Responses larger than
+ * {@code maxBodyBytes} are not cached, so the region holds at most its number of entries times that many bytes, and
+ * neither are the partial responses of the searches which timed out, see {@link SearchTimeouts}.
+ */
+@Component
+public class CatalogueResponseCache {
+
+    public static final String CACHE_NAME = "catalogueResponses";
+
+    private final Logger log = LoggerFactory.getLogger(CatalogueResponseCache.class);
+
+    private final ApplicationProperties.CatalogueCache properties;
+
+    private final CatalogueGeneration catalogueGeneration;
+
+    private final ObjectMapper objectMapper;
+
+    private final Cache<Object, Object> cache;
+
+    public CatalogueResponseCache(ApplicationProperties applicationProperties, CatalogueGeneration catalogueGeneration,
+                                  ObjectMapper objectMapper, CacheManager cacheManager) {
+        this.properties = applicationProperties.getCatalogueCache();
+        this.catalogueGeneration = catalogueGeneration;
+        this.objectMapper = objectMapper;
+        this.cache = cacheManager.getCache(CACHE_NAME);
+    }
+
+    /**
+     * Get the cached response of a request, or load and cache it.
+     *
+     * @param request the request.
+     * @param loader loads the response, with a JSON body.
+     * @param parameters the bound parameters of the request, serializable and with value semantics.
+     * @return the {@link ResponseEntity} with the serialized body of the response and its headers.
+     */
+    public ResponseEntity<byte[]> get(HttpServletRequest request, Supplier<ResponseEntity<?>> loader, Object... parameters) {
+        if (!properties.isEnabled()) {
+            return toResponseEntity(serialize(loader.get()));
+        }
+        Key key = new Key(request.getRequestURL().toString(), Arrays.asList(parameters), LocaleContextHolder.getLocale(), catalogueGeneration.current());
+        CachedResponse response = (CachedResponse) cache.get(key);
+        if (response == null) {
+            response = serialize(loader.get());
+            if (SearchTimeouts.hasTimedOut()) {
+                log.debug("Not caching the partial response of a timed out search for {}", key);
+            } else if (response.body.length <= properties.getMaxBodyBytes()) {
+                cache.put(key, response);
+            } else {
+                log.debug("Not caching a response of {} bytes for {}", response.body.length, key);
+            }
+        }
+        return toResponseEntity(response);
+    }
+
+    private CachedResponse serialize(ResponseEntity<?> response) {
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(response.getBody());
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(response.getHeaders());
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setETag("\"" + DigestUtils.md5DigestAsHex(body) + "\"");
+        return new CachedResponse(body, headers);
+    }
+
+    private static ResponseEntity<byte[]> toResponseEntity(CachedResponse response) {
+        return ResponseEntity.ok().headers(response.headers).body(response.body);
+    }
+
+    private static final class Key implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String url;
+
+        private final List<Object> parameters;
+
+        private final Locale locale;
+
+        private final long generation;
+
+        private Key(String url, List<Object> parameters, Locale locale, long generation) {
+            this.url = url;
+            this.parameters = parameters;
+            this.locale = locale;
+            this.generation = generation;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return generation == key.generation && url.equals(key.url) && parameters.equals(key.parameters)
+                && Objects.equals(locale, key.locale);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(url, parameters, locale, generation);
+        }
+
+        @Override
+        public String toString() {
+            return url + " " + parameters + " " + locale + " @" + generation;
+        }
+    }
+
+    private static final class CachedResponse implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final byte[] body;
+
+        private final HttpHeaders headers;
+
+        private CachedResponse(byte[] body, HttpHeaders headers) {
+            this.body = body;
+            this.headers = headers;
+        }
+    }
+}
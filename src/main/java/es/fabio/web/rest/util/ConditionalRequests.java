@@ -0,0 +1,141 @@
+package es.fabio.web.rest.util;
+
+import es.fabio.domain.Versioned;
+import es.fabio.service.dto.EntityVersion;
+import es.fabio.web.rest.errors.PreconditionFailedAlertException;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Utility class for the conditional requests of the entity resources, based on the {@link Versioned} entities.
+ * <p>
+ * The strong {@code ETag} of an entity is its quoted {@link EntityVersion#getTag() tag}: its version, followed by the
+ * versions of the entities its DTO holds a label of. A GET with a matching {@code If-None-Match}, or an
+ * {@code If-Modified-Since} not older than the {@code Last-Modified} of the entity, is answered with
+ * {@code 304 (Not Modified)} from the versions alone. An update with an {@code If-Match} which does not match the
+ * current tag fails with {@code 412 (Precondition Failed)}, and the version of the {@code ETag} is the one checked
+ * by the optimistic locking of the update.
+ */
+public final class ConditionalRequests {
+
+    private static final String ANY = "*";
+
+    private static final String WEAK_PREFIX = "W/";
+
+    private ConditionalRequests() {
+    }
+
+    /**
+     * @param version the version of an entity.
+     * @return its strong entity tag.
+     */
+    public static String eTag(EntityVersion version) {
+        return "\"" + version.getTag() + "\"";
+    }
+
+    /**
+     * Answer a GET of an entity, with {@code 304 (Not Modified)} if the client holds its current version.
+     *
+     * @param requestHeaders the headers of the request.
+     * @param currentVersion reads the current version of the entity.
+     * @param body reads the entity.
+     * @param <T> the type of the DTO.
+     * @return the {@link ResponseEntity} with status {@code 304 (Not Modified)}, or {@code 200 (OK)} with the entity in
+     * body and its {@code ETag} and {@code Last-Modified}.
+     * @throws ResponseStatusException {@code 404 (Not Found)} if the entity does not exist.
+     */
+    public static <T> ResponseEntity<T> wrapOrNotModified(HttpHeaders requestHeaders,
+                                                          Supplier<Optional<EntityVersion>> currentVersion,
+                                                          Supplier<Optional<T>> body) {
+        // Read before the entity, so that a concurrent update can only give the entity a newer state than its tag.
+        Optional<EntityVersion> version = currentVersion.get();
+        if (version.isPresent() && isConditional(requestHeaders) && isNotModified(requestHeaders, version.get())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .headers(validators(version.get()))
+                .build();
+        }
+        return version.flatMap(current -> body.get().map(dto -> ResponseEntity.ok().headers(validators(current)).body(dto)))
+            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    }
+
+    /**
+     * Check the {@code If-Match} precondition of an update, and use its version for the optimistic locking.
+     *
+     * @param ifMatch the {@code If-Match} header, may be {@code null}.
+     * @param currentVersion reads the current version of the entity, only called if there is an {@code If-Match}.
+     * @param dto the DTO to update, receiving the version of the matching entity tag; it keeps its own version if
+     *            {@code *} matches, as any state of the entity does.
+     * @param entityName the name of the entity, for the alert.
+     * @throws PreconditionFailedAlertException if no entity tag matches the current version.
+     */
+    public static void checkIfMatch(String ifMatch, Supplier<Optional<EntityVersion>> currentVersion, Versioned dto, String entityName) {
+        if (ifMatch == null || ifMatch.trim().isEmpty()) {
+            return;
+        }
+        Optional<EntityVersion> version = currentVersion.get();
+        if (!version.isPresent()) {
+            throw new PreconditionFailedAlertException("The entity does not exist", entityName, "preconditionfailed");
+        }
+        String eTag = eTag(version.get());
+        for (String tag : ifMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.equals(ANY)) {
+                return;
+            }
+            // If-Match uses the strong comparison, a weak entity tag never matches.
+            if (tag.equals(eTag)) {
+                dto.setVersion(version.get().getVersion());
+                return;
+            }
+        }
+        throw new PreconditionFailedAlertException("The entity was modified", entityName, "preconditionfailed");
+    }
+
+    /**
+     * @param version the version of an entity.
+     * @return the {@code ETag} and {@code Last-Modified} headers of its response.
+     */
+    public static HttpHeaders validators(EntityVersion version) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(eTag(version));
+        if (version.getLastModifiedDate() != null) {
+            headers.setLastModified(version.getLastModifiedDate());
+        }
+        return headers;
+    }
+
+    /**
+     * @param version the version of an entity, empty if it does not exist.
+     * @return the {@code ETag} and {@code Last-Modified} headers of its response, none if it does not exist.
+     */
+    public static HttpHeaders validators(Optional<EntityVersion> version) {
+        return version.map(ConditionalRequests::validators).orElseGet(HttpHeaders::new);
+    }
+
+    private static boolean isConditional(HttpHeaders requestHeaders) {
+        return requestHeaders.containsKey(HttpHeaders.IF_NONE_MATCH) || requestHeaders.containsKey(HttpHeaders.IF_MODIFIED_SINCE);
+    }
+
+    private static boolean isNotModified(HttpHeaders requestHeaders, EntityVersion current) {
+        List<String> ifNoneMatch = requestHeaders.getIfNoneMatch();
+        if (!ifNoneMatch.isEmpty()) {
+            // If-None-Match takes precedence over If-Modified-Since, and uses the weak comparison.
+            String eTag = eTag(current);
+            return ifNoneMatch.stream()
+                .map(tag -> tag.startsWith(WEAK_PREFIX) ? tag.substring(WEAK_PREFIX.length()) : tag)
+                .anyMatch(tag -> tag.equals(ANY) || tag.equals(eTag));
+        }
+        long ifModifiedSince = requestHeaders.getIfModifiedSince();
+        Instant lastModified = current.getLastModifiedDate();
+        // HTTP dates have a precision of one second.
+        return ifModifiedSince >= 0 && lastModified != null && lastModified.getEpochSecond() * 1000 <= ifModifiedSince;
+    }
+}
@@ -0,0 +1,77 @@
+package es.fabio.web.rest.util;
+
+import es.fabio.service.SearchAfterPagination;
+import es.fabio.service.dto.KeysetCursor;
+import es.fabio.service.dto.KeysetSlice;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * Utility class for handling keyset (seek) pagination.
+ * <p>
+ * Keyset pages are requested with an {@code after} parameter holding the opaque cursor returned
+ * with the previous page, or an empty value for the first page. The cursor of the next page is
+ * sent back in a {@code Link} header, following the format used by
+ * {@link io.github.jhipster.web.util.PaginationUtil}, and no {@code X-Total-Count} is computed.
+ */
+public final class KeysetPaginationUtil {
+
+    public static final String AFTER_PARAMETER = "after";
+
+    private static final String HEADER_LINK_FORMAT = "<%s>; rel=\"%s\"";
+
+    private KeysetPaginationUtil() {
+    }
+
+    /**
+     * Resolve the cursor of the requested page.
+     *
+     * @param after the {@code after} request parameter.
+     * @param pageable the pagination information, whose sort is used for the first page.
+     * @return the cursor to seek from.
+     * @throws es.fabio.service.InvalidCursorException if the cursor cannot be decoded.
+     */
+    public static KeysetCursor resolveCursor(String after, Pageable pageable) {
+        if (after == null || after.isEmpty()) {
+            return KeysetCursor.first(pageable.getSort());
+        }
+        return KeysetCursor.decode(after);
+    }
+
+    /**
+     * Resolve the cursor of the requested page of a search, whose first page is sorted by relevance unless sorted.
+     *
+     * @param after the {@code after} request parameter.
+     * @param pageable the pagination information, whose sort is used for the first page.
+     * @return the cursor to search from.
+     * @throws es.fabio.service.InvalidCursorException if the cursor cannot be decoded.
+     */
+    public static KeysetCursor resolveSearchCursor(String after, Pageable pageable) {
+        if (after == null || after.isEmpty()) {
+            return KeysetCursor.first(pageable.getSort().isSorted() ? pageable.getSort() : Sort.by(Sort.Direction.DESC, SearchAfterPagination.SCORE));
+        }
+        return KeysetCursor.decode(after);
+    }
+
+    /**
+     * Generate the keyset pagination headers for a {@link KeysetSlice}.
+     *
+     * @param uriBuilder the builder of the current request URI.
+     * @param slice the slice.
+     * @return the {@link HttpHeaders}, with a {@code next} link if there are more rows.
+     */
+    public static HttpHeaders generateKeysetHttpHeaders(UriComponentsBuilder uriBuilder, KeysetSlice<?> slice) {
+        HttpHeaders headers = new HttpHeaders();
+        if (slice.hasNext()) {
+            String next = uriBuilder
+                .replaceQueryParam(AFTER_PARAMETER, slice.getNext().encode())
+                .replaceQueryParam("page")
+                .toUriString();
+            headers.add(HttpHeaders.LINK, String.format(HEADER_LINK_FORMAT, next, "next"));
+        }
+        return headers;
+    }
+}
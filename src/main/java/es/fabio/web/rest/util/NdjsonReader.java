@@ -0,0 +1,76 @@
+package es.fabio.web.rest.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads a request body of newline delimited JSON one line at a time, so a bulk request of any size is never held in
+ * memory as a whole.
+ * <p>
+ * Blank lines are skipped. A line which is not a valid value makes {@link #next()} throw an
+ * {@link IllegalArgumentException}, after which the following lines can still be read.
+ *
+ * @param <T> the type of the values.
+ */
+public final class NdjsonReader<T> implements Iterator<T> {
+
+    public static final String MEDIA_TYPE = "application/x-ndjson";
+
+    private final BufferedReader reader;
+
+    private final ObjectReader jsonReader;
+
+    private String nextLine;
+
+    private int lineNumber;
+
+    public NdjsonReader(ObjectMapper objectMapper, Class<T> type, InputStream in) {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        this.jsonReader = objectMapper.readerFor(type);
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            while (nextLine == null) {
+                String line = reader.readLine();
+                if (line == null) {
+                    return false;
+                }
+                lineNumber++;
+                if (!line.trim().isEmpty()) {
+                    nextLine = line;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String line = nextLine;
+        nextLine = null;
+        try {
+            return jsonReader.readValue(line);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid JSON on line " + lineNumber + ": " + e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package es.fabio.web.rest.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import org.springframework.http.HttpHeaders;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Writes rows to the response as they are produced, as newline delimited JSON or as CSV, so an export of any size
+ * uses a constant amount of memory.
+ * <p>
+ * The JSON lines are the DTOs serialized by the application {@link ObjectMapper}; the CSV columns are declared with
+ * {@link #column(String, Function)}.
+ *
+ * @param <T> the type of the exported rows.
+ */
+public final class RowExporter<T> {
+
+    /**
+     * The supported export formats.
+     */
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        /**
+         * Resolve a format from the {@code format} request parameter.
+         *
+         * @param name the name of the format, case insensitive.
+         * @return the format, or empty if it is not supported.
+         */
+        public static Optional<Format> of(String name) {
+            for (Format format : values()) {
+                if (format.extension.equalsIgnoreCase(name)) {
+                    return Optional.of(format);
+                }
+            }
+            return Optional.empty();
+        }
+    }
+
+    private static final int WRITER_BUFFER_SIZE = 8192;
+
+    private static final String FORMULA_PREFIXES = "=+-@\t\r";
+
+    private final ObjectWriter jsonWriter;
+
+    private final Map<String, Function<T, ?>> columns = new LinkedHashMap<>();
+
+    public RowExporter(ObjectMapper objectMapper, Class<T> type) {
+        this.jsonWriter = objectMapper.writerFor(type);
+    }
+
+    /**
+     * Add a CSV column.
+     *
+     * @param name the header of the column.
+     * @param value the value of the column for a row.
+     * @return this exporter.
+     */
+    public RowExporter<T> column(String name, Function<T, ?> value) {
+        columns.put(name, value);
+        return this;
+    }
+
+    /**
+     * Write the rows to the response as an attachment.
+     *
+     * @param response the response.
+     * @param format the format of the rows.
+     * @param fileName the name of the attachment, without extension.
+     * @param rows passes each row to the given consumer.
+     * @throws IOException if the response cannot be written.
+     */
+    public void export(HttpServletResponse response, Format format, String fileName, Consumer<Consumer<T>> rows) throws IOException {
+        response.setContentType(format.contentType);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "." + format.extension + "\"");
+        OutputStream out = response.getOutputStream();
+        try {
+            if (format == Format.CSV) {
+                writeCsv(out, rows);
+            } else {
+                writeNdjson(out, rows);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void writeNdjson(OutputStream out, Consumer<Consumer<T>> rows) throws IOException {
+        rows.accept(row -> {
+            try {
+                out.write(jsonWriter.writeValueAsBytes(row));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        out.flush();
+    }
+
+    private void writeCsv(OutputStream out, Consumer<Consumer<T>> rows) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITER_BUFFER_SIZE);
+        writeCsvLine(writer, columns.keySet());
+        rows.accept(row -> {
+            try {
+                List<Object> values = new ArrayList<>(columns.size());
+                for (Function<T, ?> column : columns.values()) {
+                    values.add(column.apply(row));
+                }
+                writeCsvLine(writer, values);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.flush();
+    }
+
+    private static void writeCsvLine(Writer writer, Iterable<?> values) throws IOException {
+        boolean first = true;
+        for (Object value : values) {
+            if (!first) {
+                writer.write(',');
+            }
+            first = false;
+            writer.write(csvValue(value));
+        }
+        writer.write("\r\n");
+    }
+
+    /**
+     * The CSV field of a value.
+     * <p>
+     * A text starting like a spreadsheet formula is prefixed with a quote and quoted, so a user supplied value such as
+     * {@code =HYPERLINK(...)} is shown as text rather than evaluated when the export is opened in a spreadsheet.
+     * Numbers are written as they are, a negative amount is not a formula.
+     */
+    private static String csvValue(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value instanceof BigDecimal ? ((BigDecimal) value).toPlainString() : value.toString();
+        if (!(value instanceof Number) && !text.isEmpty() && FORMULA_PREFIXES.indexOf(text.charAt(0)) >= 0) {
+            return "\"'" + text.replace("\"", "\"\"") + '"';
+        }
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
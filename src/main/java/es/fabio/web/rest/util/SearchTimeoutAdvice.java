@@ -0,0 +1,36 @@
+package es.fabio.web.rest.util;
+
+import es.fabio.repository.search.SearchTimeouts;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Controller advice adding the {@value #TIMED_OUT_HEADER} header to the responses of the requests whose searches timed
+ * out, see {@link SearchTimeouts}: their bodies only hold the hits collected until the timeout.
+ */
+@ControllerAdvice
+public class SearchTimeoutAdvice implements ResponseBodyAdvice<Object> {
+
+    public static final String TIMED_OUT_HEADER = "X-Search-Timed-Out";
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (SearchTimeouts.hasTimedOut()) {
+            response.getHeaders().set(TIMED_OUT_HEADER, "true");
+        }
+        return body;
+    }
+}
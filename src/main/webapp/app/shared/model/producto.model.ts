@@ -8,6 +8,7 @@ export interface IProducto {
   size?: Size;
   imageContentType?: string;
   image?: any;
+  imageUrl?: string;
   productCategoryName?: string;
   productCategoryId?: number;
 }
@@ -21,6 +22,7 @@ export class Producto implements IProducto {
     public size?: Size,
     public imageContentType?: string,
     public image?: any,
+    public imageUrl?: string,
     public productCategoryName?: string,
     public productCategoryId?: number
   ) {}
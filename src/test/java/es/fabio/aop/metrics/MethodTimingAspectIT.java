@@ -0,0 +1,69 @@
+package es.fabio.aop.metrics;
+
+import es.fabio.Application;
+import es.fabio.config.ApplicationProperties;
+import es.fabio.service.ProductCategoryService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Integration tests for the {@link MethodTimingAspect}, enabled on the application beans.
+ */
+@SpringBootTest(classes = Application.class, properties = "application.method-timing.enabled=true")
+public class MethodTimingAspectIT {
+
+    @Autowired
+    private ProductCategoryService productCategoryService;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    public void timesTheServiceCallsByOutcome() {
+        long success = count("success");
+        long error = count("error");
+
+        productCategoryService.findOne(Long.MAX_VALUE);
+        assertThatThrownBy(() -> productCategoryService.findOne(null)).isInstanceOf(RuntimeException.class);
+
+        assertThat(count("success")).isEqualTo(success + 1);
+        assertThat(count("error")).isEqualTo(error + 1);
+    }
+
+    @Test
+    public void skipsTheCallsOutOfTheSample() {
+        ApplicationProperties.MethodTiming properties = applicationProperties.getMethodTiming();
+        double sampleRate = properties.getSampleRate();
+        properties.setSampleRate(0.0);
+        try {
+            long success = count("success");
+
+            productCategoryService.findOne(Long.MAX_VALUE);
+
+            assertThat(count("success")).isEqualTo(success);
+        } finally {
+            properties.setSampleRate(sampleRate);
+        }
+    }
+
+    /**
+     * The number of timed {@code ProductCategoryService.findOne} calls with an outcome, whether the proxy reports the
+     * interface or the implementation as the class.
+     */
+    private long count(String outcome) {
+        return meterRegistry.find("method.timed").tag("method", "findOne").tag("outcome", outcome).timers().stream()
+            .filter(timer -> timer.getId().getTag("class").startsWith(ProductCategoryService.class.getSimpleName()))
+            .mapToLong(Timer::count)
+            .sum();
+    }
+}
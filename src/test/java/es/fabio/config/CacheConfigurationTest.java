@@ -0,0 +1,95 @@
+package es.fabio.config;
+
+import io.github.jhipster.config.JHipsterProperties;
+import org.ehcache.config.CacheRuntimeConfiguration;
+import org.ehcache.config.ResourcePools;
+import org.ehcache.config.ResourceType;
+import org.ehcache.config.units.EntryUnit;
+import org.ehcache.config.units.MemoryUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the regions created by the {@link CacheConfiguration}, in a cache manager of their own.
+ */
+public class CacheConfigurationTest {
+
+    private static final long DEFAULT_ENTRIES = 100;
+
+    private static final int DEFAULT_TIME_TO_LIVE_SECONDS = 3600;
+
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    public void setup() {
+        JHipsterProperties jHipsterProperties = new JHipsterProperties();
+        jHipsterProperties.getCache().getEhcache().setMaxEntries(DEFAULT_ENTRIES);
+        jHipsterProperties.getCache().getEhcache().setTimeToLiveSeconds(DEFAULT_TIME_TO_LIVE_SECONDS);
+
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        ApplicationProperties.Cache.Region producto = new ApplicationProperties.Cache.Region();
+        producto.setHeapEntries(20L);
+        producto.setOffHeapMb(1L);
+        applicationProperties.getCache().getRegions().put("Producto", producto);
+        ApplicationProperties.Cache.Region customer = new ApplicationProperties.Cache.Region();
+        customer.setTimeToIdleSeconds(60L);
+        applicationProperties.getCache().getRegions().put("Customer", customer);
+
+        cacheManager = Caching.getCachingProvider("org.ehcache.jsr107.EhcacheCachingProvider")
+            .getCacheManager(URI.create("cache-configuration-test"), getClass().getClassLoader());
+        new CacheConfiguration(jHipsterProperties, applicationProperties).cacheManagerCustomizer().customize(cacheManager);
+    }
+
+    @AfterEach
+    public void teardown() {
+        cacheManager.close();
+    }
+
+    @Test
+    public void shouldUseTheDefaultsForRegionsWithoutSettings() {
+        CacheRuntimeConfiguration<Object, Object> configuration = runtimeConfiguration(es.fabio.domain.OrderItem.class.getName());
+
+        ResourcePools resourcePools = configuration.getResourcePools();
+        assertThat(resourcePools.getResourceTypeSet()).containsExactly(ResourceType.Core.HEAP);
+        assertThat(resourcePools.getPoolForResource(ResourceType.Core.HEAP).getSize()).isEqualTo(DEFAULT_ENTRIES);
+        assertThat(configuration.getExpiryPolicy().getExpiryForCreation("key", "value"))
+            .isEqualTo(Duration.ofSeconds(DEFAULT_TIME_TO_LIVE_SECONDS));
+    }
+
+    @Test
+    public void shouldAddAnOffHeapTierToTheRegion() {
+        CacheRuntimeConfiguration<Object, Object> configuration = runtimeConfiguration(es.fabio.domain.Producto.class.getName());
+
+        ResourcePools resourcePools = configuration.getResourcePools();
+        assertThat(resourcePools.getPoolForResource(ResourceType.Core.HEAP).getSize()).isEqualTo(20L);
+        assertThat(resourcePools.getPoolForResource(ResourceType.Core.HEAP).getUnit()).isEqualTo(EntryUnit.ENTRIES);
+        assertThat(resourcePools.getPoolForResource(ResourceType.Core.OFFHEAP).getSize()).isEqualTo(1L);
+        assertThat(resourcePools.getPoolForResource(ResourceType.Core.OFFHEAP).getUnit()).isEqualTo(MemoryUnit.MB);
+
+        // The entries go through the serializers of the off-heap tier
+        javax.cache.Cache<Object, Object> cache = cacheManager.getCache(es.fabio.domain.Producto.class.getName());
+        cache.put(1L, "value");
+        assertThat(cache.get(1L)).isEqualTo("value");
+    }
+
+    @Test
+    public void shouldExpireTheRegionAfterIdling() {
+        CacheRuntimeConfiguration<Object, Object> configuration = runtimeConfiguration(es.fabio.domain.Customer.class.getName());
+
+        assertThat(configuration.getResourcePools().getPoolForResource(ResourceType.Core.HEAP).getSize()).isEqualTo(DEFAULT_ENTRIES);
+        assertThat(configuration.getExpiryPolicy().getExpiryForAccess("key", () -> "value")).isEqualTo(Duration.ofSeconds(60));
+    }
+
+    @SuppressWarnings("unchecked")
+    private CacheRuntimeConfiguration<Object, Object> runtimeConfiguration(String cacheName) {
+        return cacheManager.getCache(cacheName).unwrap(org.ehcache.Cache.class).getRuntimeConfiguration();
+    }
+}
@@ -0,0 +1,133 @@
+package es.fabio.config;
+
+import es.fabio.Application;
+import es.fabio.domain.Customer;
+import es.fabio.domain.OrderItem;
+import es.fabio.domain.ProductCategory;
+import es.fabio.domain.ProductOrder;
+import es.fabio.domain.Producto;
+import es.fabio.domain.User;
+import es.fabio.domain.enumeration.OrderItemStatus;
+import es.fabio.domain.enumeration.OrderStatus;
+import es.fabio.domain.enumeration.Size;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.elasticsearch.core.EntityMapper;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for the {@link ElasticsearchConfiguration.CustomEntityMapper}.
+ */
+@SpringBootTest(classes = Application.class)
+public class ElasticsearchEntityMapperIT {
+
+    @Autowired
+    private EntityMapper entityMapper;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void documentsReferenceOtherEntitiesByIdAndLabel() {
+        Map<String, Object> document = entityMapper.mapObject(orderItem());
+
+        assertThat(document).containsEntry("quantity", 2).containsKeys("id", "totalPrice", "status", "version");
+        assertThat((Map<String, Object>) document.get("producto")).containsOnlyKeys("id", "name").containsEntry("name", "AAAAAAAAAA");
+        assertThat((Map<String, Object>) document.get("order")).containsOnlyKeys("id", "code").containsEntry("code", "ORDER-1");
+
+        Map<String, Object> orderDocument = entityMapper.mapObject(orderItem().getOrder());
+        assertThat(orderDocument).doesNotContainKey("orderItems");
+        assertThat((Map<String, Object>) orderDocument.get("customer")).containsOnlyKeys("id", "email");
+
+        Map<String, Object> customerDocument = entityMapper.mapObject(orderItem().getOrder().getCustomer());
+        assertThat(customerDocument).doesNotContainKey("orders");
+        assertThat((Map<String, Object>) customerDocument.get("user")).containsOnlyKeys("id", "login").containsEntry("login", "customer");
+    }
+
+    @Test
+    public void documentsHydrateTheEntities() throws Exception {
+        OrderItem orderItem = orderItem();
+
+        OrderItem fromString = entityMapper.mapToObject(entityMapper.mapToString(orderItem), OrderItem.class);
+        OrderItem fromMap = entityMapper.readObject(entityMapper.mapObject(orderItem), OrderItem.class);
+
+        for (OrderItem hydrated : new OrderItem[] {fromString, fromMap}) {
+            assertThat(hydrated.getId()).isEqualTo(orderItem.getId());
+            assertThat(hydrated.getTotalPrice()).isEqualByComparingTo(orderItem.getTotalPrice());
+            assertThat(hydrated.getStatus()).isEqualTo(orderItem.getStatus());
+            assertThat(hydrated.getProducto().getId()).isEqualTo(orderItem.getProducto().getId());
+            assertThat(hydrated.getProducto().getName()).isEqualTo(orderItem.getProducto().getName());
+            assertThat(hydrated.getOrder().getCode()).isEqualTo(orderItem.getOrder().getCode());
+            assertThat(hydrated.getLastModifiedDate()).isEqualTo(orderItem.getLastModifiedDate());
+        }
+    }
+
+    @Test
+    public void documentsAreSmallerThanTheEntityJson() throws Exception {
+        OrderItem orderItem = orderItem();
+
+        // The previous mapping printed the whole entity graph, with the customer and category of the references
+        String entityJson = objectMapper.writeValueAsString(orderItem);
+        String document = entityMapper.mapToString(orderItem);
+
+        assertThat(document.length()).isLessThan(entityJson.length());
+        assertThat(entityJson).contains("\"customer\"", "\"productCategory\"");
+        assertThat(document).doesNotContain("\"customer\"", "\"productCategory\"");
+    }
+
+    /**
+     * An order item with its whole graph of references, also mapped by the {@code EntityMapperBenchmark}.
+     */
+    static OrderItem orderItem() {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        User user = new User();
+        user.setId(1L);
+        user.setLogin("customer");
+        user.setEmail("customer@localhost");
+        Customer customer = new Customer()
+            .firstName("AAAAAAAAAA")
+            .lastName("AAAAAAAAAA")
+            .email("customer@localhost")
+            .city("AAAAAAAAAA")
+            .country("AAAAAAAAAA")
+            .user(user);
+        customer.setId(2L);
+        ProductOrder order = new ProductOrder()
+            .placedDate(now)
+            .status(OrderStatus.PENDING)
+            .code("ORDER-1")
+            .total(new BigDecimal("20.00"))
+            .itemCount(1)
+            .customer(customer);
+        order.setId(3L);
+        ProductCategory productCategory = new ProductCategory().name("AAAAAAAAAA").description("AAAAAAAAAA");
+        productCategory.setId(4L);
+        Producto producto = new Producto()
+            .name("AAAAAAAAAA")
+            .description("AAAAAAAAAA")
+            .price(new BigDecimal("10.00"))
+            .size(Size.M)
+            .productCategory(productCategory);
+        producto.setId(5L);
+        OrderItem orderItem = new OrderItem()
+            .quantity(2)
+            .totalPrice(new BigDecimal("20.00"))
+            .status(OrderItemStatus.AVAILABLE)
+            .producto(producto)
+            .order(order);
+        orderItem.setId(6L);
+        orderItem.setVersion(0L);
+        orderItem.setLastModifiedDate(now);
+        return orderItem;
+    }
+}
@@ -0,0 +1,21 @@
+package es.fabio.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MeteredStatisticsTest {
+
+    @Test
+    public void shouldTagQueryWithQueriedEntity() {
+        assertThat(MeteredStatistics.queriedEntity("select o from ProductOrder o where o.id = :id")).isEqualTo("ProductOrder");
+        assertThat(MeteredStatistics.queriedEntity("SELECT count(*) FROM es.fabio.domain.OrderItem")).isEqualTo("OrderItem");
+        assertThat(MeteredStatistics.queriedEntity("delete from jhi_user_authority where user_id in (:ids)")).isEqualTo("jhi_user_authority");
+    }
+
+    @Test
+    public void shouldTagUnknownQuery() {
+        assertThat(MeteredStatistics.queriedEntity("call refresh()")).isEqualTo("unknown");
+        assertThat(MeteredStatistics.queriedEntity(null)).isEqualTo("unknown");
+    }
+}
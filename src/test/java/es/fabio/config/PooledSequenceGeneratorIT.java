@@ -0,0 +1,86 @@
+package es.fabio.config;
+
+import es.fabio.Application;
+import es.fabio.domain.PersistentAuditEvent;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for the {@link PooledSequenceGenerator}.
+ * <p>
+ * The insert throughput of each allocation size and optimizer is measured by the {@code IdGeneratorBenchmark}.
+ */
+@SpringBootTest(classes = Application.class)
+@Transactional
+public class PooledSequenceGeneratorIT {
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    @Test
+    public void sequenceIncrementIsTheAllocationSize() {
+        long before = nextSequenceValue();
+        long after = nextSequenceValue();
+
+        assertThat(after - before).isEqualTo(applicationProperties.getIdGenerator().getAllocationSize());
+    }
+
+    @Test
+    public void insertsCallTheSequenceOncePerAllocation() {
+        int allocationSize = applicationProperties.getIdGenerator().getAllocationSize();
+        int rows = 2 * allocationSize;
+        long sequenceBefore = currentSequenceValue();
+
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            PersistentAuditEvent event = newEvent();
+            em.persist(event);
+            ids.add(event.getId());
+        }
+        em.flush();
+        long sequenceCalls = (currentSequenceValue() - sequenceBefore) / allocationSize;
+
+        // The ids left from an earlier allocation are used first, then each call hands out a block of consecutive ids
+        assertThat(ids).doesNotHaveDuplicates().isSorted();
+        assertThat(sequenceCalls).isBetween(1L, 2L);
+        long blocks = 1;
+        for (int i = 1; i < rows; i++) {
+            if (ids.get(i) != ids.get(i - 1) + 1) {
+                blocks++;
+            }
+        }
+        assertThat(blocks).isLessThanOrEqualTo(sequenceCalls + 1);
+    }
+
+    private PersistentAuditEvent newEvent() {
+        PersistentAuditEvent event = new PersistentAuditEvent();
+        event.setPrincipal("sequence-test");
+        event.setAuditEventType("test-type");
+        event.setAuditEventDate(Instant.now());
+        return event;
+    }
+
+    private long nextSequenceValue() {
+        return ((Number) em.createNativeQuery("SELECT NEXT VALUE FOR " + PooledSequenceGenerator.SEQUENCE_NAME)
+            .getSingleResult()).longValue();
+    }
+
+    private long currentSequenceValue() {
+        return ((Number) em.createNativeQuery("SELECT CURRENT_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = ?")
+            .setParameter(1, PooledSequenceGenerator.SEQUENCE_NAME.toUpperCase())
+            .getSingleResult()).longValue();
+    }
+}
@@ -0,0 +1,108 @@
+package es.fabio.repository;
+
+import es.fabio.Application;
+import es.fabio.config.ApplicationProperties;
+import es.fabio.domain.PersistentAuditEvent;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for {@link AuditEventWriter}.
+ */
+@SpringBootTest(classes = Application.class)
+public class AuditEventWriterIT {
+
+    @Autowired
+    private PersistenceAuditEventRepository persistenceAuditEventRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private ApplicationProperties applicationProperties;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setup() {
+        persistenceAuditEventRepository.deleteAll();
+        applicationProperties = new ApplicationProperties();
+        applicationProperties.getAuditEvents().setAsync(true);
+        applicationProperties.getAuditEvents().setCapacity(2);
+        applicationProperties.getAuditEvents().setBatchSize(2);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        persistenceAuditEventRepository.deleteAll();
+    }
+
+    @Test
+    public void writeQueuedEventsOnShutdown() {
+        AuditEventWriter writer = createWriter();
+        writer.start();
+
+        writer.write(createEvent("test-user-1"));
+        writer.write(createEvent("test-user-2"));
+        writer.shutdown();
+
+        assertThat(persistenceAuditEventRepository.findAll())
+            .extracting(PersistentAuditEvent::getPrincipal)
+            .containsExactlyInAnyOrder("test-user-1", "test-user-2");
+    }
+
+    @Test
+    public void writeInCallerThreadWhenQueueIsFull() {
+        AuditEventWriter writer = createWriter();
+
+        writer.write(createEvent("test-user-1"));
+        writer.write(createEvent("test-user-2"));
+        writer.write(createEvent("test-user-3"));
+
+        assertThat(persistenceAuditEventRepository.findAll())
+            .extracting(PersistentAuditEvent::getPrincipal)
+            .containsExactly("test-user-3");
+        assertThat(meterRegistry.get("audit.events.queue.size").gauge().value()).isEqualTo(2);
+
+        writer.shutdown();
+        assertThat(persistenceAuditEventRepository.findAll()).hasSize(3);
+    }
+
+    @Test
+    public void dropOldestEventWhenQueueIsFull() {
+        applicationProperties.getAuditEvents().setOverflowPolicy(ApplicationProperties.AuditEvents.OverflowPolicy.DROP_OLDEST);
+        AuditEventWriter writer = createWriter();
+
+        writer.write(createEvent("test-user-1"));
+        writer.write(createEvent("test-user-2"));
+        writer.write(createEvent("test-user-3"));
+        writer.shutdown();
+
+        assertThat(persistenceAuditEventRepository.findAll())
+            .extracting(PersistentAuditEvent::getPrincipal)
+            .containsExactlyInAnyOrder("test-user-2", "test-user-3");
+        assertThat(meterRegistry.get("audit.events.dropped").tag("reason", "overflow").counter().count()).isEqualTo(1);
+    }
+
+    private AuditEventWriter createWriter() {
+        return new AuditEventWriter(applicationProperties, persistenceAuditEventRepository, transactionManager, meterRegistry);
+    }
+
+    private static PersistentAuditEvent createEvent(String principal) {
+        PersistentAuditEvent event = new PersistentAuditEvent();
+        event.setPrincipal(principal);
+        event.setAuditEventType("test-type");
+        event.setAuditEventDate(Instant.now());
+        return event;
+    }
+}
@@ -0,0 +1,192 @@
+package es.fabio.repository.search;
+
+import es.fabio.Application;
+import es.fabio.config.ApplicationProperties;
+import es.fabio.domain.ProductCategory;
+import es.fabio.domain.ProductOrder;
+import es.fabio.service.SearchAfterPagination;
+import es.fabio.service.dto.KeysetCursor;
+import es.fabio.service.dto.KeysetSlice;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParser;
+import io.searchbox.client.JestClient;
+import io.searchbox.core.Search;
+import io.searchbox.core.SearchResult;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.EntityMapper;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Integration tests for the {@link SearchExecutor}, reading the hits of search responses given as JSON.
+ * <p>
+ * Elasticsearch is replaced by a mock {@link JestClient}, the documents are read by the application entity mapper.
+ */
+@SpringBootTest(classes = Application.class)
+public class SearchExecutorIT {
+
+    private static final Gson GSON = new Gson();
+
+    @Autowired
+    private ElasticsearchOperations elasticsearchOperations;
+
+    @Autowired
+    private EntityMapper entityMapper;
+
+    private JestClient jestClient;
+
+    private SearchExecutor searchExecutor;
+
+    @BeforeEach
+    public void init() {
+        jestClient = mock(JestClient.class);
+        searchExecutor = new SearchExecutor(new ApplicationProperties(), jestClient, elasticsearchOperations, entityMapper);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+    }
+
+    @AfterEach
+    public void cleanup() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void returnsThePartialHitsOfATimedOutSearchAndMarksTheRequest() throws Exception {
+        respond(true, 5, hit(1L, "AAAAAAAAAA", 1.5f), hit(2L, "BBBBBBBBBB", 1.0f));
+
+        Page<ProductCategory> page = searchExecutor.search(ProductCategory.class,
+            new SearchSourceBuilder().query(QueryBuilders.matchAllQuery()), PageRequest.of(0, 20));
+
+        assertThat(page.getContent()).extracting(ProductCategory::getName).containsExactly("AAAAAAAAAA", "BBBBBBBBBB");
+        assertThat(page.getTotalElements()).isEqualTo(5);
+        assertThat(SearchTimeouts.hasTimedOut()).isTrue();
+    }
+
+    @Test
+    public void doesNotMarkTheRequestOfACompleteSearch() throws Exception {
+        respond(false, 1, hit(1L, "AAAAAAAAAA", 1.0f));
+
+        searchExecutor.search(ProductCategory.class, new SearchSourceBuilder().query(QueryBuilders.matchAllQuery()), PageRequest.of(0, 20));
+
+        assertThat(SearchTimeouts.hasTimedOut()).isFalse();
+    }
+
+    @Test
+    public void searchesOneMoreHitThanReturnedToTellThereIsANextSlice() throws Exception {
+        respond(false, 0,
+            hit(1L, "AAAAAAAAAA", "[\"AAAAAAAAAA\",1]"),
+            hit(2L, "BBBBBBBBBB", "[\"BBBBBBBBBB\",2]"),
+            hit(3L, "CCCCCCCCCC", "[\"CCCCCCCCCC\",3]"));
+
+        SearchAfterSlice<ProductCategory> slice = searchExecutor.searchAfter(ProductCategory.class,
+            new SearchSourceBuilder().query(QueryBuilders.matchAllQuery()), Sort.by("name.keyword").and(Sort.by("id")),
+            new Object[] {"0", 0L}, 2);
+
+        // The extra hit is not returned, the position is the one of the last hit returned
+        assertThat(slice.getContent()).extracting(ProductCategory::getId).containsExactly(1L, 2L);
+        assertThat(slice.getLastSortValues()).containsExactly("BBBBBBBBBB", "2");
+        ArgumentCaptor<Search> search = ArgumentCaptor.forClass(Search.class);
+        verify(jestClient).execute(search.capture());
+        assertThat(search.getValue().getData(GSON).replaceAll("\\s", "")).contains("\"size\":3", "\"search_after\":[\"0\",0]", "\"name.keyword\"");
+    }
+
+    @Test
+    public void returnsNoPositionAfterTheLastSlice() throws Exception {
+        respond(false, 0,
+            hit(1L, "AAAAAAAAAA", "[\"AAAAAAAAAA\",1]"),
+            hit(2L, "BBBBBBBBBB", "[\"BBBBBBBBBB\",2]"));
+
+        SearchAfterSlice<ProductCategory> slice = searchExecutor.searchAfter(ProductCategory.class,
+            new SearchSourceBuilder().query(QueryBuilders.matchAllQuery()), Sort.by("id"), null, 2);
+
+        assertThat(slice.getContent()).hasSize(2);
+        assertThat(slice.getLastSortValues()).isNull();
+    }
+
+    @Test
+    public void resumesAfterTheScoreOfTheLastHit() throws Exception {
+        SearchAfterPagination pagination = new SearchAfterPagination(ProductCategory.class, "name");
+        KeysetCursor cursor = KeysetCursor.first(Sort.by(Sort.Direction.DESC, SearchAfterPagination.SCORE));
+        respond(false, 0, hit(7L, "AAAAAAAAAA", "[1.2345678,7]"), hit(8L, "BBBBBBBBBB", "[0.5,8]"));
+
+        KeysetSlice<ProductCategory> slice = pagination.slice(cursor, searchExecutor.searchAfter(ProductCategory.class,
+            new SearchSourceBuilder(), pagination.sort(cursor), pagination.searchAfter(cursor), 1));
+
+        // The score is read back as a float, not as text
+        assertThat(pagination.searchAfter(slice.getNext())).containsExactly(1.2345678, 7L);
+    }
+
+    @Test
+    public void resumesAfterTheKeywordOfTheLastHit() throws Exception {
+        SearchAfterPagination pagination = new SearchAfterPagination(ProductCategory.class, "name");
+        KeysetCursor cursor = KeysetCursor.first(Sort.by("name"));
+        respond(false, 0, hit(7L, "AAAAAAAAAA", "[\"AAAAAAAAAA\",7]"), hit(8L, "BBBBBBBBBB", "[\"BBBBBBBBBB\",8]"));
+
+        KeysetSlice<ProductCategory> slice = pagination.slice(cursor, searchExecutor.searchAfter(ProductCategory.class,
+            new SearchSourceBuilder(), pagination.sort(cursor), pagination.searchAfter(cursor), 1));
+
+        assertThat(pagination.sort(cursor)).isEqualTo(Sort.by("name.keyword").and(Sort.by("id")));
+        assertThat(pagination.searchAfter(slice.getNext())).containsExactly("AAAAAAAAAA", 7L);
+    }
+
+    @Test
+    public void resumesAfterTheDateOfTheLastHit() throws Exception {
+        SearchAfterPagination pagination = new SearchAfterPagination(ProductOrder.class, "placedDate");
+        KeysetCursor cursor = KeysetCursor.first(Sort.by(Sort.Direction.DESC, "placedDate"));
+        // Dates are sorted, and returned, as epoch milliseconds
+        respond(false, 0, order(7L, "[1600000000000,7]"), order(8L, "[1500000000000,8]"));
+
+        KeysetSlice<ProductOrder> slice = pagination.slice(cursor, searchExecutor.searchAfter(ProductOrder.class,
+            new SearchSourceBuilder(), pagination.sort(cursor), pagination.searchAfter(cursor), 1));
+
+        assertThat(slice.getContent()).extracting(ProductOrder::getId).containsExactly(7L);
+        assertThat(pagination.searchAfter(slice.getNext())).containsExactly(1600000000000L, 7L);
+    }
+
+    private void respond(boolean timedOut, long total, String... hits) throws IOException {
+        String json = "{\"took\":1,\"timed_out\":" + timedOut + ",\"hits\":{\"total\":" + total + ",\"max_score\":1.5," +
+            "\"hits\":[" + String.join(",", hits) + "]}}";
+        SearchResult result = new SearchResult(GSON);
+        result.setJsonObject(new JsonParser().parse(json).getAsJsonObject());
+        result.setSucceeded(true);
+        when(jestClient.execute(any(Search.class))).thenReturn(result);
+    }
+
+    private static String hit(Long id, String name, float score) {
+        return "{\"_index\":\"productcategory\",\"_type\":\"productcategory\",\"_id\":\"" + id + "\",\"_score\":" + score +
+            ",\"_source\":{\"id\":" + id + ",\"name\":\"" + name + "\"}}";
+    }
+
+    /**
+     * A hit of a sorted search, with the sort values of the document.
+     */
+    private static String hit(Long id, String name, String sort) {
+        return "{\"_index\":\"productcategory\",\"_type\":\"productcategory\",\"_id\":\"" + id + "\",\"_score\":null" +
+            ",\"_source\":{\"id\":" + id + ",\"name\":\"" + name + "\"},\"sort\":" + sort + "}";
+    }
+
+    private static String order(Long id, String sort) {
+        return "{\"_index\":\"productorder\",\"_type\":\"productorder\",\"_id\":\"" + id + "\",\"_score\":null" +
+            ",\"_source\":{\"id\":" + id + ",\"code\":\"ORDER-" + id + "\"},\"sort\":" + sort + "}";
+    }
+}
@@ -0,0 +1,108 @@
+package es.fabio.service;
+
+import es.fabio.Application;
+import es.fabio.config.ApplicationProperties;
+import es.fabio.domain.Producto;
+import es.fabio.domain.enumeration.Size;
+import es.fabio.repository.ProductoRepository;
+import es.fabio.repository.SearchOutboxRepository;
+import es.fabio.service.dto.BulkItemResult;
+import es.fabio.service.dto.ProductoDTO;
+import es.fabio.service.mapper.ProductoMapper;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for the {@link BulkSaver}.
+ * <p>
+ * Not transactional: each chunk is committed or rolled back in its own transaction, as in a bulk request.
+ */
+@SpringBootTest(classes = Application.class)
+public class BulkSaverIT {
+
+    private static final String NAME = "Bulk saved";
+
+    @Autowired
+    private BulkSaver bulkSaver;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private ProductoMapper productoMapper;
+
+    @Autowired
+    private SearchOutboxRepository searchOutboxRepository;
+
+    private int chunkSize;
+
+    private Producto producto;
+
+    @BeforeEach
+    public void init() {
+        chunkSize = applicationProperties.getBulk().getChunkSize();
+        applicationProperties.getBulk().setChunkSize(3);
+        producto = productoRepository.saveAndFlush(new Producto().name(NAME).price(BigDecimal.ONE).size(Size.S));
+    }
+
+    @AfterEach
+    public void cleanup() {
+        applicationProperties.getBulk().setChunkSize(chunkSize);
+        productoRepository.deleteAll(productoRepository.findAll().stream()
+            .filter(saved -> saved.getName().startsWith(NAME))
+            .collect(Collectors.toList()));
+        searchOutboxRepository.deleteAll();
+    }
+
+    @Test
+    public void savesTheItemsOfAFailedChunkOneByOne() {
+        ProductoDTO first = productoDTO(NAME + " 1");
+        // Passes the validation, but its update fails in the database as its version is stale
+        ProductoDTO stale = productoMapper.toDto(producto);
+        stale.setName(NAME + " stale");
+        stale.setVersion(producto.getVersion() + 1);
+        ProductoDTO last = productoDTO(NAME + " 3");
+
+        List<BulkItemResult<ProductoDTO>> results = bulkSaver.saveAll(Arrays.asList(first, stale, last).iterator(),
+            ProductoDTO::getId, productoService::saveAll);
+
+        assertThat(results).extracting(BulkItemResult::getIndex).containsExactly(0, 1, 2);
+        assertThat(results).extracting(BulkItemResult::getStatus)
+            .containsExactly(BulkItemResult.Status.CREATED, BulkItemResult.Status.FAILED, BulkItemResult.Status.CREATED);
+        assertThat(results.get(0).getItem().getId()).isNotNull();
+        assertThat(results.get(1).getItem()).isNull();
+        assertThat(results.get(1).getErrors()).hasSize(1);
+        assertThat(results.get(2).getItem().getId()).isNotNull();
+
+        // The rolled back chunk left nothing behind: each valid item is saved once, the stale one is unchanged
+        assertThat(productoRepository.findAll())
+            .extracting(Producto::getName)
+            .filteredOn(name -> name.startsWith(NAME))
+            .containsExactlyInAnyOrder(NAME, NAME + " 1", NAME + " 3");
+    }
+
+    private ProductoDTO productoDTO(String name) {
+        ProductoDTO productoDTO = new ProductoDTO();
+        productoDTO.setName(name);
+        productoDTO.setPrice(BigDecimal.TEN);
+        productoDTO.setSize(Size.S);
+        return productoDTO;
+    }
+}
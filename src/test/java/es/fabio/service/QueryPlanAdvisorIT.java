@@ -0,0 +1,57 @@
+package es.fabio.service;
+
+import es.fabio.Application;
+import es.fabio.domain.Producto;
+import es.fabio.domain.Producto_;
+import es.fabio.service.dto.QueryPlanDTO;
+
+import io.github.jhipster.config.JHipsterConstants;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for {@link QueryPlanAdvisor}.
+ */
+@SpringBootTest(classes = Application.class)
+@ActiveProfiles(JHipsterConstants.SPRING_PROFILE_TEST)
+@Transactional
+public class QueryPlanAdvisorIT {
+
+    @Autowired
+    private QueryPlanAdvisor queryPlanAdvisor;
+
+    @Test
+    public void filtersAndJoinsUseIndexes() {
+        List<QueryPlanDTO> plans = queryPlanAdvisor.explainAll();
+
+        assertThat(plans).isNotEmpty();
+        for (QueryPlanDTO plan : plans) {
+            assertThat(plan.getScannedTables()).as(plan.toString()).isEmpty();
+        }
+    }
+
+    @Test
+    public void flagsTableScans() {
+        QueryPlanDTO plan = queryPlanAdvisor.explain("productos by description", Producto.class,
+            (root, query, cb) -> cb.equal(root.get(Producto_.description), "description"));
+
+        assertThat(plan.getSql()).containsIgnoringCase("from producto");
+        assertThat(plan.getScannedTables()).containsExactly("producto");
+    }
+
+    @Test
+    public void scannedTablesOfPostgresqlPlan() {
+        String plan = "Hash Join  (cost=1.09..2.21 rows=1 width=72)\n" +
+            "  ->  Seq Scan on order_item orderitem0_  (cost=0.00..1.10 rows=10 width=40)\n" +
+            "  ->  Index Scan using product_order_pkey on product_order productord1_  (cost=0.14..8.16 rows=1 width=8)";
+
+        assertThat(QueryPlanAdvisor.scannedTables(plan)).containsExactly("order_item");
+    }
+}
@@ -0,0 +1,247 @@
+package es.fabio.service;
+
+import es.fabio.Application;
+import es.fabio.config.ApplicationProperties;
+import es.fabio.domain.ProductCategory;
+import es.fabio.domain.SearchOutboxEntry;
+import es.fabio.repository.ProductCategoryRepository;
+import es.fabio.repository.SearchOutboxRepository;
+import es.fabio.repository.SearchReindexJobRepository;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.searchbox.client.JestClient;
+import io.searchbox.core.Bulk;
+import io.searchbox.core.BulkResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.EntityMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Integration tests for the {@link SearchIndexer}.
+ * <p>
+ * The outbox and the entities are read from the database, while Elasticsearch is replaced by a mock
+ * {@link JestClient} answering each bulk action with a given status.
+ */
+@SpringBootTest(classes = Application.class)
+@Transactional
+public class SearchIndexerIT {
+
+    private static final int BATCH_SIZE = 2;
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private static final int CREATED = 201;
+
+    private static final int CONFLICT = 409;
+
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    private static final Gson GSON = new Gson();
+
+    @Autowired
+    private SearchOutboxRepository searchOutboxRepository;
+
+    @Autowired
+    private SearchOutboxService searchOutboxService;
+
+    @Autowired
+    private SearchReindexJobRepository searchReindexJobRepository;
+
+    @Autowired
+    private ProductCategoryRepository productCategoryRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ElasticsearchOperations elasticsearchOperations;
+
+    @Autowired
+    private EntityMapper entityMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CatalogueGeneration catalogueGeneration;
+
+    private final List<String> bulks = new ArrayList<>();
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private JestClient jestClient;
+
+    private SearchIndexer searchIndexer;
+
+    private List<ProductCategory> productCategories;
+
+    @BeforeEach
+    public void init() {
+        searchOutboxRepository.deleteAll();
+        productCategories = new ArrayList<>();
+        for (int i = 0; i < BATCH_SIZE + 1; i++) {
+            ProductCategory productCategory = productCategoryRepository.saveAndFlush(new ProductCategory().name("Indexed " + i));
+            searchOutboxService.index(ProductCategory.class, productCategory.getId());
+            productCategories.add(productCategory);
+        }
+
+        jestClient = mock(JestClient.class);
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        ApplicationProperties.SearchIndexer properties = applicationProperties.getSearchIndexer();
+        properties.setBatchSize(BATCH_SIZE);
+        properties.setMinBatchSize(1);
+        properties.setMaxAttempts(MAX_ATTEMPTS);
+        properties.setRetryBackoffMs(0);
+        searchIndexer = new SearchIndexer(applicationProperties, searchOutboxRepository, searchReindexJobRepository, entityManager,
+            jestClient, elasticsearchOperations, entityMapper, transactionManager, meterRegistry, catalogueGeneration);
+    }
+
+    @Test
+    public void drainsTheOutboxInFullBatches() throws Exception {
+        answer(action -> CREATED);
+
+        searchIndexer.drain();
+
+        // A full batch is followed right away by the next one
+        assertThat(bulks).hasSize(2);
+        assertThat(String.join("", bulks)).contains(productCategories.stream()
+            .map(productCategory -> "\"_id\":\"" + productCategory.getId() + "\"").toArray(String[]::new));
+        assertThat(searchOutboxRepository.findAll()).isEmpty();
+        assertThat(batchLimit()).isEqualTo(BATCH_SIZE);
+    }
+
+    @Test
+    public void versionsTheDocumentsAndKeepsTheNewerOnes() throws Exception {
+        // The index already holds the first document of each bulk, loaded by another instance after this one
+        answer(action -> action == 0 ? CONFLICT : CREATED);
+
+        searchIndexer.drain();
+
+        assertThat(String.join("", bulks).split("\n"))
+            .filteredOn(line -> line.startsWith("{\"index\""))
+            .hasSize(BATCH_SIZE + 1)
+            .allSatisfy(line -> assertThat(line).contains("\"version_type\":\"external\""));
+        // The conflicting documents are not retried
+        assertThat(searchOutboxRepository.findAll()).isEmpty();
+        assertThat(batchLimit()).isEqualTo(BATCH_SIZE);
+    }
+
+    @Test
+    public void retriesTheEntriesOfAFailedBulkThenRemovesThem() throws Exception {
+        doAnswer(invocation -> {
+            throw new IOException("Connection refused");
+        }).when(jestClient).execute(any(Bulk.class));
+
+        searchIndexer.drain();
+
+        // The batch is kept for a retry, and the next batches are smaller
+        assertThat(searchOutboxRepository.findAll()).hasSize(BATCH_SIZE + 1)
+            .filteredOn(entry -> entry.getAttempts() == 1)
+            .hasSize(BATCH_SIZE)
+            .allSatisfy(entry -> assertThat(entry.getLastError()).contains("Connection refused"));
+        assertThat(batchLimit()).isEqualTo(BATCH_SIZE / 2);
+
+        answer(action -> CREATED);
+        searchIndexer.drain();
+
+        assertThat(searchOutboxRepository.findAll()).isEmpty();
+        assertThat(batchLimit()).isEqualTo(BATCH_SIZE);
+    }
+
+    @Test
+    public void shrinksTheBatchWhenThrottled() throws Exception {
+        // The first document of each bulk is rejected
+        answer(action -> action == 0 ? TOO_MANY_REQUESTS : CREATED);
+
+        searchIndexer.drain();
+
+        // Only the rejected entry is kept, and the run stops with a smaller batch
+        assertThat(bulks).hasSize(1);
+        assertThat(searchOutboxRepository.findAll())
+            .extracting(SearchOutboxEntry::getEntityId, SearchOutboxEntry::getAttempts)
+            .containsExactlyInAnyOrder(tuple(productCategories.get(0).getId(), 1), tuple(productCategories.get(2).getId(), 0));
+        assertThat(batchLimit()).isEqualTo(BATCH_SIZE / 2);
+
+        answer(action -> CREATED);
+        searchIndexer.drain();
+
+        assertThat(searchOutboxRepository.findAll()).isEmpty();
+    }
+
+    @Test
+    public void keepsTheEntriesWhichExhaustedTheirAttempts() throws Exception {
+        answer(action -> TOO_MANY_REQUESTS);
+
+        // Each run stops at the first throttled batch, which shrinks to a single entry
+        for (int i = 0; i < (BATCH_SIZE + 1) * MAX_ATTEMPTS + 1; i++) {
+            searchIndexer.drain();
+        }
+
+        assertThat(searchOutboxRepository.findAll()).hasSize(BATCH_SIZE + 1)
+            .allSatisfy(entry -> assertThat(entry.getAttempts()).isEqualTo(MAX_ATTEMPTS));
+        assertThat(meterRegistry.get("search.outbox.dead").gauge().value()).isEqualTo(BATCH_SIZE + 1);
+    }
+
+    /**
+     * Answer the bulk requests with a status by action, in the order of the request.
+     */
+    private void answer(IntUnaryOperator status) throws IOException {
+        doAnswer(invocation -> {
+            String data = invocation.<Bulk>getArgument(0).getData(GSON);
+            bulks.add(data);
+            JsonArray items = new JsonArray();
+            for (String line : data.split("\n")) {
+                JsonObject action = new JsonParser().parse(line).getAsJsonObject();
+                String operation = action.has("index") ? "index" : action.has("delete") ? "delete" : null;
+                if (operation == null) {
+                    continue;
+                }
+                JsonObject item = action.getAsJsonObject(operation).deepCopy();
+                int itemStatus = status.applyAsInt(items.size());
+                item.addProperty("status", itemStatus);
+                if (itemStatus >= 300) {
+                    JsonObject error = new JsonObject();
+                    error.addProperty("type", "es_rejected_execution_exception");
+                    error.addProperty("reason", "rejected execution");
+                    item.add("error", error);
+                }
+                JsonObject wrapper = new JsonObject();
+                wrapper.add(operation, item);
+                items.add(wrapper);
+            }
+            JsonObject json = new JsonObject();
+            json.addProperty("errors", true);
+            json.add("items", items);
+            BulkResult result = new BulkResult(GSON);
+            result.setJsonObject(json);
+            result.setSucceeded(true);
+            return result;
+        }).when(jestClient).execute(any(Bulk.class));
+    }
+
+    private double batchLimit() {
+        return meterRegistry.get("search.indexer.batch.limit").gauge().value();
+    }
+}
@@ -0,0 +1,216 @@
+package es.fabio.service;
+
+import es.fabio.Application;
+import es.fabio.config.ApplicationProperties;
+import es.fabio.domain.ProductCategory;
+import es.fabio.domain.SearchReindexJob;
+import es.fabio.domain.enumeration.SearchReindexStatus;
+import es.fabio.repository.ProductCategoryRepository;
+import es.fabio.repository.SearchReindexJobRepository;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import io.searchbox.client.JestClient;
+import io.searchbox.client.JestResult;
+import io.searchbox.core.Bulk;
+import io.searchbox.core.BulkResult;
+import io.searchbox.indices.aliases.GetAliases;
+import io.searchbox.indices.aliases.ModifyAliases;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.EntityMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Integration tests for the {@link SearchReindexService}.
+ * <p>
+ * The rows are read from the database, while Elasticsearch is replaced by a mock {@link JestClient} and the index
+ * operations of the {@link ElasticsearchOperations}, which only keep track of the indexes created.
+ */
+@SpringBootTest(classes = Application.class)
+public class SearchReindexServiceIT {
+
+    private static final String ALIAS = "productcategory";
+
+    private static final String PREVIOUS_INDEX = "productcategory_20200101000000";
+
+    private static final int CHUNK_SIZE = 2;
+
+    private static final Gson GSON = new Gson();
+
+    @Autowired
+    private SearchReindexJobRepository searchReindexJobRepository;
+
+    @Autowired
+    private ProductCategoryRepository productCategoryRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ElasticsearchOperations elasticsearchOperations;
+
+    @Autowired
+    private EntityMapper entityMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final List<ProductCategory> productCategories = new ArrayList<>();
+
+    private final Set<String> indexes = ConcurrentHashMap.newKeySet();
+
+    private final List<String> bulks = new CopyOnWriteArrayList<>();
+
+    private JestClient jestClient;
+
+    private ModifyAliases aliasChange;
+
+    private SearchReindexService searchReindexService;
+
+    @BeforeEach
+    public void init() throws Exception {
+        for (int i = 0; i < 2 * CHUNK_SIZE + 1; i++) {
+            productCategories.add(productCategoryRepository.saveAndFlush(new ProductCategory().name("Reindexed " + i)));
+        }
+        indexes.add(PREVIOUS_INDEX);
+
+        ElasticsearchOperations operations = mock(ElasticsearchOperations.class, delegatesTo(elasticsearchOperations));
+        doAnswer(invocation -> indexes.add(invocation.getArgument(0))).when(operations).createIndex(anyString());
+        doAnswer(invocation -> indexes.contains(invocation.<String>getArgument(0))).when(operations).indexExists(anyString());
+        doAnswer(invocation -> indexes.remove(invocation.<String>getArgument(0))).when(operations).deleteIndex(anyString());
+        doReturn(true).when(operations).putMapping(anyString(), anyString(), any());
+        doReturn(null).when(operations).getMapping(anyString(), anyString());
+        doNothing().when(operations).refresh(anyString());
+
+        jestClient = mock(JestClient.class);
+        JsonObject aliases = new JsonObject();
+        JsonObject previousAliases = new JsonObject();
+        previousAliases.add(ALIAS, new JsonObject());
+        JsonObject previous = new JsonObject();
+        previous.add("aliases", previousAliases);
+        aliases.add(PREVIOUS_INDEX, previous);
+        when(jestClient.execute(any(GetAliases.class))).thenReturn(result(new JestResult(GSON), aliases, true));
+        when(jestClient.execute(any(ModifyAliases.class))).thenAnswer(invocation -> {
+            aliasChange = invocation.getArgument(0);
+            return result(new JestResult(GSON), new JsonObject(), true);
+        });
+
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getSearchReindex().setChunkSize(CHUNK_SIZE);
+        applicationProperties.getSearchReindex().setWorkers(1);
+        applicationProperties.getSearchReindex().setMaxAttempts(1);
+        searchReindexService = new SearchReindexService(applicationProperties, searchReindexJobRepository, entityManager, jestClient,
+            operations, entityMapper, transactionManager);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        searchReindexService.shutdown();
+        searchReindexJobRepository.deleteById(ALIAS);
+        productCategoryRepository.deleteAll(productCategories);
+    }
+
+    @Test
+    public void resumesAfterTheLastIndexedChunk() throws Exception {
+        List<Long> ids = productCategoryRepository.findAll().stream().map(ProductCategory::getId).sorted().collect(Collectors.toList());
+        String failingId = "\"_id\":\"" + ids.get(CHUNK_SIZE) + "\"";
+        doAnswer(invocation -> {
+            String data = invocation.<Bulk>getArgument(0).getData(GSON);
+            bulks.add(data);
+            return data.contains(failingId) ? result(new BulkResult(GSON), new JsonObject(), false) : bulkResult();
+        }).when(jestClient).execute(any(Bulk.class));
+
+        // The second chunk fails: the job stops with the first chunk checkpointed
+        start();
+        SearchReindexJob failed = awaitJob();
+        assertThat(failed.getStatus()).isEqualTo(SearchReindexStatus.FAILED);
+        assertThat(failed.getLastId()).isEqualTo(ids.get(CHUNK_SIZE - 1));
+        assertThat(failed.getIndexedCount()).isEqualTo(CHUNK_SIZE);
+        assertThat(aliasChange).isNull();
+
+        // The next run resumes into the same index from the checkpoint
+        bulks.clear();
+        doAnswer(invocation -> {
+            bulks.add(invocation.<Bulk>getArgument(0).getData(GSON));
+            return bulkResult();
+        }).when(jestClient).execute(any(Bulk.class));
+        start();
+        SearchReindexJob completed = awaitJob();
+        assertThat(completed.getStatus()).isEqualTo(SearchReindexStatus.COMPLETED);
+        assertThat(completed.getTargetIndex()).isEqualTo(failed.getTargetIndex());
+        assertThat(completed.getLastId()).isEqualTo(ids.get(ids.size() - 1));
+        assertThat(completed.getIndexedCount()).isEqualTo(ids.size());
+        assertThat(String.join("", bulks))
+            .doesNotContain("\"_id\":\"" + ids.get(0) + "\"")
+            .contains(failingId, "\"_id\":\"" + ids.get(ids.size() - 1) + "\"");
+
+        // The alias moved from the previous index to the new one, which is the only one left
+        String actions = aliasChange.getData(GSON);
+        assertThat(actions).contains("\"remove\"", PREVIOUS_INDEX, "\"add\"", completed.getTargetIndex(), "\"alias\":\"" + ALIAS + "\"");
+        assertThat(indexes).containsExactly(completed.getTargetIndex());
+    }
+
+    /**
+     * Start the reindex, once the previous run of this instance is over.
+     */
+    private void start() throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            if (searchReindexService.reindex(ALIAS).map(SearchReindexJob::getStatus).orElse(null) == SearchReindexStatus.RUNNING) {
+                return;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("The reindex of " + ALIAS + " did not start");
+    }
+
+    private SearchReindexJob awaitJob() throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            SearchReindexJob job = searchReindexJobRepository.findById(ALIAS).orElseThrow(IllegalStateException::new);
+            if (job.getStatus() != SearchReindexStatus.RUNNING) {
+                return job;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("The reindex of " + ALIAS + " did not end");
+    }
+
+    private static BulkResult bulkResult() {
+        JsonObject json = new JsonObject();
+        json.addProperty("errors", false);
+        json.add("items", new JsonArray());
+        return result(new BulkResult(GSON), json, true);
+    }
+
+    private static <T extends JestResult> T result(T result, JsonObject json, boolean succeeded) {
+        result.setJsonObject(json);
+        result.setSucceeded(succeeded);
+        if (!succeeded) {
+            result.setErrorMessage("Unavailable");
+        }
+        return result;
+    }
+}
@@ -1,13 +1,17 @@
 package es.fabio.service;
 
 import es.fabio.Application;
+import es.fabio.config.ApplicationProperties;
 import es.fabio.config.Constants;
+import es.fabio.domain.SearchOutboxEntry;
 import es.fabio.domain.User;
-import es.fabio.repository.search.UserSearchRepository;
+import es.fabio.domain.enumeration.SearchOutboxOperation;
+import es.fabio.repository.SearchOutboxRepository;
 import es.fabio.repository.UserRepository;
 import es.fabio.service.dto.UserDTO;
 
 import io.github.jhipster.security.RandomUtil;
+import io.micrometer.core.instrument.MeterRegistry;
 
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.jupiter.api.BeforeEach;
@@ -24,13 +28,12 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.Mockito.times;
-import static org.mockito.Mockito.never;
-import static org.mockito.Mockito.verify;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.Mockito.when;
 
 /**
@@ -58,13 +61,14 @@ public class UserServiceIT {
     @Autowired
     private UserService userService;
 
-    /**
-     * This repository is mocked in the es.fabio.repository.search test package.
-     *
-     * @see es.fabio.repository.search.UserSearchRepositoryMockConfiguration
-     */
     @Autowired
-    private UserSearchRepository mockUserSearchRepository;
+    private SearchOutboxRepository searchOutboxRepository;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
 
     @Autowired
     private AuditingHandler auditingHandler;
@@ -181,8 +185,49 @@ public class UserServiceIT {
         users = userRepository.findAllByActivatedIsFalseAndActivationKeyIsNotNullAndCreatedDateBefore(threeDaysAgo);
         assertThat(users).isEmpty();
 
-        // Verify Elasticsearch mock
-        verify(mockUserSearchRepository, times(1)).delete(user);
+        // Verify the deletion is queued for Elasticsearch
+        assertThat(searchOutboxRepository.findAll())
+            .extracting(SearchOutboxEntry::getEntityType, SearchOutboxEntry::getEntityId, SearchOutboxEntry::getOperation)
+            .contains(tuple("User", dbUser.getId(), SearchOutboxOperation.DELETE));
+    }
+
+    @Test
+    @Transactional
+    public void assertThatNotActivatedUsersAreDeletedInChunks() {
+        ApplicationProperties.Purge purge = applicationProperties.getPurge();
+        int chunkSize = purge.getChunkSize();
+        long pauseMs = purge.getPauseMs();
+        purge.setChunkSize(2);
+        purge.setPauseMs(0);
+        try {
+            Instant now = Instant.now();
+            when(dateTimeProvider.getNow()).thenReturn(Optional.of(now.minus(4, ChronoUnit.DAYS)));
+            List<Long> ids = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                User notActivated = new User();
+                notActivated.setLogin("not-activated-" + i);
+                notActivated.setPassword(RandomStringUtils.random(60));
+                notActivated.setActivated(false);
+                notActivated.setActivationKey(RandomStringUtils.random(20));
+                notActivated.setEmail("not-activated-" + i + "@localhost");
+                notActivated.setLangKey(DEFAULT_LANGKEY);
+                ids.add(userRepository.saveAndFlush(notActivated).getId());
+            }
+            double rows = meterRegistry.get("purge.rows").tag("purge", "not-activated-users").counter().count();
+
+            userService.removeNotActivatedUsers();
+
+            // Three chunks of at most two users, each queueing its deletions for Elasticsearch
+            assertThat(userRepository.findAllById(ids)).isEmpty();
+            assertThat(meterRegistry.get("purge.rows").tag("purge", "not-activated-users").counter().count()).isEqualTo(rows + ids.size());
+            assertThat(searchOutboxRepository.findAll())
+                .filteredOn(entry -> "User".equals(entry.getEntityType()) && entry.getOperation() == SearchOutboxOperation.DELETE)
+                .extracting(SearchOutboxEntry::getEntityId)
+                .containsAll(ids);
+        } finally {
+            purge.setChunkSize(chunkSize);
+            purge.setPauseMs(pauseMs);
+        }
     }
 
     @Test
@@ -201,8 +246,10 @@ public class UserServiceIT {
         Optional<User> maybeDbUser = userRepository.findById(dbUser.getId());
         assertThat(maybeDbUser).contains(dbUser);
 
-        // Verify Elasticsearch mock
-        verify(mockUserSearchRepository, never()).delete(user);
+        // Verify no deletion is queued for Elasticsearch
+        assertThat(searchOutboxRepository.findAll())
+            .extracting(SearchOutboxEntry::getEntityType, SearchOutboxEntry::getEntityId, SearchOutboxEntry::getOperation)
+            .doesNotContain(tuple("User", dbUser.getId(), SearchOutboxOperation.DELETE));
     }
 
     @Test
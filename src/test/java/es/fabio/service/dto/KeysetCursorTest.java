@@ -0,0 +1,41 @@
+package es.fabio.service.dto;
+
+import es.fabio.service.InvalidCursorException;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class KeysetCursorTest {
+
+    @Test
+    public void firstCursorDefaultsToIdOrder() {
+        KeysetCursor cursor = KeysetCursor.first(Sort.unsorted());
+        assertThat(cursor.isFirst()).isTrue();
+        assertThat(cursor.isIdOnly()).isTrue();
+        assertThat(cursor.getDirection()).isEqualTo(Sort.Direction.ASC);
+    }
+
+    @Test
+    public void firstCursorUsesFirstSortOrder() {
+        KeysetCursor cursor = KeysetCursor.first(Sort.by(Sort.Direction.DESC, "name", "price"));
+        assertThat(cursor.getProperty()).isEqualTo("name");
+        assertThat(cursor.getDirection()).isEqualTo(Sort.Direction.DESC);
+    }
+
+    @Test
+    public void encodeThenDecodeKeepsPosition() {
+        KeysetCursor cursor = KeysetCursor.first(Sort.by(Sort.Direction.DESC, "name")).after(42L, "a\nname with separators");
+        KeysetCursor decoded = KeysetCursor.decode(cursor.encode());
+        assertThat(decoded).isEqualTo(cursor);
+        assertThat(decoded.isFirst()).isFalse();
+    }
+
+    @Test
+    public void decodeRejectsInvalidTokens() {
+        assertThatThrownBy(() -> KeysetCursor.decode("not a cursor")).isInstanceOf(InvalidCursorException.class);
+        assertThatThrownBy(() -> KeysetCursor.decode("bmFtZQ")).isInstanceOf(InvalidCursorException.class);
+    }
+}
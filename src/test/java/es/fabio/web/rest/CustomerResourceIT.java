@@ -2,13 +2,23 @@ package es.fabio.web.rest;
 
 import es.fabio.Application;
 import es.fabio.domain.Customer;
+import es.fabio.domain.SearchOutboxEntry;
+import es.fabio.domain.enumeration.SearchOutboxOperation;
 import es.fabio.domain.User;
 import es.fabio.domain.ProductOrder;
 import es.fabio.repository.CustomerRepository;
+import es.fabio.repository.SearchOutboxRepository;
 import es.fabio.repository.search.CustomerSearchRepository;
+import es.fabio.repository.search.SearchAfterSlice;
 import es.fabio.service.CustomerService;
+import es.fabio.service.OrderItemService;
+import es.fabio.service.ProductOrderService;
+import es.fabio.service.dto.OrderItemDTO;
+import es.fabio.service.dto.ProductOrderDTO;
 import es.fabio.service.dto.CustomerDTO;
 import es.fabio.service.mapper.CustomerMapper;
+import es.fabio.service.mapper.OrderItemMapper;
+import es.fabio.service.mapper.ProductOrderMapper;
 import es.fabio.service.dto.CustomerCriteria;
 import es.fabio.service.CustomerQueryService;
 
@@ -16,22 +26,30 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.mockito.ArgumentCaptor;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
 import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.elasticsearch.index.query.QueryBuilders.queryStringQuery;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -77,12 +95,27 @@ public class CustomerResourceIT {
     @Autowired
     private CustomerRepository customerRepository;
 
+    @Autowired
+    private SearchOutboxRepository searchOutboxRepository;
+
     @Autowired
     private CustomerMapper customerMapper;
 
     @Autowired
     private CustomerService customerService;
 
+    @Autowired
+    private ProductOrderService productOrderService;
+
+    @Autowired
+    private ProductOrderMapper productOrderMapper;
+
+    @Autowired
+    private OrderItemService orderItemService;
+
+    @Autowired
+    private OrderItemMapper orderItemMapper;
+
     /**
      * This repository is mocked in the es.fabio.repository.search test package.
      *
@@ -181,8 +214,10 @@ public class CustomerResourceIT {
         assertThat(testCustomer.getCity()).isEqualTo(DEFAULT_CITY);
         assertThat(testCustomer.getCountry()).isEqualTo(DEFAULT_COUNTRY);
 
-        // Validate the Customer in Elasticsearch
-        verify(mockCustomerSearchRepository, times(1)).save(testCustomer);
+        // Validate the Customer is queued for Elasticsearch
+        assertThat(searchOutboxRepository.findAll())
+            .extracting(SearchOutboxEntry::getEntityType, SearchOutboxEntry::getEntityId, SearchOutboxEntry::getOperation)
+            .contains(tuple("Customer", testCustomer.getId(), SearchOutboxOperation.INDEX));
     }
 
     @Test
@@ -1144,6 +1179,31 @@ public class CustomerResourceIT {
         defaultCustomerShouldNotBeFound("orderId.equals=" + (orderId + 1));
     }
 
+    @Test
+    @Transactional
+    public void getAllCustomersByMaintainedAggregates() throws Exception {
+        // Initialize the database, with an order and an item written through the services
+        customerRepository.saveAndFlush(customer);
+        ProductOrder productOrder = ProductOrderResourceIT.createEntity(em);
+        productOrder.setCustomer(customer);
+        ProductOrderDTO productOrderDTO = productOrderService.save(productOrderMapper.toDto(productOrder));
+        OrderItemDTO orderItemDTO = orderItemMapper.toDto(OrderItemResourceIT.createEntity(em));
+        orderItemDTO.setOrderId(productOrderDTO.getId());
+        orderItemDTO.setTotalPrice(new BigDecimal("12.00"));
+        OrderItemDTO savedOrderItem = orderItemService.save(orderItemDTO);
+        String id = "id.equals=" + customer.getId() + "&";
+
+        // Get all the customerList where orderCount and totalSpent match the order and its item
+        defaultCustomerShouldBeFound(id + "orderCount.equals=1");
+        defaultCustomerShouldNotBeFound(id + "orderCount.equals=0");
+        defaultCustomerShouldBeFound(id + "totalSpent.greaterThanOrEqual=12");
+        defaultCustomerShouldNotBeFound(id + "totalSpent.greaterThan=12");
+
+        // Get all the customerList where totalSpent no longer counts the deleted item
+        orderItemService.delete(savedOrderItem.getId());
+        defaultCustomerShouldBeFound(id + "totalSpent.equals=0");
+    }
+
     /**
      * Executes the search, and checks that the default entity is returned.
      */
@@ -1237,8 +1297,10 @@ public class CustomerResourceIT {
         assertThat(testCustomer.getCity()).isEqualTo(UPDATED_CITY);
         assertThat(testCustomer.getCountry()).isEqualTo(UPDATED_COUNTRY);
 
-        // Validate the Customer in Elasticsearch
-        verify(mockCustomerSearchRepository, times(1)).save(testCustomer);
+        // Validate the Customer is queued for Elasticsearch
+        assertThat(searchOutboxRepository.findAll())
+            .extracting(SearchOutboxEntry::getEntityType, SearchOutboxEntry::getEntityId, SearchOutboxEntry::getOperation)
+            .contains(tuple("Customer", testCustomer.getId(), SearchOutboxOperation.INDEX));
     }
 
     @Test
@@ -1263,6 +1325,27 @@ public class CustomerResourceIT {
         verify(mockCustomerSearchRepository, times(0)).save(customer);
     }
 
+    @Test
+    @Transactional
+    public void updateNonExistingCustomerWithUnknownId() throws Exception {
+        int databaseSizeBeforeUpdate = customerRepository.findAll().size();
+
+        // Create the Customer, with an id no row has
+        CustomerDTO customerDTO = customerMapper.toDto(customer);
+        customerDTO.setId(Long.MAX_VALUE);
+
+        // An update of an entity which does not exist is not a create
+        restCustomerMockMvc.perform(put("/api/customers")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(TestUtil.convertObjectToJsonBytes(customerDTO)))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("error.idnotfound"));
+
+        // Validate the Customer in the database
+        List<Customer> customerList = customerRepository.findAll();
+        assertThat(customerList).hasSize(databaseSizeBeforeUpdate);
+    }
+
     @Test
     @Transactional
     public void deleteCustomer() throws Exception {
@@ -1280,8 +1363,10 @@ public class CustomerResourceIT {
         List<Customer> customerList = customerRepository.findAll();
         assertThat(customerList).hasSize(databaseSizeBeforeDelete - 1);
 
-        // Validate the Customer in Elasticsearch
-        verify(mockCustomerSearchRepository, times(1)).deleteById(customer.getId());
+        // Validate the Customer is queued for Elasticsearch
+        assertThat(searchOutboxRepository.findAll())
+            .extracting(SearchOutboxEntry::getEntityType, SearchOutboxEntry::getEntityId, SearchOutboxEntry::getOperation)
+            .contains(tuple("Customer", customer.getId(), SearchOutboxOperation.DELETE));
     }
 
     @Test
@@ -1308,4 +1393,47 @@ public class CustomerResourceIT {
             .andExpect(jsonPath("$.[*].city").value(hasItem(DEFAULT_CITY)))
             .andExpect(jsonPath("$.[*].country").value(hasItem(DEFAULT_COUNTRY)));
     }
+
+    @Test
+    @Transactional
+    public void searchCustomerWithSearchAfter() throws Exception {
+        // Initialize the database
+        customerRepository.saveAndFlush(customer);
+        when(mockCustomerSearchRepository.searchAfter(any(QueryBuilder.class), any(Sort.class), isNull(), eq(20)))
+            .thenReturn(new SearchAfterSlice<>(Collections.singletonList(customer), Arrays.asList(DEFAULT_LAST_NAME, customer.getId().toString())));
+
+        // Search the first page sorted by last name, the next link holding the position of the last hit
+        restCustomerMockMvc.perform(get("/api/_search/customers").param("query", "id:" + customer.getId()).param("after", "").param("sort", "lastName,asc"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(header().doesNotExist("X-Total-Count"))
+            .andExpect(header().string(HttpHeaders.LINK, containsString("after=")))
+            .andExpect(jsonPath("$.[*].id").value(hasItem(customer.getId().intValue())));
+
+        verify(mockCustomerSearchRepository).searchAfter(any(QueryBuilder.class),
+            eq(Sort.by("lastName.keyword").and(Sort.by("id"))), isNull(), eq(20));
+    }
+
+    @Test
+    @Transactional
+    public void suggestCustomers() throws Exception {
+        // Initialize the database
+        customerRepository.saveAndFlush(customer);
+        when(mockCustomerSearchRepository.searchTop(any(QueryBuilder.class), any(String[].class), eq(5)))
+            .thenReturn(Collections.singletonList(customer));
+
+        // Suggest the customer twice, the second time from the cache
+        for (int i = 0; i < 2; i++) {
+            restCustomerMockMvc.perform(get("/api/_suggest/customers").param("prefix", " AAAA Suggest").param("size", "5"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+                .andExpect(header().string("Cache-Control", containsString("private")))
+                .andExpect(jsonPath("$.[0].id").value(customer.getId().intValue()))
+                .andExpect(jsonPath("$.[0].label").value(DEFAULT_FIRST_NAME + " " + DEFAULT_LAST_NAME));
+        }
+
+        ArgumentCaptor<QueryBuilder> query = ArgumentCaptor.forClass(QueryBuilder.class);
+        verify(mockCustomerSearchRepository, times(1)).searchTop(query.capture(), any(String[].class), eq(5));
+        assertThat(query.getValue().toString()).contains("\"aaaa suggest\"", "firstName.autocomplete", "lastName.autocomplete");
+    }
 }
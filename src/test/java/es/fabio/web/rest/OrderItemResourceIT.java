@@ -1,17 +1,25 @@
 package es.fabio.web.rest;
 
 import es.fabio.Application;
+import es.fabio.domain.Customer;
 import es.fabio.domain.OrderItem;
+import es.fabio.domain.SearchOutboxEntry;
+import es.fabio.domain.enumeration.SearchOutboxOperation;
 import es.fabio.domain.Producto;
 import es.fabio.domain.ProductOrder;
 import es.fabio.repository.OrderItemRepository;
+import es.fabio.repository.SearchOutboxRepository;
 import es.fabio.repository.search.OrderItemSearchRepository;
+import es.fabio.repository.search.SearchAfterSlice;
 import es.fabio.service.OrderItemService;
 import es.fabio.service.dto.OrderItemDTO;
 import es.fabio.service.mapper.OrderItemMapper;
 import es.fabio.service.dto.OrderItemCriteria;
 import es.fabio.service.OrderItemQueryService;
 
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.elasticsearch.index.query.QueryBuilder;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
@@ -22,18 +30,26 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.transaction.annotation.Transactional;
 import javax.persistence.EntityManager;
 import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.elasticsearch.index.query.QueryBuilders.queryStringQuery;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.AdditionalMatchers.aryEq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -62,6 +78,9 @@ public class OrderItemResourceIT {
     @Autowired
     private OrderItemRepository orderItemRepository;
 
+    @Autowired
+    private SearchOutboxRepository searchOutboxRepository;
+
     @Autowired
     private OrderItemMapper orderItemMapper;
 
@@ -178,8 +197,10 @@ public class OrderItemResourceIT {
         assertThat(testOrderItem.getTotalPrice()).isEqualTo(DEFAULT_TOTAL_PRICE);
         assertThat(testOrderItem.getStatus()).isEqualTo(DEFAULT_STATUS);
 
-        // Validate the OrderItem in Elasticsearch
-        verify(mockOrderItemSearchRepository, times(1)).save(testOrderItem);
+        // Validate the OrderItem is queued for Elasticsearch
+        assertThat(searchOutboxRepository.findAll())
+            .extracting(SearchOutboxEntry::getEntityType, SearchOutboxEntry::getEntityId, SearchOutboxEntry::getOperation)
+            .contains(tuple("OrderItem", testOrderItem.getId(), SearchOutboxOperation.INDEX));
     }
 
     @Test
@@ -266,6 +287,39 @@ public class OrderItemResourceIT {
         assertThat(orderItemList).hasSize(databaseSizeBeforeTest);
     }
 
+    @Test
+    @Transactional
+    public void bulkSaveOrderItems() throws Exception {
+        orderItemRepository.saveAndFlush(orderItem);
+        ProductOrder productOrder = orderItem.getOrder();
+        int databaseSizeBeforeBulk = orderItemRepository.findAll().size();
+
+        OrderItemDTO newOrderItem = orderItemMapper.toDto(createEntity(em));
+        newOrderItem.setTotalPrice(new BigDecimal("3.00"));
+        OrderItemDTO invalidOrderItem = orderItemMapper.toDto(createEntity(em));
+        invalidOrderItem.setQuantity(null);
+        OrderItemDTO updatedOrderItem = orderItemMapper.toDto(orderItem);
+        updatedOrderItem.setStatus(UPDATED_STATUS);
+
+        restOrderItemMockMvc.perform(post("/api/order-items/bulk")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(TestUtil.convertObjectToJsonBytes(new OrderItemDTO[] {newOrderItem, invalidOrderItem, updatedOrderItem})))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[0].status").value("CREATED"))
+            .andExpect(jsonPath("$.[0].item.id").isNumber())
+            .andExpect(jsonPath("$.[1].index").value(1))
+            .andExpect(jsonPath("$.[1].status").value("FAILED"))
+            .andExpect(jsonPath("$.[1].errors.[0]").value(containsString("quantity")))
+            .andExpect(jsonPath("$.[2].status").value("UPDATED"))
+            .andExpect(jsonPath("$.[2].item.status").value(UPDATED_STATUS.toString()));
+
+        assertThat(orderItemRepository.findAll()).hasSize(databaseSizeBeforeBulk + 1);
+        assertThat(orderItemRepository.findById(orderItem.getId()).get().getStatus()).isEqualTo(UPDATED_STATUS);
+        // Only the saved items count in the order aggregates
+        assertThat(productOrder.getTotal()).isEqualByComparingTo("3.00");
+        assertThat(productOrder.getItemCount()).isEqualTo(1);
+    }
+
     @Test
     @Transactional
     public void getAllOrderItems() throws Exception {
@@ -282,6 +336,90 @@ public class OrderItemResourceIT {
             .andExpect(jsonPath("$.[*].status").value(hasItem(DEFAULT_STATUS.toString())));
     }
     
+    @Test
+    @Transactional
+    public void getAllOrderItemsByCriteriaFetchesAssociationsInTheSameStatement() throws Exception {
+        OrderItem last = createItemsOfDistinctProductosAndOrders();
+
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        try {
+            // Get all the orderItemList, as entities mapped to DTOs
+            List<OrderItemDTO> orderItems = orderItemQueryService.findByCriteria(new OrderItemCriteria());
+
+            assertThat(orderItems)
+                .filteredOn(orderItemDTO -> last.getId().equals(orderItemDTO.getId()))
+                .extracting(OrderItemDTO::getProductoName, OrderItemDTO::getOrderCode)
+                .containsExactly(tuple(last.getProducto().getName(), last.getOrder().getCode()));
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+
+    @Test
+    @Transactional
+    public void getAllOrderItemsWithKeysetPaginationFetchesAssociationsInTheSameStatement() throws Exception {
+        OrderItem last = createItemsOfDistinctProductosAndOrders();
+
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        try {
+            // Get the first keyset page of the orderItemList
+            restOrderItemMockMvc.perform(get("/api/order-items?after=&sort=id,desc&size=20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[*].productoName").value(hasItem(last.getProducto().getName())))
+                .andExpect(jsonPath("$.[*].orderCode").value(hasItem(last.getOrder().getCode())));
+
+            // A single select for the slice, with its associations and no count
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+
+    /**
+     * Create items of distinct productos and orders, and clear the persistence context.
+     *
+     * @return the last item.
+     */
+    private OrderItem createItemsOfDistinctProductosAndOrders() {
+        OrderItem item = null;
+        for (int i = 0; i < 3; i++) {
+            Producto producto = ProductoResourceIT.createEntity(em);
+            em.persist(producto);
+            ProductOrder productOrder = ProductOrderResourceIT.createEntity(em);
+            em.persist(productOrder);
+            item = new OrderItem()
+                .quantity(DEFAULT_QUANTITY)
+                .totalPrice(DEFAULT_TOTAL_PRICE)
+                .status(DEFAULT_STATUS);
+            item.setProducto(producto);
+            item.setOrder(productOrder);
+            em.persist(item);
+        }
+        em.flush();
+        em.clear();
+        return item;
+    }
+
+    @Test
+    @Transactional
+    public void exportOrderItemsAsCsv() throws Exception {
+        // Initialize the database
+        orderItemRepository.saveAndFlush(orderItem);
+
+        // Export the orderItems matching the criteria
+        restOrderItemMockMvc.perform(get("/api/order-items/export?format=csv&id.equals=" + orderItem.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("text/csv;charset=UTF-8"))
+            .andExpect(content().string(containsString("id,quantity,totalPrice,status,productoId,productoName,orderId,orderCode\r\n")))
+            .andExpect(content().string(containsString(orderItem.getId() + "," + DEFAULT_QUANTITY + "," + DEFAULT_TOTAL_PRICE.toPlainString()
+                + "," + DEFAULT_STATUS + "," + orderItem.getProducto().getId() + ",")));
+    }
+
     @Test
     @Transactional
     public void getOrderItem() throws Exception {
@@ -298,6 +436,38 @@ public class OrderItemResourceIT {
             .andExpect(jsonPath("$.status").value(DEFAULT_STATUS.toString()));
     }
 
+    @Test
+    @Transactional
+    public void getOrderItemIsConditional() throws Exception {
+        // Initialize the database
+        orderItemRepository.saveAndFlush(orderItem);
+        Producto producto = orderItem.getProducto();
+        String eTag = "\"" + orderItem.getVersion() + "-" + producto.getVersion() + "-" + orderItem.getOrder().getVersion() + "\"";
+
+        restOrderItemMockMvc.perform(get("/api/order-items/{id}", orderItem.getId()))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, eTag))
+            .andExpect(jsonPath("$.productoName").value(producto.getName()));
+
+        // The copy held by the client is still the current one
+        restOrderItemMockMvc.perform(get("/api/order-items/{id}", orderItem.getId())
+            .header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, eTag))
+            .andExpect(content().string(""));
+
+        // Rename the producto, whose name the orderItem shows
+        producto.setName("Renamed producto");
+        em.flush();
+
+        restOrderItemMockMvc.perform(get("/api/order-items/{id}", orderItem.getId())
+            .header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG,
+                "\"" + orderItem.getVersion() + "-" + producto.getVersion() + "-" + orderItem.getOrder().getVersion() + "\""))
+            .andExpect(jsonPath("$.productoName").value("Renamed producto"));
+    }
+
 
     @Test
     @Transactional
@@ -686,8 +856,69 @@ public class OrderItemResourceIT {
         assertThat(testOrderItem.getTotalPrice()).isEqualTo(UPDATED_TOTAL_PRICE);
         assertThat(testOrderItem.getStatus()).isEqualTo(UPDATED_STATUS);
 
-        // Validate the OrderItem in Elasticsearch
-        verify(mockOrderItemSearchRepository, times(1)).save(testOrderItem);
+        // Validate the OrderItem is queued for Elasticsearch
+        assertThat(searchOutboxRepository.findAll())
+            .extracting(SearchOutboxEntry::getEntityType, SearchOutboxEntry::getEntityId, SearchOutboxEntry::getOperation)
+            .contains(tuple("OrderItem", testOrderItem.getId(), SearchOutboxOperation.INDEX));
+    }
+
+    @Test
+    @Transactional
+    public void updateOrderItemWithIfMatch() throws Exception {
+        // Initialize the database
+        orderItemRepository.saveAndFlush(orderItem);
+        String references = orderItem.getProducto().getVersion() + "-" + orderItem.getOrder().getVersion();
+        OrderItemDTO orderItemDTO = orderItemMapper.toDto(orderItem.quantity(UPDATED_QUANTITY));
+        em.detach(orderItem);
+        orderItemDTO.setVersion(null);
+
+        // The version of the orderItem alone is not its entity tag
+        restOrderItemMockMvc.perform(put("/api/order-items")
+            .header(HttpHeaders.IF_MATCH, "\"0\"")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(TestUtil.convertObjectToJsonBytes(orderItemDTO)))
+            .andExpect(status().isPreconditionFailed());
+
+        restOrderItemMockMvc.perform(put("/api/order-items")
+            .header(HttpHeaders.IF_MATCH, "\"0-" + references + "\"")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(TestUtil.convertObjectToJsonBytes(orderItemDTO)))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, startsWith("\"1-")))
+            .andExpect(jsonPath("$.version").value(1))
+            .andExpect(jsonPath("$.quantity").value(UPDATED_QUANTITY));
+
+        // The client copy is now stale
+        restOrderItemMockMvc.perform(put("/api/order-items")
+            .header(HttpHeaders.IF_MATCH, "\"0-" + references + "\"")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(TestUtil.convertObjectToJsonBytes(orderItemDTO)))
+            .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    @Transactional
+    public void updateOrderItemWithStaleVersion() throws Exception {
+        // Initialize the database
+        orderItemRepository.saveAndFlush(orderItem);
+        OrderItemDTO orderItemDTO = orderItemMapper.toDto(orderItem);
+        em.detach(orderItem);
+        orderItemDTO.setQuantity(UPDATED_QUANTITY);
+
+        restOrderItemMockMvc.perform(put("/api/order-items")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(TestUtil.convertObjectToJsonBytes(orderItemDTO)))
+            .andExpect(status().isOk());
+
+        // The same update, based on the previous version: any current copy matches, but the body version is kept
+        orderItemDTO.setStatus(UPDATED_STATUS);
+        restOrderItemMockMvc.perform(put("/api/order-items")
+            .header(HttpHeaders.IF_MATCH, "*")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(TestUtil.convertObjectToJsonBytes(orderItemDTO)))
+            .andExpect(status().isConflict());
+
+        assertThat(orderItemRepository.findById(orderItemDTO.getId()).get().getStatus()).isEqualTo(DEFAULT_STATUS);
     }
 
     @Test
@@ -712,6 +943,27 @@ public class OrderItemResourceIT {
         verify(mockOrderItemSearchRepository, times(0)).save(orderItem);
     }
 
+    @Test
+    @Transactional
+    public void updateNonExistingOrderItemWithUnknownId() throws Exception {
+        int databaseSizeBeforeUpdate = orderItemRepository.findAll().size();
+
+        // Create the OrderItem, with an id no row has
+        OrderItemDTO orderItemDTO = orderItemMapper.toDto(orderItem);
+        orderItemDTO.setId(Long.MAX_VALUE);
+
+        // An update of an entity which does not exist is not a create
+        restOrderItemMockMvc.perform(put("/api/order-items")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(TestUtil.convertObjectToJsonBytes(orderItemDTO)))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("error.idnotfound"));
+
+        // Validate the OrderItem in the database
+        List<OrderItem> orderItemList = orderItemRepository.findAll();
+        assertThat(orderItemList).hasSize(databaseSizeBeforeUpdate);
+    }
+
     @Test
     @Transactional
     public void deleteOrderItem() throws Exception {
@@ -729,8 +981,82 @@ public class OrderItemResourceIT {
         List<OrderItem> orderItemList = orderItemRepository.findAll();
         assertThat(orderItemList).hasSize(databaseSizeBeforeDelete - 1);
 
-        // Validate the OrderItem in Elasticsearch
-        verify(mockOrderItemSearchRepository, times(1)).deleteById(orderItem.getId());
+        // Validate the OrderItem is queued for Elasticsearch
+        assertThat(searchOutboxRepository.findAll())
+            .extracting(SearchOutboxEntry::getEntityType, SearchOutboxEntry::getEntityId, SearchOutboxEntry::getOperation)
+            .contains(tuple("OrderItem", orderItem.getId(), SearchOutboxOperation.DELETE));
+    }
+
+    @Test
+    @Transactional
+    public void orderItemWritesMaintainTheOrderAndCustomerAggregates() throws Exception {
+        ProductOrder productOrder = orderItem.getOrder();
+        Customer customer = productOrder.getCustomer();
+        BigDecimal totalSpentBefore = customer.getTotalSpent();
+
+        // Create an item
+        orderItem.setTotalPrice(new BigDecimal("10.50"));
+        OrderItemDTO orderItemDTO = orderItemService.save(orderItemMapper.toDto(orderItem));
+
+        assertThat(productOrder.getTotal()).isEqualByComparingTo("10.50");
+        assertThat(productOrder.getItemCount()).isEqualTo(1);
+        assertThat(customer.getTotalSpent()).isEqualByComparingTo(totalSpentBefore.add(new BigDecimal("10.50")));
+
+        // Update its price
+        orderItemDTO.setTotalPrice(new BigDecimal("4.25"));
+        restOrderItemMockMvc.perform(put("/api/order-items")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(TestUtil.convertObjectToJsonBytes(orderItemDTO)))
+            .andExpect(status().isOk());
+
+        assertThat(productOrder.getTotal()).isEqualByComparingTo("4.25");
+        assertThat(productOrder.getItemCount()).isEqualTo(1);
+        assertThat(customer.getTotalSpent()).isEqualByComparingTo(totalSpentBefore.add(new BigDecimal("4.25")));
+
+        // Delete it
+        restOrderItemMockMvc.perform(delete("/api/order-items/{id}", orderItemDTO.getId())
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isNoContent());
+
+        assertThat(productOrder.getTotal()).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(productOrder.getItemCount()).isEqualTo(0);
+        assertThat(customer.getTotalSpent()).isEqualByComparingTo(totalSpentBefore);
+
+        // Validate the ProductOrder and Customer are queued for Elasticsearch
+        assertThat(searchOutboxRepository.findAll())
+            .extracting(SearchOutboxEntry::getEntityType, SearchOutboxEntry::getEntityId)
+            .contains(tuple("ProductOrder", productOrder.getId()), tuple("Customer", customer.getId()));
+    }
+
+    @Test
+    @Transactional
+    public void movingAnOrderItemMovesItsTotalToTheOtherOrderAndCustomer() throws Exception {
+        ProductOrder productOrder = orderItem.getOrder();
+        Customer customer = productOrder.getCustomer();
+        BigDecimal totalSpentBefore = customer.getTotalSpent();
+        Customer otherCustomer = CustomerResourceIT.createEntity(em);
+        em.persist(otherCustomer);
+        ProductOrder otherOrder = ProductOrderResourceIT.createEntity(em);
+        otherOrder.setCustomer(otherCustomer);
+        em.persist(otherOrder);
+        em.flush();
+
+        orderItem.setTotalPrice(new BigDecimal("7.00"));
+        OrderItemDTO orderItemDTO = orderItemService.save(orderItemMapper.toDto(orderItem));
+
+        // Move it to the order of the other customer
+        orderItemDTO.setOrderId(otherOrder.getId());
+        restOrderItemMockMvc.perform(put("/api/order-items")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(TestUtil.convertObjectToJsonBytes(orderItemDTO)))
+            .andExpect(status().isOk());
+
+        assertThat(productOrder.getTotal()).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(productOrder.getItemCount()).isEqualTo(0);
+        assertThat(customer.getTotalSpent()).isEqualByComparingTo(totalSpentBefore);
+        assertThat(otherOrder.getTotal()).isEqualByComparingTo("7.00");
+        assertThat(otherOrder.getItemCount()).isEqualTo(1);
+        assertThat(otherCustomer.getTotalSpent()).isEqualByComparingTo("7.00");
     }
 
     @Test
@@ -751,4 +1077,40 @@ public class OrderItemResourceIT {
             .andExpect(jsonPath("$.[*].totalPrice").value(hasItem(DEFAULT_TOTAL_PRICE.intValue())))
             .andExpect(jsonPath("$.[*].status").value(hasItem(DEFAULT_STATUS.toString())));
     }
+
+    @Test
+    @Transactional
+    public void searchOrderItemWithSearchAfter() throws Exception {
+        // Initialize the database
+        orderItemRepository.saveAndFlush(orderItem);
+        when(mockOrderItemSearchRepository.searchAfter(any(QueryBuilder.class), any(Sort.class), isNull(), eq(20)))
+            .thenReturn(new SearchAfterSlice<>(Collections.singletonList(orderItem), Arrays.asList("0.0", orderItem.getId().toString())));
+        when(mockOrderItemSearchRepository.searchAfter(any(QueryBuilder.class), any(Sort.class), any(Object[].class), eq(20)))
+            .thenReturn(new SearchAfterSlice<>(Collections.emptyList(), null));
+
+        // Search the first page by total price, the next link holding the price of the last hit as a number
+        MvcResult firstPage = restOrderItemMockMvc.perform(get("/api/_search/order-items")
+            .param("query", "id:" + orderItem.getId()).param("after", "").param("sort", "totalPrice,asc"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(header().doesNotExist("X-Total-Count"))
+            .andExpect(jsonPath("$.[*].id").value(hasItem(orderItem.getId().intValue())))
+            .andReturn();
+
+        String link = firstPage.getResponse().getHeader(HttpHeaders.LINK);
+        restOrderItemMockMvc.perform(get(link.substring(link.indexOf('<') + 1, link.indexOf('>'))))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist(HttpHeaders.LINK));
+
+        Sort byTotalPrice = Sort.by("totalPrice").and(Sort.by("id"));
+        verify(mockOrderItemSearchRepository).searchAfter(any(QueryBuilder.class), eq(byTotalPrice),
+            aryEq(new Object[] {0.0, orderItem.getId()}), eq(20));
+    }
+
+    @Test
+    @Transactional
+    public void searchOrderItemWithSearchAfterByUnknownSort() throws Exception {
+        restOrderItemMockMvc.perform(get("/api/_search/order-items?query=id:1&after=&sort=producto,asc"))
+            .andExpect(status().isBadRequest());
+    }
 }
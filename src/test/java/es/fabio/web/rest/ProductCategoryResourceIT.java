@@ -2,15 +2,20 @@ package es.fabio.web.rest;
 
 import es.fabio.Application;
 import es.fabio.domain.ProductCategory;
+import es.fabio.domain.SearchOutboxEntry;
+import es.fabio.domain.enumeration.SearchOutboxOperation;
 import es.fabio.domain.Producto;
 import es.fabio.repository.ProductCategoryRepository;
+import es.fabio.repository.SearchOutboxRepository;
 import es.fabio.repository.search.ProductCategorySearchRepository;
 import es.fabio.service.ProductCategoryService;
 import es.fabio.service.dto.ProductCategoryDTO;
 import es.fabio.service.mapper.ProductCategoryMapper;
 import es.fabio.service.dto.ProductCategoryCriteria;
 import es.fabio.service.ProductCategoryQueryService;
+import es.fabio.repository.search.SearchAfterSlice;
 
+import org.elasticsearch.index.query.QueryBuilder;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
@@ -19,17 +24,23 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.transaction.annotation.Transactional;
 import javax.persistence.EntityManager;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.elasticsearch.index.query.QueryBuilders.queryStringQuery;
 import static org.hamcrest.Matchers.hasItem;
+import static org.mockito.AdditionalMatchers.aryEq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -52,6 +63,9 @@ public class ProductCategoryResourceIT {
     @Autowired
     private ProductCategoryRepository productCategoryRepository;
 
+    @Autowired
+    private SearchOutboxRepository searchOutboxRepository;
+
     @Autowired
     private ProductCategoryMapper productCategoryMapper;
 
@@ -125,8 +139,10 @@ public class ProductCategoryResourceIT {
         assertThat(testProductCategory.getName()).isEqualTo(DEFAULT_NAME);
         assertThat(testProductCategory.getDescription()).isEqualTo(DEFAULT_DESCRIPTION);
 
-        // Validate the ProductCategory in Elasticsearch
-        verify(mockProductCategorySearchRepository, times(1)).save(testProductCategory);
+        // Validate the ProductCategory is queued for Elasticsearch
+        assertThat(searchOutboxRepository.findAll())
+            .extracting(SearchOutboxEntry::getEntityType, SearchOutboxEntry::getEntityId, SearchOutboxEntry::getOperation)
+            .contains(tuple("ProductCategory", testProductCategory.getId(), SearchOutboxOperation.INDEX));
     }
 
     @Test
@@ -203,6 +219,37 @@ public class ProductCategoryResourceIT {
             .andExpect(jsonPath("$.description").value(DEFAULT_DESCRIPTION));
     }
 
+    @Test
+    @Transactional
+    public void getProductCategoryIsConditional() throws Exception {
+        // Initialize the database
+        productCategoryRepository.saveAndFlush(productCategory);
+        String eTag = "\"" + productCategory.getVersion() + "\"";
+
+        restProductCategoryMockMvc.perform(get("/api/product-categories/{id}", productCategory.getId()))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, eTag))
+            .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+            .andExpect(jsonPath("$.version").value(productCategory.getVersion().intValue()));
+
+        // The copy held by the client is still the current one
+        restProductCategoryMockMvc.perform(get("/api/product-categories/{id}", productCategory.getId())
+            .header(HttpHeaders.IF_NONE_MATCH, "W/\"-1\", " + eTag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, eTag))
+            .andExpect(content().string(""));
+
+        // Update the productCategory
+        productCategory.setName(UPDATED_NAME);
+        productCategoryRepository.saveAndFlush(productCategory);
+
+        restProductCategoryMockMvc.perform(get("/api/product-categories/{id}", productCategory.getId())
+            .header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, "\"" + productCategory.getVersion() + "\""))
+            .andExpect(jsonPath("$.name").value(UPDATED_NAME));
+    }
+
 
     @Test
     @Transactional
@@ -470,8 +517,66 @@ public class ProductCategoryResourceIT {
         assertThat(testProductCategory.getName()).isEqualTo(UPDATED_NAME);
         assertThat(testProductCategory.getDescription()).isEqualTo(UPDATED_DESCRIPTION);
 
-        // Validate the ProductCategory in Elasticsearch
-        verify(mockProductCategorySearchRepository, times(1)).save(testProductCategory);
+        // Validate the ProductCategory is queued for Elasticsearch
+        assertThat(searchOutboxRepository.findAll())
+            .extracting(SearchOutboxEntry::getEntityType, SearchOutboxEntry::getEntityId, SearchOutboxEntry::getOperation)
+            .contains(tuple("ProductCategory", testProductCategory.getId(), SearchOutboxOperation.INDEX));
+    }
+
+    @Test
+    @Transactional
+    public void updateProductCategoryWithIfMatch() throws Exception {
+        // Initialize the database
+        productCategoryRepository.saveAndFlush(productCategory);
+        ProductCategoryDTO productCategoryDTO = productCategoryMapper.toDto(productCategory.name(UPDATED_NAME));
+        em.detach(productCategory);
+        productCategoryDTO.setVersion(null);
+
+        restProductCategoryMockMvc.perform(put("/api/product-categories")
+            .header(HttpHeaders.IF_MATCH, "W/\"0\", \"-1\"")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(TestUtil.convertObjectToJsonBytes(productCategoryDTO)))
+            .andExpect(status().isPreconditionFailed());
+
+        restProductCategoryMockMvc.perform(put("/api/product-categories")
+            .header(HttpHeaders.IF_MATCH, "\"0\"")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(TestUtil.convertObjectToJsonBytes(productCategoryDTO)))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+            .andExpect(jsonPath("$.version").value(1))
+            .andExpect(jsonPath("$.name").value(UPDATED_NAME));
+
+        // The client copy is now stale
+        restProductCategoryMockMvc.perform(put("/api/product-categories")
+            .header(HttpHeaders.IF_MATCH, "\"0\"")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(TestUtil.convertObjectToJsonBytes(productCategoryDTO)))
+            .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    @Transactional
+    public void updateProductCategoryWithStaleVersion() throws Exception {
+        // Initialize the database
+        productCategoryRepository.saveAndFlush(productCategory);
+        ProductCategoryDTO productCategoryDTO = productCategoryMapper.toDto(productCategory);
+        em.detach(productCategory);
+        productCategoryDTO.setName(UPDATED_NAME);
+
+        restProductCategoryMockMvc.perform(put("/api/product-categories")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(TestUtil.convertObjectToJsonBytes(productCategoryDTO)))
+            .andExpect(status().isOk());
+
+        // The same update, based on the previous version
+        productCategoryDTO.setDescription(UPDATED_DESCRIPTION);
+        restProductCategoryMockMvc.perform(put("/api/product-categories")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(TestUtil.convertObjectToJsonBytes(productCategoryDTO)))
+            .andExpect(status().isConflict());
+
+        assertThat(productCategoryRepository.findById(productCategoryDTO.getId()).get().getDescription()).isEqualTo(DEFAULT_DESCRIPTION);
     }
 
     @Test
@@ -496,6 +601,27 @@ public class ProductCategoryResourceIT {
         verify(mockProductCategorySearchRepository, times(0)).save(productCategory);
     }
 
+    @Test
+    @Transactional
+    public void updateNonExistingProductCategoryWithUnknownId() throws Exception {
+        int databaseSizeBeforeUpdate = productCategoryRepository.findAll().size();
+
+        // Create the ProductCategory, with an id no row has
+        ProductCategoryDTO productCategoryDTO = productCategoryMapper.toDto(productCategory);
+        productCategoryDTO.setId(Long.MAX_VALUE);
+
+        // An update of an entity which does not exist is not a create
+        restProductCategoryMockMvc.perform(put("/api/product-categories")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(TestUtil.convertObjectToJsonBytes(productCategoryDTO)))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("error.idnotfound"));
+
+        // Validate the ProductCategory in the database
+        List<ProductCategory> productCategoryList = productCategoryRepository.findAll();
+        assertThat(productCategoryList).hasSize(databaseSizeBeforeUpdate);
+    }
+
     @Test
     @Transactional
     public void deleteProductCategory() throws Exception {
@@ -513,8 +639,10 @@ public class ProductCategoryResourceIT {
         List<ProductCategory> productCategoryList = productCategoryRepository.findAll();
         assertThat(productCategoryList).hasSize(databaseSizeBeforeDelete - 1);
 
-        // Validate the ProductCategory in Elasticsearch
-        verify(mockProductCategorySearchRepository, times(1)).deleteById(productCategory.getId());
+        // Validate the ProductCategory is queued for Elasticsearch
+        assertThat(searchOutboxRepository.findAll())
+            .extracting(SearchOutboxEntry::getEntityType, SearchOutboxEntry::getEntityId, SearchOutboxEntry::getOperation)
+            .contains(tuple("ProductCategory", productCategory.getId(), SearchOutboxOperation.DELETE));
     }
 
     @Test
@@ -534,4 +662,34 @@ public class ProductCategoryResourceIT {
             .andExpect(jsonPath("$.[*].name").value(hasItem(DEFAULT_NAME)))
             .andExpect(jsonPath("$.[*].description").value(hasItem(DEFAULT_DESCRIPTION)));
     }
+
+    @Test
+    @Transactional
+    public void searchProductCategoryWithSearchAfter() throws Exception {
+        // Initialize the database
+        productCategoryRepository.saveAndFlush(productCategory);
+        when(mockProductCategorySearchRepository.searchAfter(any(QueryBuilder.class), any(Sort.class), isNull(), eq(20)))
+            .thenReturn(new SearchAfterSlice<>(Collections.singletonList(productCategory), Arrays.asList(DEFAULT_NAME, productCategory.getId().toString())));
+        when(mockProductCategorySearchRepository.searchAfter(any(QueryBuilder.class), any(Sort.class), any(Object[].class), eq(20)))
+            .thenReturn(new SearchAfterSlice<>(Collections.emptyList(), null));
+
+        // Search the first page sorted by name, the next link holding the name and id of the last hit
+        MvcResult firstPage = restProductCategoryMockMvc.perform(get("/api/_search/product-categories")
+            .param("query", "id:" + productCategory.getId()).param("after", "").param("sort", "name,asc"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(header().doesNotExist("X-Total-Count"))
+            .andExpect(jsonPath("$.[*].id").value(hasItem(productCategory.getId().intValue())))
+            .andReturn();
+
+        String link = firstPage.getResponse().getHeader(HttpHeaders.LINK);
+        restProductCategoryMockMvc.perform(get(link.substring(link.indexOf('<') + 1, link.indexOf('>'))))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist(HttpHeaders.LINK));
+
+        Sort byName = Sort.by("name.keyword").and(Sort.by("id"));
+        verify(mockProductCategorySearchRepository).searchAfter(any(QueryBuilder.class), eq(byName), isNull(), eq(20));
+        verify(mockProductCategorySearchRepository).searchAfter(any(QueryBuilder.class), eq(byName),
+            aryEq(new Object[] {DEFAULT_NAME, productCategory.getId()}), eq(20));
+    }
 }
@@ -2,16 +2,23 @@ package es.fabio.web.rest;
 
 import es.fabio.Application;
 import es.fabio.domain.ProductOrder;
+import es.fabio.domain.SearchOutboxEntry;
+import es.fabio.domain.enumeration.SearchOutboxOperation;
 import es.fabio.domain.OrderItem;
 import es.fabio.domain.Customer;
 import es.fabio.repository.ProductOrderRepository;
+import es.fabio.repository.SearchOutboxRepository;
 import es.fabio.repository.search.ProductOrderSearchRepository;
+import es.fabio.repository.search.SearchAfterSlice;
 import es.fabio.service.ProductOrderService;
 import es.fabio.service.dto.ProductOrderDTO;
 import es.fabio.service.mapper.ProductOrderMapper;
 import es.fabio.service.dto.ProductOrderCriteria;
 import es.fabio.service.ProductOrderQueryService;
 
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.elasticsearch.index.query.QueryBuilder;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
@@ -22,19 +29,27 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.transaction.annotation.Transactional;
 import javax.persistence.EntityManager;
+import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.elasticsearch.index.query.QueryBuilders.queryStringQuery;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
+import static org.mockito.AdditionalMatchers.aryEq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -65,6 +80,9 @@ public class ProductOrderResourceIT {
     @Autowired
     private ProductOrderRepository productOrderRepository;
 
+    @Autowired
+    private SearchOutboxRepository searchOutboxRepository;
+
     @Autowired
     private ProductOrderMapper productOrderMapper;
 
@@ -164,8 +182,10 @@ public class ProductOrderResourceIT {
         assertThat(testProductOrder.getCode()).isEqualTo(DEFAULT_CODE);
         assertThat(testProductOrder.getInvoiceId()).isEqualTo(DEFAULT_INVOICE_ID);
 
-        // Validate the ProductOrder in Elasticsearch
-        verify(mockProductOrderSearchRepository, times(1)).save(testProductOrder);
+        // Validate the ProductOrder is queued for Elasticsearch
+        assertThat(searchOutboxRepository.findAll())
+            .extracting(SearchOutboxEntry::getEntityType, SearchOutboxEntry::getEntityId, SearchOutboxEntry::getOperation)
+            .contains(tuple("ProductOrder", testProductOrder.getId(), SearchOutboxOperation.INDEX));
     }
 
     @Test
@@ -252,6 +272,39 @@ public class ProductOrderResourceIT {
         assertThat(productOrderList).hasSize(databaseSizeBeforeTest);
     }
 
+    @Test
+    @Transactional
+    public void bulkSaveProductOrders() throws Exception {
+        productOrderRepository.saveAndFlush(productOrder);
+        Customer customer = productOrder.getCustomer();
+        int orderCountBeforeBulk = customer.getOrderCount();
+        int databaseSizeBeforeBulk = productOrderRepository.findAll().size();
+
+        ProductOrderDTO newProductOrder = productOrderMapper.toDto(createEntity(em));
+        newProductOrder.setCode(UPDATED_CODE);
+        ProductOrderDTO invalidProductOrder = productOrderMapper.toDto(createEntity(em));
+        invalidProductOrder.setPlacedDate(null);
+        ProductOrderDTO updatedProductOrder = productOrderMapper.toDto(productOrder);
+        updatedProductOrder.setStatus(UPDATED_STATUS);
+
+        restProductOrderMockMvc.perform(post("/api/product-orders/bulk")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(TestUtil.convertObjectToJsonBytes(new ProductOrderDTO[] {newProductOrder, invalidProductOrder, updatedProductOrder})))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[0].status").value("CREATED"))
+            .andExpect(jsonPath("$.[0].item.code").value(UPDATED_CODE))
+            .andExpect(jsonPath("$.[1].index").value(1))
+            .andExpect(jsonPath("$.[1].status").value("FAILED"))
+            .andExpect(jsonPath("$.[1].errors.[0]").value(containsString("placedDate")))
+            .andExpect(jsonPath("$.[2].status").value("UPDATED"))
+            .andExpect(jsonPath("$.[2].item.status").value(UPDATED_STATUS.toString()));
+
+        assertThat(productOrderRepository.findAll()).hasSize(databaseSizeBeforeBulk + 1);
+        assertThat(productOrderRepository.findById(productOrder.getId()).get().getStatus()).isEqualTo(UPDATED_STATUS);
+        // Only the created order counts in its customer
+        assertThat(customer.getOrderCount()).isEqualTo(orderCountBeforeBulk + 1);
+    }
+
     @Test
     @Transactional
     public void getAllProductOrders() throws Exception {
@@ -269,6 +322,124 @@ public class ProductOrderResourceIT {
             .andExpect(jsonPath("$.[*].invoiceId").value(hasItem(DEFAULT_INVOICE_ID.intValue())));
     }
     
+    @Test
+    @Transactional
+    public void getAllProductOrdersByCriteriaFetchesAssociationsInTheSameStatement() throws Exception {
+        ProductOrder last = createOrdersOfDistinctCustomers();
+
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        try {
+            // Get all the productOrderList, as entities mapped to DTOs
+            List<ProductOrderDTO> productOrders = productOrderQueryService.findByCriteria(new ProductOrderCriteria());
+
+            assertThat(productOrders)
+                .filteredOn(productOrderDTO -> last.getId().equals(productOrderDTO.getId()))
+                .extracting(ProductOrderDTO::getCustomerEmail)
+                .containsExactly(last.getCustomer().getEmail());
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+
+    @Test
+    @Transactional
+    public void getAllProductOrdersWithKeysetPaginationFetchesAssociationsInTheSameStatement() throws Exception {
+        ProductOrder last = createOrdersOfDistinctCustomers();
+
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        try {
+            // Get the first keyset page of the productOrderList
+            restProductOrderMockMvc.perform(get("/api/product-orders?after=&sort=id,desc&size=20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.[*].customerEmail").value(hasItem(last.getCustomer().getEmail())));
+
+            // A single select for the slice, with its associations and no count
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+
+    /**
+     * Create orders of distinct customers, and clear the persistence context.
+     *
+     * @return the last order.
+     */
+    private ProductOrder createOrdersOfDistinctCustomers() {
+        ProductOrder order = null;
+        for (int i = 0; i < 3; i++) {
+            Customer customer = CustomerResourceIT.createEntity(em);
+            em.persist(customer);
+            order = new ProductOrder()
+                .placedDate(DEFAULT_PLACED_DATE)
+                .status(DEFAULT_STATUS)
+                .code(DEFAULT_CODE)
+                .invoiceId(DEFAULT_INVOICE_ID);
+            order.setCustomer(customer);
+            em.persist(order);
+        }
+        em.flush();
+        em.clear();
+        return order;
+    }
+
+    @Test
+    @Transactional
+    public void exportProductOrdersAsNdjson() throws Exception {
+        // Initialize the database
+        productOrderRepository.saveAndFlush(productOrder);
+
+        // Export the productOrders matching the criteria
+        restProductOrderMockMvc.perform(get("/api/product-orders/export?format=ndjson&id.equals=" + productOrder.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("application/x-ndjson;charset=UTF-8"))
+            .andExpect(header().string("Content-Disposition", "attachment; filename=\"product-orders.ndjson\""))
+            .andExpect(content().string(containsString("\"id\":" + productOrder.getId() + ",")))
+            .andExpect(content().string(containsString("\"code\":\"" + DEFAULT_CODE + "\"")));
+    }
+
+    @Test
+    @Transactional
+    public void exportProductOrdersAsCsv() throws Exception {
+        // Initialize the database
+        productOrderRepository.saveAndFlush(productOrder);
+
+        // Export the productOrders matching the criteria
+        restProductOrderMockMvc.perform(get("/api/product-orders/export?format=csv&id.equals=" + productOrder.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType("text/csv;charset=UTF-8"))
+            .andExpect(content().string(containsString("id,placedDate,status,code,invoiceId,total,itemCount,customerId,customerEmail\r\n")))
+            .andExpect(content().string(containsString(productOrder.getId() + "," + DEFAULT_PLACED_DATE + "," + DEFAULT_STATUS + ","
+                + DEFAULT_CODE + "," + DEFAULT_INVOICE_ID + ",")))
+            .andExpect(content().string(containsString("," + productOrder.getItemCount() + "," + productOrder.getCustomer().getId() + ",")));
+    }
+
+    @Test
+    @Transactional
+    public void exportProductOrdersAsCsvEscapesFormulas() throws Exception {
+        // Initialize the database with a code read as a formula by spreadsheets
+        productOrder.setCode("=HYPERLINK(\"http://example.com\",\"AAAAAAAAAA\")");
+        productOrderRepository.saveAndFlush(productOrder);
+
+        // Export the productOrders matching the criteria
+        restProductOrderMockMvc.perform(get("/api/product-orders/export?format=csv&id.equals=" + productOrder.getId()))
+            .andExpect(status().isOk())
+            .andExpect(content().string(containsString("," + DEFAULT_STATUS
+                + ",\"'=HYPERLINK(\"\"http://example.com\"\",\"\"AAAAAAAAAA\"\")\"," + DEFAULT_INVOICE_ID + ",")));
+    }
+
+    @Test
+    @Transactional
+    public void exportProductOrdersWithInvalidFormat() throws Exception {
+        restProductOrderMockMvc.perform(get("/api/product-orders/export?format=xml"))
+            .andExpect(status().isBadRequest());
+    }
+
     @Test
     @Transactional
     public void getProductOrder() throws Exception {
@@ -488,6 +659,35 @@ public class ProductOrderResourceIT {
     }
 
 
+    @Test
+    @Transactional
+    public void getAllProductOrdersByTotalIsInRange() throws Exception {
+        // Initialize the database
+        productOrderRepository.saveAndFlush(productOrder.total(new BigDecimal("25.00")));
+
+        // Get all the productOrderList where total is greater than or equal to 25
+        defaultProductOrderShouldBeFound("total.greaterThanOrEqual=25");
+
+        // Get all the productOrderList where total is greater than 25
+        defaultProductOrderShouldNotBeFound("total.greaterThan=25");
+
+        // Get all the productOrderList where total is less than 30 and sorted by total
+        defaultProductOrderShouldBeFound("total.lessThan=30&sort=total,desc");
+    }
+
+    @Test
+    @Transactional
+    public void getAllProductOrdersByItemCountIsEqualToSomething() throws Exception {
+        // Initialize the database
+        productOrderRepository.saveAndFlush(productOrder.itemCount(3));
+
+        // Get all the productOrderList where itemCount equals to 3
+        defaultProductOrderShouldBeFound("itemCount.equals=3");
+
+        // Get all the productOrderList where itemCount equals to 4
+        defaultProductOrderShouldNotBeFound("itemCount.equals=4");
+    }
+
     @Test
     @Transactional
     public void getAllProductOrdersByInvoiceIdIsEqualToSomething() throws Exception {
@@ -706,8 +906,10 @@ public class ProductOrderResourceIT {
         assertThat(testProductOrder.getCode()).isEqualTo(UPDATED_CODE);
         assertThat(testProductOrder.getInvoiceId()).isEqualTo(UPDATED_INVOICE_ID);
 
-        // Validate the ProductOrder in Elasticsearch
-        verify(mockProductOrderSearchRepository, times(1)).save(testProductOrder);
+        // Validate the ProductOrder is queued for Elasticsearch
+        assertThat(searchOutboxRepository.findAll())
+            .extracting(SearchOutboxEntry::getEntityType, SearchOutboxEntry::getEntityId, SearchOutboxEntry::getOperation)
+            .contains(tuple("ProductOrder", testProductOrder.getId(), SearchOutboxOperation.INDEX));
     }
 
     @Test
@@ -732,6 +934,27 @@ public class ProductOrderResourceIT {
         verify(mockProductOrderSearchRepository, times(0)).save(productOrder);
     }
 
+    @Test
+    @Transactional
+    public void updateNonExistingProductOrderWithUnknownId() throws Exception {
+        int databaseSizeBeforeUpdate = productOrderRepository.findAll().size();
+
+        // Create the ProductOrder, with an id no row has
+        ProductOrderDTO productOrderDTO = productOrderMapper.toDto(productOrder);
+        productOrderDTO.setId(Long.MAX_VALUE);
+
+        // An update of an entity which does not exist is not a create
+        restProductOrderMockMvc.perform(put("/api/product-orders")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(TestUtil.convertObjectToJsonBytes(productOrderDTO)))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("error.idnotfound"));
+
+        // Validate the ProductOrder in the database
+        List<ProductOrder> productOrderList = productOrderRepository.findAll();
+        assertThat(productOrderList).hasSize(databaseSizeBeforeUpdate);
+    }
+
     @Test
     @Transactional
     public void deleteProductOrder() throws Exception {
@@ -749,8 +972,50 @@ public class ProductOrderResourceIT {
         List<ProductOrder> productOrderList = productOrderRepository.findAll();
         assertThat(productOrderList).hasSize(databaseSizeBeforeDelete - 1);
 
-        // Validate the ProductOrder in Elasticsearch
-        verify(mockProductOrderSearchRepository, times(1)).deleteById(productOrder.getId());
+        // Validate the ProductOrder is queued for Elasticsearch
+        assertThat(searchOutboxRepository.findAll())
+            .extracting(SearchOutboxEntry::getEntityType, SearchOutboxEntry::getEntityId, SearchOutboxEntry::getOperation)
+            .contains(tuple("ProductOrder", productOrder.getId(), SearchOutboxOperation.DELETE));
+    }
+
+    @Test
+    @Transactional
+    public void productOrderWritesMaintainTheCustomerAggregates() throws Exception {
+        Customer customer = productOrder.getCustomer();
+        int orderCountBefore = customer.getOrderCount();
+        BigDecimal totalSpentBefore = customer.getTotalSpent();
+        Customer otherCustomer = CustomerResourceIT.createEntity(em);
+        em.persist(otherCustomer);
+        em.flush();
+
+        // Create an order
+        ProductOrderDTO productOrderDTO = productOrderService.save(productOrderMapper.toDto(productOrder));
+
+        assertThat(customer.getOrderCount()).isEqualTo(orderCountBefore + 1);
+
+        // Move it to another customer
+        productOrderDTO.setCustomerId(otherCustomer.getId());
+        restProductOrderMockMvc.perform(put("/api/product-orders")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(TestUtil.convertObjectToJsonBytes(productOrderDTO)))
+            .andExpect(status().isOk());
+
+        assertThat(customer.getOrderCount()).isEqualTo(orderCountBefore);
+        assertThat(otherCustomer.getOrderCount()).isEqualTo(1);
+
+        // Delete it
+        restProductOrderMockMvc.perform(delete("/api/product-orders/{id}", productOrderDTO.getId())
+            .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isNoContent());
+
+        assertThat(otherCustomer.getOrderCount()).isEqualTo(0);
+        assertThat(otherCustomer.getTotalSpent()).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(customer.getTotalSpent()).isEqualByComparingTo(totalSpentBefore);
+
+        // Validate the Customers are queued for Elasticsearch
+        assertThat(searchOutboxRepository.findAll())
+            .extracting(SearchOutboxEntry::getEntityType, SearchOutboxEntry::getEntityId)
+            .contains(tuple("Customer", customer.getId()), tuple("Customer", otherCustomer.getId()));
     }
 
     @Test
@@ -772,4 +1037,34 @@ public class ProductOrderResourceIT {
             .andExpect(jsonPath("$.[*].code").value(hasItem(DEFAULT_CODE)))
             .andExpect(jsonPath("$.[*].invoiceId").value(hasItem(DEFAULT_INVOICE_ID.intValue())));
     }
+
+    @Test
+    @Transactional
+    public void searchProductOrderWithSearchAfter() throws Exception {
+        // Initialize the database
+        productOrderRepository.saveAndFlush(productOrder);
+        String placedDate = String.valueOf(DEFAULT_PLACED_DATE.toEpochMilli());
+        when(mockProductOrderSearchRepository.searchAfter(any(QueryBuilder.class), any(Sort.class), isNull(), eq(20)))
+            .thenReturn(new SearchAfterSlice<>(Collections.singletonList(productOrder), Arrays.asList(placedDate, productOrder.getId().toString())));
+        when(mockProductOrderSearchRepository.searchAfter(any(QueryBuilder.class), any(Sort.class), any(Object[].class), eq(20)))
+            .thenReturn(new SearchAfterSlice<>(Collections.emptyList(), null));
+
+        // Search the first page by placed date, the next link holding the date of the last hit as epoch milliseconds
+        MvcResult firstPage = restProductOrderMockMvc.perform(get("/api/_search/product-orders")
+            .param("query", "id:" + productOrder.getId()).param("after", "").param("sort", "placedDate,desc"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(header().doesNotExist("X-Total-Count"))
+            .andExpect(jsonPath("$.[*].id").value(hasItem(productOrder.getId().intValue())))
+            .andReturn();
+
+        String link = firstPage.getResponse().getHeader(HttpHeaders.LINK);
+        restProductOrderMockMvc.perform(get(link.substring(link.indexOf('<') + 1, link.indexOf('>'))))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist(HttpHeaders.LINK));
+
+        Sort byPlacedDate = Sort.by(Sort.Direction.DESC, "placedDate").and(Sort.by(Sort.Direction.DESC, "id"));
+        verify(mockProductOrderSearchRepository).searchAfter(any(QueryBuilder.class), eq(byPlacedDate),
+            aryEq(new Object[] {DEFAULT_PLACED_DATE.toEpochMilli(), productOrder.getId()}), eq(20));
+    }
 }
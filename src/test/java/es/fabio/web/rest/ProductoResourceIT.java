@@ -2,9 +2,16 @@ package es.fabio.web.rest;
 
 import es.fabio.Application;
 import es.fabio.domain.Producto;
+import es.fabio.domain.SearchOutboxEntry;
+import es.fabio.domain.enumeration.SearchOutboxOperation;
 import es.fabio.domain.ProductCategory;
+import es.fabio.domain.ProductoImage;
+import es.fabio.repository.ProductoImageRepository;
 import es.fabio.repository.ProductoRepository;
+import es.fabio.repository.SearchOutboxRepository;
+import es.fabio.repository.search.FacetedPage;
 import es.fabio.repository.search.ProductoSearchRepository;
+import es.fabio.repository.search.SearchAfterSlice;
 import es.fabio.service.ProductoService;
 import es.fabio.service.dto.ProductoDTO;
 import es.fabio.service.mapper.ProductoMapper;
@@ -15,25 +22,41 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.mockito.ArgumentCaptor;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithAnonymousUser;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.Base64Utils;
+import org.springframework.util.DigestUtils;
 import javax.persistence.EntityManager;
 import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.elasticsearch.index.query.QueryBuilders.queryStringQuery;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.AdditionalMatchers.aryEq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -65,10 +88,18 @@ public class ProductoResourceIT {
     private static final byte[] UPDATED_IMAGE = TestUtil.createByteArray(1, "1");
     private static final String DEFAULT_IMAGE_CONTENT_TYPE = "image/jpg";
     private static final String UPDATED_IMAGE_CONTENT_TYPE = "image/png";
+    private static final String DEFAULT_IMAGE_ETAG = DigestUtils.md5DigestAsHex(DEFAULT_IMAGE);
+    private static final String UPDATED_IMAGE_ETAG = DigestUtils.md5DigestAsHex(UPDATED_IMAGE);
 
     @Autowired
     private ProductoRepository productoRepository;
 
+    @Autowired
+    private SearchOutboxRepository searchOutboxRepository;
+
+    @Autowired
+    private ProductoImageRepository productoImageRepository;
+
     @Autowired
     private ProductoMapper productoMapper;
 
@@ -106,8 +137,8 @@ public class ProductoResourceIT {
             .description(DEFAULT_DESCRIPTION)
             .price(DEFAULT_PRICE)
             .size(DEFAULT_SIZE)
-            .image(DEFAULT_IMAGE)
-            .imageContentType(DEFAULT_IMAGE_CONTENT_TYPE);
+            .imageContentType(DEFAULT_IMAGE_CONTENT_TYPE)
+            .imageEtag(DEFAULT_IMAGE_ETAG);
         return producto;
     }
     /**
@@ -122,8 +153,8 @@ public class ProductoResourceIT {
             .description(UPDATED_DESCRIPTION)
             .price(UPDATED_PRICE)
             .size(UPDATED_SIZE)
-            .image(UPDATED_IMAGE)
-            .imageContentType(UPDATED_IMAGE_CONTENT_TYPE);
+            .imageContentType(UPDATED_IMAGE_CONTENT_TYPE)
+            .imageEtag(UPDATED_IMAGE_ETAG);
         return producto;
     }
 
@@ -138,6 +169,7 @@ public class ProductoResourceIT {
         int databaseSizeBeforeCreate = productoRepository.findAll().size();
         // Create the Producto
         ProductoDTO productoDTO = productoMapper.toDto(producto);
+        productoDTO.setImage(DEFAULT_IMAGE);
         restProductoMockMvc.perform(post("/api/productos")
             .contentType(MediaType.APPLICATION_JSON)
             .content(TestUtil.convertObjectToJsonBytes(productoDTO)))
@@ -151,11 +183,14 @@ public class ProductoResourceIT {
         assertThat(testProducto.getDescription()).isEqualTo(DEFAULT_DESCRIPTION);
         assertThat(testProducto.getPrice()).isEqualTo(DEFAULT_PRICE);
         assertThat(testProducto.getSize()).isEqualTo(DEFAULT_SIZE);
-        assertThat(testProducto.getImage()).isEqualTo(DEFAULT_IMAGE);
         assertThat(testProducto.getImageContentType()).isEqualTo(DEFAULT_IMAGE_CONTENT_TYPE);
+        assertThat(testProducto.getImageEtag()).isEqualTo(DEFAULT_IMAGE_ETAG);
+        assertThat(productoImageRepository.findById(testProducto.getId()).get().getData()).isEqualTo(DEFAULT_IMAGE);
 
-        // Validate the Producto in Elasticsearch
-        verify(mockProductoSearchRepository, times(1)).save(testProducto);
+        // Validate the Producto is queued for Elasticsearch
+        assertThat(searchOutboxRepository.findAll())
+            .extracting(SearchOutboxEntry::getEntityType, SearchOutboxEntry::getEntityId, SearchOutboxEntry::getOperation)
+            .contains(tuple("Producto", testProducto.getId(), SearchOutboxOperation.INDEX));
     }
 
     @Test
@@ -242,6 +277,56 @@ public class ProductoResourceIT {
         assertThat(productoList).hasSize(databaseSizeBeforeTest);
     }
 
+    @Test
+    @Transactional
+    public void bulkSaveProductos() throws Exception {
+        productoRepository.saveAndFlush(producto);
+        int databaseSizeBeforeBulk = productoRepository.findAll().size();
+
+        ProductoDTO newProducto = productoMapper.toDto(createEntity(em));
+        newProducto.setId(null);
+        ProductoDTO invalidProducto = productoMapper.toDto(createEntity(em));
+        invalidProducto.setId(null);
+        invalidProducto.setName(null);
+        ProductoDTO updatedProducto = productoMapper.toDto(producto);
+        updatedProducto.setName(UPDATED_NAME);
+
+        restProductoMockMvc.perform(post("/api/productos/bulk")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(TestUtil.convertObjectToJsonBytes(new ProductoDTO[] {newProducto, invalidProducto, updatedProducto})))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[0].index").value(0))
+            .andExpect(jsonPath("$.[0].status").value("CREATED"))
+            .andExpect(jsonPath("$.[0].item.id").isNumber())
+            .andExpect(jsonPath("$.[1].index").value(1))
+            .andExpect(jsonPath("$.[1].status").value("FAILED"))
+            .andExpect(jsonPath("$.[1].errors.[0]").value(containsString("name")))
+            .andExpect(jsonPath("$.[2].status").value("UPDATED"))
+            .andExpect(jsonPath("$.[2].item.name").value(UPDATED_NAME));
+
+        assertThat(productoRepository.findAll()).hasSize(databaseSizeBeforeBulk + 1);
+        assertThat(productoRepository.findById(producto.getId()).get().getName()).isEqualTo(UPDATED_NAME);
+    }
+
+    @Test
+    @Transactional
+    public void bulkSaveProductosAsNdjson() throws Exception {
+        int databaseSizeBeforeBulk = productoRepository.findAll().size();
+
+        ProductoDTO productoDTO = productoMapper.toDto(producto);
+        String body = new String(TestUtil.convertObjectToJsonBytes(productoDTO)) + "\n\n{not json\n"
+            + new String(TestUtil.convertObjectToJsonBytes(productoDTO)) + "\n";
+
+        restProductoMockMvc.perform(post("/api/productos/bulk")
+            .contentType("application/x-ndjson")
+            .content(body))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[*].status").value(contains("CREATED", "FAILED", "CREATED")))
+            .andExpect(jsonPath("$.[1].errors.[0]").value(containsString("line 3")));
+
+        assertThat(productoRepository.findAll()).hasSize(databaseSizeBeforeBulk + 2);
+    }
+
     @Test
     @Transactional
     public void getAllProductos() throws Exception {
@@ -258,7 +343,8 @@ public class ProductoResourceIT {
             .andExpect(jsonPath("$.[*].price").value(hasItem(DEFAULT_PRICE.intValue())))
             .andExpect(jsonPath("$.[*].size").value(hasItem(DEFAULT_SIZE.toString())))
             .andExpect(jsonPath("$.[*].imageContentType").value(hasItem(DEFAULT_IMAGE_CONTENT_TYPE)))
-            .andExpect(jsonPath("$.[*].image").value(hasItem(Base64Utils.encodeToString(DEFAULT_IMAGE))));
+            .andExpect(jsonPath("$.[*].imageUrl").value(hasItem(defaultImageUrl())))
+            .andExpect(jsonPath("$.[*].image").value(hasItem(nullValue())));
     }
     
     @Test
@@ -266,6 +352,7 @@ public class ProductoResourceIT {
     public void getProducto() throws Exception {
         // Initialize the database
         productoRepository.saveAndFlush(producto);
+        productoImageRepository.saveAndFlush(new ProductoImage().productoId(producto.getId()).data(DEFAULT_IMAGE));
 
         // Get the producto
         restProductoMockMvc.perform(get("/api/productos/{id}", producto.getId()))
@@ -277,9 +364,42 @@ public class ProductoResourceIT {
             .andExpect(jsonPath("$.price").value(DEFAULT_PRICE.intValue()))
             .andExpect(jsonPath("$.size").value(DEFAULT_SIZE.toString()))
             .andExpect(jsonPath("$.imageContentType").value(DEFAULT_IMAGE_CONTENT_TYPE))
+            .andExpect(jsonPath("$.imageUrl").value(defaultImageUrl()))
             .andExpect(jsonPath("$.image").value(Base64Utils.encodeToString(DEFAULT_IMAGE)));
     }
 
+    @Test
+    @Transactional
+    public void getProductoIsConditional() throws Exception {
+        // Initialize the database
+        ProductCategory productCategory = ProductCategoryResourceIT.createEntity(em);
+        em.persist(productCategory);
+        productoRepository.saveAndFlush(producto.productCategory(productCategory));
+        String eTag = "\"" + producto.getVersion() + "-" + productCategory.getVersion() + "\"";
+
+        restProductoMockMvc.perform(get("/api/productos/{id}", producto.getId()))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, eTag))
+            .andExpect(jsonPath("$.productCategoryName").value(productCategory.getName()));
+
+        // The copy held by the client is still the current one
+        restProductoMockMvc.perform(get("/api/productos/{id}", producto.getId())
+            .header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, eTag))
+            .andExpect(content().string(""));
+
+        // Rename the product category, whose name the producto shows
+        productCategory.setName(UPDATED_NAME);
+        em.flush();
+
+        restProductoMockMvc.perform(get("/api/productos/{id}", producto.getId())
+            .header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, "\"" + producto.getVersion() + "-" + productCategory.getVersion() + "\""))
+            .andExpect(jsonPath("$.productCategoryName").value(UPDATED_NAME));
+    }
+
 
     @Test
     @Transactional
@@ -632,6 +752,43 @@ public class ProductoResourceIT {
         defaultProductoShouldNotBeFound("productCategoryId.equals=" + (productCategoryId + 1));
     }
 
+    @Test
+    @Transactional
+    public void getAllProductosWithKeysetPagination() throws Exception {
+        // Initialize the database
+        productoRepository.saveAndFlush(producto);
+        Producto otherProducto = createUpdatedEntity(em);
+        productoRepository.saveAndFlush(otherProducto);
+        String filter = "id.in=" + producto.getId() + "," + otherProducto.getId();
+
+        // Get the first page sorted by name, without counting the matches
+        MvcResult firstPage = restProductoMockMvc.perform(get("/api/productos?after=&size=1&sort=name,asc&" + filter))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(header().doesNotExist("X-Total-Count"))
+            .andExpect(header().exists(HttpHeaders.LINK))
+            .andExpect(jsonPath("$.[*].id").value(contains(producto.getId().intValue())))
+            .andReturn();
+
+        // Follow the next link, which seeks after the last returned row
+        String link = firstPage.getResponse().getHeader(HttpHeaders.LINK);
+        String next = link.substring(link.indexOf('<') + 1, link.indexOf('>'));
+        restProductoMockMvc.perform(get(next))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist(HttpHeaders.LINK))
+            .andExpect(jsonPath("$.[*].id").value(contains(otherProducto.getId().intValue())));
+    }
+
+    @Test
+    @Transactional
+    public void getAllProductosWithInvalidKeysetCursor() throws Exception {
+        restProductoMockMvc.perform(get("/api/productos?after=invalid"))
+            .andExpect(status().isBadRequest());
+
+        restProductoMockMvc.perform(get("/api/productos?after=&sort=description,asc"))
+            .andExpect(status().isBadRequest());
+    }
+
     /**
      * Executes the search, and checks that the default entity is returned.
      */
@@ -645,7 +802,8 @@ public class ProductoResourceIT {
             .andExpect(jsonPath("$.[*].price").value(hasItem(DEFAULT_PRICE.intValue())))
             .andExpect(jsonPath("$.[*].size").value(hasItem(DEFAULT_SIZE.toString())))
             .andExpect(jsonPath("$.[*].imageContentType").value(hasItem(DEFAULT_IMAGE_CONTENT_TYPE)))
-            .andExpect(jsonPath("$.[*].image").value(hasItem(Base64Utils.encodeToString(DEFAULT_IMAGE))));
+            .andExpect(jsonPath("$.[*].imageUrl").value(hasItem(defaultImageUrl())))
+            .andExpect(jsonPath("$.[*].image").value(hasItem(nullValue())));
 
         // Check, that the count call also returns 1
         restProductoMockMvc.perform(get("/api/productos/count?sort=id,desc&" + filter))
@@ -671,6 +829,58 @@ public class ProductoResourceIT {
             .andExpect(content().string("0"));
     }
 
+    @Test
+    @Transactional
+    public void getProductoImage() throws Exception {
+        // Initialize the database
+        productoRepository.saveAndFlush(producto);
+        productoImageRepository.saveAndFlush(new ProductoImage().productoId(producto.getId()).data(DEFAULT_IMAGE));
+
+        // Get the image from its versioned URL
+        restProductoMockMvc.perform(get(defaultImageUrl()))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(DEFAULT_IMAGE_CONTENT_TYPE))
+            .andExpect(content().bytes(DEFAULT_IMAGE))
+            .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, DEFAULT_IMAGE.length))
+            .andExpect(header().string(HttpHeaders.ETAG, "\"" + DEFAULT_IMAGE_ETAG + "\""))
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("max-age=31536000")));
+
+        // Revalidate the image held by the client
+        restProductoMockMvc.perform(get("/api/productos/{id}/image", producto.getId())
+            .header(HttpHeaders.IF_NONE_MATCH, "\"" + DEFAULT_IMAGE_ETAG + "\""))
+            .andExpect(status().isNotModified())
+            .andExpect(content().bytes(new byte[0]))
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("no-cache")));
+    }
+
+    @Test
+    @Transactional
+    @WithAnonymousUser
+    public void getProductoImageAnonymously() throws Exception {
+        // Initialize the database
+        productoRepository.saveAndFlush(producto);
+        productoImageRepository.saveAndFlush(new ProductoImage().productoId(producto.getId()).data(DEFAULT_IMAGE));
+
+        // The image is loaded by img tags, which do not send the token, unlike the producto itself
+        restProductoMockMvc.perform(get(defaultImageUrl()))
+            .andExpect(status().isOk())
+            .andExpect(content().bytes(DEFAULT_IMAGE));
+        restProductoMockMvc.perform(get("/api/productos/{id}", producto.getId()))
+            .andExpect(status().isUnauthorized());
+        restProductoMockMvc.perform(delete("/api/productos/{id}/image", producto.getId()))
+            .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    @Transactional
+    public void getNonExistingProductoImage() throws Exception {
+        // Initialize the database
+        productoRepository.saveAndFlush(producto.imageContentType(null).imageEtag(null));
+
+        restProductoMockMvc.perform(get("/api/productos/{id}/image", producto.getId()))
+            .andExpect(status().isNotFound());
+    }
+
     @Test
     @Transactional
     public void getNonExistingProducto() throws Exception {
@@ -696,9 +906,9 @@ public class ProductoResourceIT {
             .description(UPDATED_DESCRIPTION)
             .price(UPDATED_PRICE)
             .size(UPDATED_SIZE)
-            .image(UPDATED_IMAGE)
             .imageContentType(UPDATED_IMAGE_CONTENT_TYPE);
         ProductoDTO productoDTO = productoMapper.toDto(updatedProducto);
+        productoDTO.setImage(UPDATED_IMAGE);
 
         restProductoMockMvc.perform(put("/api/productos")
             .contentType(MediaType.APPLICATION_JSON)
@@ -713,11 +923,71 @@ public class ProductoResourceIT {
         assertThat(testProducto.getDescription()).isEqualTo(UPDATED_DESCRIPTION);
         assertThat(testProducto.getPrice()).isEqualTo(UPDATED_PRICE);
         assertThat(testProducto.getSize()).isEqualTo(UPDATED_SIZE);
-        assertThat(testProducto.getImage()).isEqualTo(UPDATED_IMAGE);
         assertThat(testProducto.getImageContentType()).isEqualTo(UPDATED_IMAGE_CONTENT_TYPE);
+        assertThat(testProducto.getImageEtag()).isEqualTo(UPDATED_IMAGE_ETAG);
+        assertThat(productoImageRepository.findById(testProducto.getId()).get().getData()).isEqualTo(UPDATED_IMAGE);
 
-        // Validate the Producto in Elasticsearch
-        verify(mockProductoSearchRepository, times(1)).save(testProducto);
+        // Validate the Producto is queued for Elasticsearch
+        assertThat(searchOutboxRepository.findAll())
+            .extracting(SearchOutboxEntry::getEntityType, SearchOutboxEntry::getEntityId, SearchOutboxEntry::getOperation)
+            .contains(tuple("Producto", testProducto.getId(), SearchOutboxOperation.INDEX));
+    }
+
+    @Test
+    @Transactional
+    public void updateProductoWithIfMatch() throws Exception {
+        // Initialize the database, the producto has no product category
+        productoRepository.saveAndFlush(producto);
+        ProductoDTO productoDTO = productoMapper.toDto(producto.name(UPDATED_NAME));
+        em.detach(producto);
+        productoDTO.setVersion(null);
+
+        restProductoMockMvc.perform(put("/api/productos")
+            .header(HttpHeaders.IF_MATCH, "\"0\", \"0-1\"")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(TestUtil.convertObjectToJsonBytes(productoDTO)))
+            .andExpect(status().isPreconditionFailed());
+
+        restProductoMockMvc.perform(put("/api/productos")
+            .header(HttpHeaders.IF_MATCH, "\"0-0\"")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(TestUtil.convertObjectToJsonBytes(productoDTO)))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, "\"1-0\""))
+            .andExpect(jsonPath("$.version").value(1))
+            .andExpect(jsonPath("$.name").value(UPDATED_NAME));
+
+        // The client copy is now stale
+        restProductoMockMvc.perform(put("/api/productos")
+            .header(HttpHeaders.IF_MATCH, "\"0-0\"")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(TestUtil.convertObjectToJsonBytes(productoDTO)))
+            .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    @Transactional
+    public void updateProductoWithStaleVersion() throws Exception {
+        // Initialize the database
+        productoRepository.saveAndFlush(producto);
+        ProductoDTO productoDTO = productoMapper.toDto(producto);
+        em.detach(producto);
+        productoDTO.setName(UPDATED_NAME);
+
+        restProductoMockMvc.perform(put("/api/productos")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(TestUtil.convertObjectToJsonBytes(productoDTO)))
+            .andExpect(status().isOk());
+
+        // The same update, based on the previous version: any current copy matches, but the body version is kept
+        productoDTO.setDescription(UPDATED_DESCRIPTION);
+        restProductoMockMvc.perform(put("/api/productos")
+            .header(HttpHeaders.IF_MATCH, "*")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(TestUtil.convertObjectToJsonBytes(productoDTO)))
+            .andExpect(status().isConflict());
+
+        assertThat(productoRepository.findById(productoDTO.getId()).get().getDescription()).isEqualTo(DEFAULT_DESCRIPTION);
     }
 
     @Test
@@ -742,6 +1012,27 @@ public class ProductoResourceIT {
         verify(mockProductoSearchRepository, times(0)).save(producto);
     }
 
+    @Test
+    @Transactional
+    public void updateNonExistingProductoWithUnknownId() throws Exception {
+        int databaseSizeBeforeUpdate = productoRepository.findAll().size();
+
+        // Create the Producto, with an id no row has
+        ProductoDTO productoDTO = productoMapper.toDto(producto);
+        productoDTO.setId(Long.MAX_VALUE);
+
+        // An update of an entity which does not exist is not a create
+        restProductoMockMvc.perform(put("/api/productos")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(TestUtil.convertObjectToJsonBytes(productoDTO)))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("error.idnotfound"));
+
+        // Validate the Producto in the database
+        List<Producto> productoList = productoRepository.findAll();
+        assertThat(productoList).hasSize(databaseSizeBeforeUpdate);
+    }
+
     @Test
     @Transactional
     public void deleteProducto() throws Exception {
@@ -759,8 +1050,10 @@ public class ProductoResourceIT {
         List<Producto> productoList = productoRepository.findAll();
         assertThat(productoList).hasSize(databaseSizeBeforeDelete - 1);
 
-        // Validate the Producto in Elasticsearch
-        verify(mockProductoSearchRepository, times(1)).deleteById(producto.getId());
+        // Validate the Producto is queued for Elasticsearch
+        assertThat(searchOutboxRepository.findAll())
+            .extracting(SearchOutboxEntry::getEntityType, SearchOutboxEntry::getEntityId, SearchOutboxEntry::getOperation)
+            .contains(tuple("Producto", producto.getId(), SearchOutboxOperation.DELETE));
     }
 
     @Test
@@ -769,7 +1062,8 @@ public class ProductoResourceIT {
         // Configure the mock search repository
         // Initialize the database
         productoRepository.saveAndFlush(producto);
-        when(mockProductoSearchRepository.search(queryStringQuery("id:" + producto.getId()), PageRequest.of(0, 20)))
+        when(mockProductoSearchRepository.searchWithinLimits(
+            queryStringQuery("id:" + producto.getId()).allowLeadingWildcard(false).maxDeterminizedStates(2000), PageRequest.of(0, 20)))
             .thenReturn(new PageImpl<>(Collections.singletonList(producto), PageRequest.of(0, 1), 1));
 
         // Search the producto
@@ -782,6 +1076,150 @@ public class ProductoResourceIT {
             .andExpect(jsonPath("$.[*].price").value(hasItem(DEFAULT_PRICE.intValue())))
             .andExpect(jsonPath("$.[*].size").value(hasItem(DEFAULT_SIZE.toString())))
             .andExpect(jsonPath("$.[*].imageContentType").value(hasItem(DEFAULT_IMAGE_CONTENT_TYPE)))
-            .andExpect(jsonPath("$.[*].image").value(hasItem(Base64Utils.encodeToString(DEFAULT_IMAGE))));
+            .andExpect(jsonPath("$.[*].imageUrl").value(hasItem(defaultImageUrl())))
+            .andExpect(jsonPath("$.[*].image").value(hasItem(nullValue())));
+    }
+
+    @Test
+    @Transactional
+    public void searchProductoByTypedSearch() throws Exception {
+        // Initialize the database
+        productoRepository.saveAndFlush(producto);
+        ArgumentCaptor<QueryBuilder> query = ArgumentCaptor.forClass(QueryBuilder.class);
+        when(mockProductoSearchRepository.searchWithinLimits(query.capture(),
+            eq(PageRequest.of(0, 20, Sort.by(Sort.Order.asc("price"), Sort.Order.asc("id"))))))
+            .thenReturn(new PageImpl<>(Collections.singletonList(producto), PageRequest.of(0, 1), 1));
+
+        // Search the producto
+        restProductoMockMvc.perform(get("/api/_search/productos?text=AAAAAAAAAA&sizes=" + DEFAULT_SIZE + "&minPrice=0&maxPrice=10&sort=price,asc"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(jsonPath("$.[*].id").value(hasItem(producto.getId().intValue())))
+            .andExpect(jsonPath("$.[*].name").value(hasItem(DEFAULT_NAME)));
+
+        assertThat(query.getValue().toString())
+            .contains("\"multi_match\"", "\"name^3.0\"", "\"description^1.0\"")
+            .contains("\"size.keyword\"", "\"" + DEFAULT_SIZE + "\"")
+            .contains("\"price\"", "\"from\" : \"0\"", "\"to\" : \"10\"");
+    }
+
+    @Test
+    @Transactional
+    @SuppressWarnings("unchecked")
+    public void searchProductoWithFacets() throws Exception {
+        // Initialize the database
+        productoRepository.saveAndFlush(producto);
+        Map<String, Map<String, Long>> facets = new LinkedHashMap<>();
+        facets.put("productCategory", Collections.singletonMap("1", 3L));
+        facets.put("size", Collections.singletonMap(DEFAULT_SIZE.toString(), 1L));
+        facets.put("price", Collections.singletonMap("*-10", 1L));
+        ArgumentCaptor<Map<String, QueryBuilder>> filters = ArgumentCaptor.forClass(Map.class);
+        ArgumentCaptor<Map<String, AggregationBuilder>> aggregations = ArgumentCaptor.forClass(Map.class);
+        when(mockProductoSearchRepository.searchWithFacets(any(QueryBuilder.class), filters.capture(), aggregations.capture(),
+            eq(PageRequest.of(0, 20, Sort.by(Sort.Order.desc("_score"), Sort.Order.asc("id"))))))
+            .thenReturn(new FacetedPage<>(Collections.singletonList(producto), PageRequest.of(0, 20), 1, facets));
+
+        // Search the producto with the facets
+        restProductoMockMvc.perform(get("/api/_search/productos/faceted?text=AAAAAAAAAA&sizes=" + DEFAULT_SIZE))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(header().string("X-Total-Count", "1"))
+            .andExpect(jsonPath("$.totalCount").value(1))
+            .andExpect(jsonPath("$.content.[*].id").value(hasItem(producto.getId().intValue())))
+            .andExpect(jsonPath("$.facets.productCategory.[0].key").value("1"))
+            .andExpect(jsonPath("$.facets.productCategory.[0].count").value(3))
+            .andExpect(jsonPath("$.facets.size.[0].key").value(DEFAULT_SIZE.toString()))
+            .andExpect(jsonPath("$.facets.price.[0].key").value("*-10"));
+
+        // Only the size is filtered, and the price bands follow the configured bounds
+        assertThat(filters.getValue()).containsOnlyKeys("size");
+        assertThat(aggregations.getValue()).containsOnlyKeys("productCategory", "size", "price");
+        assertThat(aggregations.getValue().get("price").toString())
+            .contains("\"*-10\"", "\"10-25\"", "\"25-50\"", "\"50-100\"", "\"100-*\"");
+    }
+
+    @Test
+    @Transactional
+    public void suggestProductos() throws Exception {
+        // Initialize the database
+        productoRepository.saveAndFlush(producto);
+        when(mockProductoSearchRepository.searchTop(any(QueryBuilder.class), any(String[].class), eq(10)))
+            .thenReturn(Collections.singletonList(producto));
+
+        // Suggest the producto twice, the second time from the cache, the size being capped
+        for (int i = 0; i < 2; i++) {
+            restProductoMockMvc.perform(get("/api/_suggest/productos").param("prefix", "AAAA Suggest").param("size", "50"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+                .andExpect(header().string("Cache-Control", containsString("private")))
+                .andExpect(jsonPath("$.[0].id").value(producto.getId().intValue()))
+                .andExpect(jsonPath("$.[0].label").value(DEFAULT_NAME));
+        }
+
+        ArgumentCaptor<QueryBuilder> query = ArgumentCaptor.forClass(QueryBuilder.class);
+        verify(mockProductoSearchRepository, times(1)).searchTop(query.capture(), any(String[].class), eq(10));
+        assertThat(query.getValue().toString()).contains("name.autocomplete", "\"aaaa suggest\"");
+    }
+
+    @Test
+    @Transactional
+    public void searchProductoBeyondResultWindow() throws Exception {
+        restProductoMockMvc.perform(get("/api/_search/productos?text=AAAAAAAAAA&page=50&size=20"))
+            .andExpect(status().isBadRequest());
+
+        restProductoMockMvc.perform(get("/api/_search/productos?query=AAAAAAAAAA&page=50&size=20"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void searchProductoByUnknownSort() throws Exception {
+        restProductoMockMvc.perform(get("/api/_search/productos?text=AAAAAAAAAA&sort=description,asc"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Transactional
+    public void searchProductoWithSearchAfter() throws Exception {
+        // Initialize the database
+        productoRepository.saveAndFlush(producto);
+        Producto otherProducto = createUpdatedEntity(em);
+        productoRepository.saveAndFlush(otherProducto);
+        when(mockProductoSearchRepository.searchAfter(any(QueryBuilder.class), any(Sort.class), isNull(), eq(1)))
+            .thenReturn(new SearchAfterSlice<>(Collections.singletonList(producto), Arrays.asList("1.5", producto.getId().toString())));
+        when(mockProductoSearchRepository.searchAfter(any(QueryBuilder.class), any(Sort.class), any(Object[].class), eq(1)))
+            .thenReturn(new SearchAfterSlice<>(Collections.singletonList(otherProducto), null));
+
+        // Search the first page by relevance, without counting the matches
+        MvcResult firstPage = restProductoMockMvc.perform(get("/api/_search/productos").param("text", "AAAAAAAAAA").param("after", "").param("size", "1"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(header().doesNotExist("X-Total-Count"))
+            .andExpect(header().exists(HttpHeaders.LINK))
+            .andExpect(jsonPath("$.[*].id").value(contains(producto.getId().intValue())))
+            .andReturn();
+
+        // Follow the next link, which searches after the score and id of the last hit
+        String link = firstPage.getResponse().getHeader(HttpHeaders.LINK);
+        String next = link.substring(link.indexOf('<') + 1, link.indexOf('>'));
+        restProductoMockMvc.perform(get(next))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist(HttpHeaders.LINK))
+            .andExpect(jsonPath("$.[*].id").value(contains(otherProducto.getId().intValue())));
+
+        Sort byScore = Sort.by(Sort.Direction.DESC, "_score").and(Sort.by(Sort.Direction.DESC, "id"));
+        verify(mockProductoSearchRepository).searchAfter(any(QueryBuilder.class), eq(byScore), isNull(), eq(1));
+        verify(mockProductoSearchRepository).searchAfter(any(QueryBuilder.class), eq(byScore), aryEq(new Object[] {1.5, producto.getId()}), eq(1));
+    }
+
+    @Test
+    @Transactional
+    public void searchProductoWithSearchAfterByUnknownSort() throws Exception {
+        restProductoMockMvc.perform(get("/api/_search/productos?text=AAAAAAAAAA&after=&sort=description,asc"))
+            .andExpect(status().isBadRequest());
+    }
+
+    private String defaultImageUrl() {
+        return "/api/productos/" + producto.getId() + "/image?v=" + DEFAULT_IMAGE_ETAG;
     }
 }
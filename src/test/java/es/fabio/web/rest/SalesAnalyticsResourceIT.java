@@ -0,0 +1,215 @@
+package es.fabio.web.rest;
+
+import es.fabio.Application;
+import es.fabio.config.ApplicationProperties;
+import es.fabio.domain.OrderItem;
+import es.fabio.domain.ProductCategory;
+import es.fabio.domain.ProductOrder;
+import es.fabio.domain.Producto;
+import es.fabio.domain.enumeration.OrderStatus;
+import es.fabio.domain.enumeration.Size;
+import es.fabio.repository.SalesRollupDeltaRepository;
+import es.fabio.security.AuthoritiesConstants;
+import es.fabio.service.OrderItemService;
+import es.fabio.service.ProductOrderService;
+import es.fabio.service.ProductoService;
+import es.fabio.service.SalesRollupJob;
+import es.fabio.service.dto.OrderItemDTO;
+import es.fabio.service.dto.ProductOrderDTO;
+import es.fabio.service.dto.ProductoDTO;
+import es.fabio.service.mapper.OrderItemMapper;
+import es.fabio.service.mapper.ProductOrderMapper;
+import es.fabio.service.mapper.ProductoMapper;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Integration tests for the {@link SalesAnalyticsResource} REST controller.
+ */
+@SpringBootTest(classes = Application.class)
+@AutoConfigureMockMvc
+@WithMockUser(authorities = AuthoritiesConstants.ADMIN)
+public class SalesAnalyticsResourceIT {
+
+    /**
+     * Yesterday, within the hourly retention.
+     */
+    private static final Instant DAY = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(1, ChronoUnit.DAYS);
+
+    private static final String RANGE = "from=" + DAY + "&to=" + DAY.plus(1, ChronoUnit.DAYS);
+
+    @Autowired
+    private OrderItemService orderItemService;
+
+    @Autowired
+    private OrderItemMapper orderItemMapper;
+
+    @Autowired
+    private ProductOrderService productOrderService;
+
+    @Autowired
+    private ProductOrderMapper productOrderMapper;
+
+    @Autowired
+    private ProductoService productoService;
+
+    @Autowired
+    private ProductoMapper productoMapper;
+
+    @Autowired
+    private SalesRollupDeltaRepository salesRollupDeltaRepository;
+
+    @Autowired
+    private SalesRollupJob salesRollupJob;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private MockMvc restSalesAnalyticsMockMvc;
+
+    private ProductOrder productOrder;
+
+    private OrderItemDTO orderItemDTO;
+
+    @BeforeEach
+    public void initTest() {
+        OrderItem orderItem = OrderItemResourceIT.createEntity(em);
+        productOrder = orderItem.getOrder();
+        productOrder.setPlacedDate(DAY.plus(10, ChronoUnit.HOURS).plus(20, ChronoUnit.MINUTES));
+        orderItemDTO = orderItemService.save(orderItemMapper.toDto(orderItem.quantity(2).totalPrice(new BigDecimal("20.00"))));
+        orderItemService.save(orderItemMapper.toDto(OrderItemResourceIT.createEntity(em).quantity(1).totalPrice(new BigDecimal("5.50"))));
+    }
+
+    @Test
+    @Transactional
+    public void getDailySales() throws Exception {
+        assertThat(salesRollupJob.foldDeltas()).isEqualTo(2);
+        assertThat(salesRollupDeltaRepository.count()).isZero();
+
+        restSalesAnalyticsMockMvc.perform(get("/api/analytics/sales?" + RANGE))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$.[0].bucketStart").value(DAY.toString()))
+            .andExpect(jsonPath("$.[0].revenue").value(25.5))
+            .andExpect(jsonPath("$.[0].units").value(3))
+            .andExpect(jsonPath("$.[0].itemCount").value(2));
+    }
+
+    @Test
+    @Transactional
+    public void getHourlySalesGroupedBySizeAndStatus() throws Exception {
+        salesRollupJob.foldDeltas();
+
+        restSalesAnalyticsMockMvc.perform(get("/api/analytics/sales?" + RANGE + "&granularity=HOUR&groupBy=SIZE,STATUS"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$.[0].bucketStart").value(DAY.plus(10, ChronoUnit.HOURS).toString()))
+            .andExpect(jsonPath("$.[0].size").value(Size.S.toString()))
+            .andExpect(jsonPath("$.[0].orderStatus").value(productOrder.getStatus().toString()))
+            .andExpect(jsonPath("$.[0].revenue").value(25.5));
+
+        restSalesAnalyticsMockMvc.perform(get("/api/analytics/sales?" + RANGE + "&granularity=HOUR&size=" + Size.XL))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(0)));
+    }
+
+    @Test
+    @Transactional
+    public void orderStatusChangeMovesItsSales() throws Exception {
+        ProductOrderDTO productOrderDTO = productOrderMapper.toDto(productOrder);
+        productOrderDTO.setStatus(OrderStatus.CANCELLED);
+        productOrderService.save(productOrderDTO);
+        salesRollupJob.foldDeltas();
+
+        restSalesAnalyticsMockMvc.perform(get("/api/analytics/sales?" + RANGE + "&groupBy=STATUS"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$.[0].orderStatus").value(OrderStatus.CANCELLED.toString()))
+            .andExpect(jsonPath("$.[0].revenue").value(25.5));
+    }
+
+    @Test
+    @Transactional
+    public void productoChangeKeepsTheSalesWhereTheyWereAdded() throws Exception {
+        Producto producto = em.find(Producto.class, orderItemDTO.getProductoId());
+        ProductCategory productCategory = new ProductCategory().name("Moved");
+        em.persist(productCategory);
+        ProductoDTO productoDTO = productoMapper.toDto(producto);
+        productoDTO.setProductCategoryId(productCategory.getId());
+        productoDTO.setSize(Size.XL);
+        productoService.save(productoDTO);
+
+        // The item is removed from the category and size it was sold with, not from the current ones
+        orderItemService.delete(orderItemDTO.getId());
+        salesRollupJob.foldDeltas();
+
+        restSalesAnalyticsMockMvc.perform(get("/api/analytics/sales?" + RANGE + "&groupBy=CATEGORY,SIZE"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$.[0].productCategoryId").doesNotExist())
+            .andExpect(jsonPath("$.[0].size").value(Size.S.toString()))
+            .andExpect(jsonPath("$.[0].revenue").value(5.5))
+            .andExpect(jsonPath("$.[0].itemCount").value(1));
+    }
+
+    @Test
+    @Transactional
+    public void compactionKeepsTheDailySales() throws Exception {
+        salesRollupJob.foldDeltas();
+
+        Instant afterRetention = Instant.now().plus(applicationProperties.getSalesAnalytics().getHourlyRetentionDays() + 1, ChronoUnit.DAYS);
+        assertThat(salesRollupJob.compactBefore(afterRetention)).isEqualTo(1);
+        assertThat(salesRollupJob.compactBefore(afterRetention)).isZero();
+
+        restSalesAnalyticsMockMvc.perform(get("/api/analytics/sales?" + RANGE))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$.[0].revenue").value(25.5))
+            .andExpect(jsonPath("$.[0].itemCount").value(2));
+    }
+
+    @Test
+    @Transactional
+    public void getHourlySalesBeforeTheHourlyRetention() throws Exception {
+        Instant from = DAY.minus(applicationProperties.getSalesAnalytics().getHourlyRetentionDays(), ChronoUnit.DAYS);
+
+        restSalesAnalyticsMockMvc.perform(get("/api/analytics/sales?from=" + from + "&to=" + DAY + "&granularity=HOUR"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.message").value("error.compactedrange"));
+        restSalesAnalyticsMockMvc.perform(get("/api/analytics/sales?from=" + from + "&to=" + DAY))
+            .andExpect(status().isOk());
+    }
+
+    @Test
+    @Transactional
+    public void getSalesWithInvalidRange() throws Exception {
+        Instant now = Instant.now();
+        restSalesAnalyticsMockMvc.perform(get("/api/analytics/sales?from=" + now + "&to=" + now.minus(1, ChronoUnit.DAYS)))
+            .andExpect(status().isBadRequest());
+        restSalesAnalyticsMockMvc.perform(get("/api/analytics/sales"))
+            .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,160 @@
+package es.fabio.web.rest.util;
+
+import es.fabio.Application;
+import es.fabio.config.ApplicationProperties;
+import es.fabio.domain.ProductCategory;
+import es.fabio.repository.ProductCategoryRepository;
+import es.fabio.repository.search.ProductoSearchRepository;
+import es.fabio.repository.search.SearchTimeouts;
+import es.fabio.service.dto.ProductCategoryDTO;
+import es.fabio.service.mapper.ProductCategoryMapper;
+import es.fabio.web.rest.TestUtil;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.cache.CacheManager;
+import java.util.Collections;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Integration tests for the {@link CatalogueResponseCache}, disabled in the other tests.
+ * <p>
+ * The productCategories are changed through the repository to tell a cached response from a fresh one, as the cache
+ * only sees the writes of the services.
+ */
+@SpringBootTest(classes = Application.class)
+@AutoConfigureMockMvc
+@WithMockUser
+public class CatalogueResponseCacheIT {
+
+    private static final String DEFAULT_NAME = "AAAAAAAAAA";
+    private static final String UPDATED_NAME = "BBBBBBBBBB";
+    private static final String WRITTEN_NAME = "CCCCCCCCCC";
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ProductCategoryRepository productCategoryRepository;
+
+    @Autowired
+    private ProductCategoryMapper productCategoryMapper;
+
+    /**
+     * This repository is mocked in the es.fabio.repository.search test package.
+     *
+     * @see es.fabio.repository.search.ProductoSearchRepositoryMockConfiguration
+     */
+    @Autowired
+    private ProductoSearchRepository mockProductoSearchRepository;
+
+    @Autowired
+    private MockMvc restMockMvc;
+
+    private int maxBodyBytes;
+
+    @BeforeEach
+    public void enableCache() {
+        applicationProperties.getCatalogueCache().setEnabled(true);
+        maxBodyBytes = applicationProperties.getCatalogueCache().getMaxBodyBytes();
+    }
+
+    @AfterEach
+    public void disableCache() {
+        applicationProperties.getCatalogueCache().setEnabled(false);
+        applicationProperties.getCatalogueCache().setMaxBodyBytes(maxBodyBytes);
+        cacheManager.getCache(CatalogueResponseCache.CACHE_NAME).clear();
+    }
+
+    @Test
+    @Transactional
+    public void responsesAreCachedUntilTheCatalogueIsWritten() throws Exception {
+        ProductCategory productCategory = productCategoryRepository.saveAndFlush(new ProductCategory().name(DEFAULT_NAME));
+        String url = "/api/product-categories?id.equals=" + productCategory.getId();
+
+        String eTag = restMockMvc.perform(get(url))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE))
+            .andExpect(jsonPath("$.[0].name").value(DEFAULT_NAME))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        productCategoryRepository.saveAndFlush(productCategory.name(UPDATED_NAME));
+
+        // The same criteria, with a parameter which is not bound, share the cached response
+        restMockMvc.perform(get(url + "&unused=1"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, eTag))
+            .andExpect(jsonPath("$.[0].name").value(DEFAULT_NAME));
+        restMockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isNotModified());
+
+        // A write through the service makes it unreachable
+        ProductCategoryDTO productCategoryDTO = productCategoryMapper.toDto(productCategory);
+        productCategoryDTO.setName(WRITTEN_NAME);
+        restMockMvc.perform(put("/api/product-categories")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(TestUtil.convertObjectToJsonBytes(productCategoryDTO)))
+            .andExpect(status().isOk());
+
+        restMockMvc.perform(get(url))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[0].name").value(WRITTEN_NAME));
+    }
+
+    @Test
+    @Transactional
+    public void largeResponsesAreNotCached() throws Exception {
+        applicationProperties.getCatalogueCache().setMaxBodyBytes(1);
+        ProductCategory productCategory = productCategoryRepository.saveAndFlush(new ProductCategory().name(DEFAULT_NAME));
+        String url = "/api/product-categories?id.equals=" + productCategory.getId();
+
+        restMockMvc.perform(get(url))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[0].name").value(DEFAULT_NAME));
+
+        productCategoryRepository.saveAndFlush(productCategory.name(UPDATED_NAME));
+
+        restMockMvc.perform(get(url))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.[0].name").value(UPDATED_NAME));
+    }
+
+    @Test
+    @Transactional
+    public void timedOutSearchesAreNotCached() throws Exception {
+        when(mockProductoSearchRepository.searchWithinLimits(any(), any())).thenAnswer(invocation -> {
+            SearchTimeouts.markTimedOut();
+            return new PageImpl<>(Collections.emptyList(), invocation.getArgument(1), 0);
+        });
+
+        for (int i = 0; i < 2; i++) {
+            restMockMvc.perform(get("/api/_search/productos?query=id:1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(SearchTimeoutAdvice.TIMED_OUT_HEADER, "true"));
+        }
+
+        // The partial response was searched again rather than read from the cache
+        verify(mockProductoSearchRepository, times(2)).searchWithinLimits(any(), any());
+    }
+}